@@ -0,0 +1,38 @@
+package cc.whohow.redis.benchmark;
+
+import cc.whohow.redis.Data;
+import cc.whohow.redis.server.RespServer;
+
+import java.util.Date;
+
+/**
+ * 基准测试公共数据
+ */
+public class Benchmarks {
+    /**
+     * 指定长度的ASCII文本
+     */
+    public static String text(int length) {
+        StringBuilder buffer = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            buffer.append((char) ('a' + i % 26));
+        }
+        return buffer.toString();
+    }
+
+    public static Data data() {
+        Data data = new Data();
+        data.a = text(32);
+        data.b = 42;
+        data.c = 1234567890L;
+        data.d = new Date(946684800000L);
+        return data;
+    }
+
+    /**
+     * 进程内Redis替身，开启键空间通知（缓存失效依赖）
+     */
+    public static RespServer server() {
+        return new RespServer().start().config("notify-keyspace-events", "KEA");
+    }
+}
@@ -0,0 +1,68 @@
+package cc.whohow.redis.benchmark;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.bytes.ConcatByteSequence;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ByteSequence 基本操作：hashCode/compareTo/contentEquals
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Thread)
+public class ByteSequenceBenchmark {
+    @Param({"array", "string", "concat"})
+    public String type;
+
+    @Param({"16", "256"})
+    public int length;
+
+    private ByteSequence a;
+    private ByteSequence b;
+
+    @Setup
+    public void setUp() {
+        String text = Benchmarks.text(length);
+        a = create(text);
+        // 内容相同的另一实例，避免引用相等短路
+        b = create(text);
+    }
+
+    private ByteSequence create(String text) {
+        switch (type) {
+            case "array":
+                return ByteSequence.of(text.getBytes(StandardCharsets.UTF_8));
+            case "string":
+                return ByteSequence.of(text, StandardCharsets.UTF_8);
+            case "concat": {
+                int half = text.length() / 2;
+                return new ConcatByteSequence(
+                        ByteSequence.of(text.substring(0, half).getBytes(StandardCharsets.UTF_8)),
+                        ByteSequence.of(text.substring(half), StandardCharsets.UTF_8));
+            }
+            default:
+                throw new IllegalArgumentException(type);
+        }
+    }
+
+    @Benchmark
+    public int hashCode0() {
+        return ByteSequence.hashCode(a);
+    }
+
+    @Benchmark
+    public int compareTo() {
+        return a.compareTo(b);
+    }
+
+    @Benchmark
+    public boolean contentEquals() {
+        return a.contentEquals(b);
+    }
+}
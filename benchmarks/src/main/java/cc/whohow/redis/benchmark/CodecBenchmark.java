@@ -0,0 +1,122 @@
+package cc.whohow.redis.benchmark;
+
+import cc.whohow.redis.Data;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.Codec;
+import cc.whohow.redis.codec.CompressCodec;
+import cc.whohow.redis.codec.JacksonCodec;
+import cc.whohow.redis.codec.PrimitiveCodec;
+import cc.whohow.redis.codec.StringCodec;
+import cc.whohow.redis.jcache.ImmutableGeneratedCacheKey;
+import cc.whohow.redis.jcache.codec.ImmutableGeneratedCacheKeyCodec;
+import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各编码器编解码（配合 -prof gc 观察分配率）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Thread)
+public class CodecBenchmark {
+    private final Codec<Data> jackson = new JacksonCodec<>(Data.class);
+    private final Codec<Data> compress = new CompressCodec<>(CompressorStreamFactory.DEFLATE, jackson);
+    private final Codec<Long> primitive = PrimitiveCodec.LONG;
+    private final Codec<String> string = StringCodec.UTF8.get();
+    private final Codec<ImmutableGeneratedCacheKey> singletonKey = ImmutableGeneratedCacheKeyCodec.create(
+            String.class.getCanonicalName());
+    private final Codec<ImmutableGeneratedCacheKey> arrayKey = ImmutableGeneratedCacheKeyCodec.create(
+            String.class.getCanonicalName(), Long.class.getCanonicalName());
+
+    private Data data;
+    private String text;
+    private ImmutableGeneratedCacheKey singletonKeyValue;
+    private ImmutableGeneratedCacheKey arrayKeyValue;
+
+    private ByteSequence jacksonEncoded;
+    private ByteSequence compressEncoded;
+    private ByteSequence primitiveEncoded;
+    private ByteSequence stringEncoded;
+    private ByteSequence singletonKeyEncoded;
+    private ByteSequence arrayKeyEncoded;
+
+    @Setup
+    public void setUp() {
+        data = Benchmarks.data();
+        text = Benchmarks.text(64);
+        singletonKeyValue = ImmutableGeneratedCacheKey.of("user:1");
+        arrayKeyValue = ImmutableGeneratedCacheKey.of("user", 1L);
+
+        jacksonEncoded = jackson.encode(data);
+        compressEncoded = compress.encode(data);
+        primitiveEncoded = primitive.encode(1234567890L);
+        stringEncoded = string.encode(text);
+        singletonKeyEncoded = singletonKey.encode(singletonKeyValue);
+        arrayKeyEncoded = arrayKey.encode(arrayKeyValue);
+    }
+
+    @Benchmark
+    public ByteSequence jacksonEncode() {
+        return jackson.encode(data);
+    }
+
+    @Benchmark
+    public Data jacksonDecode() {
+        return jackson.decode(jacksonEncoded);
+    }
+
+    @Benchmark
+    public ByteSequence compressEncode() {
+        return compress.encode(data);
+    }
+
+    @Benchmark
+    public Data compressDecode() {
+        return compress.decode(compressEncoded);
+    }
+
+    @Benchmark
+    public ByteSequence primitiveEncode() {
+        return primitive.encode(1234567890L);
+    }
+
+    @Benchmark
+    public Long primitiveDecode() {
+        return primitive.decode(primitiveEncoded);
+    }
+
+    @Benchmark
+    public ByteSequence stringEncode() {
+        return string.encode(text);
+    }
+
+    @Benchmark
+    public String stringDecode() {
+        return string.decode(stringEncoded);
+    }
+
+    @Benchmark
+    public ByteSequence singletonKeyEncode() {
+        return singletonKey.encode(singletonKeyValue);
+    }
+
+    @Benchmark
+    public ImmutableGeneratedCacheKey singletonKeyDecode() {
+        return singletonKey.decode(singletonKeyEncoded);
+    }
+
+    @Benchmark
+    public ByteSequence arrayKeyEncode() {
+        return arrayKey.encode(arrayKeyValue);
+    }
+
+    @Benchmark
+    public ImmutableGeneratedCacheKey arrayKeyDecode() {
+        return arrayKey.decode(arrayKeyEncoded);
+    }
+}
@@ -0,0 +1,44 @@
+package cc.whohow.redis.benchmark;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.util.RedisKeyPattern;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisKeyPattern.match（缓存失效时按key匹配缓存名）
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Thread)
+public class RedisKeyPatternBenchmark {
+    private final RedisKeyPattern exact = new RedisKeyPattern(ByteSequence.ascii("c.w.Test:user:1"));
+    private final RedisKeyPattern prefix = new RedisKeyPattern(ByteSequence.ascii("c.w.Test:*"));
+    private final RedisKeyPattern infix = new RedisKeyPattern(ByteSequence.ascii("c.w.*:user:*"));
+    private final RedisKeyPattern key = new RedisKeyPattern(ByteSequence.ascii("c.w.Test:user:1"));
+    private final RedisKeyPattern otherKey = new RedisKeyPattern(ByteSequence.ascii("c.w.Other:order:1"));
+
+    @Benchmark
+    public boolean exactMatch() {
+        return exact.match(key);
+    }
+
+    @Benchmark
+    public boolean prefixMatch() {
+        return prefix.match(key);
+    }
+
+    @Benchmark
+    public boolean infixMatch() {
+        return infix.match(key);
+    }
+
+    @Benchmark
+    public boolean prefixMismatch() {
+        return prefix.match(otherKey);
+    }
+}
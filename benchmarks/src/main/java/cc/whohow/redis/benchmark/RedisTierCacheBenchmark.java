@@ -0,0 +1,126 @@
+package cc.whohow.redis.benchmark;
+
+import cc.whohow.redis.Data;
+import cc.whohow.redis.Redis;
+import cc.whohow.redis.RedisTracking;
+import cc.whohow.redis.StandaloneRedis;
+import cc.whohow.redis.jcache.Cache;
+import cc.whohow.redis.jcache.ImmutableGeneratedCacheKey;
+import cc.whohow.redis.jcache.RedisCacheManager;
+import cc.whohow.redis.jcache.RedisTierCache;
+import cc.whohow.redis.jcache.configuration.MutableRedisCacheConfiguration;
+import cc.whohow.redis.jcache.configuration.RedisCacheConfiguration;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.RedisKeyspaceNotification;
+import io.lettuce.core.RedisClient;
+import org.openjdk.jmh.annotations.*;
+
+import javax.cache.annotation.GeneratedCacheKey;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisTierCache 命中/未命中路径，Redis使用进程内替身（回环网络）
+ * <ul>
+ * <li>local：进程内缓存命中</li>
+ * <li>redis：进程内缓存未命中（每次读取前失效），Redis命中并回填</li>
+ * <li>miss：两级均未命中</li>
+ * </ul>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class RedisTierCacheBenchmark {
+    private static final int KEYS = 1024;
+
+    @Param({"local", "redis", "miss"})
+    public String path;
+
+    private RespServer server;
+    private RedisClient redisClient;
+    private Redis redis;
+    private RedisTracking redisTracking;
+    private RedisCacheManager cacheManager;
+    private Cache<GeneratedCacheKey, Data> cache;
+    private GeneratedCacheKey[] keys;
+
+    @Setup(Level.Trial)
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void setUp() {
+        server = Benchmarks.server();
+        redisClient = RedisClient.create();
+        redis = new StandaloneRedis(redisClient, server.getURI());
+        RedisKeyspaceNotification redisKeyspaceNotification = new RedisKeyspaceNotification(redisClient, server.getURI());
+        redisTracking = redisKeyspaceNotification;
+
+        MutableRedisCacheConfiguration configuration = new MutableRedisCacheConfiguration<>();
+        configuration.setName("c.w.Benchmark");
+        configuration.setKeyTypeCanonicalName(new String[]{String.class.getCanonicalName()});
+        configuration.setValueTypeCanonicalName(Data.class.getCanonicalName());
+        configuration.setInProcessCacheEnabled(true);
+
+        Map<String, RedisCacheConfiguration> cacheConfigurationMap = new HashMap<>();
+        cacheConfigurationMap.put(configuration.getName(), configuration);
+        cacheManager = new RedisCacheManager(redis, redisTracking, cacheConfigurationMap::get);
+        if ("redis".equals(path)) {
+            cache = new RedisTierCacheMiss<>(cacheManager, configuration);
+        } else {
+            cache = cacheManager.createCache(configuration.getName(), configuration);
+        }
+
+        keys = new GeneratedCacheKey[KEYS];
+        Data data = Benchmarks.data();
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = ImmutableGeneratedCacheKey.of("key:" + i);
+            if (!"miss".equals(path)) {
+                cache.put(keys[i], data);
+                cache.get(keys[i]);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if ("redis".equals(path)) {
+            cache.close();
+        }
+        cacheManager.close();
+        redisTracking.close();
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next() {
+            return index = (index + 1) & (KEYS - 1);
+        }
+    }
+
+    /**
+     * 读取前失效内存缓存，经过两级缓存完整的未命中、Redis读取及回填路径
+     */
+    static class RedisTierCacheMiss<K, V> extends RedisTierCache<K, V> {
+        RedisTierCacheMiss(RedisCacheManager cacheManager, RedisCacheConfiguration<K, V> configuration) {
+            super(cacheManager, configuration);
+        }
+
+        @Override
+        public V get(K key) {
+            invalidate(key);
+            return super.get(key);
+        }
+    }
+
+    @Benchmark
+    public Data get(Cursor cursor) {
+        return cache.get(keys[cursor.next()]);
+    }
+}
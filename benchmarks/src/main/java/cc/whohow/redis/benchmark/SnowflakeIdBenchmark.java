@@ -0,0 +1,37 @@
+package cc.whohow.redis.benchmark;
+
+import cc.whohow.redis.util.SnowflakeId;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SnowflakeId.getAsLong 单线程及竞争
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+@State(Scope.Benchmark)
+public class SnowflakeIdBenchmark {
+    private final SnowflakeId snowflakeId = new SnowflakeId();
+
+    @Benchmark
+    @Threads(1)
+    public long uncontended() {
+        return snowflakeId.getAsLong();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long contended4() {
+        return snowflakeId.getAsLong();
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public long contendedMax() {
+        return snowflakeId.getAsLong();
+    }
+}
@@ -0,0 +1,114 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.RedisCommand;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * 异步发送命令，不提供同步调用（如批量命令，执行前结果不可用）
+ */
+public interface AsyncRedis {
+    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command) {
+        return sendAsync(new Command<>(command, output));
+    }
+
+    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, CommandArgs<ByteSequence, ByteSequence> commandArgs) {
+        return sendAsync(new Command<>(command, output, commandArgs));
+    }
+
+    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence commandArg) {
+        return sendAsync(output, command, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValue(commandArg));
+    }
+
+    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence... commandArgs) {
+        return sendAsync(output, command, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(commandArgs));
+    }
+
+    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Iterable<ByteSequence> commandArgs) {
+        return sendAsync(output, command, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(commandArgs));
+    }
+
+    <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command);
+
+    /**
+     * 批量发送，结果按命令顺序返回；默认逐条发送，单连接实现一次写入连接
+     */
+    default List<CompletableFuture<?>> sendAsync(List<? extends RedisCommand<ByteSequence, ByteSequence, ?>> commands) {
+        List<CompletableFuture<?>> futures = new ArrayList<>(commands.size());
+        for (RedisCommand<ByteSequence, ByteSequence, ?> command : commands) {
+            futures.add(sendAsync(command));
+        }
+        return futures;
+    }
+
+    /**
+     * EVALSHA，NOSCRIPT时使用EVAL重试（同时加载脚本）
+     */
+    default <T> CompletableFuture<T> evalAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
+                                               RedisScript script, List<ByteSequence> keys, List<ByteSequence> args) {
+        return evalshaAsync(output, ByteSequence.ascii(script.getSha1()), keys, args)
+                .handle((r, e) -> {
+                    if (e == null) {
+                        return CompletableFuture.completedFuture(r);
+                    }
+                    Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                    if (Redis.isNoScript(cause)) {
+                        output.setError((String) null);
+                        return evalAsync(output, ByteSequence.utf8(script.getScript()), keys, args);
+                    }
+                    CompletableFuture<T> failed = new CompletableFuture<>();
+                    failed.completeExceptionally(cause);
+                    return failed;
+                })
+                .thenCompose(Function.identity());
+    }
+
+    default <T> CompletableFuture<T> evalAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
+                                               ByteSequence script, List<ByteSequence> keys, List<ByteSequence> args) {
+        return sendAsync(output, CommandType.EVAL, new CommandArgs<>(ByteSequenceRedisCodec.get())
+                .addValue(script)
+                .add(keys.size())
+                .addKeys(keys)
+                .addValues(args));
+    }
+
+    default <T> CompletableFuture<T> evalshaAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
+                                                  ByteSequence sha, List<ByteSequence> keys, List<ByteSequence> args) {
+        return sendAsync(output, CommandType.EVALSHA, new CommandArgs<>(ByteSequenceRedisCodec.get())
+                .addValue(sha)
+                .add(keys.size())
+                .addKeys(keys)
+                .addValues(args));
+    }
+
+    /**
+     * 主节点，用于需要读己之写的场景
+     */
+    default AsyncRedis master() {
+        return this;
+    }
+
+    /**
+     * 指定优先级的视图，过载时低优先级命令先被拒绝，默认忽略优先级
+     */
+    default AsyncRedis withPriority(CommandPriority priority) {
+        return this;
+    }
+
+    /**
+     * 指定流量类别的视图，默认忽略类别
+     */
+    default AsyncRedis withTrafficClass(TrafficClass trafficClass) {
+        return this;
+    }
+}
@@ -0,0 +1,218 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.lettuce.core.protocol.RedisCommand;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 阻塞命令（BLPOP、BRPOP、BZPOPMIN、XREAD BLOCK、WAIT等）使用独占连接池，避免阻塞共享连接
+ */
+public class BlockingPoolRedis implements Redis {
+    private static final byte[] BLOCK = "BLOCK".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] STREAMS = "STREAMS".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] COUNT = "COUNT".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GROUP = "GROUP".getBytes(StandardCharsets.US_ASCII);
+
+    protected final Redis redis;
+    protected final RedisConnectionPool pool;
+
+    public BlockingPoolRedis(Redis redis, RedisConnectionPool pool) {
+        this.redis = redis;
+        this.pool = pool;
+    }
+
+    /**
+     * 是否阻塞命令
+     */
+    public static boolean isBlocking(RedisCommand<?, ?, ?> command) {
+        ProtocolKeyword type = command.getType();
+        if (type instanceof CommandType) {
+            switch ((CommandType) type) {
+                case BLPOP:
+                case BRPOP:
+                case BRPOPLPUSH:
+                case BZPOPMIN:
+                case BZPOPMAX:
+                case WAIT:
+                    return true;
+                case XREAD:
+                case XREADGROUP:
+                    return command.getArgs() != null && hasBlockOption(command.getArgs());
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * XREAD/XREADGROUP 选项（STREAMS之前）是否包含BLOCK，按参数逐个匹配，不匹配键名或值
+     */
+    protected static boolean hasBlockOption(CommandArgs<?, ?> args) {
+        ByteBuf buffer = ByteBufAllocator.DEFAULT.heapBuffer();
+        try {
+            args.encode(buffer);
+            while (buffer.isReadable()) {
+                ByteBuf arg = nextArgument(buffer);
+                if (is(arg, BLOCK)) {
+                    return true;
+                }
+                if (is(arg, STREAMS)) {
+                    return false;
+                }
+                if (is(arg, COUNT)) {
+                    nextArgument(buffer);
+                } else if (is(arg, GROUP)) {
+                    nextArgument(buffer);
+                    nextArgument(buffer);
+                }
+            }
+            return false;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 读取下一个参数（$len\r\n...\r\n）
+     */
+    private static ByteBuf nextArgument(ByteBuf buffer) {
+        if (!buffer.isReadable()) {
+            return Unpooled.EMPTY_BUFFER;
+        }
+        buffer.skipBytes(1);
+        int length = 0;
+        for (byte b = buffer.readByte(); b != '\r'; b = buffer.readByte()) {
+            length = length * 10 + (b - '0');
+        }
+        buffer.skipBytes(1);
+        ByteBuf arg = buffer.readSlice(length);
+        buffer.skipBytes(2);
+        return arg;
+    }
+
+    private static boolean is(ByteBuf arg, byte[] keyword) {
+        if (arg.readableBytes() != keyword.length) {
+            return false;
+        }
+        for (int i = 0; i < keyword.length; i++) {
+            if (Character.toUpperCase(arg.getByte(arg.readerIndex() + i)) != keyword[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 取消时（包括限时等待超时）取消命令并关闭连接，阻塞中的连接不能复用
+     */
+    @Override
+    public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        if (!isBlocking(command)) {
+            return redis.sendAsync(command);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        pool.acquire().whenComplete((connection, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+                return;
+            }
+            // 租借期间已取消，连接到达后归还
+            if (result.isDone()) {
+                pool.release(connection);
+                return;
+            }
+            AsyncCommand<ByteSequence, ByteSequence, T> asyncCommand = new AsyncCommand<>(command);
+            connection.dispatch(asyncCommand);
+            asyncCommand.whenComplete((r, ex) -> {
+                if (asyncCommand.isCancelled()) {
+                    connection.closeAsync().whenComplete((v, x) -> pool.release(connection));
+                } else {
+                    pool.release(connection);
+                }
+                if (ex != null) {
+                    result.completeExceptionally(ex);
+                } else {
+                    result.complete(r);
+                }
+            });
+            result.whenComplete((r, ex) -> {
+                if (!asyncCommand.isDone()) {
+                    asyncCommand.cancel(true);
+                }
+            });
+        });
+        return result;
+    }
+
+    @Override
+    public <T> T send(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        if (!isBlocking(command)) {
+            return redis.send(command);
+        }
+        return sendAsync(command).join();
+    }
+
+    public RedisConnectionPool getPool() {
+        return pool;
+    }
+
+    @Override
+    public Redis master() {
+        Redis master = redis.master();
+        return master == redis ? this : new BlockingPoolRedis(master, pool);
+    }
+
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        Redis view = redis.withPriority(priority);
+        return view == redis ? this : new BlockingPoolRedis(view, pool);
+    }
+
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        Redis view = redis.withTrafficClass(trafficClass);
+        return view == redis ? this : new BlockingPoolRedis(view, pool);
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        redis.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        redis.removeListener(listener);
+    }
+
+    @Override
+    public URI getURI() {
+        return redis.getURI();
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            pool.close();
+        } finally {
+            redis.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return redis.toString();
+    }
+}
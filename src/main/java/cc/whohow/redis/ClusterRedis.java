@@ -0,0 +1,493 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.ForwardingOutput;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.ListOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.cluster.SlotHash;
+import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.lettuce.core.cluster.models.partitions.Partitions;
+import io.lettuce.core.cluster.models.partitions.RedisClusterNode;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.lettuce.core.protocol.RedisCommand;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Redis集群，按键计算槽路由到所属节点（MOVED/ASK由Lettuce处理）
+ * 多键命令（MGET、MSET、DEL、UNLINK、EXISTS、TOUCH）按槽拆分并行执行，按原键顺序合并结果
+ * SCAN依次遍历所有主节点，游标格式：节点首个槽:节点游标；SCRIPT LOAD、SCRIPT FLUSH广播到所有主节点
+ */
+public class ClusterRedis implements Redis {
+    /**
+     * 无键命令
+     */
+    private static final Set<CommandType> KEYLESS = EnumSet.of(
+            CommandType.AUTH, CommandType.PING, CommandType.ECHO, CommandType.QUIT, CommandType.SELECT,
+            CommandType.TIME, CommandType.INFO, CommandType.CONFIG, CommandType.CLIENT, CommandType.CLUSTER,
+            CommandType.COMMAND, CommandType.DBSIZE, CommandType.FLUSHALL, CommandType.FLUSHDB,
+            CommandType.RANDOMKEY, CommandType.KEYS, CommandType.SCAN, CommandType.SCRIPT, CommandType.WAIT,
+            CommandType.PUBLISH, CommandType.PUBSUB, CommandType.LASTSAVE, CommandType.ROLE,
+            CommandType.READONLY, CommandType.READWRITE, CommandType.MULTI, CommandType.EXEC, CommandType.DISCARD);
+    /**
+     * 按槽拆分的多键命令
+     */
+    private static final Set<CommandType> SPLITTABLE = EnumSet.of(
+            CommandType.MGET, CommandType.MSET, CommandType.DEL, CommandType.UNLINK, CommandType.EXISTS,
+            CommandType.TOUCH, CommandType.SCAN);
+    private static final ByteBuffer OK = ByteBuffer.wrap("OK".getBytes(StandardCharsets.US_ASCII));
+
+    protected final RedisClusterClient client;
+    protected final RedisURI uri;
+    protected volatile StatefulRedisClusterConnection<ByteSequence, ByteSequence> connection;
+
+    public ClusterRedis(RedisClusterClient client, RedisURI uri) {
+        this.client = client;
+        this.uri = uri;
+        this.connection = client.connect(ByteSequenceRedisCodec.get());
+    }
+
+    /**
+     * 键所在槽
+     */
+    public static int slot(ByteSequence key) {
+        return SlotHash.getSlot(key.toByteBuffer());
+    }
+
+    /**
+     * 是否无键命令
+     */
+    public static boolean isKeyless(CommandType command) {
+        return KEYLESS.contains(command);
+    }
+
+    /**
+     * 键参数位置，-1表示无键
+     */
+    protected static int keyIndex(CommandType command, List<ByteSequence> args) {
+        if (args.isEmpty() || KEYLESS.contains(command)) {
+            return -1;
+        }
+        switch (command) {
+            case EVAL:
+            case EVALSHA: {
+                return args.size() > 2 && RESP.i64(args.get(1).toByteBuffer()) > 0 ? 2 : -1;
+            }
+            case XREAD:
+            case XREADGROUP: {
+                for (int i = 0; i < args.size() - 1; i++) {
+                    if ("STREAMS".equalsIgnoreCase(args.get(i).toString(StandardCharsets.US_ASCII))) {
+                        return i + 1;
+                    }
+                }
+                return -1;
+            }
+            default:
+                return 0;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command) {
+        return route(output, command, Collections.emptyList());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence commandArg) {
+        return route(output, command, Collections.singletonList(commandArg));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence... commandArgs) {
+        return route(output, command, Arrays.asList(commandArgs));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Iterable<ByteSequence> commandArgs) {
+        List<ByteSequence> args = new ArrayList<>();
+        commandArgs.forEach(args::add);
+        return route(output, command, args);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        ProtocolKeyword type = command.getType();
+        CommandArgs<ByteSequence, ByteSequence> args = command.getArgs();
+        if (!(type instanceof CommandType) || args == null ||
+                (!SPLITTABLE.contains(type) && args.getFirstEncodedKey() != null)) {
+            // 已标记键的单槽命令，或非标准命令，直接交给Lettuce路由
+            return dispatch(command);
+        }
+        CompletableFuture<T> future = route(command.getOutput(), (CommandType) type, decode(args));
+        future.whenComplete((r, e) -> {
+            if (e != null) {
+                command.completeExceptionally(e);
+            } else {
+                command.complete();
+            }
+        });
+        return future;
+    }
+
+    protected <T> CompletableFuture<T> route(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> args) {
+        switch (command) {
+            case MGET:
+                return args.size() > 1 ? mget(output, args) : dispatch(output, command, args);
+            case DEL:
+            case UNLINK:
+            case EXISTS:
+            case TOUCH:
+                return args.size() > 1 ? count(output, command, args) : dispatch(output, command, args);
+            case MSET:
+                return args.size() > 2 ? mset(output, args) : dispatch(output, command, args);
+            case SCAN:
+                return scan(output, args);
+            case SCRIPT:
+                return isBroadcastScript(args) ? broadcast(output, command, args) : dispatch(output, command, args);
+            default:
+                return dispatch(output, command, args);
+        }
+    }
+
+    static boolean isBroadcastScript(List<ByteSequence> args) {
+        if (args.isEmpty()) {
+            return false;
+        }
+        String subcommand = args.get(0).toString(StandardCharsets.US_ASCII);
+        return "LOAD".equalsIgnoreCase(subcommand) || "FLUSH".equalsIgnoreCase(subcommand);
+    }
+
+    protected <T> CompletableFuture<T> dispatch(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> args) {
+        if (args.isEmpty()) {
+            return dispatch(new Command<>(command, output));
+        }
+        int keyIndex = keyIndex(command, args);
+        CommandArgs<ByteSequence, ByteSequence> commandArgs = new CommandArgs<>(ByteSequenceRedisCodec.get());
+        for (int i = 0; i < args.size(); i++) {
+            if (i == keyIndex) {
+                commandArgs.addKey(args.get(i));
+            } else {
+                commandArgs.addValue(args.get(i));
+            }
+        }
+        return dispatch(new Command<>(command, output, commandArgs));
+    }
+
+    /**
+     * 集群连接返回包装后的命令（ClusterCommand），返回原异步命令
+     */
+    protected <T> CompletableFuture<T> dispatch(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        AsyncCommand<ByteSequence, ByteSequence, T> asyncCommand = new AsyncCommand<>(command);
+        connection.dispatch(asyncCommand);
+        return asyncCommand;
+    }
+
+    /**
+     * 按槽分组，返回各组参数下标
+     */
+    protected Map<Integer, List<Integer>> partition(List<ByteSequence> args, int step) {
+        Map<Integer, List<Integer>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < args.size(); i += step) {
+            partitions.computeIfAbsent(slot(args.get(i)), k -> new ArrayList<>()).add(i);
+        }
+        return partitions;
+    }
+
+    protected CommandArgs<ByteSequence, ByteSequence> keys(List<ByteSequence> args, List<Integer> indexes, int step) {
+        CommandArgs<ByteSequence, ByteSequence> commandArgs = new CommandArgs<>(ByteSequenceRedisCodec.get());
+        for (int i : indexes) {
+            commandArgs.addKey(args.get(i));
+            for (int j = 1; j < step; j++) {
+                commandArgs.addValue(args.get(i + j));
+            }
+        }
+        return commandArgs;
+    }
+
+    protected <T> CompletableFuture<T> mget(CommandOutput<ByteSequence, ByteSequence, T> output, List<ByteSequence> keys) {
+        Map<Integer, List<Integer>> partitions = partition(keys, 1);
+        if (partitions.size() == 1) {
+            return dispatch(output, CommandType.MGET, keys);
+        }
+        ByteBuffer[] values = new ByteBuffer[keys.size()];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions.size()];
+        int n = 0;
+        for (List<Integer> indexes : partitions.values()) {
+            futures[n++] = dispatch(new Command<>(CommandType.MGET, new ListOutput<>(ClusterRedis::copy), keys(keys, indexes, 1)))
+                    .thenAccept(list -> {
+                        for (int i = 0; i < indexes.size(); i++) {
+                            values[indexes.get(i)] = list.get(i);
+                        }
+                    });
+        }
+        return CompletableFuture.allOf(futures).thenApply(ignore -> {
+            output.multi(values.length);
+            for (ByteBuffer value : values) {
+                output.set(value);
+                output.complete(1);
+            }
+            output.complete(0);
+            return output.get();
+        });
+    }
+
+    protected <T> CompletableFuture<T> count(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> keys) {
+        Map<Integer, List<Integer>> partitions = partition(keys, 1);
+        if (partitions.size() == 1) {
+            return dispatch(output, command, keys);
+        }
+        List<CompletableFuture<Long>> futures = new ArrayList<>(partitions.size());
+        for (List<Integer> indexes : partitions.values()) {
+            futures.add(dispatch(new Command<>(command, new IntegerOutput(0L), keys(keys, indexes, 1))));
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignore -> {
+            long sum = 0;
+            for (CompletableFuture<Long> future : futures) {
+                sum += future.join();
+            }
+            output.set(sum);
+            return output.get();
+        });
+    }
+
+    protected <T> CompletableFuture<T> mset(CommandOutput<ByteSequence, ByteSequence, T> output, List<ByteSequence> keyValues) {
+        Map<Integer, List<Integer>> partitions = partition(keyValues, 2);
+        if (partitions.size() == 1) {
+            return dispatch(output, CommandType.MSET, keyValues);
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions.size()];
+        int n = 0;
+        for (List<Integer> indexes : partitions.values()) {
+            futures[n++] = dispatch(new Command<>(CommandType.MSET, new VoidOutput(), keys(keyValues, indexes, 2)));
+        }
+        return CompletableFuture.allOf(futures).thenApply(ignore -> {
+            output.set(OK.duplicate());
+            return output.get();
+        });
+    }
+
+    /**
+     * 主节点，按首个槽排序
+     */
+    protected List<RedisClusterNode> getMasters() {
+        Partitions partitions = connection.getPartitions();
+        List<RedisClusterNode> masters = new ArrayList<>(partitions.size());
+        for (RedisClusterNode node : partitions) {
+            if (node.is(RedisClusterNode.NodeFlag.MASTER) && !node.getSlots().isEmpty()) {
+                masters.add(node);
+            }
+        }
+        masters.sort(Comparator.comparingInt(ClusterRedis::firstSlot));
+        return masters;
+    }
+
+    /**
+     * 发送到所有主节点，返回首个主节点结果
+     */
+    protected <T> CompletableFuture<T> broadcast(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> args) {
+        List<RedisClusterNode> masters = getMasters();
+        if (masters.isEmpty()) {
+            return dispatch(output, command, args);
+        }
+        CompletableFuture<T> first = dispatch(masters.get(0),
+                new Command<>(command, output, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(args)));
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[masters.size()];
+        futures[0] = first;
+        for (int i = 1; i < masters.size(); i++) {
+            futures[i] = dispatch(masters.get(i),
+                    new Command<>(command, new VoidOutput(), new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(args)));
+        }
+        return CompletableFuture.allOf(futures).thenCompose(ignore -> first);
+    }
+
+    /**
+     * 发送到指定节点
+     */
+    protected <T> CompletableFuture<T> dispatch(RedisClusterNode node, RedisCommand<ByteSequence, ByteSequence, T> command) {
+        return connection.getConnectionAsync(node.getNodeId()).thenCompose(c -> {
+            AsyncCommand<ByteSequence, ByteSequence, T> asyncCommand = new AsyncCommand<>(command);
+            c.dispatch(asyncCommand);
+            return asyncCommand;
+        });
+    }
+
+    protected <T> CompletableFuture<T> scan(CommandOutput<ByteSequence, ByteSequence, T> output, List<ByteSequence> args) {
+        List<RedisClusterNode> masters = getMasters();
+        if (masters.isEmpty()) {
+            return dispatch(output, CommandType.SCAN, args);
+        }
+        String cursor = args.get(0).toString(StandardCharsets.US_ASCII);
+        int separator = cursor.indexOf(':');
+        int slot = separator < 0 ? firstSlot(masters.get(0)) : Integer.parseInt(cursor.substring(0, separator));
+        String nodeCursor = separator < 0 ? cursor : cursor.substring(separator + 1);
+
+        RedisClusterNode node = null;
+        RedisClusterNode next = null;
+        for (RedisClusterNode master : masters) {
+            if (node == null) {
+                if (master.getSlots().contains(slot)) {
+                    node = master;
+                }
+            } else {
+                next = master;
+                break;
+            }
+        }
+        if (node == null) {
+            throw new IllegalArgumentException("invalid cursor: " + cursor);
+        }
+
+        CommandArgs<ByteSequence, ByteSequence> commandArgs = new CommandArgs<>(ByteSequenceRedisCodec.get());
+        commandArgs.addValue(ByteSequence.ascii(nodeCursor));
+        for (int i = 1; i < args.size(); i++) {
+            commandArgs.addValue(args.get(i));
+        }
+        String prefix = firstSlot(node) + ":";
+        String nextCursor = next == null ? "0" : firstSlot(next) + ":0";
+        Command<ByteSequence, ByteSequence, T> command = new Command<>(CommandType.SCAN,
+                new ScanCursorOutput<>(output, prefix, nextCursor), commandArgs);
+        return dispatch(node, command);
+    }
+
+    private static int firstSlot(RedisClusterNode node) {
+        return node.getSlots().get(0);
+    }
+
+    static ByteBuffer copy(ByteBuffer bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        ByteBuffer copy = ByteBuffer.allocate(bytes.remaining());
+        copy.put(bytes);
+        copy.flip();
+        return copy;
+    }
+
+    /**
+     * 解码已编码命令参数（$len\r\nbytes\r\n）
+     */
+    static List<ByteSequence> decode(CommandArgs<ByteSequence, ByteSequence> args) {
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            args.encode(buffer);
+            List<ByteSequence> list = new ArrayList<>(args.count());
+            while (buffer.isReadable()) {
+                buffer.skipBytes(1);
+                int length = 0;
+                byte b;
+                while ((b = buffer.readByte()) != '\r') {
+                    length = length * 10 + (b - '0');
+                }
+                buffer.skipBytes(1);
+                byte[] bytes = new byte[length];
+                buffer.readBytes(bytes);
+                buffer.skipBytes(2);
+                list.add(ByteSequence.of(bytes));
+            }
+            return list;
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * 集群连接为最内层，无可转发的节点；优先级由外层 {@link ConcurrencyLimitedRedis} 视图生效
+     */
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        return this;
+    }
+
+    /**
+     * 集群连接为最内层，无可转发的节点；按类别使用独立集群连接时由外层 {@link TrafficClassRedis} 路由
+     */
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        return this;
+    }
+
+    public StatefulRedisClusterConnection<ByteSequence, ByteSequence> getConnection() {
+        return connection;
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (connection != null) {
+            connection.close();
+            connection = null;
+        }
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        client.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        client.removeListener(listener);
+    }
+
+    @Override
+    public URI getURI() {
+        return uri.toURI();
+    }
+
+    @Override
+    public String toString() {
+        return "ClusterRedis{" +
+                "uri=" + uri +
+                '}';
+    }
+
+    /**
+     * 改写SCAN游标为集群游标
+     */
+    static class ScanCursorOutput<T> extends ForwardingOutput<T> {
+        private final String prefix;
+        private final String nextCursor;
+        private boolean cursor = true;
+
+        ScanCursorOutput(CommandOutput<ByteSequence, ByteSequence, T> output, String prefix, String nextCursor) {
+            super(output);
+            this.prefix = prefix;
+            this.nextCursor = nextCursor;
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            if (cursor) {
+                cursor = false;
+                String value = decodeAscii(bytes);
+                String clusterCursor = "0".equals(value) ? nextCursor : prefix + value;
+                delegate.set(ByteBuffer.wrap(clusterCursor.getBytes(StandardCharsets.US_ASCII)));
+            } else {
+                delegate.set(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package cc.whohow.redis;
+
+/**
+ * 命令优先级，过载时低优先级命令先被拒绝（见 {@link ConcurrencyLimitedRedis}）
+ */
+public enum CommandPriority {
+    /**
+     * 关键命令，如锁续期、实例注册续期，最后被拒绝
+     */
+    CRITICAL,
+    /**
+     * 普通命令（默认）
+     */
+    NORMAL,
+    /**
+     * 可丢弃命令，如预取、后台刷新，最先被拒绝
+     */
+    LOW
+}
@@ -0,0 +1,495 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.metrics.ConcurrencyLimitMXBean;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.protocol.RedisCommand;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自适应并发限制，过载时排队片刻后快速失败（RedisOverloadException），避免命令在连接上无限堆积
+ * <p>
+ * 并发上限按RTT梯度调整：近期延迟相对基线延迟升高时收缩，否则缓慢增长；命令超时时乘性减小
+ * <p>
+ * 优先级（见 {@link #withPriority(CommandPriority)}）：排队时高优先级先执行，队列满时先淘汰低优先级，
+ * LOW只使用部分并发额度，保证锁续期等关键命令最后被拒绝
+ * <p>
+ * 阻塞命令（见 {@link BlockingPoolRedis#isBlocking(RedisCommand)}）不受限制
+ */
+public class ConcurrencyLimitedRedis implements Redis, ConcurrencyLimitMXBean {
+    private static final CommandPriority[] PRIORITIES = CommandPriority.values();
+    /**
+     * 近期/基线延迟平均窗口（样本数）
+     */
+    private static final double SHORT_WINDOW = 10;
+    private static final double LONG_WINDOW = 500;
+    /**
+     * 近期延迟不超过基线的该倍数时不收缩
+     */
+    private static final double TOLERANCE = 1.5;
+    private static final double SMOOTHING = 0.2;
+    /**
+     * 超时乘性减小比例
+     */
+    private static final double BACKOFF = 0.9;
+    /**
+     * LOW可用并发额度比例
+     */
+    private static final double LOW_RATIO = 0.75;
+
+    protected final Redis redis;
+    protected final ScheduledExecutorService executor;
+    protected final CommandPriority priority;
+    protected final Limiter limiter;
+    protected volatile ObjectName objectName;
+
+    public ConcurrencyLimitedRedis(Redis redis, ScheduledExecutorService executor) {
+        this(redis, executor, 20, 4, 1000, 1000, Duration.ofMillis(20));
+    }
+
+    /**
+     * @param initialLimit 初始并发上限
+     * @param minLimit     最小并发上限
+     * @param maxLimit     最大并发上限
+     * @param maxQueueSize 最大排队数，超过后淘汰低优先级或立即失败
+     * @param maxQueueTime 最长排队时间，超过后失败
+     */
+    public ConcurrencyLimitedRedis(Redis redis, ScheduledExecutorService executor,
+                                   int initialLimit, int minLimit, int maxLimit,
+                                   int maxQueueSize, Duration maxQueueTime) {
+        if (minLimit <= 0 || minLimit > maxLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("limit: " + minLimit + " <= " + initialLimit + " <= " + maxLimit);
+        }
+        this.redis = redis;
+        this.executor = executor;
+        this.priority = CommandPriority.NORMAL;
+        this.limiter = new Limiter(initialLimit, minLimit, maxLimit, maxQueueSize, maxQueueTime.toNanos());
+    }
+
+    /**
+     * 共享并发限制的视图
+     */
+    protected ConcurrencyLimitedRedis(Redis redis, ConcurrencyLimitedRedis limited, CommandPriority priority) {
+        this.redis = redis;
+        this.executor = limited.executor;
+        this.priority = priority;
+        this.limiter = limited.limiter;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        if (BlockingPoolRedis.isBlocking(command)) {
+            return redis.sendAsync(command);
+        }
+        Waiter waiter = acquire();
+        if (waiter == null) {
+            return dispatch(command);
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        waiter.whenComplete((r, e) -> {
+            if (e != null) {
+                result.completeExceptionally(e);
+            } else if (result.isDone()) {
+                // 排队期间已取消
+                release(0, null);
+            } else {
+                dispatch(command).whenComplete((value, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(value);
+                    }
+                });
+            }
+        });
+        return result;
+    }
+
+    protected <T> CompletableFuture<T> dispatch(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future;
+        try {
+            future = redis.sendAsync(command);
+        } catch (RuntimeException e) {
+            release(0, null);
+            throw e;
+        }
+        future.whenComplete((r, e) -> release(System.nanoTime() - start, e));
+        return future;
+    }
+
+    /**
+     * 获取执行额度，立即获得时返回null，否则返回排队中的等待者
+     */
+    protected Waiter acquire() {
+        Waiter waiter;
+        Waiter evicted = null;
+        synchronized (limiter) {
+            if (limiter.closed) {
+                return reject(new Waiter(priority));
+            }
+            if (limiter.tryAcquire(priority)) {
+                return null;
+            }
+            if (limiter.queued >= limiter.maxQueueSize) {
+                evicted = limiter.evict(priority);
+                if (evicted == null) {
+                    return reject(new Waiter(priority));
+                }
+            }
+            waiter = new Waiter(priority);
+            limiter.enqueue(waiter);
+        }
+        if (evicted != null) {
+            reject(evicted);
+        }
+        executor.schedule(() -> expire(waiter), limiter.maxQueueTime, TimeUnit.NANOSECONDS);
+        return waiter;
+    }
+
+    /**
+     * 归还执行额度，记录延迟样本，唤醒可执行的等待者
+     *
+     * @param rtt 延迟（纳秒），0表示无样本
+     */
+    protected void release(long rtt, Throwable error) {
+        List<Waiter> ready;
+        synchronized (limiter) {
+            limiter.inFlight--;
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof RedisCommandTimeoutException) {
+                limiter.backoff();
+            } else if (rtt > 0 && !(cause instanceof CancellationException)) {
+                limiter.sample(rtt);
+            }
+            ready = limiter.poll();
+        }
+        for (Waiter waiter : ready) {
+            if (!waiter.complete(null)) {
+                release(0, null);
+            }
+        }
+    }
+
+    protected void expire(Waiter waiter) {
+        synchronized (limiter) {
+            if (!limiter.remove(waiter)) {
+                return;
+            }
+        }
+        reject(waiter);
+    }
+
+    protected Waiter reject(Waiter waiter) {
+        limiter.rejections[waiter.priority.ordinal()].increment();
+        waiter.completeExceptionally(new RedisOverloadException(
+                "concurrency limit exceeded: " + getLimit() + ", priority: " + waiter.priority, waiter.priority));
+        return waiter;
+    }
+
+    /**
+     * 指定优先级的视图，共享并发限制
+     */
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        return priority == this.priority ? this : new ConcurrencyLimitedRedis(redis.withPriority(priority), this, priority);
+    }
+
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        Redis view = redis.withTrafficClass(trafficClass);
+        return view == redis ? this : new ConcurrencyLimitedRedis(view, this, priority);
+    }
+
+    public CommandPriority getPriority() {
+        return priority;
+    }
+
+    @Override
+    public int getLimit() {
+        synchronized (limiter) {
+            return (int) limiter.limit;
+        }
+    }
+
+    @Override
+    public int getInFlight() {
+        synchronized (limiter) {
+            return limiter.inFlight;
+        }
+    }
+
+    @Override
+    public int getQueueLength() {
+        synchronized (limiter) {
+            return limiter.queued;
+        }
+    }
+
+    @Override
+    public long getRejectionCount() {
+        long count = 0;
+        for (LongAdder rejections : limiter.rejections) {
+            count += rejections.longValue();
+        }
+        return count;
+    }
+
+    @Override
+    public Map<String, Long> getRejectionCounts() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        for (CommandPriority p : PRIORITIES) {
+            map.put(p.name(), limiter.rejections[p.ordinal()].longValue());
+        }
+        return map;
+    }
+
+    @Override
+    public long getShortRtt() {
+        synchronized (limiter) {
+            return TimeUnit.NANOSECONDS.toMicros((long) limiter.shortRtt);
+        }
+    }
+
+    @Override
+    public long getLongRtt() {
+        synchronized (limiter) {
+            return TimeUnit.NANOSECONDS.toMicros((long) limiter.longRtt);
+        }
+    }
+
+    /**
+     * 注册MXBean
+     */
+    public synchronized void registerMXBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("cc.whohow.redis:type=ConcurrencyLimit,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void unregisterMXBean() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                objectName = null;
+            }
+        }
+    }
+
+    @Override
+    public Redis master() {
+        Redis master = redis.master();
+        return master == redis ? this : new ConcurrencyLimitedRedis(master, this, priority);
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        redis.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        redis.removeListener(listener);
+    }
+
+    @Override
+    public URI getURI() {
+        return redis.getURI();
+    }
+
+    @Override
+    public void close() throws Exception {
+        List<Waiter> waiters = new ArrayList<>();
+        synchronized (limiter) {
+            limiter.closed = true;
+            for (ArrayDeque<Waiter> queue : limiter.queues) {
+                waiters.addAll(queue);
+                queue.clear();
+            }
+            limiter.queued = 0;
+        }
+        try {
+            unregisterMXBean();
+            for (Waiter waiter : waiters) {
+                reject(waiter);
+            }
+        } finally {
+            redis.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrencyLimitedRedis{" +
+                "redis=" + redis +
+                ", priority=" + priority +
+                ", limit=" + getLimit() +
+                '}';
+    }
+
+    protected static class Waiter extends CompletableFuture<Void> {
+        protected final CommandPriority priority;
+
+        protected Waiter(CommandPriority priority) {
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * 共享限制状态，由锁保护
+     */
+    protected static class Limiter {
+        protected final int minLimit;
+        protected final int maxLimit;
+        protected final int maxQueueSize;
+        protected final long maxQueueTime;
+        protected final ArrayDeque<Waiter>[] queues;
+        protected final LongAdder[] rejections;
+        protected double limit;
+        protected int inFlight;
+        protected int queued;
+        /**
+         * 近期/基线延迟（纳秒）
+         */
+        protected double shortRtt;
+        protected double longRtt;
+        protected boolean closed;
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        protected Limiter(int initialLimit, int minLimit, int maxLimit, int maxQueueSize, long maxQueueTime) {
+            this.minLimit = minLimit;
+            this.maxLimit = maxLimit;
+            this.maxQueueSize = maxQueueSize;
+            this.maxQueueTime = maxQueueTime;
+            this.queues = new ArrayDeque[PRIORITIES.length];
+            this.rejections = new LongAdder[PRIORITIES.length];
+            for (int i = 0; i < PRIORITIES.length; i++) {
+                queues[i] = new ArrayDeque<>();
+                rejections[i] = new LongAdder();
+            }
+            this.limit = initialLimit;
+        }
+
+        protected double limit(CommandPriority priority) {
+            return priority == CommandPriority.LOW ? Math.max(1, limit * LOW_RATIO) : limit;
+        }
+
+        /**
+         * 同级或更高优先级有排队时不插队
+         */
+        protected boolean tryAcquire(CommandPriority priority) {
+            for (int i = 0; i <= priority.ordinal(); i++) {
+                if (!queues[i].isEmpty()) {
+                    return false;
+                }
+            }
+            if (inFlight < limit(priority)) {
+                inFlight++;
+                return true;
+            }
+            return false;
+        }
+
+        protected void enqueue(Waiter waiter) {
+            queues[waiter.priority.ordinal()].addLast(waiter);
+            queued++;
+        }
+
+        protected boolean remove(Waiter waiter) {
+            if (queues[waiter.priority.ordinal()].remove(waiter)) {
+                queued--;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * 淘汰最低优先级中最新的等待者，没有比priority更低的等待者时返回null
+         */
+        protected Waiter evict(CommandPriority priority) {
+            for (int i = queues.length - 1; i > priority.ordinal(); i--) {
+                Waiter waiter = queues[i].pollLast();
+                if (waiter != null) {
+                    queued--;
+                    return waiter;
+                }
+            }
+            return null;
+        }
+
+        /**
+         * 按优先级取出可执行的等待者，并占用额度
+         */
+        protected List<Waiter> poll() {
+            if (queued == 0) {
+                return Collections.emptyList();
+            }
+            List<Waiter> ready = new ArrayList<>();
+            for (ArrayDeque<Waiter> queue : queues) {
+                Waiter waiter;
+                while ((waiter = queue.peekFirst()) != null && inFlight < limit(waiter.priority)) {
+                    queue.pollFirst();
+                    queued--;
+                    inFlight++;
+                    ready.add(waiter);
+                }
+                if (!queue.isEmpty()) {
+                    break;
+                }
+            }
+            return ready;
+        }
+
+        protected void backoff() {
+            limit = Math.max(minLimit, limit * BACKOFF);
+        }
+
+        /**
+         * 梯度算法：newLimit = limit * min(1, TOLERANCE * longRtt / shortRtt) + sqrt(limit)
+         */
+        protected void sample(long rtt) {
+            if (longRtt == 0) {
+                shortRtt = rtt;
+                longRtt = rtt;
+            }
+            shortRtt += (rtt - shortRtt) / SHORT_WINDOW;
+            longRtt += (rtt - longRtt) / LONG_WINDOW;
+            // 基线远高于近期延迟时（如慢节点恢复），加速回落
+            if (longRtt > shortRtt * 2) {
+                longRtt *= 0.95;
+            }
+            // 并发远低于上限时，延迟不反映上限是否合适
+            if ((inFlight + 1) * 2 < limit) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+            double newLimit = limit * gradient + Math.sqrt(limit);
+            limit = Math.max(minLimit, Math.min(maxLimit, limit * (1 - SMOOTHING) + newLimit * SMOOTHING));
+        }
+    }
+}
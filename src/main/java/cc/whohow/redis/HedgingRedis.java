@@ -0,0 +1,602 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ForwardingOutput;
+import cc.whohow.redis.metrics.HedgingMetricsMXBean;
+import cc.whohow.redis.metrics.LatencyHistogram;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.lettuce.core.protocol.RedisCommand;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 对冲请求及截止时间，控制尾延迟
+ * <p>
+ * 幂等读命令（见 {@link ReplicaAwareRedis#isReadOnly(ProtocolKeyword)}）等待超过该命令近期延迟百分位后，
+ * 向备用节点/连接再发一次请求，取先返回者，取消另一个；对冲请求数受预算（额外请求占比）限制
+ * <p>
+ * 截止时间对所有命令生效，超时以RedisCommandTimeoutException完成并取消命令
+ */
+public class HedgingRedis implements Redis, HedgingMetricsMXBean {
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+    /**
+     * 每个统计窗口最少样本数，不足时沿用上一窗口的对冲延时
+     */
+    private static final int MIN_SAMPLES = 32;
+    private static final long TOKEN = 1_000_000L;
+    /**
+     * 预算最多累积10次对冲，避免空闲后突发
+     */
+    private static final long MAX_TOKENS = 10 * TOKEN;
+
+    protected final Redis redis;
+    protected final List<Redis> alternates;
+    protected final ScheduledExecutorService executor;
+    /**
+     * 对冲延时百分位
+     */
+    protected final double percentile;
+    /**
+     * 对冲预算，额外请求占比
+     */
+    protected final double budget;
+    protected final long minDelay;
+    /**
+     * 各命令截止时间（纳秒），0表示不限
+     */
+    protected final long[] deadlines;
+    protected final long defaultDeadline;
+    protected final AtomicReferenceArray<Stats> stats;
+    protected final AtomicInteger next;
+    protected final AtomicLong tokens;
+    protected final LongAdder requests;
+    protected final LongAdder hedges;
+    protected final LongAdder hedgeWins;
+    protected final LongAdder throttled;
+    protected final LongAdder timeouts;
+    protected final ScheduledFuture<?> refreshTask;
+    protected volatile ObjectName objectName;
+
+    public HedgingRedis(Redis redis, List<Redis> alternates, ScheduledExecutorService executor) {
+        this(redis, alternates, executor, 95, 0.05, Duration.ofMillis(1), null, Collections.emptyMap());
+    }
+
+    /**
+     * @param percentile 对冲延时百分位（0-100）
+     * @param budget     对冲预算，额外请求占比，如0.05
+     * @param minDelay   最小对冲延时
+     * @param deadline   默认截止时间，null表示不限
+     * @param deadlines  各命令截止时间
+     */
+    public HedgingRedis(Redis redis, List<Redis> alternates, ScheduledExecutorService executor,
+                        double percentile, double budget, Duration minDelay,
+                        Duration deadline, Map<CommandType, Duration> deadlines) {
+        this.redis = redis;
+        this.alternates = new ArrayList<>(alternates);
+        this.executor = executor;
+        this.percentile = percentile;
+        this.budget = budget;
+        this.minDelay = minDelay.toNanos();
+        this.defaultDeadline = deadline == null ? 0 : deadline.toNanos();
+        this.deadlines = new long[COMMAND_TYPES.length];
+        for (CommandType command : COMMAND_TYPES) {
+            Duration d = deadlines.get(command);
+            this.deadlines[command.ordinal()] = d == null ? defaultDeadline : d.toNanos();
+        }
+        this.stats = new AtomicReferenceArray<>(COMMAND_TYPES.length);
+        this.next = new AtomicInteger();
+        this.tokens = new AtomicLong(MAX_TOKENS);
+        this.requests = new LongAdder();
+        this.hedges = new LongAdder();
+        this.hedgeWins = new LongAdder();
+        this.throttled = new LongAdder();
+        this.timeouts = new LongAdder();
+        this.refreshTask = executor.scheduleWithFixedDelay(this::refresh, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 主节点，不对冲，共享截止时间及统计
+     */
+    protected HedgingRedis(Redis redis, HedgingRedis hedging) {
+        this.redis = redis;
+        this.alternates = Collections.emptyList();
+        this.executor = hedging.executor;
+        this.percentile = hedging.percentile;
+        this.budget = hedging.budget;
+        this.minDelay = hedging.minDelay;
+        this.deadlines = hedging.deadlines;
+        this.defaultDeadline = hedging.defaultDeadline;
+        this.stats = hedging.stats;
+        this.next = hedging.next;
+        this.tokens = hedging.tokens;
+        this.requests = hedging.requests;
+        this.hedges = hedging.hedges;
+        this.hedgeWins = hedging.hedgeWins;
+        this.throttled = hedging.throttled;
+        this.timeouts = hedging.timeouts;
+        this.refreshTask = null;
+    }
+
+    private static Throwable unwrap(Throwable e) {
+        return e instanceof CompletionException ? e.getCause() : e;
+    }
+
+    protected long deadline(ProtocolKeyword command) {
+        return command instanceof CommandType ? deadlines[((CommandType) command).ordinal()] : defaultDeadline;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        ProtocolKeyword type = command.getType();
+        long deadline = deadline(type);
+        if (alternates.isEmpty() || !ReplicaAwareRedis.isReadOnly(type)) {
+            CompletableFuture<T> future = redis.sendAsync(command);
+            if (deadline > 0 && !future.isDone()) {
+                ScheduledFuture<?> task = executor.schedule(() -> {
+                    // 超时取消命令，未写出的命令不再发送，已写出的回复被丢弃
+                    if (timeout(future, deadline)) {
+                        command.cancel();
+                    }
+                }, deadline, TimeUnit.NANOSECONDS);
+                future.whenComplete((r, e) -> task.cancel(false));
+            }
+            return future;
+        }
+
+        requests.increment();
+        deposit();
+        Stats stats = stats((CommandType) type);
+        Hedge<T> hedge = new Hedge<>(command, stats);
+        hedge.primary = hedge.send(redis, false);
+        long delay = stats.delay;
+        if (delay >= 0 && (deadline <= 0 || delay < deadline)) {
+            hedge.hedgeTask = executor.schedule(hedge, delay, TimeUnit.NANOSECONDS);
+        }
+        if (deadline > 0) {
+            hedge.deadlineTask = executor.schedule(() -> timeout(hedge.result, deadline), deadline, TimeUnit.NANOSECONDS);
+        }
+        if (hedge.result.isDone()) {
+            hedge.cancel();
+        }
+        return hedge.result;
+    }
+
+    protected boolean timeout(CompletableFuture<?> future, long deadline) {
+        if (future.completeExceptionally(new RedisCommandTimeoutException(
+                "Command timed out after " + Duration.ofNanos(deadline)))) {
+            timeouts.increment();
+            return true;
+        }
+        return false;
+    }
+
+    protected Stats stats(CommandType command) {
+        int index = command.ordinal();
+        Stats s = stats.get(index);
+        if (s == null) {
+            stats.compareAndSet(index, null, new Stats(command.name()));
+            s = stats.get(index);
+        }
+        return s;
+    }
+
+    /**
+     * 每个可对冲请求累积预算
+     */
+    protected void deposit() {
+        long amount = (long) (budget * TOKEN);
+        while (true) {
+            long t = tokens.get();
+            if (t >= MAX_TOKENS || tokens.compareAndSet(t, Math.min(MAX_TOKENS, t + amount))) {
+                return;
+            }
+        }
+    }
+
+    protected boolean withdraw() {
+        while (true) {
+            long t = tokens.get();
+            if (t < TOKEN) {
+                return false;
+            }
+            if (tokens.compareAndSet(t, t - TOKEN)) {
+                return true;
+            }
+        }
+    }
+
+    protected Redis alternate() {
+        return alternates.get(Math.floorMod(next.getAndIncrement(), alternates.size()));
+    }
+
+    /**
+     * 按最近窗口的延迟百分位更新对冲延时
+     */
+    protected void refresh() {
+        for (int i = 0; i < stats.length(); i++) {
+            Stats s = stats.get(i);
+            if (s != null) {
+                s.refresh(percentile, minDelay);
+            }
+        }
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.longValue();
+    }
+
+    @Override
+    public long getHedgeCount() {
+        return hedges.longValue();
+    }
+
+    @Override
+    public long getHedgeWinCount() {
+        return hedgeWins.longValue();
+    }
+
+    @Override
+    public long getThrottledCount() {
+        return throttled.longValue();
+    }
+
+    @Override
+    public long getTimeoutCount() {
+        return timeouts.longValue();
+    }
+
+    @Override
+    public double getHedgeBudget() {
+        return budget;
+    }
+
+    @Override
+    public double getHedgeRate() {
+        long n = getRequestCount();
+        return n == 0 ? 0 : (double) getHedgeCount() / n;
+    }
+
+    @Override
+    public Map<String, Long> getHedgeDelays() {
+        Map<String, Long> delays = new LinkedHashMap<>();
+        for (int i = 0; i < stats.length(); i++) {
+            Stats s = stats.get(i);
+            if (s != null) {
+                delays.put(s.name, s.delay < 0 ? -1 : s.delay / 1000);
+            }
+        }
+        return delays;
+    }
+
+    @Override
+    public Map<String, Long> getDeadlines() {
+        Map<String, Long> map = new LinkedHashMap<>();
+        map.put("*", TimeUnit.NANOSECONDS.toMillis(defaultDeadline));
+        for (CommandType command : COMMAND_TYPES) {
+            long deadline = deadlines[command.ordinal()];
+            if (deadline != defaultDeadline) {
+                map.put(command.name(), TimeUnit.NANOSECONDS.toMillis(deadline));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * 注册MXBean
+     */
+    public synchronized void registerMXBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("cc.whohow.redis:type=Hedging,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void unregisterMXBean() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                objectName = null;
+            }
+        }
+    }
+
+    @Override
+    public Redis master() {
+        return new HedgingRedis(redis.master(), this);
+    }
+
+    /**
+     * 优先级视图不对冲，只保留截止时间
+     */
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        Redis view = redis.withPriority(priority);
+        return view == redis ? this : new HedgingRedis(view, this);
+    }
+
+    /**
+     * 流量类别视图不对冲，只保留截止时间
+     */
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        Redis view = redis.withTrafficClass(trafficClass);
+        return view == redis ? this : new HedgingRedis(view, this);
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        redis.addListener(listener);
+        for (Redis alternate : alternates) {
+            alternate.addListener(listener);
+        }
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        redis.removeListener(listener);
+        for (Redis alternate : alternates) {
+            alternate.removeListener(listener);
+        }
+    }
+
+    @Override
+    public URI getURI() {
+        return redis.getURI();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        try {
+            unregisterMXBean();
+            for (Redis alternate : alternates) {
+                alternate.close();
+            }
+        } finally {
+            redis.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "HedgingRedis{" +
+                "redis=" + redis +
+                ", alternates=" + alternates +
+                ", percentile=" + percentile +
+                ", budget=" + budget +
+                ", hedgeRate=" + getHedgeRate() +
+                '}';
+    }
+
+    /**
+     * 单个命令的延迟窗口及对冲延时
+     */
+    protected static class Stats {
+        protected final String name;
+        protected volatile LatencyHistogram window = new LatencyHistogram();
+        /**
+         * 对冲延时（纳秒），-1表示样本不足不对冲
+         */
+        protected volatile long delay = -1;
+
+        protected Stats(String name) {
+            this.name = name;
+        }
+
+        protected void record(long latency) {
+            window.record(latency);
+        }
+
+        protected void refresh(double percentile, long minDelay) {
+            LatencyHistogram current = window;
+            if (current.getCount() >= MIN_SAMPLES) {
+                delay = Math.max(minDelay, current.getValueAtPercentile(percentile));
+                window = new LatencyHistogram();
+            }
+        }
+    }
+
+    /**
+     * 一次可对冲请求，各尝试写入同一输出，首个收到回复的尝试获得输出，其他尝试的回复被丢弃
+     */
+    protected class Hedge<T> implements Runnable {
+        protected final RedisCommand<ByteSequence, ByteSequence, T> command;
+        protected final Stats stats;
+        protected final CompletableFuture<T> result = new CompletableFuture<>();
+        protected final AtomicReference<Attempt<T>> owner = new AtomicReference<>();
+        protected final AtomicInteger outstanding = new AtomicInteger();
+        protected final long start = System.nanoTime();
+        protected volatile CompletableFuture<T> primary;
+        protected volatile CompletableFuture<T> secondary;
+        protected volatile ScheduledFuture<?> hedgeTask;
+        protected volatile ScheduledFuture<?> deadlineTask;
+
+        protected Hedge(RedisCommand<ByteSequence, ByteSequence, T> command, Stats stats) {
+            this.command = command;
+            this.stats = stats;
+            this.result.whenComplete((r, e) -> cancel());
+        }
+
+        protected CompletableFuture<T> send(Redis target, boolean hedged) {
+            Attempt<T> attempt = new Attempt<>(this, command.getOutput(), hedged);
+            outstanding.incrementAndGet();
+            CompletableFuture<T> future;
+            try {
+                future = target.sendAsync(new Command<>(command.getType(), attempt, command.getArgs()));
+            } catch (RuntimeException e) {
+                future = new CompletableFuture<>();
+                future.completeExceptionally(e);
+            }
+            future.whenComplete((r, e) -> complete(attempt, r, e));
+            return future;
+        }
+
+        protected void complete(Attempt<T> attempt, T r, Throwable e) {
+            int n = outstanding.decrementAndGet();
+            Attempt<T> o = owner.get();
+            // 获得输出的尝试决定结果；均未收到回复时，最后一个失败决定结果
+            if (o != attempt && (o != null || n > 0)) {
+                return;
+            }
+            if (e != null) {
+                result.completeExceptionally(unwrap(e));
+            } else if (!result.isDone()) {
+                // 先统计再完成，调用方获得结果时统计已更新
+                stats.record(System.nanoTime() - start);
+                if (attempt.hedged) {
+                    hedgeWins.increment();
+                }
+                result.complete(r);
+            }
+        }
+
+        /**
+         * 对冲
+         */
+        @Override
+        public void run() {
+            if (result.isDone()) {
+                return;
+            }
+            if (!withdraw()) {
+                throttled.increment();
+                return;
+            }
+            hedges.increment();
+            secondary = send(alternate(), true);
+            if (result.isDone()) {
+                secondary.cancel(false);
+            }
+        }
+
+        protected void cancel() {
+            cancel(hedgeTask);
+            cancel(deadlineTask);
+            cancel(primary);
+            cancel(secondary);
+        }
+
+        private void cancel(Future<?> future) {
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * 单次尝试的输出，获得所有权后转发
+     */
+    protected static class Attempt<T> extends ForwardingOutput<T> {
+        protected final Hedge<T> hedge;
+        protected final boolean hedged;
+
+        protected Attempt(Hedge<T> hedge, CommandOutput<ByteSequence, ByteSequence, T> output, boolean hedged) {
+            super(output);
+            this.hedge = hedge;
+            this.hedged = hedged;
+        }
+
+        protected boolean claim() {
+            Attempt<T> o = hedge.owner.get();
+            return o == this || (o == null && hedge.owner.compareAndSet(null, this));
+        }
+
+        protected boolean owned() {
+            return hedge.owner.get() == this;
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            if (claim()) {
+                delegate.set(bytes);
+            }
+        }
+
+        @Override
+        public void setSingle(ByteBuffer bytes) {
+            if (claim()) {
+                delegate.setSingle(bytes);
+            }
+        }
+
+        @Override
+        public void set(long integer) {
+            if (claim()) {
+                delegate.set(integer);
+            }
+        }
+
+        @Override
+        public void setError(ByteBuffer error) {
+            if (claim()) {
+                delegate.setError(error);
+            }
+        }
+
+        @Override
+        public void setError(String error) {
+            if (claim()) {
+                delegate.setError(error);
+            }
+        }
+
+        @Override
+        public boolean hasError() {
+            return owned() && delegate.hasError();
+        }
+
+        @Override
+        public String getError() {
+            return owned() ? delegate.getError() : null;
+        }
+
+        @Override
+        public void complete(int depth) {
+            if (claim()) {
+                delegate.complete(depth);
+            }
+        }
+
+        @Override
+        public void multi(int count) {
+            if (claim()) {
+                delegate.multi(count);
+            }
+        }
+    }
+}
@@ -114,6 +114,12 @@ public class LoggingRedis implements Redis {
         return redis.evalsha(output, sha, keys, args);
     }
 
+    @Override
+    public <T> CompletableFuture<T> evalAsync(CommandOutput<ByteSequence, ByteSequence, T> output, RedisScript script, List<ByteSequence> keys, List<ByteSequence> args) {
+        log(CommandType.EVAL, script, keys, args);
+        return redis.evalAsync(output, script, keys, args);
+    }
+
     @Override
     public <T> CompletableFuture<T> evalAsync(CommandOutput<ByteSequence, ByteSequence, T> output, ByteSequence script, List<ByteSequence> keys, List<ByteSequence> args) {
         log(CommandType.EVAL, script, keys, args);
@@ -126,6 +132,24 @@ public class LoggingRedis implements Redis {
         return redis.evalshaAsync(output, sha, keys, args);
     }
 
+    @Override
+    public Redis master() {
+        Redis master = redis.master();
+        return master == redis ? this : new LoggingRedis(master);
+    }
+
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        Redis view = redis.withPriority(priority);
+        return view == redis ? this : new LoggingRedis(view);
+    }
+
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        Redis view = redis.withTrafficClass(trafficClass);
+        return view == redis ? this : new LoggingRedis(view);
+    }
+
     @Override
     public void addListener(RedisConnectionStateListener listener) {
         redis.addListener(listener);
@@ -0,0 +1,482 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ForwardingOutput;
+import cc.whohow.redis.metrics.RedisMetrics;
+import cc.whohow.redis.metrics.RedisMetricsMXBean;
+import cc.whohow.redis.metrics.RedisMetricsSnapshot;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.lettuce.core.protocol.RedisCommand;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+
+/**
+ * 命令统计，按命令及键空间（键第一个':'之前的部分）记录延迟直方图、进行中请求数、错误数、请求/响应字节数
+ * 统计查找及记录无锁，除首次出现的命令、键空间外不分配统计对象，每条命令仅分配一个采样（Sample），可在生产环境常开
+ */
+public class MetricsRedis implements Redis, RedisMetricsMXBean {
+    private static final CommandType[] COMMAND_TYPES = CommandType.values();
+
+    protected final Redis redis;
+    protected final AtomicReferenceArray<RedisMetrics> commands;
+    protected final ConcurrentMap<ProtocolKeyword, RedisMetrics> otherCommands;
+    /**
+     * 键空间开放寻址表
+     */
+    protected final AtomicReferenceArray<Namespace> namespaces;
+    protected final AtomicInteger namespaceCount;
+    protected final int maxNamespaces;
+    /**
+     * 键空间数超过上限后统一记录
+     */
+    protected final RedisMetrics otherNamespaces;
+    protected volatile ObjectName objectName;
+
+    public MetricsRedis(Redis redis) {
+        this(redis, 256);
+    }
+
+    public MetricsRedis(Redis redis, int maxNamespaces) {
+        this.redis = redis;
+        this.commands = new AtomicReferenceArray<>(COMMAND_TYPES.length);
+        this.otherCommands = new ConcurrentHashMap<>();
+        this.namespaces = new AtomicReferenceArray<>(Integer.highestOneBit(maxNamespaces * 2 - 1) << 1);
+        this.namespaceCount = new AtomicInteger();
+        this.maxNamespaces = maxNamespaces;
+        this.otherNamespaces = new RedisMetrics("*");
+    }
+
+    /**
+     * 共享统计
+     */
+    protected MetricsRedis(Redis redis, MetricsRedis metrics) {
+        this.redis = redis;
+        this.commands = metrics.commands;
+        this.otherCommands = metrics.otherCommands;
+        this.namespaces = metrics.namespaces;
+        this.namespaceCount = metrics.namespaceCount;
+        this.maxNamespaces = metrics.maxNamespaces;
+        this.otherNamespaces = metrics.otherNamespaces;
+    }
+
+    /**
+     * 统计所用键（无键命令、键位置不固定的命令返回null，脚本键由 evalAsync、evalshaAsync 及已标记键的CommandArgs统计）
+     */
+    private static ByteSequence key(CommandType command, int argc, ByteSequence arg0) {
+        if (argc == 0 || ClusterRedis.isKeyless(command)) {
+            return null;
+        }
+        switch (command) {
+            case EVAL:
+            case EVALSHA:
+            case XREAD:
+            case XREADGROUP:
+                return null;
+            default:
+                return arg0;
+        }
+    }
+
+    private static long length(List<ByteSequence> list) {
+        long bytes = 0;
+        for (ByteSequence e : list) {
+            bytes += e.length();
+        }
+        return bytes;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command) {
+        Sample<T> sample = begin(command, null, 0, output);
+        try {
+            return sample.end(redis.sendAsync(sample, command));
+        } catch (RuntimeException e) {
+            sample.accept(null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, CommandArgs<ByteSequence, ByteSequence> commandArgs) {
+        // 已编码参数不统计请求字节数
+        ByteBuffer encodedKey = commandArgs.getFirstEncodedKey();
+        Sample<T> sample = begin(command, encodedKey == null ? null : ByteSequence.of(encodedKey), 0, output);
+        try {
+            return sample.end(redis.sendAsync(sample, command, commandArgs));
+        } catch (RuntimeException e) {
+            sample.accept(null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence commandArg) {
+        Sample<T> sample = begin(command, key(command, 1, commandArg), commandArg.length(), output);
+        try {
+            return sample.end(redis.sendAsync(sample, command, commandArg));
+        } catch (RuntimeException e) {
+            sample.accept(null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence... commandArgs) {
+        long bytes = 0;
+        for (ByteSequence commandArg : commandArgs) {
+            bytes += commandArg.length();
+        }
+        ByteSequence key = key(command, commandArgs.length, commandArgs.length > 0 ? commandArgs[0] : null);
+        Sample<T> sample = begin(command, key, bytes, output);
+        try {
+            return sample.end(redis.sendAsync(sample, command, commandArgs));
+        } catch (RuntimeException e) {
+            sample.accept(null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Iterable<ByteSequence> commandArgs) {
+        long bytes = 0;
+        int argc = 0;
+        ByteSequence arg0 = null;
+        if (commandArgs instanceof List) {
+            List<ByteSequence> list = (List<ByteSequence>) commandArgs;
+            argc = list.size();
+            for (int i = 0; i < argc; i++) {
+                bytes += list.get(i).length();
+            }
+            arg0 = argc > 0 ? list.get(0) : null;
+        } else {
+            for (ByteSequence commandArg : commandArgs) {
+                bytes += commandArg.length();
+                if (argc == 0) {
+                    arg0 = commandArg;
+                }
+                argc++;
+            }
+        }
+        Sample<T> sample = begin(command, key(command, argc, arg0), bytes, output);
+        try {
+            return sample.end(redis.sendAsync(sample, command, commandArgs));
+        } catch (RuntimeException e) {
+            sample.accept(null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        CommandOutput<ByteSequence, ByteSequence, T> output = command.getOutput();
+        Sample<T> sample = begin(command.getType(), null, 0, output);
+        if (output != null && !command.isDone()) {
+            // 替换为采样输出以统计响应字节数
+            command.setOutput(sample);
+        }
+        try {
+            return sample.end(redis.sendAsync(command));
+        } catch (RuntimeException e) {
+            sample.accept(null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> evalAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
+                                              ByteSequence script, List<ByteSequence> keys, List<ByteSequence> args) {
+        Sample<T> sample = begin(CommandType.EVAL, keys.isEmpty() ? null : keys.get(0),
+                script.length() + length(keys) + length(args), output);
+        try {
+            return sample.end(redis.evalAsync(sample, script, keys, args));
+        } catch (RuntimeException e) {
+            sample.accept(null, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<T> evalshaAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
+                                                 ByteSequence sha, List<ByteSequence> keys, List<ByteSequence> args) {
+        Sample<T> sample = begin(CommandType.EVALSHA, keys.isEmpty() ? null : keys.get(0),
+                sha.length() + length(keys) + length(args), output);
+        try {
+            return sample.end(redis.evalshaAsync(sample, sha, keys, args));
+        } catch (RuntimeException e) {
+            sample.accept(null, e);
+            throw e;
+        }
+    }
+
+    protected <T> Sample<T> begin(ProtocolKeyword command, ByteSequence key, long requestBytes,
+                                  CommandOutput<ByteSequence, ByteSequence, T> output) {
+        RedisMetrics commandMetrics = getMetrics(command);
+        RedisMetrics namespaceMetrics = key == null ? null : getNamespaceMetrics(key);
+        commandMetrics.begin(requestBytes);
+        if (namespaceMetrics != null) {
+            namespaceMetrics.begin(requestBytes);
+        }
+        return new Sample<>(output, commandMetrics, namespaceMetrics);
+    }
+
+    /**
+     * 命令统计
+     */
+    public RedisMetrics getMetrics(ProtocolKeyword command) {
+        if (command instanceof CommandType) {
+            int index = ((CommandType) command).ordinal();
+            RedisMetrics metrics = commands.get(index);
+            if (metrics == null) {
+                commands.compareAndSet(index, null, new RedisMetrics(command.name()));
+                metrics = commands.get(index);
+            }
+            return metrics;
+        }
+        return otherCommands.computeIfAbsent(command, k -> new RedisMetrics(k.name()));
+    }
+
+    /**
+     * 键空间统计
+     */
+    public RedisMetrics getNamespaceMetrics(ByteSequence key) {
+        int end = key.length();
+        for (int i = 0; i < end; i++) {
+            if (key.get(i) == ':') {
+                end = i;
+                break;
+            }
+        }
+        int hash = 0;
+        for (int i = 0; i < end; i++) {
+            hash = 31 * hash + key.get(i);
+        }
+        int mask = namespaces.length() - 1;
+        int index = (hash ^ (hash >>> 16)) & mask;
+        for (int n = 0; n <= mask; n++, index = (index + 1) & mask) {
+            Namespace namespace = namespaces.get(index);
+            if (namespace == null) {
+                if (namespaceCount.get() >= maxNamespaces) {
+                    return otherNamespaces;
+                }
+                Namespace created = new Namespace(key, end, hash);
+                if (namespaces.compareAndSet(index, null, created)) {
+                    namespaceCount.incrementAndGet();
+                    return created.metrics;
+                }
+                namespace = namespaces.get(index);
+            }
+            if (namespace.matches(key, end, hash)) {
+                return namespace.metrics;
+            }
+        }
+        return otherNamespaces;
+    }
+
+    public RedisMetrics getNamespaceMetrics(String namespace) {
+        return getNamespaceMetrics(ByteSequence.utf8(namespace));
+    }
+
+    @Override
+    public long getInFlight() {
+        long inFlight = 0;
+        for (RedisMetrics metrics : commandMetrics()) {
+            inFlight += metrics.getInFlight();
+        }
+        return inFlight;
+    }
+
+    @Override
+    public long getErrorCount() {
+        long errors = 0;
+        for (RedisMetrics metrics : commandMetrics()) {
+            errors += metrics.getErrorCount();
+        }
+        return errors;
+    }
+
+    @Override
+    public List<RedisMetricsSnapshot> getCommandMetrics() {
+        List<RedisMetricsSnapshot> snapshots = new ArrayList<>();
+        for (RedisMetrics metrics : commandMetrics()) {
+            snapshots.add(metrics.snapshot());
+        }
+        return snapshots;
+    }
+
+    @Override
+    public List<RedisMetricsSnapshot> getNamespaceMetrics() {
+        List<RedisMetricsSnapshot> snapshots = new ArrayList<>();
+        for (int i = 0; i < namespaces.length(); i++) {
+            Namespace namespace = namespaces.get(i);
+            if (namespace != null) {
+                snapshots.add(namespace.metrics.snapshot());
+            }
+        }
+        if (otherNamespaces.getLatency().getCount() > 0 || otherNamespaces.getInFlight() > 0) {
+            snapshots.add(otherNamespaces.snapshot());
+        }
+        return snapshots;
+    }
+
+    protected List<RedisMetrics> commandMetrics() {
+        List<RedisMetrics> list = new ArrayList<>();
+        for (int i = 0; i < commands.length(); i++) {
+            RedisMetrics metrics = commands.get(i);
+            if (metrics != null) {
+                list.add(metrics);
+            }
+        }
+        list.addAll(otherCommands.values());
+        return list;
+    }
+
+    /**
+     * 注册MXBean
+     */
+    public synchronized void registerMXBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("cc.whohow.redis:type=RedisMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public synchronized void unregisterMXBean() {
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                objectName = null;
+            }
+        }
+    }
+
+    @Override
+    public Redis master() {
+        Redis master = redis.master();
+        return master == redis ? this : new MetricsRedis(master, this);
+    }
+
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        Redis view = redis.withPriority(priority);
+        return view == redis ? this : new MetricsRedis(view, this);
+    }
+
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        Redis view = redis.withTrafficClass(trafficClass);
+        return view == redis ? this : new MetricsRedis(view, this);
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        redis.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        redis.removeListener(listener);
+    }
+
+    @Override
+    public URI getURI() {
+        return redis.getURI();
+    }
+
+    @Override
+    public void close() throws Exception {
+        try {
+            unregisterMXBean();
+        } finally {
+            redis.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return redis.toString();
+    }
+
+    protected static class Namespace {
+        final byte[] name;
+        final int hash;
+        final RedisMetrics metrics;
+
+        Namespace(ByteSequence key, int length, int hash) {
+            this.name = key.subSequence(0, length).toByteArray().clone();
+            this.hash = hash;
+            this.metrics = new RedisMetrics(new String(name, StandardCharsets.UTF_8));
+        }
+
+        boolean matches(ByteSequence key, int length, int hash) {
+            if (this.hash != hash || name.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (name[i] != key.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * 单次请求采样，统计响应字节数，完成时记录延迟
+     */
+    protected static class Sample<T> extends ForwardingOutput<T> implements BiConsumer<T, Throwable> {
+        private final RedisMetrics command;
+        private final RedisMetrics namespace;
+        private final long start = System.nanoTime();
+        private long responseBytes;
+
+        Sample(CommandOutput<ByteSequence, ByteSequence, T> output, RedisMetrics command, RedisMetrics namespace) {
+            super(output);
+            this.command = command;
+            this.namespace = namespace;
+        }
+
+        @Override
+        public void set(ByteBuffer bytes) {
+            if (bytes != null) {
+                responseBytes += bytes.remaining();
+            }
+            delegate.set(bytes);
+        }
+
+        CompletableFuture<T> end(CompletableFuture<T> future) {
+            return future.whenComplete(this);
+        }
+
+        @Override
+        public void accept(T result, Throwable error) {
+            long latency = System.nanoTime() - start;
+            command.end(latency, responseBytes, error != null);
+            if (namespace != null) {
+                namespace.end(latency, responseBytes, error != null);
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.RedisCommand;
+import io.netty.util.concurrent.EventExecutorGroup;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 自动管道，关闭自动刷新，合并多线程命令批量刷新
+ * 刷新时机：达到批量大小 / 定时器到期 / 事件循环空闲
+ */
+public class PipelinedRedis extends StandaloneRedis {
+    /**
+     * 最大批量大小，达到后由调用线程立即刷新
+     */
+    protected final int maxBatchSize;
+    /**
+     * 刷新延时，0表示事件循环空闲时刷新
+     */
+    protected final long flushDelayNanos;
+    protected final EventExecutorGroup executor;
+    protected final Runnable flushTask = this::flush;
+    /**
+     * 未刷新命令数
+     */
+    protected final AtomicInteger pending = new AtomicInteger();
+    protected final LongAdder flushes = new LongAdder();
+    protected final LongAdder flushedCommands = new LongAdder();
+    protected final LongAccumulator maxFlushBatchSize = new LongAccumulator(Long::max, 0);
+
+    public PipelinedRedis(RedisClient client, RedisURI uri) {
+        this(client, uri, 128, 0);
+    }
+
+    public PipelinedRedis(RedisClient client, RedisURI uri, int maxBatchSize, long flushDelayMicros) {
+        this(client, uri, maxBatchSize, flushDelayMicros, -1, ForkJoinPool.commonPool());
+    }
+
+    public PipelinedRedis(RedisClient client, RedisURI uri, int maxBatchSize, long flushDelayMicros,
+                          int decodeThreshold, Executor decodeExecutor) {
+        super(client, uri, decodeThreshold, decodeExecutor);
+        this.maxBatchSize = maxBatchSize;
+        this.flushDelayNanos = TimeUnit.MICROSECONDS.toNanos(flushDelayMicros);
+        this.executor = client.getResources().eventExecutorGroup();
+        this.connection.setAutoFlushCommands(false);
+    }
+
+    @Override
+    protected <T> CompletableFuture<T> dispatch(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        CompletableFuture<T> future = super.dispatch(command);
+        // 先写入缓冲再计数，保证刷新时已包含本命令
+        pending(1);
+        return future;
+    }
+
+    @Override
+    protected void dispatch(List<AsyncCommand<ByteSequence, ByteSequence, ?>> commands) {
+        super.dispatch(commands);
+        pending(commands.size());
+    }
+
+    protected void pending(int count) {
+        int n = pending.addAndGet(count);
+        if (n >= maxBatchSize) {
+            flush();
+        } else if (n == count) {
+            scheduleFlush();
+        }
+    }
+
+    protected void scheduleFlush() {
+        if (flushDelayNanos > 0) {
+            executor.schedule(flushTask, flushDelayNanos, TimeUnit.NANOSECONDS);
+        } else {
+            executor.execute(flushTask);
+        }
+    }
+
+    /**
+     * 刷新缓冲区
+     */
+    public void flush() {
+        StatefulConnection<ByteSequence, ByteSequence> connection = this.connection;
+        if (connection == null) {
+            return;
+        }
+        int n = pending.getAndSet(0);
+        if (n > 0) {
+            connection.flushCommands();
+            flushes.increment();
+            flushedCommands.add(n);
+            maxFlushBatchSize.accumulate(n);
+        }
+    }
+
+    /**
+     * 未刷新命令数（队列深度）
+     */
+    public int getQueueDepth() {
+        return pending.get();
+    }
+
+    /**
+     * 刷新次数
+     */
+    public long getFlushCount() {
+        return flushes.longValue();
+    }
+
+    /**
+     * 已刷新命令数
+     */
+    public long getFlushedCommandCount() {
+        return flushedCommands.longValue();
+    }
+
+    /**
+     * 平均刷新批量大小
+     */
+    public double getAverageFlushBatchSize() {
+        long n = getFlushCount();
+        return n == 0 ? 0 : (double) getFlushedCommandCount() / n;
+    }
+
+    /**
+     * 最大刷新批量大小
+     */
+    public long getMaxFlushBatchSize() {
+        return maxFlushBatchSize.get();
+    }
+
+    @Override
+    public void close() throws Exception {
+        flush();
+        super.close();
+    }
+
+    @Override
+    public String toString() {
+        return "PipelinedRedis{" +
+                "uri=" + uri +
+                ", queueDepth=" + getQueueDepth() +
+                ", flushCount=" + getFlushCount() +
+                ", flushedCommandCount=" + getFlushedCommandCount() +
+                ", averageFlushBatchSize=" + getAverageFlushBatchSize() +
+                ", maxFlushBatchSize=" + getMaxFlushBatchSize() +
+                '}';
+    }
+}
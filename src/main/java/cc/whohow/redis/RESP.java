@@ -1,6 +1,7 @@
 package cc.whohow.redis;
 
 import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.bytes.LongByteSequence;
 import io.lettuce.core.protocol.CommandKeyword;
 
 import java.nio.ByteBuffer;
@@ -20,6 +21,7 @@ public class RESP {
             .mapToObj(Integer::toString)
             .map(ByteSequence::ascii)
             .toArray(ByteSequence[]::new);
+    private static final double MAX_EXACT_INTEGER = 1L << 53;
     private static final ByteSequence PX = ByteSequence.ascii("PX");
     private static final ByteSequence XX = ByteSequence.ascii("XX");
     private static final ByteSequence NX = ByteSequence.ascii("NX");
@@ -54,17 +56,27 @@ public class RESP {
         if (0 <= i64 && i64 < INTEGERS.length) {
             return INTEGERS[(int) i64];
         }
-        return b(String.valueOf(i64));
+        return new LongByteSequence(i64);
     }
 
     public static ByteSequence b(double f64) {
         if (f64 == 0) {
             return INTEGERS[0];
         }
+        // 整数值（如时间戳分值）按整数编码
+        if (Math.abs(f64) < MAX_EXACT_INTEGER && f64 == (long) f64) {
+            return b((long) f64);
+        }
         return b(String.valueOf(f64));
     }
 
     public static ByteSequence b(Number number) {
+        if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte) {
+            return b(number.longValue());
+        }
+        if (number instanceof Double || number instanceof Float) {
+            return b(number.doubleValue());
+        }
         return b(number.toString());
     }
 
@@ -1,28 +1,49 @@
 package cc.whohow.redis;
 
 import cc.whohow.redis.bytes.ByteSequence;
-import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
 import io.lettuce.core.RedisCommandExecutionException;
+import io.lettuce.core.RedisCommandInterruptedException;
+import io.lettuce.core.RedisCommandTimeoutException;
 import io.lettuce.core.RedisConnectionStateListener;
 import io.lettuce.core.output.CommandOutput;
-import io.lettuce.core.protocol.Command;
 import io.lettuce.core.protocol.CommandArgs;
 import io.lettuce.core.protocol.CommandType;
 import io.lettuce.core.protocol.RedisCommand;
 
 import java.net.URI;
-import java.util.ArrayList;
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
-public interface Redis extends AutoCloseable {
+public interface Redis extends AsyncRedis, AutoCloseable {
     static boolean isNoScript(Throwable e) {
         return e instanceof RedisCommandExecutionException &&
                 e.getMessage() != null &&
                 e.getMessage().contains("NOSCRIPT");
     }
 
+    /**
+     * 限时等待，超时取消命令并抛出RedisCommandTimeoutException，其他异常同join()
+     */
+    static <T> T await(CompletableFuture<T> future, Duration timeout) {
+        try {
+            return future.get(timeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(false);
+            throw new RedisCommandTimeoutException("Command timed out after " + timeout);
+        } catch (InterruptedException e) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new RedisCommandInterruptedException(e);
+        } catch (ExecutionException e) {
+            throw new CompletionException(e.getCause());
+        }
+    }
+
     default <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command) {
         return sendAsync(output, command).join();
     }
@@ -43,38 +64,39 @@ public interface Redis extends AutoCloseable {
         return sendAsync(command).join();
     }
 
-    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command) {
-        return sendAsync(new Command<>(command, output));
+    /**
+     * 限时发送
+     */
+    default <T> T send(RedisCommand<ByteSequence, ByteSequence, T> command, Duration timeout) {
+        return await(sendAsync(command), timeout);
     }
 
-    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, CommandArgs<ByteSequence, ByteSequence> commandArgs) {
-        return sendAsync(new Command<>(command, output, commandArgs));
+    /**
+     * 限时发送
+     */
+    default <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Duration timeout, ByteSequence... commandArgs) {
+        return await(sendAsync(output, command, commandArgs), timeout);
     }
 
-    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence commandArg) {
-        return sendAsync(output, command, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValue(commandArg));
+    /**
+     * 限时发送
+     */
+    default <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Duration timeout, Iterable<ByteSequence> commandArgs) {
+        return await(sendAsync(output, command, commandArgs), timeout);
     }
 
-    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence... commandArgs) {
-        return sendAsync(output, command, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(commandArgs));
-    }
 
-    default <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Iterable<ByteSequence> commandArgs) {
-        return sendAsync(output, command, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(commandArgs));
+    default <T> T eval(CommandOutput<ByteSequence, ByteSequence, T> output,
+                       RedisScript script, List<ByteSequence> keys, List<ByteSequence> args) {
+        return evalAsync(output, script, keys, args).join();
     }
 
-    <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command);
-
+    /**
+     * 限时执行脚本
+     */
     default <T> T eval(CommandOutput<ByteSequence, ByteSequence, T> output,
-                       RedisScript script, List<ByteSequence> keys, List<ByteSequence> args) {
-        try {
-            return evalshaAsync(output, ByteSequence.ascii(script.getSha1()), keys, args).join();
-        } catch (CompletionException e) {
-            if (isNoScript(e.getCause())) {
-                return evalAsync(output, ByteSequence.utf8(script.getScript()), keys, args).join();
-            }
-            throw e;
-        }
+                       RedisScript script, List<ByteSequence> keys, List<ByteSequence> args, Duration timeout) {
+        return await(evalAsync(output, script, keys, args), timeout);
     }
 
     default <T> T eval(CommandOutput<ByteSequence, ByteSequence, T> output,
@@ -87,24 +109,28 @@ public interface Redis extends AutoCloseable {
         return evalshaAsync(output, sha, keys, args).join();
     }
 
-    default <T> CompletableFuture<T> evalAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
-                                               ByteSequence script, List<ByteSequence> keys, List<ByteSequence> args) {
-        List<ByteSequence> commandArgs = new ArrayList<>(1 + 1 + keys.size() + args.size());
-        commandArgs.add(script);
-        commandArgs.add(RESP.b(keys.size()));
-        commandArgs.addAll(keys);
-        commandArgs.addAll(args);
-        return sendAsync(output, CommandType.EVAL, commandArgs);
-    }
-
-    default <T> CompletableFuture<T> evalshaAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
-                                                  ByteSequence sha, List<ByteSequence> keys, List<ByteSequence> args) {
-        List<ByteSequence> commandArgs = new ArrayList<>(1 + 1 + keys.size() + args.size());
-        commandArgs.add(sha);
-        commandArgs.add(RESP.b(keys.size()));
-        commandArgs.addAll(keys);
-        commandArgs.addAll(args);
-        return sendAsync(output, CommandType.EVALSHA, commandArgs);
+    /**
+     * 主节点，用于需要读己之写的场景
+     */
+    @Override
+    default Redis master() {
+        return this;
+    }
+
+    /**
+     * 指定优先级的视图，过载时低优先级命令先被拒绝，默认忽略优先级
+     */
+    @Override
+    default Redis withPriority(CommandPriority priority) {
+        return this;
+    }
+
+    /**
+     * 指定流量类别的视图，默认忽略类别
+     */
+    @Override
+    default Redis withTrafficClass(TrafficClass trafficClass) {
+        return this;
     }
 
     void addListener(RedisConnectionStateListener listener);
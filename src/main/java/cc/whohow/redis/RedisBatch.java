@@ -0,0 +1,283 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.StatusOutput;
+import io.lettuce.core.TransactionResult;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.RedisCommand;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 批量命令，记录各数据结构（Async*）的命令并返回结果Future，统一发送
+ * <p>
+ * execute()：管道发送，所有命令只需一次往返
+ * exec()：MULTI/EXEC事务，使用独占连接；可先watch()实现乐观事务
+ * <p>
+ * 执行前结果不可用，因此只支持异步调用（{@link AsyncRedis}）
+ */
+public class RedisBatch implements AsyncRedis, AutoCloseable {
+    protected final Redis redis;
+    /**
+     * 事务独占连接池，为空时只支持管道
+     */
+    protected final RedisConnectionPool pool;
+    protected final List<Queued<?>> queue = new ArrayList<>();
+    /**
+     * WATCH后持有的独占连接
+     */
+    protected CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> watching;
+    protected boolean executed = false;
+
+    public RedisBatch(Redis redis) {
+        this(redis, null);
+    }
+
+    public RedisBatch(Redis redis, RedisConnectionPool pool) {
+        this.redis = redis.master();
+        this.pool = pool;
+    }
+
+    @Override
+    public synchronized <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        if (executed) {
+            throw new IllegalStateException("batch executed");
+        }
+        Queued<T> queued = new Queued<>(command);
+        queue.add(queued);
+        return queued.future;
+    }
+
+    /**
+     * 直接发送EVAL，管道/事务中无法在NOSCRIPT时重试
+     */
+    @Override
+    public <T> CompletableFuture<T> evalAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
+                                              RedisScript script, List<ByteSequence> keys, List<ByteSequence> args) {
+        return evalAsync(output, ByteSequence.utf8(script.getScript()), keys, args);
+    }
+
+    /**
+     * 已记录命令数
+     */
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public CompletableFuture<Void> watch(String... keys) {
+        return watch(Arrays.stream(keys).map(ByteSequence::utf8).collect(Collectors.toList()));
+    }
+
+    /**
+     * WATCH，租借独占连接直至exec()/discard()
+     */
+    public CompletableFuture<Void> watch(List<ByteSequence> keys) {
+        CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> connection;
+        synchronized (this) {
+            if (executed) {
+                throw new IllegalStateException("batch executed");
+            }
+            if (watching == null) {
+                watching = pool().acquire();
+            }
+            connection = watching;
+        }
+        return connection.thenCompose(c -> dispatch(c, new Command<>(CommandType.WATCH, new StatusOutput(),
+                new CommandArgs<>(ByteSequenceRedisCodec.get()).addKeys(keys)))).thenAccept(RESP::ok);
+    }
+
+    /**
+     * 管道发送所有命令，全部回复后完成，任一命令失败时异常完成（各命令结果见对应Future）
+     */
+    public CompletableFuture<Void> execute() {
+        List<Queued<?>> commands;
+        synchronized (this) {
+            if (watching != null) {
+                throw new IllegalStateException("watch requires exec");
+            }
+            commands = drain();
+        }
+        List<RedisCommand<ByteSequence, ByteSequence, ?>> pipeline = new ArrayList<>(commands.size());
+        for (Queued<?> queued : commands) {
+            pipeline.add(queued.command);
+        }
+        // 一次发送全部命令，单连接时一次写入
+        List<CompletableFuture<?>> results = redis.sendAsync(pipeline);
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[commands.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = commands.get(i).send(results.get(i));
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * MULTI/EXEC事务，提交返回true；因WATCH的键被修改而放弃时返回false，所有命令Future被取消
+     */
+    public CompletableFuture<Boolean> exec() {
+        List<Queued<?>> commands;
+        CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> connection;
+        synchronized (this) {
+            // 先校验连接池并取出命令，不支持事务或重复执行时不租借连接
+            RedisConnectionPool connectionPool = pool();
+            commands = drain();
+            connection = watching == null ? connectionPool.acquire() : watching;
+            watching = null;
+        }
+        return connection.handle((c, e) -> {
+            if (e != null) {
+                throw fail(commands, e);
+            }
+            List<RedisCommand<ByteSequence, ByteSequence, ?>> transaction = new ArrayList<>(commands.size() + 2);
+            transaction.add(new AsyncCommand<>(new Command<>(CommandType.MULTI, new StatusOutput())));
+            for (Queued<?> queued : commands) {
+                transaction.add(queued.asyncCommand);
+            }
+            // 输出由连接替换为MultiOutput
+            AsyncCommand<ByteSequence, ByteSequence, TransactionResult> exec =
+                    new AsyncCommand<>(new Command<>(CommandType.EXEC, null));
+            transaction.add(exec);
+            c.dispatch(transaction);
+            return exec.handle((r, ex) -> {
+                pool.release(c);
+                if (ex != null) {
+                    throw fail(commands, ex);
+                }
+                // 放弃时连接以null完成各命令，因此只在提交后传递结果
+                for (Queued<?> queued : commands) {
+                    if (r.wasDiscarded()) {
+                        queued.future.cancel(false);
+                    } else {
+                        queued.commit();
+                    }
+                }
+                return !r.wasDiscarded();
+            });
+        }).thenCompose(Function.identity());
+    }
+
+    /**
+     * 放弃所有命令，释放WATCH连接
+     */
+    public void discard() {
+        List<Queued<?>> commands;
+        CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> connection;
+        synchronized (this) {
+            connection = watching;
+            watching = null;
+            commands = drain();
+        }
+        for (Queued<?> queued : commands) {
+            queued.future.cancel(false);
+        }
+        if (connection != null) {
+            connection.thenAccept(c -> dispatch(c, new Command<>(CommandType.UNWATCH, new StatusOutput()))
+                    .whenComplete((r, e) -> pool.release(c)));
+        }
+    }
+
+    protected List<Queued<?>> drain() {
+        if (executed) {
+            throw new IllegalStateException("batch executed");
+        }
+        executed = true;
+        List<Queued<?>> commands = new ArrayList<>(queue);
+        queue.clear();
+        return commands;
+    }
+
+    protected RedisConnectionPool pool() {
+        if (pool == null) {
+            throw new UnsupportedOperationException("transaction requires connection pool");
+        }
+        return pool;
+    }
+
+    /**
+     * 以异常完成所有命令Future
+     */
+    protected CompletionException fail(List<Queued<?>> commands, Throwable e) {
+        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+        for (Queued<?> queued : commands) {
+            queued.future.completeExceptionally(cause);
+        }
+        return new CompletionException(cause);
+    }
+
+    protected <T> CompletableFuture<T> dispatch(StatefulRedisConnection<ByteSequence, ByteSequence> connection,
+                                                RedisCommand<ByteSequence, ByteSequence, T> command) {
+        AsyncCommand<ByteSequence, ByteSequence, T> asyncCommand = new AsyncCommand<>(command);
+        connection.dispatch(asyncCommand);
+        return asyncCommand;
+    }
+
+    /**
+     * 放弃未执行的命令，不关闭底层连接
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (executed) {
+                return;
+            }
+        }
+        discard();
+    }
+
+    @Override
+    public String toString() {
+        return "RedisBatch{" +
+                "redis=" + redis +
+                ", size=" + size() +
+                '}';
+    }
+
+    protected static class Queued<T> {
+        protected final RedisCommand<ByteSequence, ByteSequence, T> command;
+        /**
+         * 事务中直接发送到独占连接
+         */
+        protected final AsyncCommand<ByteSequence, ByteSequence, T> asyncCommand;
+        protected final CompletableFuture<T> future = new CompletableFuture<>();
+
+        protected Queued(RedisCommand<ByteSequence, ByteSequence, T> command) {
+            this.command = command;
+            this.asyncCommand = new AsyncCommand<>(command);
+        }
+
+        /**
+         * 管道发送后传递结果
+         */
+        @SuppressWarnings("unchecked")
+        protected CompletableFuture<T> send(CompletableFuture<?> result) {
+            ((CompletableFuture<T>) result).whenComplete(this::complete);
+            return future;
+        }
+
+        /**
+         * 事务提交后传递结果
+         */
+        protected void commit() {
+            asyncCommand.whenComplete(this::complete);
+        }
+
+        protected void complete(T result, Throwable e) {
+            if (e == null) {
+                future.complete(result);
+            } else {
+                future.completeExceptionally(e instanceof CompletionException ? e.getCause() : e);
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulRedisConnection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 独占连接池，租借/归还，用于阻塞命令等需要独占连接的场景
+ */
+public class RedisConnectionPool implements AutoCloseable {
+    private static final Logger log = LogManager.getLogger();
+    protected final RedisClient client;
+    protected final RedisURI uri;
+    /**
+     * 最大连接数
+     */
+    protected final int maxSize;
+    /**
+     * 最大等待数，超过后立即失败
+     */
+    protected final int maxWaiters;
+    protected final Deque<StatefulRedisConnection<ByteSequence, ByteSequence>> idle = new ArrayDeque<>();
+    protected final Deque<CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>>> waiters = new ArrayDeque<>();
+    protected final LongAdder leases = new LongAdder();
+    protected final LongAdder waits = new LongAdder();
+    protected final LongAdder rejections = new LongAdder();
+    protected int size = 0;
+    protected int active = 0;
+    protected boolean closed = false;
+
+    public RedisConnectionPool(RedisClient client, RedisURI uri, int maxSize, int maxWaiters) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize: " + maxSize);
+        }
+        this.client = client;
+        this.uri = uri;
+        this.maxSize = maxSize;
+        this.maxWaiters = maxWaiters;
+    }
+
+    /**
+     * 租借连接，返回的future可取消，取消后到达的连接自动归还
+     */
+    public CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> acquire() {
+        synchronized (this) {
+            if (closed) {
+                return failedFuture(new RedisException("pool closed"));
+            }
+            StatefulRedisConnection<ByteSequence, ByteSequence> connection;
+            while ((connection = idle.pollFirst()) != null) {
+                if (connection.isOpen()) {
+                    active++;
+                    leases.increment();
+                    return CompletableFuture.completedFuture(connection);
+                }
+                size--;
+            }
+            if (size >= maxSize) {
+                if (waiters.size() >= maxWaiters) {
+                    rejections.increment();
+                    return failedFuture(new RedisException("too many waiters: " + maxWaiters));
+                }
+                CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> waiter = new CompletableFuture<>();
+                waiters.addLast(waiter);
+                waits.increment();
+                return waiter;
+            }
+            size++;
+            active++;
+            leases.increment();
+        }
+        // 新建连接到达前租借方已完成（取消），归还连接
+        CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> lease = new CompletableFuture<>();
+        connect().whenComplete((c, e) -> {
+            if (e != null) {
+                lease.completeExceptionally(e);
+            } else if (!lease.complete(c)) {
+                release(c);
+            }
+        });
+        return lease;
+    }
+
+    /**
+     * 归还连接
+     */
+    public void release(StatefulRedisConnection<ByteSequence, ByteSequence> connection) {
+        CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> waiter;
+        while (true) {
+            synchronized (this) {
+                if (closed || !connection.isOpen()) {
+                    size--;
+                    active--;
+                    break;
+                }
+                waiter = waiters.pollFirst();
+                if (waiter == null) {
+                    active--;
+                    idle.addFirst(connection);
+                    return;
+                }
+                leases.increment();
+            }
+            if (waiter.complete(connection)) {
+                return;
+            }
+        }
+        connection.closeAsync();
+        // 连接已失效，为等待者新建连接
+        CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> next;
+        synchronized (this) {
+            if (closed || waiters.isEmpty() || size >= maxSize) {
+                return;
+            }
+            next = waiters.pollFirst();
+            size++;
+            active++;
+            leases.increment();
+        }
+        connect().whenComplete((c, e) -> {
+            if (e != null) {
+                next.completeExceptionally(e);
+            } else if (!next.complete(c)) {
+                release(c);
+            }
+        });
+    }
+
+    protected CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> connect() {
+        return client.connectAsync(ByteSequenceRedisCodec.get(), uri)
+                .toCompletableFuture()
+                .whenComplete((c, e) -> {
+                    if (e != null) {
+                        log.warn("connect error: {}", uri, e);
+                        synchronized (this) {
+                            size--;
+                            active--;
+                        }
+                    }
+                });
+    }
+
+    private static <T> CompletableFuture<T> failedFuture(Throwable e) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    /**
+     * 连接数
+     */
+    public synchronized int getSize() {
+        return size;
+    }
+
+    /**
+     * 租借中连接数
+     */
+    public synchronized int getActive() {
+        return active;
+    }
+
+    /**
+     * 空闲连接数
+     */
+    public synchronized int getIdle() {
+        return idle.size();
+    }
+
+    /**
+     * 等待数
+     */
+    public synchronized int getWaiting() {
+        return waiters.size();
+    }
+
+    /**
+     * 租借次数
+     */
+    public long getLeaseCount() {
+        return leases.longValue();
+    }
+
+    /**
+     * 等待次数
+     */
+    public long getWaitCount() {
+        return waits.longValue();
+    }
+
+    /**
+     * 拒绝次数
+     */
+    public long getRejectionCount() {
+        return rejections.longValue();
+    }
+
+    @Override
+    public void close() {
+        List<StatefulRedisConnection<ByteSequence, ByteSequence>> connections;
+        List<CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>>> pending;
+        synchronized (this) {
+            closed = true;
+            connections = new ArrayList<>(idle);
+            pending = new ArrayList<>(waiters);
+            size -= idle.size();
+            idle.clear();
+            waiters.clear();
+        }
+        for (CompletableFuture<StatefulRedisConnection<ByteSequence, ByteSequence>> waiter : pending) {
+            waiter.completeExceptionally(new RedisException("pool closed"));
+        }
+        for (StatefulRedisConnection<ByteSequence, ByteSequence> connection : connections) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RedisConnectionPool{" +
+                "uri=" + uri +
+                ", size=" + getSize() +
+                ", active=" + getActive() +
+                ", idle=" + getIdle() +
+                ", waiting=" + getWaiting() +
+                ", leaseCount=" + getLeaseCount() +
+                ", waitCount=" + getWaitCount() +
+                ", rejectionCount=" + getRejectionCount() +
+                '}';
+    }
+}
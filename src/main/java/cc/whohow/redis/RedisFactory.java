@@ -16,6 +16,7 @@ public class RedisFactory implements
         AutoCloseable {
     protected final Redis redis;
     protected final Function<Class<?>, Codec<?>> codecFactory;
+    protected final RedisScriptRegistry scriptRegistry;
 
     public RedisFactory(Redis redis) {
         this(redis, new DefaultCodecFactory());
@@ -24,6 +25,20 @@ public class RedisFactory implements
     public RedisFactory(Redis redis, Function<Class<?>, Codec<?>> codecFactory) {
         this.redis = redis;
         this.codecFactory = codecFactory;
+        this.scriptRegistry = new RedisScriptRegistry(redis);
+    }
+
+    public RedisScriptRegistry getScriptRegistry() {
+        return scriptRegistry;
+    }
+
+    /**
+     * 启动预热：建立连接、加载脚本，可追加预取任务
+     */
+    public RedisWarmUp newWarmUp() {
+        return new RedisWarmUp()
+                .connect("redis", redis)
+                .scripts(scriptRegistry);
     }
 
     @SuppressWarnings("unchecked")
@@ -90,7 +105,54 @@ public class RedisFactory implements
         return new RedisTimeWindowCounter(redis, name, accuracy);
     }
 
+    /**
+     * 管道批量
+     */
+    public RedisBatch newBatch() {
+        return new RedisBatch(redis);
+    }
+
+    /**
+     * 管道批量或事务，事务使用独占连接
+     */
+    public RedisBatch newBatch(RedisConnectionPool pool) {
+        return new RedisBatch(redis, pool);
+    }
+
+    public AsyncRedisAtomicLong newAsyncAtomicLong(String key) {
+        return new AsyncRedisAtomicLong(redis, key);
+    }
+
+    public <T> AsyncRedisAtomicReference<T> newAsyncAtomicReference(String name, Class<T> type) {
+        return new AsyncRedisAtomicReference<>(redis, newCodec(type), name);
+    }
+
+    public <T> AsyncRedisAtomicReference<T> newAsyncAtomicReference(String name, Class<T> type, Duration ttl) {
+        return new AsyncRedisAtomicReference.Expire<>(redis, newCodec(type), name, ttl);
+    }
+
+    public <T> AsyncRedisList<T> newAsyncList(String key, Class<T> type) {
+        return new AsyncRedisList<>(redis, newCodec(type), key);
+    }
+
+    public <T> AsyncRedisSet<T> newAsyncSet(String key, Class<T> type) {
+        return new AsyncRedisSet<>(redis, newCodec(type), key);
+    }
+
+    public <T> AsyncRedisSortedSet<T> newAsyncSortedSet(String key, Class<T> type) {
+        return new AsyncRedisSortedSet<>(redis, newCodec(type), key);
+    }
+
+    public <K, V> AsyncRedisMap<K, V> newAsyncMap(String key, Class<K> keyType, Class<V> valueType) {
+        return new AsyncRedisMap<>(redis, newCodec(keyType), newCodec(valueType), key);
+    }
+
+    public <T> AsyncRedisPriorityQueue<T> newAsyncPriorityQueue(String name, Class<T> type) {
+        return new AsyncRedisPriorityQueue<>(redis, newCodec(type), name);
+    }
+
     @Override
     public void close() throws Exception {
+        scriptRegistry.close();
     }
 }
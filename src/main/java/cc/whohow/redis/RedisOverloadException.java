@@ -0,0 +1,19 @@
+package cc.whohow.redis;
+
+import io.lettuce.core.RedisException;
+
+/**
+ * 过载，命令未发送即被拒绝，可安全重试或降级
+ */
+public class RedisOverloadException extends RedisException {
+    private final CommandPriority priority;
+
+    public RedisOverloadException(String message, CommandPriority priority) {
+        super(message);
+        this.priority = priority;
+    }
+
+    public CommandPriority getPriority() {
+        return priority;
+    }
+}
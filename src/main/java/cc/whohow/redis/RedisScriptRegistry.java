@@ -0,0 +1,166 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.StringOutput;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.CommandType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.SocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Redis脚本注册表，连接建立时预加载脚本（SCRIPT LOAD，集群、分片时广播到所有主节点），断线后重新加载
+ * 已加载状态不因重连清除，节点脚本缓存丢失时EVALSHA返回NOSCRIPT并使用EVAL重试
+ */
+public class RedisScriptRegistry implements RedisConnectionStateListener, AutoCloseable {
+    private static final Logger log = LogManager.getLogger();
+    /**
+     * 内置脚本
+     */
+    private static final String[] BUILTIN = {
+            "acc", "cad", "cas", "exists", "get", "getdel", "getset", "zremrangebyscore"
+    };
+
+    protected final Redis redis;
+    protected final Map<String, RedisScript> scripts = new ConcurrentHashMap<>();
+    /**
+     * 已加载（所有主节点）脚本SHA1
+     */
+    protected final Set<String> loaded = ConcurrentHashMap.newKeySet();
+    /**
+     * 进行中的重新加载，多个连接（连接池、订阅、集群节点等）同时重连时合并为一次，期间再有重连时完成后补加载一次
+     */
+    protected CompletableFuture<Void> reloading;
+    protected boolean reloadPending;
+
+    public RedisScriptRegistry(Redis redis) {
+        this(redis, builtin());
+    }
+
+    public RedisScriptRegistry(Redis redis, Collection<RedisScript> scripts) {
+        this.redis = redis;
+        for (RedisScript script : scripts) {
+            this.scripts.put(script.getSha1(), script);
+        }
+        this.redis.addListener(this);
+        load();
+    }
+
+    public static List<RedisScript> builtin() {
+        List<RedisScript> scripts = new ArrayList<>(BUILTIN.length);
+        for (String name : BUILTIN) {
+            scripts.add(RedisScript.get(name));
+        }
+        return scripts;
+    }
+
+    /**
+     * 注册并加载脚本
+     */
+    public CompletableFuture<String> register(RedisScript script) {
+        scripts.put(script.getSha1(), script);
+        return load(script);
+    }
+
+    /**
+     * 加载全部脚本
+     */
+    public CompletableFuture<Void> load() {
+        return CompletableFuture.allOf(scripts.values().stream()
+                .map(this::load)
+                .toArray(CompletableFuture[]::new));
+    }
+
+    protected CompletableFuture<String> load(RedisScript script) {
+        return redis.sendAsync(new StringOutput(StandardCharsets.US_ASCII), CommandType.SCRIPT,
+                ByteSequence.ascii("LOAD"), ByteSequence.utf8(script.getScript()))
+                .whenComplete((sha1, e) -> {
+                    if (e != null) {
+                        log.warn("SCRIPT LOAD {} error", script, e);
+                    } else {
+                        log.debug("SCRIPT LOAD {}", script);
+                        loaded.add(sha1);
+                    }
+                });
+    }
+
+    public boolean isLoaded(RedisScript script) {
+        return loaded.contains(script.getSha1());
+    }
+
+    /**
+     * 已加载时使用EVALSHA（NOSCRIPT时EVAL重试），否则直接EVAL，均不阻塞
+     */
+    public <T> CompletableFuture<T> evalAsync(CommandOutput<ByteSequence, ByteSequence, T> output,
+                                              RedisScript script, List<ByteSequence> keys, List<ByteSequence> args) {
+        if (isLoaded(script)) {
+            return redis.evalAsync(output, script, keys, args);
+        }
+        scripts.putIfAbsent(script.getSha1(), script);
+        return redis.evalAsync(output, ByteSequence.utf8(script.getScript()), keys, args)
+                .whenComplete((r, e) -> {
+                    if (e == null) {
+                        loaded.add(script.getSha1());
+                    }
+                });
+    }
+
+    public <T> T eval(CommandOutput<ByteSequence, ByteSequence, T> output,
+                      RedisScript script, List<ByteSequence> keys, List<ByteSequence> args) {
+        return evalAsync(output, script, keys, args).join();
+    }
+
+    @Override
+    public void onRedisConnected(RedisChannelHandler<?, ?> connection, SocketAddress socketAddress) {
+        // 故障转移、重启后节点脚本缓存可能已丢失
+        reload();
+    }
+
+    protected synchronized void reload() {
+        if (reloading != null && !reloading.isDone()) {
+            reloadPending = true;
+            return;
+        }
+        reloadPending = false;
+        reloading = load().whenComplete((r, e) -> {
+            synchronized (this) {
+                if (reloadPending) {
+                    reloading = null;
+                    reload();
+                }
+            }
+        });
+    }
+
+    @Override
+    public void onRedisDisconnected(RedisChannelHandler<?, ?> connection) {
+    }
+
+    @Override
+    public void onRedisExceptionCaught(RedisChannelHandler<?, ?> connection, Throwable cause) {
+    }
+
+    @Override
+    public void close() {
+        redis.removeListener(this);
+    }
+
+    @Override
+    public String toString() {
+        return "RedisScriptRegistry{" +
+                "scripts=" + scripts.values() +
+                ", loaded=" + loaded +
+                '}';
+    }
+}
@@ -23,5 +23,11 @@ public interface RedisTracking extends AutoCloseable {
     @FunctionalInterface
     interface Listener {
         void onInvalidate(ByteSequence key);
+
+        /**
+         * 全部失效（FLUSHDB、跟踪重建等）
+         */
+        default void onInvalidateAll() {
+        }
     }
 }
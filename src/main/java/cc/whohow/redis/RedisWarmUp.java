@@ -0,0 +1,129 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.lettuce.StatusOutput;
+import io.lettuce.core.protocol.CommandType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 启动预热，并行执行建立连接、加载脚本、预取缓存等任务，限时等待
+ * <p>
+ * 超出启动预算时不再等待，未完成任务在后台继续执行；连接等失败不中断启动，只记录日志
+ */
+public class RedisWarmUp {
+    private static final Logger log = LogManager.getLogger();
+
+    protected final Map<String, Supplier<? extends CompletableFuture<?>>> tasks = new LinkedHashMap<>();
+    protected final Map<String, CompletableFuture<?>> started = new LinkedHashMap<>();
+
+    /**
+     * 建立连接（PING），异步连接（见 {@link StandaloneRedis#connectAsync}）时等待连接就绪
+     */
+    public RedisWarmUp connect(String name, Redis redis) {
+        return task(name, () -> redis.sendAsync(new StatusOutput(), CommandType.PING));
+    }
+
+    /**
+     * 加载脚本（SCRIPT LOAD）
+     */
+    public RedisWarmUp scripts(RedisScriptRegistry scriptRegistry) {
+        return task("scripts", scriptRegistry::load);
+    }
+
+    /**
+     * 同步预取任务，如读取热点缓存，在线程池中执行
+     */
+    public RedisWarmUp prefetch(String name, Runnable prefetch, Executor executor) {
+        return task(name, () -> CompletableFuture.runAsync(prefetch, executor));
+    }
+
+    /**
+     * 异步任务
+     */
+    public synchronized RedisWarmUp task(String name, Supplier<? extends CompletableFuture<?>> task) {
+        if (tasks.putIfAbsent(name, task) != null) {
+            throw new IllegalArgumentException(name + " exists");
+        }
+        return this;
+    }
+
+    /**
+     * 并行启动全部任务
+     */
+    public synchronized CompletableFuture<Void> start() {
+        for (Map.Entry<String, Supplier<? extends CompletableFuture<?>>> e : tasks.entrySet()) {
+            started.computeIfAbsent(e.getKey(), name -> start(name, e.getValue()));
+        }
+        return CompletableFuture.allOf(started.values().toArray(new CompletableFuture<?>[0]));
+    }
+
+    protected CompletableFuture<?> start(String name, Supplier<? extends CompletableFuture<?>> task) {
+        long startTime = System.nanoTime();
+        CompletableFuture<?> future;
+        try {
+            future = task.get();
+        } catch (RuntimeException e) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(e);
+        }
+        return future.whenComplete((r, e) -> {
+            long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime);
+            if (e != null) {
+                log.warn("warm up {} error ({}ms)", name, millis, e);
+            } else {
+                log.debug("warm up {} ok ({}ms)", name, millis);
+            }
+        });
+    }
+
+    /**
+     * 并行启动全部任务，最多等待启动预算
+     *
+     * @return 是否全部成功完成
+     */
+    public boolean start(Duration budget) {
+        try {
+            start().get(budget.toNanos(), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            log.warn("warm up timeout after {}, pending: {}", budget, getPending().keySet());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 未完成任务
+     */
+    public synchronized Map<String, CompletableFuture<?>> getPending() {
+        Map<String, CompletableFuture<?>> pending = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<?>> e : started.entrySet()) {
+            if (!e.getValue().isDone()) {
+                pending.put(e.getKey(), e.getValue());
+            }
+        }
+        return pending;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "RedisWarmUp{" +
+                "tasks=" + tasks.keySet() +
+                ", pending=" + getPending().keySet() +
+                '}';
+    }
+}
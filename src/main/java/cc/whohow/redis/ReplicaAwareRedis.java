@@ -0,0 +1,332 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.StringOutput;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.lettuce.core.protocol.RedisCommand;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 读写分离，只读命令路由到从节点，复制延迟超过阈值的从节点不参与读取
+ * 需要读己之写的场景（锁、CAS等）使用 {@link #master()}
+ * 优先级/流量类别视图（{@link #withPriority(CommandPriority)}、{@link #withTrafficClass(TrafficClass)}）同时作用于主节点及从节点，共享从节点状态
+ */
+public class ReplicaAwareRedis implements Redis {
+    private static final Logger log = LogManager.getLogger();
+    /**
+     * 只读命令，不含SCAN系列：游标只在发出的节点有效，逐次路由会跨节点遗漏或重复
+     */
+    private static final Set<CommandType> READ_ONLY = EnumSet.of(
+            CommandType.GET, CommandType.MGET, CommandType.STRLEN, CommandType.GETRANGE, CommandType.GETBIT,
+            CommandType.BITCOUNT, CommandType.BITPOS,
+            CommandType.EXISTS, CommandType.TYPE, CommandType.TTL, CommandType.PTTL, CommandType.DUMP,
+            CommandType.KEYS, CommandType.RANDOMKEY, CommandType.DBSIZE,
+            CommandType.HGET, CommandType.HMGET, CommandType.HGETALL, CommandType.HKEYS, CommandType.HVALS,
+            CommandType.HLEN, CommandType.HEXISTS, CommandType.HSTRLEN,
+            CommandType.LINDEX, CommandType.LLEN, CommandType.LRANGE,
+            CommandType.SCARD, CommandType.SISMEMBER, CommandType.SMEMBERS, CommandType.SRANDMEMBER,
+            CommandType.SDIFF, CommandType.SINTER, CommandType.SUNION,
+            CommandType.ZCARD, CommandType.ZCOUNT, CommandType.ZLEXCOUNT, CommandType.ZRANGE, CommandType.ZRANGEBYLEX,
+            CommandType.ZRANGEBYSCORE, CommandType.ZRANK, CommandType.ZREVRANGE, CommandType.ZREVRANGEBYLEX,
+            CommandType.ZREVRANGEBYSCORE, CommandType.ZREVRANK, CommandType.ZSCORE,
+            CommandType.PFCOUNT, CommandType.GEOPOS, CommandType.GEODIST, CommandType.GEOHASH,
+            CommandType.XLEN, CommandType.XRANGE, CommandType.XREVRANGE);
+
+    protected final Redis master;
+    protected final List<Replica> replicas;
+    protected final Strategy strategy;
+    /**
+     * 复制延迟阈值（复制偏移量字节数）
+     */
+    protected final long maxLag;
+    /**
+     * 刷新时INFO等待时间（同刷新间隔），超时视为节点不可用
+     */
+    protected final Duration refreshTimeout;
+    protected final AtomicInteger next;
+    /**
+     * 节点视图（withPriority、withTrafficClass），发送时作用于主节点及从节点
+     */
+    protected final Function<Redis, Redis> view;
+    protected final ScheduledFuture<?> refreshTask;
+
+    public ReplicaAwareRedis(Redis master, List<Redis> replicas,
+                             ScheduledExecutorService executor) {
+        this(master, replicas, Strategy.ROUND_ROBIN, 1024 * 1024, Duration.ofSeconds(1), executor);
+    }
+
+    public ReplicaAwareRedis(Redis master, List<Redis> replicas, Strategy strategy,
+                             long maxLag, Duration refreshInterval, ScheduledExecutorService executor) {
+        this.master = master;
+        this.replicas = new ArrayList<>(replicas.size());
+        for (Redis replica : replicas) {
+            this.replicas.add(new Replica(replica));
+        }
+        this.strategy = strategy;
+        this.maxLag = maxLag;
+        this.refreshTimeout = refreshInterval;
+        this.next = new AtomicInteger();
+        this.view = Function.identity();
+        this.refreshTask = executor.scheduleWithFixedDelay(this::refresh,
+                0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 视图，共享从节点状态，不刷新
+     */
+    protected ReplicaAwareRedis(ReplicaAwareRedis replicaAware, Function<Redis, Redis> view) {
+        this.master = replicaAware.master;
+        this.replicas = replicaAware.replicas;
+        this.strategy = replicaAware.strategy;
+        this.maxLag = replicaAware.maxLag;
+        this.refreshTimeout = replicaAware.refreshTimeout;
+        this.next = replicaAware.next;
+        this.view = view;
+        this.refreshTask = null;
+    }
+
+    /**
+     * 是否只读命令
+     */
+    public static boolean isReadOnly(ProtocolKeyword command) {
+        return command instanceof CommandType && READ_ONLY.contains(command);
+    }
+
+    private static long parseOffset(String info, String name) {
+        if (info == null) {
+            return -1;
+        }
+        for (String line : info.split("\r\n")) {
+            if (line.startsWith(name + ":")) {
+                return Long.parseLong(line.substring(name.length() + 1).trim());
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        if (!isReadOnly(command.getType())) {
+            return view.apply(master).sendAsync(command);
+        }
+        Replica replica = select();
+        if (replica == null) {
+            return view.apply(master).sendAsync(command);
+        }
+        replica.outstanding.incrementAndGet();
+        return view.apply(replica.redis).sendAsync(command)
+                .whenComplete((r, e) -> replica.outstanding.decrementAndGet());
+    }
+
+    /**
+     * 选择可用从节点，无可用从节点返回null
+     */
+    protected Replica select() {
+        switch (strategy) {
+            case LEAST_OUTSTANDING: {
+                Replica selected = null;
+                for (Replica replica : replicas) {
+                    if (replica.available && (selected == null || replica.outstanding.get() < selected.outstanding.get())) {
+                        selected = replica;
+                    }
+                }
+                return selected;
+            }
+            case ROUND_ROBIN:
+            default: {
+                int n = replicas.size();
+                int start = next.getAndIncrement();
+                for (int i = 0; i < n; i++) {
+                    Replica replica = replicas.get(Math.floorMod(start + i, n));
+                    if (replica.available) {
+                        return replica;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 刷新从节点复制延迟
+     */
+    protected void refresh() {
+        long deadline = System.nanoTime() + refreshTimeout.toNanos();
+        long masterOffset;
+        try {
+            masterOffset = parseOffset(Redis.await(info(master), refreshTimeout), "master_repl_offset");
+        } catch (Exception e) {
+            log.warn("refresh replication offset error", e);
+            for (Replica replica : replicas) {
+                replica.lag = -1;
+                replica.available = false;
+            }
+            return;
+        }
+        List<CompletableFuture<String>> infos = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            infos.add(info(replica.redis));
+        }
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(i);
+            try {
+                String info = Redis.await(infos.get(i),
+                        Duration.ofNanos(Long.max(deadline - System.nanoTime(), 0)));
+                boolean up = info.contains("master_link_status:up");
+                long lag = masterOffset - parseOffset(info, "slave_repl_offset");
+                replica.lag = lag;
+                replica.available = up && masterOffset >= 0 && lag <= maxLag;
+            } catch (Exception e) {
+                replica.lag = -1;
+                replica.available = false;
+                log.warn("replica unavailable: {}", replica.redis.getURI(), e);
+            }
+        }
+    }
+
+    protected CompletableFuture<String> info(Redis redis) {
+        return redis.sendAsync(new StringOutput(StandardCharsets.US_ASCII), CommandType.INFO, ByteSequence.ascii("replication"));
+    }
+
+    /**
+     * 主节点
+     */
+    @Override
+    public Redis master() {
+        return view.apply(master);
+    }
+
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        return new ReplicaAwareRedis(this, view.andThen(redis -> redis.withPriority(priority)));
+    }
+
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        return new ReplicaAwareRedis(this, view.andThen(redis -> redis.withTrafficClass(trafficClass)));
+    }
+
+    public List<Replica> getReplicas() {
+        return Collections.unmodifiableList(replicas);
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        master.addListener(listener);
+        for (Replica replica : replicas) {
+            replica.redis.addListener(listener);
+        }
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        master.removeListener(listener);
+        for (Replica replica : replicas) {
+            replica.redis.removeListener(listener);
+        }
+    }
+
+    @Override
+    public URI getURI() {
+        return master.getURI();
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (refreshTask != null) {
+            refreshTask.cancel(false);
+        }
+        try {
+            for (Replica replica : replicas) {
+                replica.redis.close();
+            }
+        } finally {
+            master.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ReplicaAwareRedis{" +
+                "master=" + master +
+                ", replicas=" + replicas +
+                ", strategy=" + strategy +
+                ", maxLag=" + maxLag +
+                '}';
+    }
+
+    /**
+     * 从节点选择策略
+     */
+    public enum Strategy {
+        /**
+         * 轮询
+         */
+        ROUND_ROBIN,
+        /**
+         * 最少未完成请求
+         */
+        LEAST_OUTSTANDING
+    }
+
+    public static class Replica {
+        protected final Redis redis;
+        protected final AtomicInteger outstanding = new AtomicInteger();
+        protected volatile long lag = -1;
+        protected volatile boolean available = false;
+
+        public Replica(Redis redis) {
+            this.redis = redis;
+        }
+
+        public Redis getRedis() {
+            return redis;
+        }
+
+        /**
+         * 未完成请求数
+         */
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /**
+         * 复制延迟（字节），-1表示未知
+         */
+        public long getLag() {
+            return lag;
+        }
+
+        public boolean isAvailable() {
+            return available;
+        }
+
+        @Override
+        public String toString() {
+            return "Replica{" +
+                    "uri=" + redis.getURI() +
+                    ", outstanding=" + outstanding +
+                    ", lag=" + lag +
+                    ", available=" + available +
+                    '}';
+        }
+    }
+}
@@ -0,0 +1,604 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.ListOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.lettuce.core.protocol.RedisCommand;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * 客户端分片，多个独立Redis实例组成一致性哈希环（虚拟节点），按键（有{hashtag}时取hashtag）路由
+ * 多键命令（MGET、MSET、DEL、UNLINK、EXISTS、TOUCH）按分片拆分并行执行，按原键顺序合并结果
+ * SCAN依次遍历所有分片，游标格式：分片序号:分片游标；DBSIZE求和，FLUSHDB、FLUSHALL、SCRIPT LOAD、SCRIPT FLUSH广播；其他无键命令发送到首个分片
+ * <p>
+ * 其他多键命令（RENAME、SUNION、多键脚本等）按首个键路由，需使用hashtag保证键在同一分片
+ * 新增分片只迁移约1/(n+1)的键（不自动搬迁数据，适用于缓存）
+ */
+public class ShardedRedis implements Redis {
+    /**
+     * 拆分执行的命令
+     */
+    private static final Set<CommandType> SPLIT = EnumSet.of(
+            CommandType.MGET, CommandType.MSET, CommandType.DEL, CommandType.UNLINK, CommandType.EXISTS,
+            CommandType.TOUCH, CommandType.SCAN, CommandType.DBSIZE, CommandType.FLUSHDB, CommandType.FLUSHALL,
+            CommandType.SCRIPT);
+    private static final ByteBuffer OK = ByteBuffer.wrap("OK".getBytes(StandardCharsets.US_ASCII));
+
+    protected final AtomicReference<Ring> ring;
+    /**
+     * 每个虚拟节点组对应4个环上位置
+     */
+    protected final int virtualNodes;
+    /**
+     * 分片视图（master、withPriority、withTrafficClass）
+     */
+    protected final Function<Redis, Redis> view;
+
+    public ShardedRedis(List<Redis> shards) {
+        this(shards, 160);
+    }
+
+    public ShardedRedis(List<Redis> shards, int virtualNodes) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("shards required");
+        }
+        if (virtualNodes < 4) {
+            throw new IllegalArgumentException("virtualNodes: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+        this.view = Function.identity();
+        Ring ring = new Ring(Collections.emptyList(), virtualNodes);
+        for (Redis shard : shards) {
+            ring = ring.add(new Shard(name(shard), shard), virtualNodes);
+        }
+        this.ring = new AtomicReference<>(ring);
+    }
+
+    protected ShardedRedis(ShardedRedis sharded, Function<Redis, Redis> view) {
+        this.ring = sharded.ring;
+        this.virtualNodes = sharded.virtualNodes;
+        this.view = view;
+    }
+
+    /**
+     * 分片名，决定环上位置，默认为URI
+     */
+    protected static String name(Redis redis) {
+        return String.valueOf(redis.getURI());
+    }
+
+    /**
+     * 键哈希，有{hashtag}时只计算hashtag部分
+     */
+    public static int hash(ByteSequence key) {
+        int start = 0;
+        int end = key.length();
+        for (int i = 0; i < end; i++) {
+            if (key.get(i) == '{') {
+                for (int j = i + 1; j < end; j++) {
+                    if (key.get(j) == '}') {
+                        if (j > i + 1) {
+                            start = i + 1;
+                            end = j;
+                        }
+                        break;
+                    }
+                }
+                break;
+            }
+        }
+        return murmur3(key, start, end);
+    }
+
+    /**
+     * MurmurHash3 x86 32位
+     */
+    @SuppressWarnings("fallthrough")
+    private static int murmur3(ByteSequence key, int start, int end) {
+        int h = 0;
+        int i = start;
+        for (; i + 4 <= end; i += 4) {
+            int k = (key.get(i) & 0xff) |
+                    ((key.get(i + 1) & 0xff) << 8) |
+                    ((key.get(i + 2) & 0xff) << 16) |
+                    ((key.get(i + 3) & 0xff) << 24);
+            h ^= mixK(k);
+            h = Integer.rotateLeft(h, 13) * 5 + 0xe6546b64;
+        }
+        int k = 0;
+        switch (end - i) {
+            case 3:
+                k ^= (key.get(i + 2) & 0xff) << 16;
+            case 2:
+                k ^= (key.get(i + 1) & 0xff) << 8;
+            case 1:
+                k ^= key.get(i) & 0xff;
+                h ^= mixK(k);
+            default:
+                break;
+        }
+        h ^= end - start;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int mixK(int k) {
+        k *= 0xcc9e2d51;
+        k = Integer.rotateLeft(k, 15);
+        return k * 0x1b873593;
+    }
+
+    /**
+     * 新增分片，名称默认为URI
+     */
+    public void addShard(Redis redis) {
+        addShard(name(redis), redis);
+    }
+
+    /**
+     * 新增分片，只有落在新分片虚拟节点区间内的键改变归属
+     */
+    public void addShard(String name, Redis redis) {
+        Shard shard = new Shard(name, redis);
+        ring.updateAndGet(r -> r.add(shard, virtualNodes));
+    }
+
+    /**
+     * 所有分片，按加入顺序
+     */
+    public List<Redis> getShards() {
+        List<Shard> shards = ring.get().shards;
+        List<Redis> list = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            list.add(view.apply(shard.redis));
+        }
+        return list;
+    }
+
+    /**
+     * 键所属分片
+     */
+    public Redis getShard(ByteSequence key) {
+        return view.apply(ring.get().get(key).redis);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command) {
+        return route(output, command, Collections.emptyList());
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence commandArg) {
+        return route(output, command, Collections.singletonList(commandArg));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence... commandArgs) {
+        return route(output, command, Arrays.asList(commandArgs));
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Iterable<ByteSequence> commandArgs) {
+        List<ByteSequence> args = new ArrayList<>();
+        commandArgs.forEach(args::add);
+        return route(output, command, args);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        ProtocolKeyword type = command.getType();
+        CommandArgs<ByteSequence, ByteSequence> args = command.getArgs();
+        if (args == null) {
+            return type instanceof CommandType && SPLIT.contains(type) ?
+                    complete(command, route(command.getOutput(), (CommandType) type, Collections.emptyList())) :
+                    first().sendAsync(command);
+        }
+        if (type instanceof CommandType && SPLIT.contains(type)) {
+            return complete(command, route(command.getOutput(), (CommandType) type, ClusterRedis.decode(args)));
+        }
+        // 已标记键直接路由，否则解码参数查找键
+        ByteBuffer encodedKey = args.getFirstEncodedKey();
+        if (encodedKey != null) {
+            return shard(ByteSequence.of(encodedKey)).sendAsync(command);
+        }
+        if (!(type instanceof CommandType)) {
+            return first().sendAsync(command);
+        }
+        List<ByteSequence> list = ClusterRedis.decode(args);
+        int keyIndex = ClusterRedis.keyIndex((CommandType) type, list);
+        return (keyIndex < 0 ? first() : shard(list.get(keyIndex))).sendAsync(command);
+    }
+
+    protected <T> CompletableFuture<T> complete(RedisCommand<ByteSequence, ByteSequence, T> command, CompletableFuture<T> future) {
+        future.whenComplete((r, e) -> {
+            if (e != null) {
+                command.completeExceptionally(e);
+            } else {
+                command.complete();
+            }
+        });
+        return future;
+    }
+
+    protected Redis first() {
+        return view.apply(ring.get().shards.get(0).redis);
+    }
+
+    protected Redis shard(ByteSequence key) {
+        return view.apply(ring.get().get(key).redis);
+    }
+
+    protected <T> CompletableFuture<T> route(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> args) {
+        switch (command) {
+            case MGET:
+                return args.size() > 1 ? mget(output, args) : dispatch(output, command, args);
+            case DEL:
+            case UNLINK:
+            case EXISTS:
+            case TOUCH:
+                return args.size() > 1 ? count(output, command, args) : dispatch(output, command, args);
+            case MSET:
+                return args.size() > 2 ? mset(output, args) : dispatch(output, command, args);
+            case SCAN:
+                return scan(output, args);
+            case DBSIZE:
+                return broadcast(output, command, args, true);
+            case FLUSHDB:
+            case FLUSHALL:
+                return broadcast(output, command, args, false);
+            case SCRIPT:
+                return ClusterRedis.isBroadcastScript(args) ? broadcast(output, command, args) : dispatch(output, command, args);
+            default:
+                return dispatch(output, command, args);
+        }
+    }
+
+    protected <T> CompletableFuture<T> dispatch(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> args) {
+        if (args.isEmpty()) {
+            return first().sendAsync(new Command<>(command, output));
+        }
+        int keyIndex = ClusterRedis.keyIndex(command, args);
+        CommandArgs<ByteSequence, ByteSequence> commandArgs = new CommandArgs<>(ByteSequenceRedisCodec.get());
+        for (int i = 0; i < args.size(); i++) {
+            if (i == keyIndex) {
+                commandArgs.addKey(args.get(i));
+            } else {
+                commandArgs.addValue(args.get(i));
+            }
+        }
+        Redis redis = keyIndex < 0 ? first() : shard(args.get(keyIndex));
+        return redis.sendAsync(new Command<>(command, output, commandArgs));
+    }
+
+    /**
+     * 按分片分组，返回各组参数下标
+     */
+    protected Map<Shard, List<Integer>> partition(List<ByteSequence> args, int step) {
+        Ring r = ring.get();
+        Map<Shard, List<Integer>> partitions = new LinkedHashMap<>();
+        for (int i = 0; i < args.size(); i += step) {
+            partitions.computeIfAbsent(r.get(args.get(i)), k -> new ArrayList<>()).add(i);
+        }
+        return partitions;
+    }
+
+    protected CommandArgs<ByteSequence, ByteSequence> keys(List<ByteSequence> args, List<Integer> indexes, int step) {
+        CommandArgs<ByteSequence, ByteSequence> commandArgs = new CommandArgs<>(ByteSequenceRedisCodec.get());
+        for (int i : indexes) {
+            commandArgs.addKey(args.get(i));
+            for (int j = 1; j < step; j++) {
+                commandArgs.addValue(args.get(i + j));
+            }
+        }
+        return commandArgs;
+    }
+
+    protected <T> CompletableFuture<T> mget(CommandOutput<ByteSequence, ByteSequence, T> output, List<ByteSequence> keys) {
+        Map<Shard, List<Integer>> partitions = partition(keys, 1);
+        if (partitions.size() == 1) {
+            return dispatch(output, CommandType.MGET, keys);
+        }
+        ByteBuffer[] values = new ByteBuffer[keys.size()];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions.size()];
+        int n = 0;
+        for (Map.Entry<Shard, List<Integer>> partition : partitions.entrySet()) {
+            List<Integer> indexes = partition.getValue();
+            futures[n++] = view.apply(partition.getKey().redis)
+                    .sendAsync(new Command<>(CommandType.MGET, new ListOutput<>(ClusterRedis::copy), keys(keys, indexes, 1)))
+                    .thenAccept(list -> {
+                        for (int i = 0; i < indexes.size(); i++) {
+                            values[indexes.get(i)] = list.get(i);
+                        }
+                    });
+        }
+        return CompletableFuture.allOf(futures).thenApply(ignore -> {
+            output.multi(values.length);
+            for (ByteBuffer value : values) {
+                output.set(value);
+                output.complete(1);
+            }
+            output.complete(0);
+            return output.get();
+        });
+    }
+
+    protected <T> CompletableFuture<T> count(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> keys) {
+        Map<Shard, List<Integer>> partitions = partition(keys, 1);
+        if (partitions.size() == 1) {
+            return dispatch(output, command, keys);
+        }
+        List<CompletableFuture<Long>> futures = new ArrayList<>(partitions.size());
+        for (Map.Entry<Shard, List<Integer>> partition : partitions.entrySet()) {
+            futures.add(view.apply(partition.getKey().redis)
+                    .sendAsync(new Command<>(command, new IntegerOutput(0L), keys(keys, partition.getValue(), 1))));
+        }
+        return sum(output, futures);
+    }
+
+    protected <T> CompletableFuture<T> mset(CommandOutput<ByteSequence, ByteSequence, T> output, List<ByteSequence> keyValues) {
+        Map<Shard, List<Integer>> partitions = partition(keyValues, 2);
+        if (partitions.size() == 1) {
+            return dispatch(output, CommandType.MSET, keyValues);
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[partitions.size()];
+        int n = 0;
+        for (Map.Entry<Shard, List<Integer>> partition : partitions.entrySet()) {
+            futures[n++] = view.apply(partition.getKey().redis)
+                    .sendAsync(new Command<>(CommandType.MSET, new VoidOutput(), keys(keyValues, partition.getValue(), 2)));
+        }
+        return CompletableFuture.allOf(futures).thenApply(ignore -> {
+            output.set(OK.duplicate());
+            return output.get();
+        });
+    }
+
+    /**
+     * 发送到所有分片，合计整数结果或返回OK
+     */
+    protected <T> CompletableFuture<T> broadcast(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> args, boolean sum) {
+        List<Shard> shards = ring.get().shards;
+        List<CompletableFuture<Long>> futures = new ArrayList<>(shards.size());
+        for (Shard shard : shards) {
+            CommandArgs<ByteSequence, ByteSequence> commandArgs = new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(args);
+            futures.add(view.apply(shard.redis).sendAsync(new Command<>(command, new IntegerOutput(0L), commandArgs)));
+        }
+        if (sum) {
+            return sum(output, futures);
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignore -> {
+            output.set(OK.duplicate());
+            return output.get();
+        });
+    }
+
+    /**
+     * 发送到所有分片，返回首个分片结果
+     */
+    protected <T> CompletableFuture<T> broadcast(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, List<ByteSequence> args) {
+        List<Shard> shards = ring.get().shards;
+        CompletableFuture<T> first = view.apply(shards.get(0).redis).sendAsync(
+                new Command<>(command, output, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(args)));
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[shards.size()];
+        futures[0] = first;
+        for (int i = 1; i < shards.size(); i++) {
+            futures[i] = view.apply(shards.get(i).redis).sendAsync(
+                    new Command<>(command, new VoidOutput(), new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(args)));
+        }
+        return CompletableFuture.allOf(futures).thenCompose(ignore -> first);
+    }
+
+    private static <T> CompletableFuture<T> sum(CommandOutput<ByteSequence, ByteSequence, T> output, List<CompletableFuture<Long>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).thenApply(ignore -> {
+            long sum = 0;
+            for (CompletableFuture<Long> future : futures) {
+                sum += future.join();
+            }
+            output.set(sum);
+            return output.get();
+        });
+    }
+
+    protected <T> CompletableFuture<T> scan(CommandOutput<ByteSequence, ByteSequence, T> output, List<ByteSequence> args) {
+        List<Shard> shards = ring.get().shards;
+        String cursor = args.get(0).toString(StandardCharsets.US_ASCII);
+        int separator = cursor.indexOf(':');
+        int index = separator < 0 ? 0 : Integer.parseInt(cursor.substring(0, separator));
+        String shardCursor = separator < 0 ? cursor : cursor.substring(separator + 1);
+        if (index < 0 || index >= shards.size()) {
+            throw new IllegalArgumentException("invalid cursor: " + cursor);
+        }
+
+        CommandArgs<ByteSequence, ByteSequence> commandArgs = new CommandArgs<>(ByteSequenceRedisCodec.get());
+        commandArgs.addValue(ByteSequence.ascii(shardCursor));
+        for (int i = 1; i < args.size(); i++) {
+            commandArgs.addValue(args.get(i));
+        }
+        String prefix = index + ":";
+        String nextCursor = index + 1 < shards.size() ? (index + 1) + ":0" : "0";
+        return view.apply(shards.get(index).redis).sendAsync(new Command<>(CommandType.SCAN,
+                new ClusterRedis.ScanCursorOutput<>(output, prefix, nextCursor), commandArgs));
+    }
+
+    @Override
+    public Redis master() {
+        return new ShardedRedis(this, view.andThen(Redis::master));
+    }
+
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        return new ShardedRedis(this, view.andThen(redis -> redis.withPriority(priority)));
+    }
+
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        return new ShardedRedis(this, view.andThen(redis -> redis.withTrafficClass(trafficClass)));
+    }
+
+    protected Set<Redis> distinct() {
+        Set<Redis> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Shard shard : ring.get().shards) {
+            set.add(shard.redis);
+        }
+        return set;
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        for (Redis redis : distinct()) {
+            redis.addListener(listener);
+        }
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        for (Redis redis : distinct()) {
+            redis.removeListener(listener);
+        }
+    }
+
+    @Override
+    public URI getURI() {
+        return first().getURI();
+    }
+
+    @Override
+    public void close() throws Exception {
+        Exception error = null;
+        for (Redis redis : distinct()) {
+            try {
+                redis.close();
+            } catch (Exception e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ShardedRedis{" +
+                "shards=" + ring.get().shards +
+                '}';
+    }
+
+    protected static final class Shard {
+        final String name;
+        final Redis redis;
+
+        Shard(String name, Redis redis) {
+            this.name = name;
+            this.redis = redis;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * 一致性哈希环（不可变），新增分片时复制
+     */
+    protected static final class Ring {
+        final List<Shard> shards;
+        final int[] points;
+        final Shard[] owners;
+
+        Ring(List<Shard> shards, int virtualNodes) {
+            this.shards = shards;
+            List<long[]> nodes = new ArrayList<>(shards.size() * virtualNodes);
+            for (int s = 0; s < shards.size(); s++) {
+                for (int point : points(shards.get(s).name, virtualNodes)) {
+                    nodes.add(new long[]{point, s});
+                }
+            }
+            // 位置相同时按分片名排序，保证与加入顺序无关
+            nodes.sort((a, b) -> a[0] != b[0] ?
+                    Long.compare(a[0], b[0]) :
+                    shards.get((int) a[1]).name.compareTo(shards.get((int) b[1]).name));
+            this.points = new int[nodes.size()];
+            this.owners = new Shard[nodes.size()];
+            for (int i = 0; i < nodes.size(); i++) {
+                points[i] = (int) nodes.get(i)[0];
+                owners[i] = shards.get((int) nodes.get(i)[1]);
+            }
+        }
+
+        /**
+         * Ketama：每个MD5摘要生成4个位置
+         */
+        private static int[] points(String name, int virtualNodes) {
+            try {
+                MessageDigest md5 = MessageDigest.getInstance("MD5");
+                int[] points = new int[virtualNodes / 4 * 4];
+                for (int i = 0; i < virtualNodes / 4; i++) {
+                    byte[] digest = md5.digest((name + "-" + i).getBytes(StandardCharsets.UTF_8));
+                    for (int h = 0; h < 4; h++) {
+                        points[i * 4 + h] = (digest[3 + h * 4] & 0xff) << 24 |
+                                (digest[2 + h * 4] & 0xff) << 16 |
+                                (digest[1 + h * 4] & 0xff) << 8 |
+                                (digest[h * 4] & 0xff);
+                    }
+                }
+                return points;
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        Ring add(Shard shard, int virtualNodes) {
+            for (Shard s : shards) {
+                if (s.name.equals(shard.name)) {
+                    throw new IllegalArgumentException("duplicate shard: " + shard.name);
+                }
+            }
+            List<Shard> list = new ArrayList<>(shards.size() + 1);
+            list.addAll(shards);
+            list.add(shard);
+            return new Ring(Collections.unmodifiableList(list), virtualNodes);
+        }
+
+        Shard get(ByteSequence key) {
+            int i = Arrays.binarySearch(points, hash(key));
+            if (i < 0) {
+                i = -i - 1;
+            }
+            return owners[i == points.length ? 0 : i];
+        }
+    }
+}
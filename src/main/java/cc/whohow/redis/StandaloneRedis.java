@@ -2,37 +2,352 @@ package cc.whohow.redis;
 
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.CodecOutput;
+import cc.whohow.redis.lettuce.DeferredOutput;
+import cc.whohow.redis.lettuce.ForwardingOutput;
 import io.lettuce.core.RedisClient;
 import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisException;
 import io.lettuce.core.RedisURI;
 import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.output.CommandOutput;
 import io.lettuce.core.protocol.AsyncCommand;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
 import io.lettuce.core.protocol.RedisCommand;
 
 import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
 public class StandaloneRedis implements Redis {
     protected final RedisClient client;
     protected final RedisURI uri;
+    /**
+     * 延迟解码阈值（字节），回复中值大小达到阈值时不在IO线程解码，负数表示不启用
+     * 池化缓冲区（{@link cc.whohow.redis.bytes.ByteBufSequence}）只用于延迟解码的回复；未启用或未达到阈值时，
+     * 输出在IO线程中按原方式解码复制，没有零拷贝
+     */
+    protected final int decodeThreshold;
+    /**
+     * 异步请求解码线程池，同步请求在调用线程解码
+     */
+    protected final Executor decodeExecutor;
     protected volatile StatefulConnection<ByteSequence, ByteSequence> connection;
+    /**
+     * 连接中/已连接，失败后下次使用时重新连接
+     */
+    protected CompletableFuture<StatefulConnection<ByteSequence, ByteSequence>> connecting;
+    /**
+     * 连接建立前发送的命令，建立后按发送顺序写入
+     */
+    protected final Queue<AsyncCommand<ByteSequence, ByteSequence, ?>> pending = new ArrayDeque<>();
+    protected boolean closed = false;
 
     public StandaloneRedis(RedisClient client, RedisURI uri) {
+        this(client, uri, -1, ForkJoinPool.commonPool());
+    }
+
+    public StandaloneRedis(RedisClient client, RedisURI uri, int decodeThreshold, Executor decodeExecutor) {
+        this(client, uri, decodeThreshold, decodeExecutor, false);
+    }
+
+    /**
+     * @param async 是否异步连接，构造时不阻塞，连接建立前发送的命令等待连接（见 {@link #ready()}）
+     */
+    public StandaloneRedis(RedisClient client, RedisURI uri, int decodeThreshold, Executor decodeExecutor, boolean async) {
         this.client = client;
         this.uri = uri;
-        this.connection = client.connect(ByteSequenceRedisCodec.get(), uri);
+        this.decodeThreshold = decodeThreshold;
+        this.decodeExecutor = decodeExecutor;
+        if (async) {
+            connect();
+        } else {
+            this.connection = client.connect(ByteSequenceRedisCodec.get(), uri);
+            this.connecting = CompletableFuture.completedFuture(connection);
+        }
+    }
+
+    /**
+     * 异步连接，立即返回
+     */
+    public static StandaloneRedis connectAsync(RedisClient client, RedisURI uri) {
+        return new StandaloneRedis(client, uri, -1, ForkJoinPool.commonPool(), true);
+    }
+
+    /**
+     * 连接就绪
+     */
+    public CompletableFuture<Void> ready() {
+        return connect().thenApply(connection -> null);
+    }
+
+    protected synchronized CompletableFuture<StatefulConnection<ByteSequence, ByteSequence>> connect() {
+        if (connecting != null && !connecting.isCompletedExceptionally()) {
+            return connecting;
+        }
+        if (closed) {
+            CompletableFuture<StatefulConnection<ByteSequence, ByteSequence>> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new RedisException("closed"));
+            return failed;
+        }
+        CompletableFuture<StatefulConnection<ByteSequence, ByteSequence>> future = client.connectAsync(ByteSequenceRedisCodec.get(), uri)
+                .toCompletableFuture()
+                .thenApply(this::onConnected);
+        connecting = future;
+        future.whenComplete((c, e) -> {
+            if (e != null) {
+                onConnectError(future, e instanceof CompletionException ? e.getCause() : e);
+            }
+        });
+        return future;
+    }
+
+    protected synchronized StatefulConnection<ByteSequence, ByteSequence> onConnected(StatefulConnection<ByteSequence, ByteSequence> connection) {
+        if (closed) {
+            connection.closeAsync();
+            throw new RedisException("closed");
+        }
+        // 先写入排队命令再发布连接，之后发送的命令不会越过排队命令
+        List<AsyncCommand<ByteSequence, ByteSequence, ?>> commands = drain();
+        if (!commands.isEmpty()) {
+            connection.dispatch(commands);
+        }
+        this.connection = connection;
+        return connection;
+    }
+
+    /**
+     * 连接失败，排队命令异常完成，下次使用时重新连接
+     */
+    protected synchronized void onConnectError(CompletableFuture<?> future, Throwable e) {
+        if (future != connecting) {
+            // 已开始重新连接，排队命令等待新连接
+            return;
+        }
+        for (AsyncCommand<ByteSequence, ByteSequence, ?> command : drain()) {
+            command.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 连接建立前排队，已连接时返回连接
+     */
+    protected synchronized StatefulConnection<ByteSequence, ByteSequence> enqueue(Collection<? extends AsyncCommand<ByteSequence, ByteSequence, ?>> commands) {
+        if (connection != null) {
+            return connection;
+        }
+        if (closed) {
+            for (AsyncCommand<ByteSequence, ByteSequence, ?> command : commands) {
+                command.completeExceptionally(new RedisException("closed"));
+            }
+            return null;
+        }
+        pending.addAll(commands);
+        connect();
+        return null;
+    }
+
+    /**
+     * 取出排队命令，等待期间已取消（截止时间等）的命令不再发送
+     */
+    protected List<AsyncCommand<ByteSequence, ByteSequence, ?>> drain() {
+        List<AsyncCommand<ByteSequence, ByteSequence, ?>> commands = new ArrayList<>(pending.size());
+        AsyncCommand<ByteSequence, ByteSequence, ?> command;
+        while ((command = pending.poll()) != null) {
+            if (command.getDelegate().isCancelled()) {
+                command.cancel(false);
+            } else {
+                commands.add(command);
+            }
+        }
+        return commands;
+    }
+
+    @Override
+    public <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command) {
+        return send(new Command<>(command, output));
+    }
+
+    @Override
+    public <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, CommandArgs<ByteSequence, ByteSequence> commandArgs) {
+        return send(new Command<>(command, output, commandArgs));
+    }
+
+    @Override
+    public <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence... commandArgs) {
+        return send(output, command, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(commandArgs));
+    }
+
+    @Override
+    public <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Iterable<ByteSequence> commandArgs) {
+        return send(output, command, new CommandArgs<>(ByteSequenceRedisCodec.get()).addValues(commandArgs));
+    }
+
+    @Override
+    public <T> T send(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        DeferredOutput<T> deferred = defer(command);
+        if (deferred == null) {
+            return dispatch(command).join();
+        }
+        try {
+            dispatch(command).join();
+        } catch (RuntimeException e) {
+            deferred.release();
+            throw e;
+        }
+        return deferred.decode();
     }
 
     @Override
     public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
-        return (AsyncCommand<ByteSequence, ByteSequence, T>) connection.dispatch(new AsyncCommand<>(command));
+        DeferredOutput<T> deferred = defer(command);
+        return decode(deferred, dispatch(command));
+    }
+
+    /**
+     * 批量发送，所有命令一次写入连接
+     */
+    @Override
+    public List<CompletableFuture<?>> sendAsync(List<? extends RedisCommand<ByteSequence, ByteSequence, ?>> commands) {
+        List<AsyncCommand<ByteSequence, ByteSequence, ?>> asyncCommands = new ArrayList<>(commands.size());
+        List<CompletableFuture<?>> futures = new ArrayList<>(commands.size());
+        for (RedisCommand<ByteSequence, ByteSequence, ?> command : commands) {
+            futures.add(prepare(command, asyncCommands));
+        }
+        dispatch(asyncCommands);
+        return futures;
+    }
+
+    protected <T> CompletableFuture<T> prepare(RedisCommand<ByteSequence, ByteSequence, T> command,
+                                               List<AsyncCommand<ByteSequence, ByteSequence, ?>> asyncCommands) {
+        DeferredOutput<T> deferred = defer(command);
+        AsyncCommand<ByteSequence, ByteSequence, T> asyncCommand = new AsyncCommand<>(command);
+        asyncCommands.add(asyncCommand);
+        return decode(deferred, asyncCommand);
+    }
+
+    /**
+     * 延迟解码，回复到达后由解码线程池解码
+     */
+    protected <T> CompletableFuture<T> decode(DeferredOutput<T> deferred, CompletableFuture<T> future) {
+        if (deferred == null) {
+            return future;
+        }
+        CompletableFuture<T> result = new CompletableFuture<>();
+        future.whenComplete((r, e) -> {
+            if (e != null) {
+                deferred.release();
+                result.completeExceptionally(e);
+            } else if (!deferred.isDeferred()) {
+                result.complete(r);
+            } else if (result.isDone()) {
+                deferred.release();
+            } else {
+                decodeExecutor.execute(() -> {
+                    // 解码前已被取消或提前完成（Redis.await、截止时间等）
+                    if (result.isDone()) {
+                        deferred.release();
+                        return;
+                    }
+                    try {
+                        result.complete(deferred.decode());
+                    } catch (Throwable ex) {
+                        result.completeExceptionally(ex);
+                    }
+                });
+            }
+        });
+        // 提前完成时取消命令，回复到达后释放缓冲区
+        result.whenComplete((r, e) -> {
+            if (!future.isDone()) {
+                future.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    protected <T> CompletableFuture<T> dispatch(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        StatefulConnection<ByteSequence, ByteSequence> connection = this.connection;
+        if (connection == null) {
+            AsyncCommand<ByteSequence, ByteSequence, T> asyncCommand = new AsyncCommand<>(command);
+            connection = enqueue(Collections.singletonList(asyncCommand));
+            if (connection == null) {
+                return asyncCommand;
+            }
+        }
+        return dispatch(connection, command);
+    }
+
+    protected void dispatch(List<AsyncCommand<ByteSequence, ByteSequence, ?>> commands) {
+        StatefulConnection<ByteSequence, ByteSequence> connection = this.connection;
+        if (connection == null) {
+            connection = enqueue(commands);
+            if (connection == null) {
+                return;
+            }
+        }
+        connection.dispatch(commands);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected <T> CompletableFuture<T> dispatch(StatefulConnection<ByteSequence, ByteSequence> connection,
+                                                RedisCommand<ByteSequence, ByteSequence, T> command) {
+        AsyncCommand<ByteSequence, ByteSequence, T> asyncCommand = new AsyncCommand<>(command);
+        if (command.isCancelled()) {
+            // 等待发送期间已取消（截止时间等），不再发送
+            asyncCommand.cancel(false);
+            return asyncCommand;
+        }
+        return (AsyncCommand<ByteSequence, ByteSequence, T>) connection.dispatch(asyncCommand);
+    }
+
+    /**
+     * 开启延迟解码，输出（可经过ForwardingOutput包装）为CodecOutput时有效
+     */
+    protected <T> DeferredOutput<T> defer(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        if (decodeThreshold < 0) {
+            return null;
+        }
+        CommandOutput<ByteSequence, ByteSequence, T> output = command.getOutput();
+        while (output instanceof ForwardingOutput) {
+            if (output instanceof DeferredOutput) {
+                return null;
+            }
+            output = ((ForwardingOutput<T>) output).getDelegate();
+        }
+        if (!(output instanceof CodecOutput)) {
+            return null;
+        }
+        DeferredOutput<T> deferred = new DeferredOutput<>(command.getOutput(), decodeThreshold);
+        command.setOutput(deferred);
+        return deferred;
     }
 
     @Override
     public void close() throws Exception {
+        StatefulConnection<ByteSequence, ByteSequence> connection;
+        List<AsyncCommand<ByteSequence, ByteSequence, ?>> commands;
+        synchronized (this) {
+            closed = true;
+            connection = this.connection;
+            this.connection = null;
+            commands = drain();
+        }
+        for (AsyncCommand<ByteSequence, ByteSequence, ?> command : commands) {
+            command.completeExceptionally(new RedisException("closed"));
+        }
         if (connection != null) {
             connection.close();
-            connection = null;
         }
     }
 
@@ -0,0 +1,19 @@
+package cc.whohow.redis;
+
+/**
+ * 流量类别，不同类别可使用独立连接及并发限制（见 {@link TrafficClassRedis}），避免批量命令拖慢低延迟请求
+ */
+public enum TrafficClass {
+    /**
+     * 低延迟请求（默认），如缓存读写
+     */
+    INTERACTIVE,
+    /**
+     * 批量命令，如SCAN遍历、整体复制、批量删除
+     */
+    BULK,
+    /**
+     * 后台任务，如实例信息同步、定时刷新
+     */
+    BACKGROUND
+}
@@ -0,0 +1,190 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.RedisCommand;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Function;
+
+/**
+ * 按流量类别路由到不同连接，类别通过 {@link #withTrafficClass(TrafficClass)} 视图指定，默认INTERACTIVE
+ * <p>
+ * 未配置的类别使用INTERACTIVE连接；类别连接可使用 {@link ConcurrencyLimitedRedis} 限制并发
+ */
+public class TrafficClassRedis implements Redis {
+    private static final TrafficClass[] TRAFFIC_CLASSES = TrafficClass.values();
+
+    protected final Redis[] routes;
+    protected final TrafficClass trafficClass;
+
+    public TrafficClassRedis(Map<TrafficClass, Redis> routes) {
+        Redis interactive = routes.get(TrafficClass.INTERACTIVE);
+        if (interactive == null) {
+            throw new IllegalArgumentException("INTERACTIVE required");
+        }
+        this.routes = new Redis[TRAFFIC_CLASSES.length];
+        for (TrafficClass c : TRAFFIC_CLASSES) {
+            this.routes[c.ordinal()] = routes.getOrDefault(c, interactive);
+        }
+        this.trafficClass = TrafficClass.INTERACTIVE;
+    }
+
+    protected TrafficClassRedis(Redis[] routes, TrafficClass trafficClass) {
+        this.routes = routes;
+        this.trafficClass = trafficClass;
+    }
+
+    /**
+     * 每个类别独立连接，BULK/BACKGROUND限制并发，排队等待较长时间
+     */
+    public static TrafficClassRedis create(RedisClient client, RedisURI uri, ScheduledExecutorService executor) {
+        Map<TrafficClass, Redis> routes = new EnumMap<>(TrafficClass.class);
+        routes.put(TrafficClass.INTERACTIVE, new StandaloneRedis(client, uri));
+        routes.put(TrafficClass.BULK, new ConcurrencyLimitedRedis(new StandaloneRedis(client, uri), executor,
+                4, 1, 16, 1000, Duration.ofSeconds(10)));
+        routes.put(TrafficClass.BACKGROUND, new ConcurrencyLimitedRedis(new StandaloneRedis(client, uri), executor,
+                2, 1, 4, 1000, Duration.ofSeconds(10)));
+        return new TrafficClassRedis(routes);
+    }
+
+    public TrafficClass getTrafficClass() {
+        return trafficClass;
+    }
+
+    /**
+     * 类别对应连接
+     */
+    public Redis getRedis(TrafficClass trafficClass) {
+        return routes[trafficClass.ordinal()];
+    }
+
+    protected Redis route() {
+        return routes[trafficClass.ordinal()];
+    }
+
+    @Override
+    public <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command) {
+        return route().send(output, command);
+    }
+
+    @Override
+    public <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, CommandArgs<ByteSequence, ByteSequence> commandArgs) {
+        return route().send(output, command, commandArgs);
+    }
+
+    @Override
+    public <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, ByteSequence... commandArgs) {
+        return route().send(output, command, commandArgs);
+    }
+
+    @Override
+    public <T> T send(CommandOutput<ByteSequence, ByteSequence, T> output, CommandType command, Iterable<ByteSequence> commandArgs) {
+        return route().send(output, command, commandArgs);
+    }
+
+    @Override
+    public <T> T send(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        return route().send(command);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+        return route().sendAsync(command);
+    }
+
+    @Override
+    public Redis withTrafficClass(TrafficClass trafficClass) {
+        return trafficClass == this.trafficClass ? this : new TrafficClassRedis(routes, trafficClass);
+    }
+
+    @Override
+    public Redis withPriority(CommandPriority priority) {
+        return map(redis -> redis.withPriority(priority));
+    }
+
+    @Override
+    public Redis master() {
+        return map(Redis::master);
+    }
+
+    /**
+     * 各类别连接分别转换，均未改变时返回自身
+     */
+    protected TrafficClassRedis map(Function<Redis, Redis> function) {
+        Map<Redis, Redis> mapped = new IdentityHashMap<>();
+        Redis[] views = new Redis[routes.length];
+        boolean changed = false;
+        for (int i = 0; i < routes.length; i++) {
+            views[i] = mapped.computeIfAbsent(routes[i], function);
+            changed |= views[i] != routes[i];
+        }
+        return changed ? new TrafficClassRedis(views, trafficClass) : this;
+    }
+
+    protected Set<Redis> distinct() {
+        Set<Redis> set = Collections.newSetFromMap(new IdentityHashMap<>());
+        set.addAll(Arrays.asList(routes));
+        return set;
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        for (Redis redis : distinct()) {
+            redis.addListener(listener);
+        }
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        for (Redis redis : distinct()) {
+            redis.removeListener(listener);
+        }
+    }
+
+    @Override
+    public URI getURI() {
+        return route().getURI();
+    }
+
+    @Override
+    public void close() throws Exception {
+        Exception error = null;
+        for (Redis redis : distinct()) {
+            try {
+                redis.close();
+            } catch (Exception e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "TrafficClassRedis{" +
+                "trafficClass=" + trafficClass +
+                ", routes=" + Arrays.toString(routes) +
+                '}';
+    }
+}
@@ -0,0 +1,183 @@
+package cc.whohow.redis.bytes;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.util.ReferenceCounted;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.PrimitiveIterator;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+/**
+ * 基于Netty ByteBuf的字节序列（可读部分），引用计数，使用完毕需release，子序列共享引用计数
+ * 目前仅用于延迟解码（{@link cc.whohow.redis.lettuce.DeferredOutput}）暂存回复，常规读取路径不使用
+ */
+public class ByteBufSequence implements ByteSequence, ByteBufWritable, ReferenceCounted {
+    protected final ByteBuf byteBuf;
+
+    public ByteBufSequence(ByteBuf byteBuf) {
+        this.byteBuf = byteBuf;
+    }
+
+    /**
+     * 复制到池化缓冲区
+     */
+    public static ByteBufSequence copyOf(ByteBuffer byteBuffer) {
+        return copyOf(ByteBufAllocator.DEFAULT, byteBuffer);
+    }
+
+    public static ByteBufSequence copyOf(ByteBufAllocator allocator, ByteBuffer byteBuffer) {
+        ByteBuf byteBuf = allocator.heapBuffer(byteBuffer.remaining());
+        byteBuf.writeBytes(byteBuffer);
+        return new ByteBufSequence(byteBuf);
+    }
+
+    public ByteBuf getByteBuf() {
+        return byteBuf;
+    }
+
+    @Override
+    public int length() {
+        return byteBuf.readableBytes();
+    }
+
+    @Override
+    public boolean hasArray() {
+        return byteBuf.hasArray();
+    }
+
+    @Override
+    public byte[] array() {
+        return byteBuf.array();
+    }
+
+    @Override
+    public int arrayOffset() {
+        return byteBuf.arrayOffset() + byteBuf.readerIndex();
+    }
+
+    @Override
+    public byte get(int index) {
+        return byteBuf.getByte(byteBuf.readerIndex() + index);
+    }
+
+    @Override
+    public int get(int index, byte[] array, int offset, int length) {
+        int n = Integer.min(length, length() - index);
+        byteBuf.getBytes(byteBuf.readerIndex() + index, array, offset, n);
+        return n;
+    }
+
+    @Override
+    public int get(int index, ByteBuffer buffer) {
+        int n = Integer.min(buffer.remaining(), length() - index);
+        ByteBuffer slice = buffer.duplicate();
+        slice.limit(slice.position() + n);
+        byteBuf.getBytes(byteBuf.readerIndex() + index, slice);
+        buffer.position(buffer.position() + n);
+        return n;
+    }
+
+    @Override
+    public ByteSequence subSequence(int start, int end) {
+        return new ByteBufSequence(byteBuf.slice(byteBuf.readerIndex() + start, end - start));
+    }
+
+    /**
+     * 共享底层内存，不复制
+     */
+    @Override
+    public ByteBuffer toByteBuffer() {
+        return byteBuf.nioBuffer();
+    }
+
+    @Override
+    public IntStream bytes() {
+        return ByteStream.of(toByteBuffer());
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt byteIterator() {
+        return new ByteIterator(toByteBuffer());
+    }
+
+    @Override
+    public Iterator<ByteBuffer> iterator() {
+        return Collections.singleton(toByteBuffer()).iterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super ByteBuffer> action) {
+        action.accept(toByteBuffer());
+    }
+
+    @Override
+    public void writeTo(ByteBuf target) {
+        target.writeBytes(byteBuf, byteBuf.readerIndex(), byteBuf.readableBytes());
+    }
+
+    @Override
+    public int refCnt() {
+        return byteBuf.refCnt();
+    }
+
+    @Override
+    public ByteBufSequence retain() {
+        byteBuf.retain();
+        return this;
+    }
+
+    @Override
+    public ByteBufSequence retain(int increment) {
+        byteBuf.retain(increment);
+        return this;
+    }
+
+    @Override
+    public ByteBufSequence touch() {
+        byteBuf.touch();
+        return this;
+    }
+
+    @Override
+    public ByteBufSequence touch(Object hint) {
+        byteBuf.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return byteBuf.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return byteBuf.release(decrement);
+    }
+
+    @Override
+    public String toString() {
+        return toString(StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof ByteSequence) {
+            ByteSequence that = (ByteSequence) o;
+            return contentEquals(that);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return ByteSequence.hashCode(this);
+    }
+}
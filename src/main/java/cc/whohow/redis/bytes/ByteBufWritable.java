@@ -0,0 +1,23 @@
+package cc.whohow.redis.bytes;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * 可直接写入ByteBuf的字节序列，编码时无需中间缓冲区
+ */
+public interface ByteBufWritable {
+    /**
+     * 写入字节序列
+     */
+    static void write(ByteSequence byteSequence, ByteBuf target) {
+        if (byteSequence instanceof ByteBufWritable) {
+            ((ByteBufWritable) byteSequence).writeTo(target);
+        } else if (byteSequence.hasArray()) {
+            target.writeBytes(byteSequence.array(), byteSequence.arrayOffset(), byteSequence.length());
+        } else {
+            byteSequence.forEach(target::writeBytes);
+        }
+    }
+
+    void writeTo(ByteBuf target);
+}
@@ -1,6 +1,7 @@
 package cc.whohow.redis.bytes;
 
 import cc.whohow.redis.util.IteratorIterator;
+import io.netty.buffer.ByteBuf;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
@@ -9,7 +10,7 @@ import java.util.Iterator;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
-public class ConcatByteSequence implements ByteSequence {
+public class ConcatByteSequence implements ByteSequence, ByteBufWritable {
     protected final ByteSequence head;
     protected final ByteSequence tail;
 
@@ -84,6 +85,12 @@ public class ConcatByteSequence implements ByteSequence {
         tail.forEach(action);
     }
 
+    @Override
+    public void writeTo(ByteBuf target) {
+        ByteBufWritable.write(head, target);
+        ByteBufWritable.write(tail, target);
+    }
+
     @Override
     public String toString() {
         return head.toString() + tail.toString();
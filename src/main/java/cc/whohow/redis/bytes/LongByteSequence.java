@@ -0,0 +1,168 @@
+package cc.whohow.redis.bytes;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+/**
+ * 整数的十进制ASCII字节序列，编码时直接写入数字，不创建中间字符串
+ */
+public class LongByteSequence implements ByteSequence, ByteBufWritable {
+    private static final long[] POWERS_OF_TEN = {
+            1L,
+            10L,
+            100L,
+            1000L,
+            10000L,
+            100000L,
+            1000000L,
+            10000000L,
+            100000000L,
+            1000000000L,
+            10000000000L,
+            100000000000L,
+            1000000000000L,
+            10000000000000L,
+            100000000000000L,
+            1000000000000000L,
+            10000000000000000L,
+            100000000000000000L,
+            1000000000000000000L,
+    };
+
+    protected final long value;
+    protected final int length;
+
+    public LongByteSequence(long value) {
+        this.value = value;
+        this.length = stringSize(value);
+    }
+
+    /**
+     * 十进制字符数（含负号）
+     */
+    public static int stringSize(long value) {
+        // 负数运算，兼容Long.MIN_VALUE
+        long negative = value < 0 ? value : -value;
+        int size = 1;
+        while (size < POWERS_OF_TEN.length && negative <= -POWERS_OF_TEN[size]) {
+            size++;
+        }
+        return value < 0 ? size + 1 : size;
+    }
+
+    public long longValue() {
+        return value;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public byte get(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(Integer.toString(index));
+        }
+        if (value < 0 && index == 0) {
+            return '-';
+        }
+        long digit = (value / POWERS_OF_TEN[length - 1 - index]) % 10;
+        return (byte) ('0' + (digit < 0 ? -digit : digit));
+    }
+
+    @Override
+    public int get(int index, byte[] array, int offset, int length) {
+        int n = Integer.min(length, this.length - index);
+        if (index == 0 && n == this.length) {
+            write(array, offset);
+        } else {
+            for (int i = 0; i < n; i++) {
+                array[offset + i] = get(index + i);
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public void writeTo(ByteBuf target) {
+        target.ensureWritable(length);
+        int writerIndex = target.writerIndex();
+        if (target.hasArray()) {
+            write(target.array(), target.arrayOffset() + writerIndex);
+        } else {
+            long negative = value < 0 ? value : -value;
+            for (int i = writerIndex + length - 1; i >= writerIndex; i--) {
+                target.setByte(i, (int) ('0' - negative % 10));
+                negative /= 10;
+                if (negative == 0) {
+                    break;
+                }
+            }
+            if (value < 0) {
+                target.setByte(writerIndex, '-');
+            }
+        }
+        target.writerIndex(writerIndex + length);
+    }
+
+    protected void write(byte[] array, int offset) {
+        long negative = value < 0 ? value : -value;
+        for (int i = offset + length - 1; i >= offset; i--) {
+            array[i] = (byte) ('0' - negative % 10);
+            negative /= 10;
+            if (negative == 0) {
+                break;
+            }
+        }
+        if (value < 0) {
+            array[offset] = '-';
+        }
+    }
+
+    @Override
+    public Iterator<ByteBuffer> iterator() {
+        return Collections.singleton(toByteBuffer()).iterator();
+    }
+
+    @Override
+    public void forEach(Consumer<? super ByteBuffer> action) {
+        action.accept(toByteBuffer());
+    }
+
+    @Override
+    public CharSequence toCharSequence(Charset charset) {
+        return toString();
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (o instanceof LongByteSequence) {
+            LongByteSequence that = (LongByteSequence) o;
+            return value == that.value;
+        }
+        if (o instanceof ByteSequence) {
+            ByteSequence that = (ByteSequence) o;
+            return contentEquals(that);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return ByteSequence.hashCode(this);
+    }
+}
@@ -6,6 +6,13 @@ import java.util.function.Supplier;
  * 缓存值
  */
 public interface CacheValue<V> extends Supplier<V> {
+    /**
+     * 是否可能已过时（Redis断开期间或重连后重新验证前的内存缓存值）
+     */
+    default boolean isStale() {
+        return false;
+    }
+
     int hashCode();
 
     boolean equals(Object o);
@@ -8,9 +8,15 @@ import java.util.Objects;
 public class ImmutableCacheValue<V> implements CacheValue<V> {
     private static final ImmutableCacheValue<?> EMPTY = new ImmutableCacheValue<>(null);
     protected final V value;
+    protected final boolean stale;
 
     public ImmutableCacheValue(V value) {
+        this(value, false);
+    }
+
+    public ImmutableCacheValue(V value, boolean stale) {
         this.value = value;
+        this.stale = stale;
     }
 
     @SuppressWarnings("unchecked")
@@ -23,6 +29,11 @@ public class ImmutableCacheValue<V> implements CacheValue<V> {
         return value;
     }
 
+    @Override
+    public boolean isStale() {
+        return stale;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hashCode(value);
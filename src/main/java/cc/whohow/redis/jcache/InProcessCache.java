@@ -102,7 +102,7 @@ public class InProcessCache<K, V> implements Cache<K, V> {
 
     @Override
     public boolean remove(K key, V oldValue) {
-        throw new UnsupportedOperationException();
+        return cache.asMap().remove(key, oldValue);
     }
 
     @Override
@@ -112,7 +112,7 @@ public class InProcessCache<K, V> implements Cache<K, V> {
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
-        throw new UnsupportedOperationException();
+        return cache.asMap().replace(key, oldValue, newValue);
     }
 
     @Override
@@ -0,0 +1,50 @@
+package cc.whohow.redis.jcache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 失效版本，按键哈希分段计数，键失效时递增
+ * <p>
+ * 加载前记录版本，回填后版本变化说明加载期间键已失效，撤回回填值
+ */
+public class InvalidationEpoch<K> {
+    private static final int DEFAULT_STRIPES = 1024;
+
+    protected final AtomicLongArray stripes;
+    protected final AtomicLong global = new AtomicLong();
+    protected final int mask;
+
+    public InvalidationEpoch() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes 分段数，向上取2的幂
+     */
+    public InvalidationEpoch(int stripes) {
+        int n = stripes <= 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+        this.stripes = new AtomicLongArray(n);
+        this.mask = n - 1;
+    }
+
+    protected int index(Object key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    /**
+     * 当前版本（分段版本与全局版本之和，两者均单调递增）
+     */
+    public long get(K key) {
+        return global.get() + stripes.get(index(key));
+    }
+
+    public void invalidate(K key) {
+        stripes.incrementAndGet(index(key));
+    }
+
+    public void invalidateAll() {
+        global.incrementAndGet();
+    }
+}
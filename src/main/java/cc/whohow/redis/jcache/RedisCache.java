@@ -2,6 +2,7 @@ package cc.whohow.redis.jcache;
 
 import cc.whohow.redis.RESP;
 import cc.whohow.redis.Redis;
+import cc.whohow.redis.TrafficClass;
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.codec.Codec;
 import cc.whohow.redis.jcache.codec.RedisCacheCodecFactory;
@@ -36,6 +37,7 @@ public class RedisCache<K, V> implements Cache<K, V> {
     protected final Codec<V> valueCodec;
     protected final Redis redis;
     protected final CacheStats cacheStats = new CacheStats();
+    protected final RedisCacheLoadCoordinator<K, V> loadCoordinator;
 
     public RedisCache(RedisCacheManager cacheManager, RedisCacheConfiguration<K, V> configuration) {
         Objects.requireNonNull(configuration.getName());
@@ -45,6 +47,10 @@ public class RedisCache<K, V> implements Cache<K, V> {
         this.keyCodec = redisCacheCodecFactory.newKeyCodec(configuration);
         this.valueCodec = redisCacheCodecFactory.newValueCodec(configuration);
         this.redis = cacheManager.getRedis();
+        this.loadCoordinator = configuration.getLoadLeaseTime() > 0 ?
+                new RedisCacheLoadCoordinator<>(this, redis, cacheManager.getRedisTracking(), configuration.getRedisKeyPattern(),
+                        configuration.getLoadLeaseTimeUnit().toMillis(configuration.getLoadLeaseTime())) :
+                null;
     }
 
     public Codec<K> getKeyCodec() {
@@ -80,6 +86,13 @@ public class RedisCache<K, V> implements Cache<K, V> {
                 .map(keyCodec::encode)
                 .collect(Collectors.toList());
         List<V> values = redis.send(new ListOutput<>(valueCodec::decode), CommandType.MGET, args);
+        int hits = 0;
+        for (V value : values) {
+            if (value != null) {
+                hits++;
+            }
+        }
+        cacheStats.cacheGet(hits, values.size() - hits);
         return new KeyValues<>(keys, values);
     }
 
@@ -185,13 +198,15 @@ public class RedisCache<K, V> implements Cache<K, V> {
 
     @Override
     public void removeAll() {
-        RedisKeyScanIterator<ByteSequence> iterator = new RedisKeyScanIterator<>(
-                redis, ByteSequence::copy, configuration.getRedisKeyPattern(), 0);
+        // 批量通道，删除当前页时预取下一页
+        Redis bulk = redis.withTrafficClass(TrafficClass.BULK);
+        RedisScanPrefetchIterator<ByteSequence> iterator = new RedisScanPrefetchIterator<>(new RedisKeyScanIterator<>(
+                bulk, ByteSequence::copy, configuration.getRedisKeyPattern(), 0));
 
         while (iterator.hasNext()) {
             RedisScanIteration<ByteSequence> iteration = iterator.next();
             if (!iteration.getArray().isEmpty()) {
-                redis.send(new VoidOutput(), CommandType.DEL, iteration.getArray());
+                bulk.send(new VoidOutput(), CommandType.DEL, iteration.getArray());
                 cacheStats.cacheRemove(iteration.getArray().size());
             }
         }
@@ -241,6 +256,9 @@ public class RedisCache<K, V> implements Cache<K, V> {
     @Override
     public void close() {
         log.info("close cache: {}", getName());
+        if (loadCoordinator != null) {
+            loadCoordinator.close();
+        }
     }
 
     @Override
@@ -268,8 +286,8 @@ public class RedisCache<K, V> implements Cache<K, V> {
 
     @Override
     public Iterator<Entry<K, V>> iterator() {
-        return new MappingIterator<>(new RedisIterator<>(new RedisKeyScanIterator<>(
-                redis, keyCodec::decode, configuration.getRedisKeyPattern(), 0)), this::getEntry);
+        return new MappingIterator<>(new RedisIterator<>(new RedisScanPrefetchIterator<>(new RedisKeyScanIterator<>(
+                redis, keyCodec::decode, configuration.getRedisKeyPattern(), 0))), this::getEntry);
     }
 
     @Override
@@ -280,7 +298,7 @@ public class RedisCache<K, V> implements Cache<K, V> {
     @Override
     public CacheValue<V> getValue(K key) {
         CacheValue<V> cacheValue = redis.send(
-                new DecodeOutput<>(this::decodeCacheValue, ImmutableCacheValue.empty()), CommandType.GET, keyCodec.encode(key));
+                new DecodeOutput<>(this::decodeCacheValue), CommandType.GET, keyCodec.encode(key));
         if (cacheValue != null) {
             cacheStats.cacheHit(1);
         } else {
@@ -291,17 +309,35 @@ public class RedisCache<K, V> implements Cache<K, V> {
 
     @Override
     public CacheValue<V> getValue(K key, CacheLoader<K, ? extends V> cacheLoader) {
+        ByteSequence encodedKey = keyCodec.encode(key);
         CacheValue<V> cacheValue = redis.send(
-                new DecodeOutput<>(this::decodeCacheValue, ImmutableCacheValue.empty()), CommandType.GET, keyCodec.encode(key));
+                new DecodeOutput<>(this::decodeCacheValue), CommandType.GET, encodedKey);
         if (cacheValue != null) {
             cacheStats.cacheHit(1);
             return cacheValue;
         } else {
             cacheStats.cacheMiss(1);
-            V value = cacheLoader.load(key);
-            put(key, value);
-            return new ImmutableCacheValue<>(value);
+            return load(key, encodedKey, cacheLoader);
+        }
+    }
+
+    /**
+     * 未命中时加载并写入缓存
+     */
+    protected CacheValue<V> load(K key, ByteSequence encodedKey, CacheLoader<K, ? extends V> cacheLoader) {
+        if (loadCoordinator != null) {
+            return loadCoordinator.load(key, encodedKey, cacheLoader);
         }
+        V value = cacheLoader.load(key);
+        put(key, value);
+        return new ImmutableCacheValue<>(value);
+    }
+
+    /**
+     * 读取已编码键的缓存值，不计入统计
+     */
+    protected CacheValue<V> read(ByteSequence encodedKey) {
+        return redis.send(new DecodeOutput<>(this::decodeCacheValue), CommandType.GET, encodedKey);
     }
 
     @Override
@@ -0,0 +1,199 @@
+package cc.whohow.redis.jcache;
+
+import cc.whohow.redis.CommandPriority;
+import cc.whohow.redis.RESP;
+import cc.whohow.redis.Redis;
+import cc.whohow.redis.RedisScript;
+import cc.whohow.redis.RedisTracking;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.bytes.ConcatByteSequence;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.StatusOutput;
+import io.lettuce.core.protocol.CommandType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.cache.integration.CacheLoaderException;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 分布式加载协调，缓存未命中时首个节点获得加载租约（SET NX PX）执行加载，其他节点等待缓存写入通知（或退避轮询）后读取
+ * <p>
+ * 租约过期（加载节点崩溃）后由等待节点接管加载；等待超过2倍租约时间放弃协调，本地加载
+ */
+public class RedisCacheLoadCoordinator<K, V> implements RedisTracking.Listener, AutoCloseable {
+    private static final Logger log = LogManager.getLogger();
+    private static final ByteSequence LEASE_PREFIX = ByteSequence.ascii("_lease:");
+    private static final long MIN_AWAIT_TIME = 10; // ms
+    private static final long MAX_AWAIT_TIME = 200; // ms
+
+    protected final RedisCache<K, V> cache;
+    protected final Redis redis;
+    protected final RedisTracking redisTracking;
+    protected final String redisKeyPattern;
+    protected final long leaseTimeMillis;
+    protected final ByteSequence leaseTime;
+    /**
+     * 等待中的键，收到失效通知（值已写入）时唤醒
+     */
+    protected final ConcurrentMap<ByteSequence, CompletableFuture<Void>> waiters = new ConcurrentHashMap<>();
+
+    public RedisCacheLoadCoordinator(RedisCache<K, V> cache, Redis redis, RedisTracking redisTracking,
+                                     String redisKeyPattern, long leaseTimeMillis) {
+        this.cache = cache;
+        this.redis = redis.master().withPriority(CommandPriority.CRITICAL);
+        this.redisTracking = redisTracking;
+        this.redisKeyPattern = redisKeyPattern;
+        this.leaseTimeMillis = leaseTimeMillis;
+        this.leaseTime = RESP.b(leaseTimeMillis);
+        if (redisTracking != null) {
+            redisTracking.addListener(redisKeyPattern, this);
+        }
+    }
+
+    /**
+     * 租约键，不匹配缓存键模式
+     */
+    protected ByteSequence leaseKey(ByteSequence key) {
+        return new ConcatByteSequence(LEASE_PREFIX, key);
+    }
+
+    /**
+     * 协调加载，返回已写入缓存的值
+     */
+    public CacheValue<V> load(K key, ByteSequence encodedKey, CacheLoader<K, ? extends V> cacheLoader) {
+        ByteSequence leaseKey = leaseKey(encodedKey);
+        long deadline = System.currentTimeMillis() + 2 * leaseTimeMillis;
+        for (int retryTimes = 0; ; retryTimes++) {
+            // 先登记等待，避免错过获得租约失败后写入的通知
+            CompletableFuture<Void> signal = redisTracking == null ? null :
+                    waiters.computeIfAbsent(encodedKey, k -> new CompletableFuture<>());
+            ByteSequence token = ByteSequence.ascii(UUID.randomUUID().toString());
+            if (tryAcquire(leaseKey, token)) {
+                try {
+                    // 未命中后、获得租约前，其他节点可能已完成加载
+                    CacheValue<V> cacheValue = cache.read(encodedKey);
+                    return cacheValue != null ? cacheValue : loadAndPut(key, cacheLoader);
+                } finally {
+                    release(leaseKey, token);
+                    // 加载结束，唤醒本地共用该通知的等待者
+                    signal(encodedKey, signal);
+                }
+            }
+            CacheValue<V> cacheValue = cache.read(encodedKey);
+            if (cacheValue != null) {
+                if (signal != null) {
+                    waiters.remove(encodedKey, signal);
+                }
+                return cacheValue;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("load lease wait timeout, load locally: {} {}", cache.getName(), key);
+                try {
+                    return loadAndPut(key, cacheLoader);
+                } finally {
+                    signal(encodedKey, signal);
+                }
+            }
+            await(signal, retryTimes);
+        }
+    }
+
+    /**
+     * 尝试获得租约后重新加载，其他节点正在加载时返回false
+     */
+    public boolean reload(K key, ByteSequence encodedKey, CacheLoader<K, ? extends V> cacheLoader) {
+        ByteSequence leaseKey = leaseKey(encodedKey);
+        ByteSequence token = ByteSequence.ascii(UUID.randomUUID().toString());
+        if (!tryAcquire(leaseKey, token)) {
+            return false;
+        }
+        try {
+            loadAndPut(key, cacheLoader);
+            return true;
+        } finally {
+            release(leaseKey, token);
+        }
+    }
+
+    protected CacheValue<V> loadAndPut(K key, CacheLoader<K, ? extends V> cacheLoader) {
+        V value = cacheLoader.load(key);
+        cache.put(key, value);
+        return new ImmutableCacheValue<>(value);
+    }
+
+    protected boolean tryAcquire(ByteSequence leaseKey, ByteSequence token) {
+        return RESP.ok(redis.send(new StatusOutput(),
+                CommandType.SET, leaseKey, token, RESP.px(), leaseTime, RESP.nx()));
+    }
+
+    /**
+     * 只释放自己持有的租约，失败时等待租约过期
+     */
+    protected void release(ByteSequence leaseKey, ByteSequence token) {
+        try {
+            redis.eval(new IntegerOutput(), RedisScript.get("cad"),
+                    Collections.singletonList(leaseKey), Collections.singletonList(token));
+        } catch (RuntimeException e) {
+            log.warn("release load lease error: {}", leaseKey, e);
+        }
+    }
+
+    /**
+     * 等待通知或退避（10ms起倍增，不超过200ms及租约时间）
+     */
+    protected void await(CompletableFuture<Void> signal, int retryTimes) {
+        long time = Long.min(MIN_AWAIT_TIME << Integer.min(retryTimes, 5), Long.min(MAX_AWAIT_TIME, leaseTimeMillis));
+        try {
+            if (signal == null) {
+                TimeUnit.MILLISECONDS.sleep(time);
+            } else {
+                signal.get(time, TimeUnit.MILLISECONDS);
+            }
+        } catch (TimeoutException | ExecutionException ignore) {
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CacheLoaderException(e);
+        }
+    }
+
+    /**
+     * 移除并完成等待通知
+     */
+    protected void signal(ByteSequence encodedKey, CompletableFuture<Void> signal) {
+        if (signal != null) {
+            waiters.remove(encodedKey, signal);
+            signal.complete(null);
+        }
+    }
+
+    @Override
+    public void onInvalidate(ByteSequence key) {
+        CompletableFuture<Void> signal = waiters.remove(key);
+        if (signal != null) {
+            signal.complete(null);
+        }
+    }
+
+    @Override
+    public void onInvalidateAll() {
+        for (ByteSequence key : waiters.keySet()) {
+            onInvalidate(key);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (redisTracking != null) {
+            redisTracking.removeListener(redisKeyPattern, this);
+        }
+        onInvalidateAll();
+    }
+}
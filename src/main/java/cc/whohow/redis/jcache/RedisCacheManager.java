@@ -14,8 +14,14 @@ import javax.cache.management.CacheStatisticsMXBean;
 import javax.cache.spi.CachingProvider;
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 
 /**
@@ -29,17 +35,51 @@ public class RedisCacheManager implements CacheManager {
     protected final RedisTracking redisTracking;
     protected final Function<String, RedisCacheConfiguration<?, ?>> redisCacheConfigurationProvider;
     protected final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<>();
+    /**
+     * 提前刷新执行器
+     */
+    protected final Executor refreshExecutor;
+    private final ExecutorService defaultRefreshExecutor;
     protected volatile boolean open = true;
 
     public RedisCacheManager(Redis redis,
                              RedisTracking redisTracking,
                              Function<String, RedisCacheConfiguration<?, ?>> redisCacheConfigurationProvider) {
+        this(redis, redisTracking, redisCacheConfigurationProvider, null);
+    }
+
+    /**
+     * @param refreshExecutor 提前刷新执行器，为null时使用内置有界线程池（队列满时放弃刷新）
+     */
+    public RedisCacheManager(Redis redis,
+                             RedisTracking redisTracking,
+                             Function<String, RedisCacheConfiguration<?, ?>> redisCacheConfigurationProvider,
+                             Executor refreshExecutor) {
         this.redis = redis;
         this.redisTracking = redisTracking;
         this.redisCacheConfigurationProvider = redisCacheConfigurationProvider;
+        this.defaultRefreshExecutor = refreshExecutor == null ? newRefreshExecutor() : null;
+        this.refreshExecutor = refreshExecutor == null ? defaultRefreshExecutor : refreshExecutor;
         RedisCachingProvider.getInstance().addCacheManager(this);
     }
 
+    private static ExecutorService newRefreshExecutor() {
+        AtomicInteger n = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(1024),
+                r -> {
+                    Thread thread = new Thread(r, "redis-cache-refresh-" + n.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public Executor getRefreshExecutor() {
+        return refreshExecutor;
+    }
+
     public Redis getRedis() {
         return redis;
     }
@@ -180,6 +220,9 @@ public class RedisCacheManager implements CacheManager {
             caches.clear();
         } finally {
             open = false;
+            if (defaultRefreshExecutor != null) {
+                defaultRefreshExecutor.shutdown();
+            }
             log.debug("close RedisConnection");
         }
     }
@@ -1,23 +1,135 @@
 package cc.whohow.redis.jcache;
 
 import cc.whohow.redis.RESP;
+import cc.whohow.redis.RedisScript;
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.jcache.configuration.RedisCacheConfiguration;
+import cc.whohow.redis.lettuce.ListOutput;
 import cc.whohow.redis.lettuce.StatusOutput;
 import cc.whohow.redis.lettuce.VoidOutput;
 import io.lettuce.core.protocol.CommandType;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * Redis缓存，支持过期时间
+ * <p>
+ * 启用提前刷新（refreshAheadBeta > 0）时，读取同时获取剩余过期时间，按XFetch算法（加载耗时 * beta * -ln(random) >= 剩余时间）
+ * 概率性触发异步刷新，刷新完成前继续返回当前值；加载耗时取本节点观测的指数移动平均，尚未观测到加载时不提前刷新
  */
 public class RedisExpireCache<K, V> extends RedisCache<K, V> {
+    private static final Logger log = LogManager.getLogger();
     protected final ByteSequence ttl;
+    protected final double refreshAheadBeta;
+    protected final Executor refreshExecutor;
+    /**
+     * 刷新中的键，同一节点不重复刷新
+     */
+    protected final Set<ByteSequence> refreshing = ConcurrentHashMap.newKeySet();
+    /**
+     * 加载耗时（毫秒，指数移动平均）
+     */
+    protected volatile double loadTime;
 
     public RedisExpireCache(RedisCacheManager cacheManager, RedisCacheConfiguration<K, V> configuration) {
         super(cacheManager, configuration);
         this.ttl = RESP.b(configuration.getExpiryForUpdateTimeUnit().toMillis(configuration.getExpiryForUpdate()));
+        this.refreshAheadBeta = configuration.getRefreshAheadBeta();
+        this.refreshExecutor = cacheManager.getRefreshExecutor();
+    }
+
+    @Override
+    public CacheValue<V> getValue(K key, CacheLoader<K, ? extends V> cacheLoader) {
+        if (refreshAheadBeta <= 0) {
+            return super.getValue(key, cacheLoader);
+        }
+        ByteSequence encodedKey = keyCodec.encode(key);
+        // get.lua: 值、剩余过期时间（毫秒）、服务器时间
+        List<ByteSequence> reply = redis.eval(new ListOutput<>(b -> b == null ? null : ByteSequence.copy(b)),
+                RedisScript.get("get"), Collections.singletonList(encodedKey), Collections.emptyList());
+        ByteSequence value = reply.get(0);
+        if (value == null) {
+            cacheStats.cacheMiss(1);
+            return load(key, encodedKey, cacheLoader);
+        }
+        cacheStats.cacheHit(1);
+        if (shouldRefresh(RESP.i64(reply.get(1).toByteBuffer()))) {
+            refresh(key, encodedKey, cacheLoader);
+        }
+        return decodeCacheValue(value.toByteBuffer());
+    }
+
+    @Override
+    protected CacheValue<V> load(K key, ByteSequence encodedKey, CacheLoader<K, ? extends V> cacheLoader) {
+        return super.load(key, encodedKey, refreshAheadBeta > 0 ? timed(cacheLoader) : cacheLoader);
+    }
+
+    /**
+     * XFetch
+     */
+    protected boolean shouldRefresh(long remainingMillis) {
+        if (remainingMillis <= 0) {
+            return false;
+        }
+        return loadTime * refreshAheadBeta * -Math.log(ThreadLocalRandom.current().nextDouble()) >= remainingMillis;
+    }
+
+    /**
+     * 异步刷新，执行器已满时放弃；启用加载协调时，其他节点正在加载则跳过
+     */
+    protected void refresh(K key, ByteSequence encodedKey, CacheLoader<K, ? extends V> cacheLoader) {
+        if (!refreshing.add(encodedKey)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    CacheLoader<K, V> timed = timed(cacheLoader);
+                    if (loadCoordinator != null) {
+                        loadCoordinator.reload(key, encodedKey, timed);
+                    } else {
+                        put(key, timed.load(key));
+                    }
+                } catch (RuntimeException e) {
+                    log.warn("refresh error: {} {}", getName(), key, e);
+                } finally {
+                    refreshing.remove(encodedKey);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.remove(encodedKey);
+            log.debug("refresh rejected: {} {}", getName(), key);
+        }
+    }
+
+    /**
+     * 记录加载耗时
+     */
+    protected CacheLoader<K, V> timed(CacheLoader<K, ? extends V> cacheLoader) {
+        return key -> {
+            long start = System.nanoTime();
+            try {
+                return cacheLoader.load(key);
+            } finally {
+                double time = (System.nanoTime() - start) / 1_000_000.0;
+                double average = loadTime;
+                loadTime = average == 0 ? time : average * 0.8 + time * 0.2;
+            }
+        };
+    }
+
+    public double getLoadTime() {
+        return loadTime;
     }
 
     @Override
@@ -31,9 +143,22 @@ public class RedisExpireCache<K, V> extends RedisCache<K, V> {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * MSET不支持过期时间，逐个SET并行发送
+     */
     @Override
     public void putAll(Map<? extends K, ? extends V> map) {
-        throw new UnsupportedOperationException();
+        if (map.isEmpty()) {
+            return;
+        }
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[map.size()];
+        int i = 0;
+        for (Map.Entry<? extends K, ? extends V> e : map.entrySet()) {
+            futures[i++] = redis.sendAsync(new VoidOutput(), CommandType.SET,
+                    keyCodec.encode(e.getKey()), valueCodec.encode(e.getValue()), RESP.px(), ttl);
+        }
+        CompletableFuture.allOf(futures).join();
+        cacheStats.cachePut(map.size());
     }
 
     @Override
@@ -17,22 +17,45 @@ import javax.cache.processor.EntryProcessor;
 import javax.cache.processor.EntryProcessorException;
 import javax.cache.processor.EntryProcessorResult;
 import java.net.SocketAddress;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * 两级缓存，仅支持 Read Through 模式
+ * <p>
+ * 内存缓存回填前记录键的失效版本，回填后版本变化（加载期间收到失效通知）则撤回，避免过时值留存至过期
+ * <p>
+ * 配置最大过时时间时，Redis断开期间继续提供内存缓存值（标记为过时），超过最大过时时间后清空；重连后分批重新验证内存缓存，而非全部清空
  */
 public class RedisTierCache<K, V> implements
         Cache<K, V>,
         RedisConnectionStateListener,
         RedisTracking.Listener {
     private static final Logger log = LogManager.getLogger();
+    private static final int REVALIDATE_BATCH_SIZE = 100;
+    private static final long REVALIDATE_BATCH_INTERVAL = 10; // ms
     protected final RedisCacheManager cacheManager;
     protected final RedisCacheConfiguration<K, V> configuration;
     protected final RedisCache<K, V> redisCache;
     protected final InProcessCache<K, V> inProcessCache;
+    protected final long maxStalenessMillis;
+    /**
+     * Redis断开时间，0表示已连接，小于0表示已超过最大过时时间（内存缓存已清空）
+     */
+    protected final AtomicLong disconnectedTime = new AtomicLong();
+    protected final AtomicBoolean revalidating = new AtomicBoolean();
+    protected final AtomicBoolean revalidatePending = new AtomicBoolean();
+    protected final InvalidationEpoch<K> invalidationEpoch = new InvalidationEpoch<>();
 
     public RedisTierCache(RedisCacheManager cacheManager,
                           RedisCacheConfiguration<K, V> configuration) {
@@ -40,22 +63,75 @@ public class RedisTierCache<K, V> implements
         this.configuration = configuration;
         this.redisCache = cacheManager.newRedisCache(configuration);
         this.inProcessCache = cacheManager.newInProcessCache(configuration);
+        this.maxStalenessMillis = configuration.getMaxStaleness() > 0 ?
+                configuration.getMaxStalenessTimeUnit().toMillis(configuration.getMaxStaleness()) : 0;
         cacheManager.getRedisTracking().addListener(this);
         cacheManager.getRedisTracking().addListener(configuration.getRedisKeyPattern(), this);
     }
 
     @Override
     public V get(K key) {
-        return inProcessCache.get(key, redisCache::get);
+        isStale();
+        return load(key, redisCache::get);
     }
 
     @Override
     public Map<K, V> getAll(Set<? extends K> keys) {
-        Map<K, V> r = inProcessCache.getAll(keys);
-        if (r.size() == keys.size()) {
-            return r;
+        return getAll(keys, null);
+    }
+
+    /**
+     * 批量读取，内存缓存未命中的键从Redis批量读取并回填内存缓存，两级均未命中的键使用批量加载器（可为null）加载
+     */
+    public Map<K, V> getAll(Set<? extends K> keys, CacheLoader<K, ? extends V> cacheLoader) {
+        isStale();
+        Map<K, V> local = inProcessCache.getAll(keys);
+        if (local.size() == keys.size()) {
+            return local;
+        }
+        Set<K> redisKeys = new LinkedHashSet<>();
+        for (K key : keys) {
+            if (!local.containsKey(key)) {
+                redisKeys.add(key);
+            }
+        }
+        Map<K, Long> epochs = new HashMap<>();
+        for (K key : redisKeys) {
+            epochs.put(key, invalidationEpoch.get(key));
+        }
+        Map<K, V> fetched = new LinkedHashMap<>();
+        Set<K> absentKeys = new LinkedHashSet<>();
+        for (Map.Entry<K, V> e : redisCache.getAll(redisKeys).entrySet()) {
+            if (e.getValue() != null) {
+                fetched.put(e.getKey(), e.getValue());
+            } else {
+                absentKeys.add(e.getKey());
+            }
         }
-        return redisCache.getAll(keys);
+        publish(fetched, epochs);
+        if (cacheLoader != null && !absentKeys.isEmpty()) {
+            Map<K, V> loaded = new LinkedHashMap<>();
+            for (Map.Entry<? extends K, ? extends V> e : cacheLoader.loadAll(absentKeys).entrySet()) {
+                if (e.getValue() != null) {
+                    loaded.put(e.getKey(), e.getValue());
+                }
+            }
+            redisCache.putAll(loaded);
+            publish(loaded, epochs);
+            fetched.putAll(loaded);
+        }
+        // 按请求顺序合并
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = local.get(key);
+            if (value == null) {
+                value = fetched.get(key);
+            }
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
     }
 
     @Override
@@ -66,32 +142,32 @@ public class RedisTierCache<K, V> implements
     @Override
     public void loadAll(Set<? extends K> keys, boolean replaceExistingValues, CompletionListener completionListener) {
         redisCache.loadAll(keys, replaceExistingValues, completionListener);
-        inProcessCache.removeAll(keys);
+        invalidateAll(keys);
     }
 
     @Override
     public void put(K key, V value) {
         redisCache.put(key, value);
-        inProcessCache.remove(key);
+        invalidate(key);
     }
 
     @Override
     public V getAndPut(K key, V value) {
         V oldValue = redisCache.getAndPut(key, value);
-        inProcessCache.remove(key);
+        invalidate(key);
         return oldValue;
     }
 
     @Override
     public void putAll(Map<? extends K, ? extends V> map) {
         redisCache.putAll(map);
-        inProcessCache.removeAll(map.keySet());
+        invalidateAll(map.keySet());
     }
 
     @Override
     public boolean putIfAbsent(K key, V value) {
         if (redisCache.putIfAbsent(key, value)) {
-            inProcessCache.remove(key);
+            invalidate(key);
             return true;
         }
         return false;
@@ -100,7 +176,7 @@ public class RedisTierCache<K, V> implements
     @Override
     public boolean remove(K key) {
         if (redisCache.remove(key)) {
-            inProcessCache.remove(key);
+            invalidate(key);
             return true;
         }
         return false;
@@ -109,7 +185,7 @@ public class RedisTierCache<K, V> implements
     @Override
     public boolean remove(K key, V oldValue) {
         if (redisCache.remove(key, oldValue)) {
-            inProcessCache.remove(key);
+            invalidate(key);
             return true;
         }
         return false;
@@ -118,14 +194,14 @@ public class RedisTierCache<K, V> implements
     @Override
     public V getAndRemove(K key) {
         V value = redisCache.getAndRemove(key);
-        inProcessCache.remove(key);
+        invalidate(key);
         return value;
     }
 
     @Override
     public boolean replace(K key, V oldValue, V newValue) {
         if (redisCache.replace(key, oldValue, newValue)) {
-            inProcessCache.remove(key);
+            invalidate(key);
             return true;
         }
         return false;
@@ -134,7 +210,7 @@ public class RedisTierCache<K, V> implements
     @Override
     public boolean replace(K key, V value) {
         if (redisCache.replace(key, value)) {
-            inProcessCache.remove(key);
+            invalidate(key);
             return true;
         }
         return false;
@@ -143,26 +219,26 @@ public class RedisTierCache<K, V> implements
     @Override
     public V getAndReplace(K key, V value) {
         V oldValue = redisCache.getAndReplace(key, value);
-        inProcessCache.remove(key);
+        invalidate(key);
         return oldValue;
     }
 
     @Override
     public void removeAll(Set<? extends K> keys) {
         redisCache.removeAll(keys);
-        inProcessCache.removeAll(keys);
+        invalidateAll(keys);
     }
 
     @Override
     public void removeAll() {
         redisCache.removeAll();
-        inProcessCache.removeAll();
+        invalidateAll();
     }
 
     @Override
     public void clear() {
         redisCache.clear();
-        inProcessCache.clear();
+        invalidateAll();
     }
 
     @Override
@@ -176,14 +252,14 @@ public class RedisTierCache<K, V> implements
     @Override
     public <T> T invoke(K key, EntryProcessor<K, V, T> entryProcessor, Object... arguments) throws EntryProcessorException {
         T result = redisCache.invoke(key, entryProcessor, arguments);
-        inProcessCache.remove(key);
+        invalidate(key);
         return result;
     }
 
     @Override
     public <T> Map<K, EntryProcessorResult<T>> invokeAll(Set<? extends K> keys, EntryProcessor<K, V, T> entryProcessor, Object... arguments) {
         Map<K, EntryProcessorResult<T>> result = redisCache.invokeAll(keys, entryProcessor, arguments);
-        inProcessCache.removeAll(keys);
+        invalidateAll(keys);
         return result;
     }
 
@@ -253,29 +329,190 @@ public class RedisTierCache<K, V> implements
 
     @Override
     public V get(K key, CacheLoader<K, ? extends V> cacheLoader) {
-        return inProcessCache.get(key, new TierCacheLoader<>(redisCache, cacheLoader));
+        isStale();
+        return load(key, new TierCacheLoader<>(redisCache, cacheLoader));
     }
 
     @Override
     public CacheValue<V> getValue(K key, CacheLoader<K, ? extends V> cacheLoader) {
-        return inProcessCache.getValue(key, new TierCacheLoader<>(redisCache, cacheLoader));
+        boolean stale = isStale();
+        return cacheValue(load(key, new TierCacheLoader<>(redisCache, cacheLoader)), stale);
     }
 
     @Override
     public CacheValue<V> getValue(K key) {
-        return inProcessCache.getValue(key, redisCache::get);
+        boolean stale = isStale();
+        return cacheValue(load(key, redisCache::get), stale);
+    }
+
+    protected CacheValue<V> cacheValue(V value, boolean stale) {
+        return value == null ? null : new ImmutableCacheValue<>(value, stale);
+    }
+
+    /**
+     * 读取内存缓存，未命中时加载并回填，加载期间键失效则撤回回填值
+     */
+    protected V load(K key, CacheLoader<K, ? extends V> cacheLoader) {
+        EpochCacheLoader loader = new EpochCacheLoader(cacheLoader);
+        V value = inProcessCache.get(key, loader);
+        if (loader.loaded && value != null && invalidationEpoch.get(key) != loader.epoch) {
+            log.trace("invalidated while loading, remove: {} {}", getName(), key);
+            inProcessCache.remove(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 批量回填，版本变化的键撤回
+     */
+    protected void publish(Map<K, V> values, Map<K, Long> epochs) {
+        inProcessCache.putAll(values);
+        for (Map.Entry<K, V> e : values.entrySet()) {
+            Long epoch = epochs.get(e.getKey());
+            if (epoch == null || epoch != invalidationEpoch.get(e.getKey())) {
+                inProcessCache.remove(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    /**
+     * 失效内存缓存，先递增版本再删除，并发回填可据此撤回
+     */
+    protected void invalidate(K key) {
+        invalidationEpoch.invalidate(key);
+        inProcessCache.remove(key);
+    }
+
+    protected void invalidateAll(Set<? extends K> keys) {
+        for (K key : keys) {
+            invalidationEpoch.invalidate(key);
+        }
+        inProcessCache.removeAll(keys);
+    }
+
+    protected void invalidateAll() {
+        invalidationEpoch.invalidateAll();
+        inProcessCache.removeAll();
+    }
+
+    /**
+     * 内存缓存值是否可能过时（Redis断开或重新验证中），超过最大过时时间时清空内存缓存
+     */
+    protected boolean isStale() {
+        long time = disconnectedTime.get();
+        if (time > 0 && System.currentTimeMillis() - time > maxStalenessMillis
+                && disconnectedTime.compareAndSet(time, -1)) {
+            log.warn("RedisDisconnected, max staleness exceeded, removeAll: {}", getName());
+            invalidateAll();
+        }
+        return time != 0 || revalidating.get();
     }
 
     @Override
     public void onRedisConnected(RedisChannelHandler<?, ?> connection, SocketAddress socketAddress) {
-        log.info("RedisConnected, removeAll: {}", getName());
-        inProcessCache.removeAll();
+        if (maxStalenessMillis <= 0) {
+            log.info("RedisConnected, removeAll: {}", getName());
+            invalidateAll();
+            return;
+        }
+        long time = disconnectedTime.getAndSet(0);
+        if (time == 0) {
+            return;
+        }
+        if (time < 0 || System.currentTimeMillis() - time > maxStalenessMillis) {
+            log.info("RedisConnected, removeAll: {}", getName());
+            invalidateAll();
+            return;
+        }
+        log.info("RedisConnected, revalidate: {}", getName());
+        revalidate();
     }
 
     @Override
     public void onRedisDisconnected(RedisChannelHandler<?, ?> connection) {
-        log.warn("RedisDisconnected, removeAll: {}", getName());
-        inProcessCache.removeAll();
+        if (maxStalenessMillis <= 0) {
+            log.warn("RedisDisconnected, removeAll: {}", getName());
+            invalidateAll();
+            return;
+        }
+        if (disconnectedTime.compareAndSet(0, System.currentTimeMillis())) {
+            log.warn("RedisDisconnected, serve stale: {}", getName());
+        }
+    }
+
+    /**
+     * 后台分批重新验证内存缓存
+     */
+    protected void revalidate() {
+        revalidatePending.set(true);
+        if (!revalidating.compareAndSet(false, true)) {
+            // 进行中的验证结束后再次验证
+            return;
+        }
+        revalidatePending.set(false);
+        try {
+            cacheManager.getRefreshExecutor().execute(this::revalidateAll);
+        } catch (RejectedExecutionException e) {
+            revalidating.set(false);
+            log.warn("revalidate rejected, removeAll: {}", getName());
+            invalidateAll();
+        }
+    }
+
+    protected void revalidateAll() {
+        try {
+            Map<K, V> batch = new LinkedHashMap<>();
+            Iterator<Entry<K, V>> iterator = inProcessCache.iterator();
+            while (iterator.hasNext()) {
+                Entry<K, V> entry = iterator.next();
+                batch.put(entry.getKey(), entry.getValue());
+                if (batch.size() >= REVALIDATE_BATCH_SIZE) {
+                    revalidate(batch);
+                    batch.clear();
+                    // 限速，避免重连后瞬时压力
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(REVALIDATE_BATCH_INTERVAL));
+                    if (disconnectedTime.get() != 0) {
+                        // 再次断开，下次重连时重新验证
+                        log.warn("RedisDisconnected, revalidate interrupted: {}", getName());
+                        return;
+                    }
+                }
+            }
+            revalidate(batch);
+            log.info("revalidated: {}", getName());
+        } catch (RuntimeException e) {
+            log.warn("revalidate error, removeAll: {}", getName(), e);
+            invalidateAll();
+        } finally {
+            revalidating.set(false);
+            if (revalidatePending.get() && disconnectedTime.get() == 0) {
+                revalidate();
+            }
+        }
+    }
+
+    /**
+     * 条件更新，重新验证期间的失效通知及新加载值优先
+     */
+    protected void revalidate(Map<K, V> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        Map<K, Long> epochs = new HashMap<>();
+        for (K key : batch.keySet()) {
+            epochs.put(key, invalidationEpoch.get(key));
+        }
+        Map<K, V> values = redisCache.getAll(batch.keySet());
+        for (Map.Entry<K, V> e : batch.entrySet()) {
+            V value = values.get(e.getKey());
+            if (value == null) {
+                inProcessCache.remove(e.getKey(), e.getValue());
+            } else if (!Objects.equals(value, e.getValue())
+                    && inProcessCache.replace(e.getKey(), e.getValue(), value)
+                    && epochs.get(e.getKey()) != invalidationEpoch.get(e.getKey())) {
+                inProcessCache.remove(e.getKey(), value);
+            }
+        }
     }
 
     @Override
@@ -286,7 +523,43 @@ public class RedisTierCache<K, V> implements
     public void onInvalidate(ByteSequence key) {
         K k = redisCache.getKeyCodec().decode(key);
         log.trace("RedisInvalidate, remove: {} {}", getName(), k);
-        inProcessCache.remove(k);
+        invalidate(k);
+    }
+
+    /**
+     * 全部失效（如跟踪连接重建），允许过时时重新验证而非清空，避免重连后集中回源
+     */
+    @Override
+    public void onInvalidateAll() {
+        if (maxStalenessMillis <= 0) {
+            log.trace("RedisInvalidateAll, removeAll: {}", getName());
+            invalidateAll();
+            return;
+        }
+        log.trace("RedisInvalidateAll, revalidate: {}", getName());
+        // 撤回进行中的加载，已缓存的值由重新验证比较
+        invalidationEpoch.invalidateAll();
+        revalidate();
+    }
+
+    /**
+     * 记录加载前的失效版本
+     */
+    protected class EpochCacheLoader implements CacheLoader<K, V> {
+        protected final CacheLoader<K, ? extends V> cacheLoader;
+        protected boolean loaded;
+        protected long epoch;
+
+        protected EpochCacheLoader(CacheLoader<K, ? extends V> cacheLoader) {
+            this.cacheLoader = cacheLoader;
+        }
+
+        @Override
+        public V load(K key) {
+            epoch = invalidationEpoch.get(key);
+            loaded = true;
+            return cacheLoader.load(key);
+        }
     }
 
     @Override
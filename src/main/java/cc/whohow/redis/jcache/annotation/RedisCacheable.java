@@ -40,5 +40,15 @@ public @interface RedisCacheable {
 
     TimeUnit inProcessCacheExpiryForUpdateTimeUnit() default TimeUnit.SECONDS;
 
+    long loadLeaseTime() default 0;
+
+    TimeUnit loadLeaseTimeUnit() default TimeUnit.MILLISECONDS;
+
+    double refreshAheadBeta() default 0;
+
+    long maxStaleness() default 0;
+
+    TimeUnit maxStalenessTimeUnit() default TimeUnit.SECONDS;
+
     String[] custom() default {};
 }
@@ -146,6 +146,31 @@ public class AnnotationRedisCacheConfiguration implements RedisCacheConfiguratio
         return redisCacheable.inProcessCacheExpiryForUpdateTimeUnit();
     }
 
+    @Override
+    public long getLoadLeaseTime() {
+        return redisCacheable.loadLeaseTime();
+    }
+
+    @Override
+    public TimeUnit getLoadLeaseTimeUnit() {
+        return redisCacheable.loadLeaseTimeUnit();
+    }
+
+    @Override
+    public double getRefreshAheadBeta() {
+        return redisCacheable.refreshAheadBeta();
+    }
+
+    @Override
+    public long getMaxStaleness() {
+        return redisCacheable.maxStaleness();
+    }
+
+    @Override
+    public TimeUnit getMaxStalenessTimeUnit() {
+        return redisCacheable.maxStalenessTimeUnit();
+    }
+
     @Override
     public List<String> getCustom() {
         return Arrays.asList(redisCacheable.custom());
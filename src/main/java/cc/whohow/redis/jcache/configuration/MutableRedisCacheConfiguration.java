@@ -30,6 +30,12 @@ public class MutableRedisCacheConfiguration<K, V> implements RedisCacheConfigura
     protected long inProcessCacheExpiryForUpdate = 24 * 60 * 60;
     protected TimeUnit inProcessCacheExpiryForUpdateTimeUnit = TimeUnit.SECONDS;
 
+    protected long loadLeaseTime = 0;
+    protected TimeUnit loadLeaseTimeUnit = TimeUnit.MILLISECONDS;
+    protected double refreshAheadBeta = 0;
+    protected long maxStaleness = 0;
+    protected TimeUnit maxStalenessTimeUnit = TimeUnit.SECONDS;
+
     private List<String> custom = new ArrayList<>();
 
     public MutableRedisCacheConfiguration() {
@@ -51,6 +57,11 @@ public class MutableRedisCacheConfiguration<K, V> implements RedisCacheConfigura
         this.inProcessCacheMaxEntry = that.getInProcessCacheMaxEntry();
         this.inProcessCacheExpiryForUpdate = that.getInProcessCacheExpiryForUpdate();
         this.inProcessCacheExpiryForUpdateTimeUnit = that.getInProcessCacheExpiryForUpdateTimeUnit();
+        this.loadLeaseTime = that.getLoadLeaseTime();
+        this.loadLeaseTimeUnit = that.getLoadLeaseTimeUnit();
+        this.refreshAheadBeta = that.getRefreshAheadBeta();
+        this.maxStaleness = that.getMaxStaleness();
+        this.maxStalenessTimeUnit = that.getMaxStalenessTimeUnit();
         this.custom = that.getCustom();
     }
 
@@ -189,6 +200,51 @@ public class MutableRedisCacheConfiguration<K, V> implements RedisCacheConfigura
         this.inProcessCacheExpiryForUpdateTimeUnit = inProcessCacheExpiryForUpdateTimeUnit;
     }
 
+    @Override
+    public long getLoadLeaseTime() {
+        return loadLeaseTime;
+    }
+
+    public void setLoadLeaseTime(long loadLeaseTime) {
+        this.loadLeaseTime = loadLeaseTime;
+    }
+
+    @Override
+    public TimeUnit getLoadLeaseTimeUnit() {
+        return loadLeaseTimeUnit;
+    }
+
+    public void setLoadLeaseTimeUnit(TimeUnit loadLeaseTimeUnit) {
+        this.loadLeaseTimeUnit = loadLeaseTimeUnit;
+    }
+
+    @Override
+    public double getRefreshAheadBeta() {
+        return refreshAheadBeta;
+    }
+
+    public void setRefreshAheadBeta(double refreshAheadBeta) {
+        this.refreshAheadBeta = refreshAheadBeta;
+    }
+
+    @Override
+    public long getMaxStaleness() {
+        return maxStaleness;
+    }
+
+    public void setMaxStaleness(long maxStaleness) {
+        this.maxStaleness = maxStaleness;
+    }
+
+    @Override
+    public TimeUnit getMaxStalenessTimeUnit() {
+        return maxStalenessTimeUnit;
+    }
+
+    public void setMaxStalenessTimeUnit(TimeUnit maxStalenessTimeUnit) {
+        this.maxStalenessTimeUnit = maxStalenessTimeUnit;
+    }
+
     public List<String> getCustom() {
         return custom;
     }
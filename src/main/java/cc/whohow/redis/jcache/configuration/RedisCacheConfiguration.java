@@ -103,6 +103,31 @@ public interface RedisCacheConfiguration<K, V> extends Configuration<K, V> {
      */
     TimeUnit getInProcessCacheExpiryForUpdateTimeUnit();
 
+    /**
+     * 加载租约时间，大于0时启用分布式加载协调（未命中时只有获得租约的节点执行加载）
+     */
+    long getLoadLeaseTime();
+
+    /**
+     * 加载租约时间单位
+     */
+    TimeUnit getLoadLeaseTimeUnit();
+
+    /**
+     * 提前刷新系数（XFetch），大于0时读取剩余过期时间，按加载耗时概率性提前异步刷新，越大越早刷新，通常为1
+     */
+    double getRefreshAheadBeta();
+
+    /**
+     * Redis断开时内存缓存最大过时时间，大于0时断开期间继续提供内存缓存值（标记为过时），重连后分批重新验证；否则断开及重连时清空内存缓存
+     */
+    long getMaxStaleness();
+
+    /**
+     * 最大过时时间单位
+     */
+    TimeUnit getMaxStalenessTimeUnit();
+
     /**
      * 自定义参数
      */
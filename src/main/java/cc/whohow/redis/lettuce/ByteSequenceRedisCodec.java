@@ -1,5 +1,6 @@
 package cc.whohow.redis.lettuce;
 
+import cc.whohow.redis.bytes.ByteBufWritable;
 import cc.whohow.redis.bytes.ByteSequence;
 import io.lettuce.core.codec.RedisCodec;
 import io.lettuce.core.codec.ToByteBufEncoder;
@@ -48,11 +49,7 @@ public class ByteSequenceRedisCodec implements
 
     protected void encode(ByteSequence byteSequence, ByteBuf target) {
         if (byteSequence != null) {
-            if (byteSequence.hasArray()) {
-                target.writeBytes(byteSequence.array(), byteSequence.arrayOffset(), byteSequence.length());
-            } else {
-                byteSequence.forEach(target::writeBytes);
-            }
+            ByteBufWritable.write(byteSequence, target);
         }
     }
 
@@ -0,0 +1,9 @@
+package cc.whohow.redis.lettuce;
+
+/**
+ * 使用编解码器解码回复的输出，支持延迟解码
+ *
+ * @see DeferredOutput
+ */
+public interface CodecOutput {
+}
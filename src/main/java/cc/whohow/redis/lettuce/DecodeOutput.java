@@ -6,7 +6,7 @@ import io.lettuce.core.output.CommandOutput;
 import java.nio.ByteBuffer;
 import java.util.function.Function;
 
-public class DecodeOutput<T> extends CommandOutput<ByteSequence, ByteSequence, T> {
+public class DecodeOutput<T> extends CommandOutput<ByteSequence, ByteSequence, T> implements CodecOutput {
     protected final Function<ByteBuffer, T> decoder;
 
     public DecodeOutput(Function<ByteBuffer, T> decoder) {
@@ -0,0 +1,139 @@
+package cc.whohow.redis.lettuce;
+
+import cc.whohow.redis.bytes.ByteBufSequence;
+import cc.whohow.redis.bytes.ByteSequence;
+import io.lettuce.core.output.CommandOutput;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 延迟解码输出，回复中出现超过阈值的值后，保留其后全部原始回复，由调用线程或解码线程池重放解码，避免在IO线程解码大对象
+ * 原始回复复制到池化缓冲区（每个值复制一次，替代逐值分配堆内存），解码后（或 {@link #release()}）释放，释放后到达的回复直接丢弃
+ * 只对延迟部分生效，阈值之前的回复及未延迟的命令仍由输出直接解码复制
+ */
+public class DeferredOutput<T> extends ForwardingOutput<T> {
+    protected final int threshold;
+    protected List<Consumer<CommandOutput<ByteSequence, ByteSequence, T>>> deferred;
+    protected List<ByteBufSequence> buffers;
+    protected boolean released;
+
+    public DeferredOutput(CommandOutput<ByteSequence, ByteSequence, T> delegate, int threshold) {
+        super(delegate);
+        this.threshold = threshold;
+    }
+
+    /**
+     * 是否有待解码回复
+     */
+    public boolean isDeferred() {
+        return deferred != null;
+    }
+
+    /**
+     * 解码并返回结果
+     */
+    public synchronized T decode() {
+        if (deferred != null) {
+            try {
+                for (Consumer<CommandOutput<ByteSequence, ByteSequence, T>> event : deferred) {
+                    event.accept(delegate);
+                }
+            } finally {
+                release();
+            }
+        }
+        return delegate.get();
+    }
+
+    /**
+     * 丢弃待解码回复，释放缓冲区
+     */
+    public synchronized void release() {
+        released = true;
+        deferred = null;
+        if (buffers != null) {
+            for (ByteBufSequence buffer : buffers) {
+                buffer.release();
+            }
+            buffers = null;
+        }
+    }
+
+    @Override
+    public synchronized void set(ByteBuffer bytes) {
+        if (released) {
+            return;
+        }
+        if (deferred == null && bytes != null && bytes.remaining() >= threshold) {
+            deferred = new ArrayList<>();
+            buffers = new ArrayList<>();
+        }
+        if (deferred == null) {
+            delegate.set(bytes);
+        } else {
+            ByteBufSequence copy = copy(bytes);
+            deferred.add(output -> output.set(copy == null ? null : copy.toByteBuffer()));
+        }
+    }
+
+    @Override
+    public synchronized void setSingle(ByteBuffer bytes) {
+        if (released) {
+            return;
+        }
+        if (deferred == null) {
+            delegate.setSingle(bytes);
+        } else {
+            ByteBufSequence copy = copy(bytes);
+            deferred.add(output -> output.setSingle(copy == null ? null : copy.toByteBuffer()));
+        }
+    }
+
+    @Override
+    public synchronized void set(long integer) {
+        if (released) {
+            return;
+        }
+        if (deferred == null) {
+            delegate.set(integer);
+        } else {
+            deferred.add(output -> output.set(integer));
+        }
+    }
+
+    @Override
+    public synchronized void complete(int depth) {
+        if (released) {
+            return;
+        }
+        if (deferred == null) {
+            delegate.complete(depth);
+        } else {
+            deferred.add(output -> output.complete(depth));
+        }
+    }
+
+    @Override
+    public synchronized void multi(int count) {
+        if (released) {
+            return;
+        }
+        if (deferred == null) {
+            delegate.multi(count);
+        } else {
+            deferred.add(output -> output.multi(count));
+        }
+    }
+
+    protected ByteBufSequence copy(ByteBuffer bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        ByteBufSequence copy = ByteBufSequence.copyOf(bytes);
+        buffers.add(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,77 @@
+package cc.whohow.redis.lettuce;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import io.lettuce.core.output.CommandOutput;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 转发输出，子类可拦截响应
+ */
+public class ForwardingOutput<T> extends CommandOutput<ByteSequence, ByteSequence, T> {
+    protected final CommandOutput<ByteSequence, ByteSequence, T> delegate;
+
+    public ForwardingOutput(CommandOutput<ByteSequence, ByteSequence, T> delegate) {
+        super(ByteSequenceRedisCodec.get(), null);
+        this.delegate = delegate;
+    }
+
+    public CommandOutput<ByteSequence, ByteSequence, T> getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public T get() {
+        return delegate.get();
+    }
+
+    @Override
+    public void set(ByteBuffer bytes) {
+        delegate.set(bytes);
+    }
+
+    @Override
+    public void setSingle(ByteBuffer bytes) {
+        delegate.setSingle(bytes);
+    }
+
+    @Override
+    public void set(long integer) {
+        delegate.set(integer);
+    }
+
+    @Override
+    public void setError(ByteBuffer error) {
+        delegate.setError(error);
+    }
+
+    @Override
+    public void setError(String error) {
+        delegate.setError(error);
+    }
+
+    @Override
+    public boolean hasError() {
+        return delegate.hasError();
+    }
+
+    @Override
+    public String getError() {
+        return delegate.getError();
+    }
+
+    @Override
+    public void complete(int depth) {
+        delegate.complete(depth);
+    }
+
+    @Override
+    public void multi(int count) {
+        delegate.multi(count);
+    }
+
+    @Override
+    public String toString() {
+        return delegate.toString();
+    }
+}
@@ -8,7 +8,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
-public class ListOutput<T> extends CommandOutput<ByteSequence, ByteSequence, List<T>> {
+public class ListOutput<T> extends CommandOutput<ByteSequence, ByteSequence, List<T>> implements CodecOutput {
     protected final Function<ByteBuffer, T> decoder;
 
     public ListOutput(Function<ByteBuffer, T> decoder) {
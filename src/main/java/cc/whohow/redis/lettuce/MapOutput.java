@@ -8,7 +8,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.function.Function;
 
-public class MapOutput<K, V> extends CommandOutput<ByteSequence, ByteSequence, Map<K, V>> {
+public class MapOutput<K, V> extends CommandOutput<ByteSequence, ByteSequence, Map<K, V>> implements CodecOutput {
     protected Function<ByteBuffer, K> keyDecoder;
     protected Function<ByteBuffer, V> valueDecoder;
     protected int index = 0;
@@ -9,7 +9,7 @@ import java.util.AbstractMap;
 import java.util.Map;
 import java.util.function.Function;
 
-public class ScanHashOutput<K, V> extends CommandOutput<ByteSequence, ByteSequence, RedisScanIteration<Map.Entry<K, V>>> {
+public class ScanHashOutput<K, V> extends CommandOutput<ByteSequence, ByteSequence, RedisScanIteration<Map.Entry<K, V>>> implements CodecOutput {
     protected final Function<ByteBuffer, K> keyDecoder;
     protected final Function<ByteBuffer, V> valueDecoder;
     protected int index = 0;
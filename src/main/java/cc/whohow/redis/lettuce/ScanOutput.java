@@ -7,7 +7,7 @@ import io.lettuce.core.output.CommandOutput;
 import java.nio.ByteBuffer;
 import java.util.function.Function;
 
-public class ScanOutput<T> extends CommandOutput<ByteSequence, ByteSequence, RedisScanIteration<T>> {
+public class ScanOutput<T> extends CommandOutput<ByteSequence, ByteSequence, RedisScanIteration<T>> implements CodecOutput {
     protected final Function<ByteBuffer, T> decoder;
 
     public ScanOutput(Function<ByteBuffer, T> decoder) {
@@ -9,7 +9,7 @@ import io.lettuce.core.output.CommandOutput;
 import java.nio.ByteBuffer;
 import java.util.function.Function;
 
-public class ScanSortedSetOutput<T> extends CommandOutput<ByteSequence, ByteSequence, RedisScanIteration<ScoredValue<T>>> {
+public class ScanSortedSetOutput<T> extends CommandOutput<ByteSequence, ByteSequence, RedisScanIteration<ScoredValue<T>>> implements CodecOutput {
     protected final Function<ByteBuffer, T> decoder;
     protected int index = 0;
     protected T value;
@@ -10,7 +10,7 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Function;
 
-public class ScoredValueListOutput<T> extends CommandOutput<ByteSequence, ByteSequence, List<ScoredValue<T>>> {
+public class ScoredValueListOutput<T> extends CommandOutput<ByteSequence, ByteSequence, List<ScoredValue<T>>> implements CodecOutput {
     protected final Function<ByteBuffer, T> decoder;
     protected int index = 0;
     protected T value;
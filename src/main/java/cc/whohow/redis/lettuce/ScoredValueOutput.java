@@ -8,7 +8,7 @@ import io.lettuce.core.output.CommandOutput;
 import java.nio.ByteBuffer;
 import java.util.function.Function;
 
-public class ScoredValueOutput<T> extends CommandOutput<ByteSequence, ByteSequence, ScoredValue<T>> {
+public class ScoredValueOutput<T> extends CommandOutput<ByteSequence, ByteSequence, ScoredValue<T>> implements CodecOutput {
     protected final Function<ByteBuffer, T> decoder;
     protected int index = 0;
     protected T value;
@@ -8,7 +8,7 @@ import java.util.LinkedHashSet;
 import java.util.Set;
 import java.util.function.Function;
 
-public class SetOutput<T> extends CommandOutput<ByteSequence, ByteSequence, Set<T>> {
+public class SetOutput<T> extends CommandOutput<ByteSequence, ByteSequence, Set<T>> implements CodecOutput {
     protected final Function<ByteBuffer, T> decoder;
 
     public SetOutput(Function<ByteBuffer, T> decoder) {
@@ -73,6 +73,12 @@ public class RedisPollingMessageQueue<E> extends PollingMessageQueue<E>
         start();
     }
 
+    @Override
+    public void onInvalidateAll() {
+        log.trace("RedisInvalidateAll, start polling: {}", getName());
+        start();
+    }
+
     @Override
     public void close() throws Exception {
         // 关闭消息队列，取消监听，停止轮询
@@ -0,0 +1,43 @@
+package cc.whohow.redis.metrics;
+
+import java.util.Map;
+
+/**
+ * 并发限制统计MXBean
+ */
+public interface ConcurrencyLimitMXBean {
+    /**
+     * 当前并发上限
+     */
+    int getLimit();
+
+    /**
+     * 执行中命令数
+     */
+    int getInFlight();
+
+    /**
+     * 排队命令数
+     */
+    int getQueueLength();
+
+    /**
+     * 拒绝次数
+     */
+    long getRejectionCount();
+
+    /**
+     * 各优先级拒绝次数
+     */
+    Map<String, Long> getRejectionCounts();
+
+    /**
+     * 近期延迟（微秒，指数平均）
+     */
+    long getShortRtt();
+
+    /**
+     * 基线延迟（微秒，指数平均）
+     */
+    long getLongRtt();
+}
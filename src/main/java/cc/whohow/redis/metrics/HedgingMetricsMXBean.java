@@ -0,0 +1,53 @@
+package cc.whohow.redis.metrics;
+
+import java.util.Map;
+
+/**
+ * 对冲请求统计MXBean
+ */
+public interface HedgingMetricsMXBean {
+    /**
+     * 可对冲（幂等读）请求数
+     */
+    long getRequestCount();
+
+    /**
+     * 对冲请求数
+     */
+    long getHedgeCount();
+
+    /**
+     * 对冲请求先返回次数
+     */
+    long getHedgeWinCount();
+
+    /**
+     * 因预算不足未对冲次数
+     */
+    long getThrottledCount();
+
+    /**
+     * 超过截止时间次数
+     */
+    long getTimeoutCount();
+
+    /**
+     * 对冲预算（额外请求占比）
+     */
+    double getHedgeBudget();
+
+    /**
+     * 实际对冲比例
+     */
+    double getHedgeRate();
+
+    /**
+     * 各命令当前对冲延时（微秒），-1表示样本不足未对冲
+     */
+    Map<String, Long> getHedgeDelays();
+
+    /**
+     * 各命令截止时间（毫秒）
+     */
+    Map<String, Long> getDeadlines();
+}
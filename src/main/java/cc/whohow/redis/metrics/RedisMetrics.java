@@ -0,0 +1,67 @@
+package cc.whohow.redis.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 命令/键空间统计：延迟直方图、进行中请求数、错误数、请求/响应字节数
+ */
+public class RedisMetrics {
+    protected final String name;
+    protected final LatencyHistogram latency = new LatencyHistogram();
+    protected final AtomicLong inFlight = new AtomicLong();
+    protected final LongAdder errors = new LongAdder();
+    protected final LongAdder requestBytes = new LongAdder();
+    protected final LongAdder responseBytes = new LongAdder();
+
+    public RedisMetrics(String name) {
+        this.name = name;
+    }
+
+    public void begin(long requestBytes) {
+        inFlight.incrementAndGet();
+        this.requestBytes.add(requestBytes);
+    }
+
+    public void end(long latencyNanos, long responseBytes, boolean error) {
+        inFlight.decrementAndGet();
+        latency.record(latencyNanos);
+        this.responseBytes.add(responseBytes);
+        if (error) {
+            errors.increment();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    public long getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getErrorCount() {
+        return errors.longValue();
+    }
+
+    public long getRequestBytes() {
+        return requestBytes.longValue();
+    }
+
+    public long getResponseBytes() {
+        return responseBytes.longValue();
+    }
+
+    public RedisMetricsSnapshot snapshot() {
+        return new RedisMetricsSnapshot(this);
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,22 @@
+package cc.whohow.redis.metrics;
+
+import java.util.List;
+
+/**
+ * Redis命令统计MXBean
+ */
+public interface RedisMetricsMXBean {
+    long getInFlight();
+
+    long getErrorCount();
+
+    /**
+     * 按命令统计
+     */
+    List<RedisMetricsSnapshot> getCommandMetrics();
+
+    /**
+     * 按键空间（键第一个':'之前的部分）统计
+     */
+    List<RedisMetricsSnapshot> getNamespaceMetrics();
+}
@@ -0,0 +1,93 @@
+package cc.whohow.redis.metrics;
+
+/**
+ * 统计快照，延迟单位微秒
+ */
+public class RedisMetricsSnapshot {
+    private final String name;
+    private final long count;
+    private final long inFlight;
+    private final long errorCount;
+    private final long requestBytes;
+    private final long responseBytes;
+    private final double mean;
+    private final long p50;
+    private final long p99;
+    private final long p999;
+    private final long max;
+
+    public RedisMetricsSnapshot(RedisMetrics metrics) {
+        LatencyHistogram latency = metrics.getLatency();
+        this.name = metrics.getName();
+        this.count = latency.getCount();
+        this.inFlight = metrics.getInFlight();
+        this.errorCount = metrics.getErrorCount();
+        this.requestBytes = metrics.getRequestBytes();
+        this.responseBytes = metrics.getResponseBytes();
+        this.mean = latency.getMean() / 1000;
+        this.p50 = latency.getValueAtPercentile(50) / 1000;
+        this.p99 = latency.getValueAtPercentile(99) / 1000;
+        this.p999 = latency.getValueAtPercentile(99.9) / 1000;
+        this.max = latency.getMax() / 1000;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getInFlight() {
+        return inFlight;
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public long getRequestBytes() {
+        return requestBytes;
+    }
+
+    public long getResponseBytes() {
+        return responseBytes;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return name + "{" +
+                "count=" + count +
+                ", inFlight=" + inFlight +
+                ", errorCount=" + errorCount +
+                ", requestBytes=" + requestBytes +
+                ", responseBytes=" + responseBytes +
+                ", mean=" + mean +
+                ", p50=" + p50 +
+                ", p99=" + p99 +
+                ", p999=" + p999 +
+                ", max=" + max +
+                '}';
+    }
+}
@@ -2,6 +2,7 @@ package cc.whohow.redis.util;
 
 import cc.whohow.redis.RESP;
 import cc.whohow.redis.Redis;
+import cc.whohow.redis.TrafficClass;
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.codec.Codec;
 import cc.whohow.redis.lettuce.*;
@@ -22,6 +23,13 @@ public class AbstractRedisHash<K, V> {
         this.hashKey = key;
     }
 
+    /**
+     * 批量通道，用于整体读取等大回复命令
+     */
+    protected AbstractRedisHash<K, V> bulk() {
+        return new AbstractRedisHash<>(redis.withTrafficClass(TrafficClass.BULK), keyCodec, valueCodec, hashKey);
+    }
+
     public Long hlen() {
         return redis.send(new IntegerOutput(), CommandType.HLEN, hashKey);
     }
@@ -2,6 +2,7 @@ package cc.whohow.redis.util;
 
 import cc.whohow.redis.RESP;
 import cc.whohow.redis.Redis;
+import cc.whohow.redis.TrafficClass;
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.codec.Codec;
 import cc.whohow.redis.lettuce.DecodeOutput;
@@ -25,6 +26,13 @@ public class AbstractRedisList<E> {
         this.listKey = key;
     }
 
+    /**
+     * 批量通道，用于整体读取等大回复命令
+     */
+    protected AbstractRedisList<E> bulk() {
+        return new AbstractRedisList<>(redis.withTrafficClass(TrafficClass.BULK), codec, listKey);
+    }
+
     public Long llen() {
         return redis.send(new IntegerOutput(), CommandType.LLEN, listKey);
     }
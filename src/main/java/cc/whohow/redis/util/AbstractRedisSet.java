@@ -1,6 +1,7 @@
 package cc.whohow.redis.util;
 
 import cc.whohow.redis.Redis;
+import cc.whohow.redis.TrafficClass;
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.codec.Codec;
 import cc.whohow.redis.lettuce.DecodeOutput;
@@ -24,6 +25,13 @@ public class AbstractRedisSet<E> {
         this.setKey = key;
     }
 
+    /**
+     * 批量通道，用于整体读取等大回复命令
+     */
+    protected AbstractRedisSet<E> bulk() {
+        return new AbstractRedisSet<>(redis.withTrafficClass(TrafficClass.BULK), codec, setKey);
+    }
+
     public Long scard() {
         return redis.send(new IntegerOutput(), CommandType.SCARD, setKey);
     }
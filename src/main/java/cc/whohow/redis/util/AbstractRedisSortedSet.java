@@ -3,6 +3,7 @@ package cc.whohow.redis.util;
 import cc.whohow.redis.RESP;
 import cc.whohow.redis.Redis;
 import cc.whohow.redis.RedisScript;
+import cc.whohow.redis.TrafficClass;
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.codec.Codec;
 import cc.whohow.redis.lettuce.*;
@@ -23,6 +24,13 @@ public class AbstractRedisSortedSet<E> {
         this.sortedSetKey = key;
     }
 
+    /**
+     * 批量通道，用于整体读取等大回复命令
+     */
+    protected AbstractRedisSortedSet<E> bulk() {
+        return new AbstractRedisSortedSet<>(redis.withTrafficClass(TrafficClass.BULK), codec, sortedSetKey);
+    }
+
     public Long zcard() {
         return redis.send(new IntegerOutput(), CommandType.ZCARD, sortedSetKey);
     }
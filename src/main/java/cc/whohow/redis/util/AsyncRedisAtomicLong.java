@@ -0,0 +1,75 @@
+package cc.whohow.redis.util;
+
+import cc.whohow.redis.AsyncRedis;
+import cc.whohow.redis.RESP;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import io.lettuce.core.protocol.CommandType;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步计数器，对应 RedisAtomicLong
+ */
+public class AsyncRedisAtomicLong {
+    protected final AsyncRedis redis;
+    protected final ByteSequence key;
+
+    public AsyncRedisAtomicLong(AsyncRedis redis, String key) {
+        this(redis, ByteSequence.utf8(key));
+    }
+
+    public AsyncRedisAtomicLong(AsyncRedis redis, ByteSequence key) {
+        this.redis = redis.master();
+        this.key = key;
+    }
+
+    public CompletableFuture<Long> get() {
+        return redis.sendAsync(new IntegerOutput(0L), CommandType.GET, key);
+    }
+
+    public CompletableFuture<Void> set(long newValue) {
+        return redis.sendAsync(new VoidOutput(), CommandType.SET, key, RESP.b(newValue));
+    }
+
+    /**
+     * SET NX，用于初始化
+     */
+    public CompletableFuture<Void> setIfAbsent(long newValue) {
+        return redis.sendAsync(new VoidOutput(), CommandType.SET, key, RESP.b(newValue), RESP.nx());
+    }
+
+    public CompletableFuture<Long> getAndSet(long newValue) {
+        return redis.sendAsync(new IntegerOutput(0L), CommandType.GETSET, key, RESP.b(newValue));
+    }
+
+    public CompletableFuture<Long> getAndIncrement() {
+        return incrementAndGet().thenApply(value -> value - 1);
+    }
+
+    public CompletableFuture<Long> getAndDecrement() {
+        return decrementAndGet().thenApply(value -> value + 1);
+    }
+
+    public CompletableFuture<Long> getAndAdd(long delta) {
+        return addAndGet(delta).thenApply(value -> value - delta);
+    }
+
+    public CompletableFuture<Long> incrementAndGet() {
+        return redis.sendAsync(new IntegerOutput(), CommandType.INCR, key);
+    }
+
+    public CompletableFuture<Long> decrementAndGet() {
+        return redis.sendAsync(new IntegerOutput(), CommandType.DECR, key);
+    }
+
+    public CompletableFuture<Long> addAndGet(long delta) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.INCRBY, key, RESP.b(delta));
+    }
+
+    @Override
+    public String toString() {
+        return key.toString();
+    }
+}
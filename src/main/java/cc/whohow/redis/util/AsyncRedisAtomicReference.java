@@ -0,0 +1,167 @@
+package cc.whohow.redis.util;
+
+import cc.whohow.redis.AsyncRedis;
+import cc.whohow.redis.RESP;
+import cc.whohow.redis.RedisScript;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.Codec;
+import cc.whohow.redis.lettuce.DecodeOutput;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import io.lettuce.core.protocol.CommandType;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BinaryOperator;
+import java.util.function.UnaryOperator;
+
+/**
+ * 异步原子变量，对应 RedisAtomicReference
+ */
+public class AsyncRedisAtomicReference<V> {
+    protected final AsyncRedis redis;
+    protected final Codec<V> codec;
+    protected final ByteSequence key;
+
+    public AsyncRedisAtomicReference(AsyncRedis redis, Codec<V> codec, String key) {
+        this(redis, codec, ByteSequence.utf8(key));
+    }
+
+    public AsyncRedisAtomicReference(AsyncRedis redis, Codec<V> codec, ByteSequence key) {
+        this.redis = redis.master();
+        this.codec = codec;
+        this.key = key;
+    }
+
+    protected V decode(ByteBuffer buffer) {
+        return codec.decode(buffer);
+    }
+
+    protected ByteSequence encode(V value) {
+        return codec.encode(value);
+    }
+
+    public CompletableFuture<Boolean> exists() {
+        return redis.sendAsync(new IntegerOutput(), CommandType.EXISTS, key).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<V> get() {
+        return get(null);
+    }
+
+    public CompletableFuture<V> get(V defaultValue) {
+        return redis.sendAsync(new DecodeOutput<>(this::decode, defaultValue), CommandType.GET, key);
+    }
+
+    public CompletableFuture<Void> set(V newValue) {
+        return redis.sendAsync(new VoidOutput(), CommandType.SET, key, encode(newValue));
+    }
+
+    public CompletableFuture<Boolean> setIfAbsent(V newValue) {
+        return redis.sendAsync(new StatusOutput(), CommandType.SET, key, encode(newValue), RESP.nx()).thenApply(RESP::ok);
+    }
+
+    public CompletableFuture<Boolean> setIfPresent(V newValue) {
+        return redis.sendAsync(new StatusOutput(), CommandType.SET, key, encode(newValue), RESP.xx()).thenApply(RESP::ok);
+    }
+
+    public CompletableFuture<Boolean> compareAndSet(V expect, V update) {
+        return redis.evalAsync(new StatusOutput(),
+                RedisScript.get("cas"),
+                Collections.singletonList(key),
+                Arrays.asList(encode(expect), encode(update))).thenApply(RESP::ok);
+    }
+
+    public CompletableFuture<Boolean> compareAndReset(V expect) {
+        return redis.evalAsync(new IntegerOutput(),
+                RedisScript.get("cad"),
+                Collections.singletonList(key),
+                Collections.singletonList(encode(expect))).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Void> reset() {
+        return redis.sendAsync(new VoidOutput(), CommandType.DEL, key);
+    }
+
+    public CompletableFuture<V> getAndSet(V newValue) {
+        return redis.sendAsync(new DecodeOutput<>(this::decode), CommandType.GETSET, key, encode(newValue));
+    }
+
+    public final CompletableFuture<V> getAndUpdate(UnaryOperator<V> updateFunction) {
+        return get().thenCompose(prev -> {
+            V next = updateFunction.apply(prev);
+            return compareAndSet(prev, next).thenCompose(ok -> ok ?
+                    CompletableFuture.completedFuture(prev) : getAndUpdate(updateFunction));
+        });
+    }
+
+    public final CompletableFuture<V> updateAndGet(UnaryOperator<V> updateFunction) {
+        return get().thenCompose(prev -> {
+            V next = updateFunction.apply(prev);
+            return compareAndSet(prev, next).thenCompose(ok -> ok ?
+                    CompletableFuture.completedFuture(next) : updateAndGet(updateFunction));
+        });
+    }
+
+    public final CompletableFuture<V> getAndAccumulate(V x, BinaryOperator<V> accumulatorFunction) {
+        return getAndUpdate(prev -> accumulatorFunction.apply(prev, x));
+    }
+
+    public final CompletableFuture<V> accumulateAndGet(V x, BinaryOperator<V> accumulatorFunction) {
+        return updateAndGet(prev -> accumulatorFunction.apply(prev, x));
+    }
+
+    @Override
+    public String toString() {
+        return key.toString();
+    }
+
+    public static class Expire<V> extends AsyncRedisAtomicReference<V> {
+        private final long ttl;
+
+        public Expire(AsyncRedis redis, Codec<V> codec, String key, Duration ttl) {
+            super(redis, codec, key);
+            this.ttl = ttl.toMillis();
+        }
+
+        public Expire(AsyncRedis redis, Codec<V> codec, ByteSequence key, Duration ttl) {
+            super(redis, codec, key);
+            this.ttl = ttl.toMillis();
+        }
+
+        @Override
+        public CompletableFuture<Void> set(V newValue) {
+            return redis.sendAsync(new VoidOutput(), CommandType.SET, key, encode(newValue), RESP.px(), RESP.b(ttl));
+        }
+
+        @Override
+        public CompletableFuture<Boolean> setIfAbsent(V newValue) {
+            return redis.sendAsync(new StatusOutput(), CommandType.SET, key, encode(newValue), RESP.px(), RESP.b(ttl), RESP.nx()).thenApply(RESP::ok);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> setIfPresent(V newValue) {
+            return redis.sendAsync(new StatusOutput(), CommandType.SET, key, encode(newValue), RESP.px(), RESP.b(ttl), RESP.xx()).thenApply(RESP::ok);
+        }
+
+        @Override
+        public CompletableFuture<Boolean> compareAndSet(V expect, V update) {
+            return redis.evalAsync(new StatusOutput(),
+                    RedisScript.get("cas"),
+                    Collections.singletonList(key),
+                    Arrays.asList(encode(expect), encode(update), RESP.px(), RESP.b(ttl))).thenApply(RESP::ok);
+        }
+
+        @Override
+        public CompletableFuture<V> getAndSet(V newValue) {
+            return redis.evalAsync(new DecodeOutput<>(this::decode),
+                    RedisScript.get("getset"),
+                    Collections.singletonList(key),
+                    Arrays.asList(encode(newValue), RESP.px(), RESP.b(ttl)));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package cc.whohow.redis.util;
+
+import cc.whohow.redis.AsyncRedis;
+import cc.whohow.redis.RESP;
+import cc.whohow.redis.TrafficClass;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.Codec;
+import cc.whohow.redis.lettuce.DecodeOutput;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.ListOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import io.lettuce.core.protocol.CommandType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步列表、双端队列，对应 RedisList（不提供阻塞操作，避免占用共享连接）
+ */
+public class AsyncRedisList<E> {
+    protected final AsyncRedis redis;
+    protected final Codec<E> codec;
+    protected final ByteSequence listKey;
+
+    public AsyncRedisList(AsyncRedis redis, Codec<E> codec, String key) {
+        this(redis, codec, ByteSequence.utf8(key));
+    }
+
+    public AsyncRedisList(AsyncRedis redis, Codec<E> codec, ByteSequence key) {
+        this.redis = redis;
+        this.codec = codec;
+        this.listKey = key;
+    }
+
+    public CompletableFuture<Integer> size() {
+        return redis.sendAsync(new IntegerOutput(), CommandType.LLEN, listKey).thenApply(Long::intValue);
+    }
+
+    public CompletableFuture<Boolean> isEmpty() {
+        return size().thenApply(size -> size == 0);
+    }
+
+    public CompletableFuture<E> get(long index) {
+        return redis.sendAsync(new DecodeOutput<>(codec::decode), CommandType.LINDEX, listKey, RESP.b(index));
+    }
+
+    public CompletableFuture<Void> set(long index, E element) {
+        return redis.sendAsync(new VoidOutput(), CommandType.LSET, listKey, RESP.b(index), codec.encode(element));
+    }
+
+    /**
+     * @return 列表长度
+     */
+    public CompletableFuture<Long> addFirst(E e) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.LPUSH, listKey, codec.encode(e));
+    }
+
+    /**
+     * @return 列表长度
+     */
+    public CompletableFuture<Long> addLast(E e) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.RPUSH, listKey, codec.encode(e));
+    }
+
+    /**
+     * @return 列表长度
+     */
+    public CompletableFuture<Long> addAll(Collection<? extends E> c) {
+        if (c.isEmpty()) {
+            return size().thenApply(Integer::longValue);
+        }
+        List<ByteSequence> args = new ArrayList<>(1 + c.size());
+        args.add(listKey);
+        for (E e : c) {
+            args.add(codec.encode(e));
+        }
+        return redis.sendAsync(new IntegerOutput(), CommandType.RPUSH, args);
+    }
+
+    public CompletableFuture<E> pollFirst() {
+        return redis.sendAsync(new DecodeOutput<>(codec::decode), CommandType.LPOP, listKey);
+    }
+
+    public CompletableFuture<E> pollLast() {
+        return redis.sendAsync(new DecodeOutput<>(codec::decode), CommandType.RPOP, listKey);
+    }
+
+    public CompletableFuture<E> peekFirst() {
+        return get(0);
+    }
+
+    public CompletableFuture<E> peekLast() {
+        return get(-1);
+    }
+
+    public CompletableFuture<Boolean> removeFirstOccurrence(E e) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.LREM, listKey, RESP.b(1), codec.encode(e)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Boolean> removeLastOccurrence(E e) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.LREM, listKey, RESP.b(-1), codec.encode(e)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Void> clear() {
+        return redis.sendAsync(new VoidOutput(), CommandType.DEL, listKey);
+    }
+
+    /**
+     * LRANGE，包含 stop
+     */
+    public CompletableFuture<List<E>> range(long start, long stop) {
+        return redis.sendAsync(new ListOutput<>(codec::decode), CommandType.LRANGE, listKey, RESP.b(start), RESP.b(stop));
+    }
+
+    public CompletableFuture<List<E>> copy() {
+        return redis.withTrafficClass(TrafficClass.BULK)
+                .sendAsync(new ListOutput<>(codec::decode), CommandType.LRANGE, listKey, RESP.b(0), RESP.b(-1));
+    }
+
+    @Override
+    public String toString() {
+        return listKey.toString();
+    }
+}
@@ -0,0 +1,151 @@
+package cc.whohow.redis.util;
+
+import cc.whohow.redis.AsyncRedis;
+import cc.whohow.redis.RESP;
+import cc.whohow.redis.TrafficClass;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.Codec;
+import cc.whohow.redis.lettuce.*;
+import io.lettuce.core.protocol.CommandType;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步Map（Hash），对应 RedisMap
+ */
+public class AsyncRedisMap<K, V> {
+    protected final AsyncRedis redis;
+    protected final Codec<K> keyCodec;
+    protected final Codec<V> valueCodec;
+    protected final ByteSequence hashKey;
+
+    public AsyncRedisMap(AsyncRedis redis, Codec<K> keyCodec, Codec<V> valueCodec, String key) {
+        this(redis, keyCodec, valueCodec, ByteSequence.utf8(key));
+    }
+
+    public AsyncRedisMap(AsyncRedis redis, Codec<K> keyCodec, Codec<V> valueCodec, ByteSequence key) {
+        this.redis = redis;
+        this.keyCodec = keyCodec;
+        this.valueCodec = valueCodec;
+        this.hashKey = key;
+    }
+
+    public CompletableFuture<Integer> size() {
+        return redis.sendAsync(new IntegerOutput(), CommandType.HLEN, hashKey).thenApply(Long::intValue);
+    }
+
+    public CompletableFuture<Boolean> isEmpty() {
+        return size().thenApply(size -> size == 0);
+    }
+
+    public CompletableFuture<Boolean> containsKey(K key) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.HEXISTS, hashKey, keyCodec.encode(key)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<V> get(K key) {
+        return redis.sendAsync(new DecodeOutput<>(valueCodec::decode), CommandType.HGET, hashKey, keyCodec.encode(key));
+    }
+
+    public CompletableFuture<V> getOrDefault(K key, V defaultValue) {
+        return redis.sendAsync(new DecodeOutput<>(valueCodec::decode, defaultValue), CommandType.HGET, hashKey, keyCodec.encode(key));
+    }
+
+    /**
+     * HMGET，结果不含不存在的键
+     */
+    public CompletableFuture<Map<K, V>> getAll(Collection<? extends K> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyMap());
+        }
+        List<K> keyList = new ArrayList<>(keys);
+        List<ByteSequence> args = new ArrayList<>(1 + keyList.size());
+        args.add(hashKey);
+        for (K key : keyList) {
+            args.add(keyCodec.encode(key));
+        }
+        return redis.sendAsync(new ListOutput<>(valueCodec::decode), CommandType.HMGET, args).thenApply(values -> {
+            Map<K, V> result = new LinkedHashMap<>();
+            for (int i = 0; i < keyList.size(); i++) {
+                if (values.get(i) != null) {
+                    result.put(keyList.get(i), values.get(i));
+                }
+            }
+            return result;
+        });
+    }
+
+    /**
+     * @return 是否新增字段
+     */
+    public CompletableFuture<Boolean> put(K key, V value) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.HSET, hashKey, keyCodec.encode(key), valueCodec.encode(value)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Boolean> putIfAbsent(K key, V value) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.HSETNX, hashKey, keyCodec.encode(key), valueCodec.encode(value)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Void> putAll(Map<? extends K, ? extends V> m) {
+        if (m.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<ByteSequence> args = new ArrayList<>(1 + m.size() * 2);
+        args.add(hashKey);
+        for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+            args.add(keyCodec.encode(e.getKey()));
+            args.add(valueCodec.encode(e.getValue()));
+        }
+        return redis.sendAsync(new VoidOutput(), CommandType.HMSET, args);
+    }
+
+    public CompletableFuture<Long> increment(K key, long delta) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.HINCRBY, hashKey, keyCodec.encode(key), RESP.b(delta));
+    }
+
+    /**
+     * @return 是否删除
+     */
+    public CompletableFuture<Boolean> remove(K key) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.HDEL, hashKey, keyCodec.encode(key)).thenApply(n -> n > 0);
+    }
+
+    /**
+     * @return 删除数量
+     */
+    public CompletableFuture<Long> removeAll(Collection<? extends K> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        List<ByteSequence> args = new ArrayList<>(1 + keys.size());
+        args.add(hashKey);
+        for (K key : keys) {
+            args.add(keyCodec.encode(key));
+        }
+        return redis.sendAsync(new IntegerOutput(), CommandType.HDEL, args);
+    }
+
+    public CompletableFuture<Void> clear() {
+        return redis.sendAsync(new VoidOutput(), CommandType.DEL, hashKey);
+    }
+
+    /**
+     * HGETALL
+     */
+    public CompletableFuture<Map<K, V>> copy() {
+        return redis.withTrafficClass(TrafficClass.BULK)
+                .sendAsync(new MapOutput<>(keyCodec::decode, valueCodec::decode), CommandType.HGETALL, hashKey);
+    }
+
+    /**
+     * 流式遍历（HSCAN），不支持批量命令
+     */
+    public RedisScanPublisher<Map.Entry<K, V>> publisher() {
+        return new RedisScanPublisher<>(new RedisHashScanIterator<>(RedisScanIterator.scannable(redis), keyCodec::decode, valueCodec::decode, hashKey));
+    }
+
+    @Override
+    public String toString() {
+        return hashKey.toString();
+    }
+}
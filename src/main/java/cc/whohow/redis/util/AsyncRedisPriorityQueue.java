@@ -0,0 +1,97 @@
+package cc.whohow.redis.util;
+
+import cc.whohow.redis.AsyncRedis;
+import cc.whohow.redis.RESP;
+import cc.whohow.redis.RedisScript;
+import cc.whohow.redis.TrafficClass;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.Codec;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.ScoredValueListOutput;
+import cc.whohow.redis.lettuce.ScoredValueOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.protocol.CommandKeyword;
+import io.lettuce.core.protocol.CommandType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * 异步优先级队列，对应 RedisPriorityQueue
+ */
+public class AsyncRedisPriorityQueue<E> {
+    protected final AsyncRedis redis;
+    protected final Codec<E> codec;
+    protected final ByteSequence sortedSetKey;
+
+    public AsyncRedisPriorityQueue(AsyncRedis redis, Codec<E> codec, String key) {
+        this(redis, codec, ByteSequence.utf8(key));
+    }
+
+    public AsyncRedisPriorityQueue(AsyncRedis redis, Codec<E> codec, ByteSequence key) {
+        this.redis = redis;
+        this.codec = codec;
+        this.sortedSetKey = key;
+    }
+
+    protected RedisPriority<E> toEntry(ScoredValue<E> scoredValue) {
+        return new RedisPriority<>(scoredValue.getValue(), scoredValue.getScore());
+    }
+
+    public CompletableFuture<Integer> size() {
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZCARD, sortedSetKey).thenApply(Long::intValue);
+    }
+
+    public CompletableFuture<Boolean> isEmpty() {
+        return size().thenApply(size -> size == 0);
+    }
+
+    public CompletableFuture<Boolean> offer(E e, Number priority) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZADD, sortedSetKey, RESP.b(priority), codec.encode(e)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Boolean> offer(RedisPriority<E> e) {
+        return offer(e.getKey(), e.getValue());
+    }
+
+    /**
+     * 取出优先级最小的元素，队列为空时为null
+     */
+    public CompletableFuture<RedisPriority<E>> poll() {
+        return redis.evalAsync(new ScoredValueOutput<>(codec::decode),
+                RedisScript.get("zremrangebyscore"),
+                Collections.singletonList(sortedSetKey),
+                Arrays.asList(RESP.nInf(), RESP.pInf(), RESP.b(CommandKeyword.WITHSCORES), RESP.b(CommandKeyword.LIMIT), RESP.b(0), RESP.b(1)))
+                .thenApply(value -> value.hasValue() ? toEntry(value) : null);
+    }
+
+    public CompletableFuture<RedisPriority<E>> peek() {
+        return redis.sendAsync(new ScoredValueListOutput<>(codec::decode), CommandType.ZRANGE, sortedSetKey, RESP.b(0), RESP.b(0), RESP.b(CommandKeyword.WITHSCORES))
+                .thenApply(values -> values.isEmpty() ? null : toEntry(values.get(0)));
+    }
+
+    public CompletableFuture<Boolean> remove(E e) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZREM, sortedSetKey, codec.encode(e)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Void> clear() {
+        return redis.sendAsync(new VoidOutput(), CommandType.DEL, sortedSetKey);
+    }
+
+    public CompletableFuture<Queue<RedisPriority<E>>> copy() {
+        return redis.withTrafficClass(TrafficClass.BULK).sendAsync(new ScoredValueListOutput<>(codec::decode), CommandType.ZRANGE, sortedSetKey, RESP.b(0), RESP.b(-1), RESP.b(CommandKeyword.WITHSCORES))
+                .thenApply(values -> values.stream()
+                        .map(this::toEntry)
+                        .collect(Collectors.toCollection(LinkedList::new)));
+    }
+
+    @Override
+    public String toString() {
+        return sortedSetKey.toString();
+    }
+}
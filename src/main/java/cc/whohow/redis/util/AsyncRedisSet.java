@@ -0,0 +1,120 @@
+package cc.whohow.redis.util;
+
+import cc.whohow.redis.AsyncRedis;
+import cc.whohow.redis.TrafficClass;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.Codec;
+import cc.whohow.redis.lettuce.DecodeOutput;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.SetOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import io.lettuce.core.protocol.CommandType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步集合，对应 RedisSet
+ */
+public class AsyncRedisSet<E> {
+    protected final AsyncRedis redis;
+    protected final Codec<E> codec;
+    protected final ByteSequence setKey;
+
+    public AsyncRedisSet(AsyncRedis redis, Codec<E> codec, String key) {
+        this(redis, codec, ByteSequence.utf8(key));
+    }
+
+    public AsyncRedisSet(AsyncRedis redis, Codec<E> codec, ByteSequence key) {
+        this.redis = redis;
+        this.codec = codec;
+        this.setKey = key;
+    }
+
+    public CompletableFuture<Integer> size() {
+        return redis.sendAsync(new IntegerOutput(), CommandType.SCARD, setKey).thenApply(Long::intValue);
+    }
+
+    public CompletableFuture<Boolean> isEmpty() {
+        return size().thenApply(size -> size == 0);
+    }
+
+    public CompletableFuture<Boolean> contains(E e) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.SISMEMBER, setKey, codec.encode(e)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Boolean> add(E e) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.SADD, setKey, codec.encode(e)).thenApply(n -> n > 0);
+    }
+
+    /**
+     * @return 新增数量
+     */
+    public CompletableFuture<Long> addAll(Collection<? extends E> c) {
+        if (c.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        return redis.sendAsync(new IntegerOutput(), CommandType.SADD, args(c));
+    }
+
+    public CompletableFuture<Boolean> remove(E e) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.SREM, setKey, codec.encode(e)).thenApply(n -> n > 0);
+    }
+
+    /**
+     * @return 删除数量
+     */
+    public CompletableFuture<Long> removeAll(Collection<? extends E> c) {
+        if (c.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        return redis.sendAsync(new IntegerOutput(), CommandType.SREM, args(c));
+    }
+
+    /**
+     * SPOP
+     */
+    public CompletableFuture<E> poll() {
+        return redis.sendAsync(new DecodeOutput<>(codec::decode), CommandType.SPOP, setKey);
+    }
+
+    public CompletableFuture<E> random() {
+        return redis.sendAsync(new DecodeOutput<>(codec::decode), CommandType.SRANDMEMBER, setKey);
+    }
+
+    public CompletableFuture<Void> clear() {
+        return redis.sendAsync(new VoidOutput(), CommandType.DEL, setKey);
+    }
+
+    /**
+     * SMEMBERS
+     */
+    public CompletableFuture<Set<E>> copy() {
+        return redis.withTrafficClass(TrafficClass.BULK)
+                .sendAsync(new SetOutput<>(codec::decode), CommandType.SMEMBERS, setKey);
+    }
+
+    /**
+     * 流式遍历（SSCAN），不支持批量命令
+     */
+    public RedisScanPublisher<E> publisher() {
+        return new RedisScanPublisher<>(new RedisSetScanIterator<>(RedisScanIterator.scannable(redis), codec::decode, setKey));
+    }
+
+    protected List<ByteSequence> args(Collection<? extends E> c) {
+        List<ByteSequence> args = new ArrayList<>(1 + c.size());
+        args.add(setKey);
+        for (E e : c) {
+            args.add(codec.encode(e));
+        }
+        return args;
+    }
+
+    @Override
+    public String toString() {
+        return setKey.toString();
+    }
+}
@@ -0,0 +1,140 @@
+package cc.whohow.redis.util;
+
+import cc.whohow.redis.AsyncRedis;
+import cc.whohow.redis.RESP;
+import cc.whohow.redis.TrafficClass;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.Codec;
+import cc.whohow.redis.lettuce.*;
+import io.lettuce.core.ScoredValue;
+import io.lettuce.core.protocol.CommandKeyword;
+import io.lettuce.core.protocol.CommandType;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步有序集合（成员 -> 分数），对应 RedisSortedSet
+ */
+public class AsyncRedisSortedSet<E> {
+    protected final AsyncRedis redis;
+    protected final Codec<E> codec;
+    protected final ByteSequence sortedSetKey;
+
+    public AsyncRedisSortedSet(AsyncRedis redis, Codec<E> codec, String key) {
+        this(redis, codec, ByteSequence.utf8(key));
+    }
+
+    public AsyncRedisSortedSet(AsyncRedis redis, Codec<E> codec, ByteSequence key) {
+        this.redis = redis;
+        this.codec = codec;
+        this.sortedSetKey = key;
+    }
+
+    public CompletableFuture<Integer> size() {
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZCARD, sortedSetKey).thenApply(Long::intValue);
+    }
+
+    public CompletableFuture<Boolean> isEmpty() {
+        return size().thenApply(size -> size == 0);
+    }
+
+    public CompletableFuture<Boolean> containsKey(E key) {
+        return get(key).thenApply(Objects::nonNull);
+    }
+
+    /**
+     * ZSCORE
+     */
+    public CompletableFuture<Number> get(E key) {
+        return redis.sendAsync(new NumberOutput(), CommandType.ZSCORE, sortedSetKey, codec.encode(key));
+    }
+
+    /**
+     * @return 是否新增成员
+     */
+    public CompletableFuture<Boolean> put(E key, Number score) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZADD, sortedSetKey, RESP.b(score), codec.encode(key)).thenApply(n -> n > 0);
+    }
+
+    public CompletableFuture<Boolean> putIfAbsent(E key, Number score) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZADD, sortedSetKey, RESP.nx(), RESP.b(score), codec.encode(key)).thenApply(n -> n > 0);
+    }
+
+    /**
+     * ZADD XX
+     */
+    public CompletableFuture<Void> replace(E key, Number score) {
+        return redis.sendAsync(new VoidOutput(), CommandType.ZADD, sortedSetKey, RESP.xx(), RESP.b(score), codec.encode(key));
+    }
+
+    /**
+     * @return 新增数量
+     */
+    public CompletableFuture<Long> putAll(Map<? extends E, ? extends Number> m) {
+        if (m.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        List<ByteSequence> args = new ArrayList<>(1 + m.size() * 2);
+        args.add(sortedSetKey);
+        for (Map.Entry<? extends E, ? extends Number> e : m.entrySet()) {
+            args.add(RESP.b(e.getValue()));
+            args.add(codec.encode(e.getKey()));
+        }
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZADD, args);
+    }
+
+    public CompletableFuture<Boolean> remove(E key) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZREM, sortedSetKey, codec.encode(key)).thenApply(n -> n > 0);
+    }
+
+    /**
+     * @return 移除数量
+     */
+    public CompletableFuture<Long> removeAll(Collection<? extends E> keys) {
+        if (keys.isEmpty()) {
+            return CompletableFuture.completedFuture(0L);
+        }
+        List<ByteSequence> args = new ArrayList<>(1 + keys.size());
+        args.add(sortedSetKey);
+        for (E key : keys) {
+            args.add(codec.encode(key));
+        }
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZREM, args);
+    }
+
+    public CompletableFuture<Long> count(Number min, Number max) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.ZCOUNT, sortedSetKey, RESP.b(min), RESP.b(max));
+    }
+
+    /**
+     * ZRANGE，包含 stop
+     */
+    public CompletableFuture<List<E>> range(long start, long stop) {
+        return redis.sendAsync(new ListOutput<>(codec::decode), CommandType.ZRANGE, sortedSetKey, RESP.b(start), RESP.b(stop));
+    }
+
+    public CompletableFuture<List<ScoredValue<E>>> rangeWithScores(long start, long stop) {
+        return redis.sendAsync(new ScoredValueListOutput<>(codec::decode), CommandType.ZRANGE, sortedSetKey, RESP.b(start), RESP.b(stop), RESP.b(CommandKeyword.WITHSCORES));
+    }
+
+    public CompletableFuture<Void> clear() {
+        return redis.sendAsync(new VoidOutput(), CommandType.DEL, sortedSetKey);
+    }
+
+    public CompletableFuture<Map<E, Number>> copy() {
+        return redis.withTrafficClass(TrafficClass.BULK).sendAsync(new MapOutput<>(codec::decode, RESP::f64), CommandType.ZRANGE, sortedSetKey, RESP.b(0), RESP.b(-1), RESP.b(CommandKeyword.WITHSCORES));
+    }
+
+    /**
+     * 流式遍历（ZSCAN），不支持批量命令
+     */
+    public RedisScanPublisher<ScoredValue<E>> publisher() {
+        return new RedisScanPublisher<>(new RedisSortedSetScanIterator<>(RedisScanIterator.scannable(redis), codec::decode, sortedSetKey));
+    }
+
+    @Override
+    public String toString() {
+        return sortedSetKey.toString();
+    }
+}
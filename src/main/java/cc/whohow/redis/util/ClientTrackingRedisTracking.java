@@ -0,0 +1,399 @@
+package cc.whohow.redis.util;
+
+import cc.whohow.redis.RedisTracking;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.StatusOutput;
+import io.lettuce.core.RedisChannelHandler;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.api.StatefulConnection;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.codec.RedisCodec;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 基于服务端辅助客户端缓存（CLIENT TRACKING BCAST PREFIX）的失效通知，仅接收已注册前缀的键失效消息
+ * Lettuce 5.x 不支持RESP3，使用RESP2 REDIRECT模式，失效消息重定向到订阅 __redis__:invalidate 的连接
+ * 已注册前缀不会因移除监听而取消，多余消息在本地过滤
+ */
+public class ClientTrackingRedisTracking implements
+        RedisTracking,
+        RedisConnectionStateListener {
+    protected static final Logger log = LogManager.getLogger();
+    protected static final ByteSequence INVALIDATE = ByteSequence.ascii("__redis__:invalidate");
+    protected static final long RETRY_DELAY = 1000;
+    protected final Map<RedisKeyPattern, Set<Listener>> listeners = new ConcurrentHashMap<>();
+    protected final RedisClient redisClient;
+    protected final RedisURI redisURI;
+    /**
+     * 已开启跟踪的前缀，互不重叠
+     */
+    protected final List<ByteSequence> prefixes = new ArrayList<>();
+    protected volatile StatefulRedisPubSubConnection<ByteSequence, ByteSequence> redisPubSubConnection;
+    protected volatile StatefulRedisConnection<ByteSequence, ByteSequence> redisTrackingConnection;
+    protected volatile long redirect;
+    protected volatile boolean closed = false;
+    protected CompletableFuture<Void> operations = CompletableFuture.completedFuture(null);
+    protected CompletableFuture<Void> reconnecting;
+
+    public ClientTrackingRedisTracking(RedisClient redisClient, RedisURI redisURI) {
+        this.redisClient = redisClient;
+        this.redisURI = redisURI;
+        this.redisClient.addListener(this);
+        submit(this::connect).join();
+    }
+
+    /**
+     * 串行执行跟踪操作（重建连接、开启跟踪），前一操作失败不影响后续操作
+     */
+    protected synchronized CompletableFuture<Void> submit(Supplier<CompletableFuture<Void>> operation) {
+        operations = operations.handle((r, e) -> null).thenCompose(ignore -> operation.get());
+        return operations;
+    }
+
+    /**
+     * 重建连接，同一时刻只有一个重建在进行，失败后定时重试
+     */
+    protected synchronized CompletableFuture<Void> reconnect() {
+        if (closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        if (reconnecting == null) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            reconnecting = future;
+            submit(this::connect).whenComplete((r, e) -> {
+                synchronized (this) {
+                    if (reconnecting == future) {
+                        reconnecting = null;
+                    }
+                }
+                if (e != null) {
+                    log.warn("reconnect tracking error: {}", redisURI, e);
+                    if (!closed) {
+                        redisClient.getResources().eventExecutorGroup()
+                                .schedule(this::reconnect, RETRY_DELAY, TimeUnit.MILLISECONDS);
+                    }
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(null);
+                }
+            });
+        }
+        return reconnecting;
+    }
+
+    /**
+     * 关闭现有连接，同时新建订阅连接及跟踪连接，跟踪开启后一并替换，保证REDIRECT指向当前订阅连接
+     */
+    protected CompletableFuture<Void> connect() {
+        synchronized (this) {
+            close(redisPubSubConnection);
+            close(redisTrackingConnection);
+            redisPubSubConnection = null;
+            redisTrackingConnection = null;
+        }
+        InvalidateCodec codec = new InvalidateCodec();
+        return redisClient.connectPubSubAsync(codec, redisURI).toCompletableFuture()
+                .thenCompose(pubSub -> {
+                    pubSub.addListener(new InvalidateListener(codec));
+                    return pubSub.async().clientId().toCompletableFuture()
+                            .thenCompose(id -> pubSub.async().subscribe(INVALIDATE).toCompletableFuture()
+                                    .thenCompose(ignore -> redisClient.connectAsync(ByteSequenceRedisCodec.get(), redisURI).toCompletableFuture())
+                                    .thenCompose(connection -> {
+                                        List<ByteSequence> tracked;
+                                        synchronized (this) {
+                                            tracked = new ArrayList<>(prefixes);
+                                        }
+                                        CompletableFuture<Void> enabled = tracked.isEmpty() ?
+                                                CompletableFuture.completedFuture(null) :
+                                                tracking(connection, id, tracked);
+                                        return enabled
+                                                .thenRun(() -> install(pubSub, connection, id))
+                                                .whenComplete((r, e) -> {
+                                                    if (e != null) {
+                                                        close(connection);
+                                                    }
+                                                });
+                                    }))
+                            .whenComplete((r, e) -> {
+                                if (e != null) {
+                                    close(pubSub);
+                                }
+                            });
+                })
+                .thenRun(this::onInvalidateAll);
+    }
+
+    protected synchronized void install(StatefulRedisPubSubConnection<ByteSequence, ByteSequence> pubSub,
+                                        StatefulRedisConnection<ByteSequence, ByteSequence> connection,
+                                        long id) {
+        if (closed) {
+            close(pubSub);
+            close(connection);
+            return;
+        }
+        redisPubSubConnection = pubSub;
+        redisTrackingConnection = connection;
+        redirect = id;
+        // 此后新连接的重连事件需要重新触发重建
+        reconnecting = null;
+    }
+
+    protected CompletableFuture<Void> tracking(StatefulRedisConnection<ByteSequence, ByteSequence> connection,
+                                               long redirect, List<ByteSequence> prefixes) {
+        CommandArgs<ByteSequence, ByteSequence> args = new CommandArgs<>(ByteSequenceRedisCodec.get())
+                .add("TRACKING").add("ON")
+                .add("REDIRECT").add(redirect)
+                .add("BCAST");
+        for (ByteSequence prefix : prefixes) {
+            if (!prefix.isEmpty()) {
+                args.add("PREFIX").addValue(prefix);
+            }
+        }
+        return connection.async()
+                .dispatch(CommandType.CLIENT, new StatusOutput(), args)
+                .toCompletableFuture()
+                .thenAccept(status -> log.debug("CLIENT TRACKING {} {}", prefixes, status));
+    }
+
+    protected CompletableFuture<Void> untracking(StatefulRedisConnection<ByteSequence, ByteSequence> connection) {
+        CommandArgs<ByteSequence, ByteSequence> args = new CommandArgs<>(ByteSequenceRedisCodec.get())
+                .add("TRACKING").add("OFF");
+        return connection.async()
+                .dispatch(CommandType.CLIENT, new StatusOutput(), args)
+                .toCompletableFuture()
+                .thenAccept(status -> log.debug("CLIENT TRACKING OFF {}", status));
+    }
+
+    /**
+     * 键模式对应的跟踪前缀（第一个通配符前的部分）
+     */
+    protected static ByteSequence prefix(ByteSequence pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (pattern.get(i) == '*') {
+                return pattern.subSequence(0, i).copy();
+            }
+        }
+        return pattern.copy();
+    }
+
+    /**
+     * 注册跟踪前缀，与已有前缀重叠时重新开启跟踪
+     * 连接重建中时前缀在重建完成后一并开启
+     */
+    protected void track(ByteSequence prefix) {
+        CompletableFuture<Void> future;
+        synchronized (this) {
+            for (ByteSequence tracked : prefixes) {
+                if (prefix.startsWiths(tracked)) {
+                    return;
+                }
+            }
+            boolean overlap = prefixes.removeIf(tracked -> tracked.startsWiths(prefix));
+            prefixes.add(prefix);
+            future = submit(() -> {
+                StatefulRedisConnection<ByteSequence, ByteSequence> connection;
+                long id;
+                List<ByteSequence> tracked;
+                synchronized (this) {
+                    connection = redisTrackingConnection;
+                    id = redirect;
+                    tracked = new ArrayList<>(prefixes);
+                }
+                if (connection == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (overlap) {
+                    // 跟踪关闭期间可能丢失失效消息
+                    return untracking(connection)
+                            .thenCompose(ignore -> tracking(connection, id, tracked))
+                            .thenRun(this::onInvalidateAll);
+                }
+                return tracking(connection, id, Collections.singletonList(prefix));
+            });
+        }
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            // 订阅连接已重连时REDIRECT失效，重建连接时开启全部前缀
+            log.warn("CLIENT TRACKING error, reconnect tracking: {}", redisURI, e);
+            reconnect().join();
+        }
+    }
+
+    @Override
+    public void addListener(RedisConnectionStateListener listener) {
+        redisClient.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(RedisConnectionStateListener listener) {
+        redisClient.removeListener(listener);
+    }
+
+    @Override
+    public void addListener(ByteSequence pattern, Listener listener) {
+        listeners.computeIfAbsent(new RedisKeyPattern(pattern), key -> new CopyOnWriteArraySet<>())
+                .add(listener);
+        track(prefix(pattern));
+    }
+
+    @Override
+    public void removeListener(ByteSequence pattern, Listener listener) {
+        listeners.getOrDefault(new RedisKeyPattern(pattern), Collections.emptySet())
+                .remove(listener);
+    }
+
+    protected void onKeyEvent(ByteSequence key) {
+        RedisKeyPattern keyPattern = new RedisKeyPattern(key, false);
+        for (Map.Entry<RedisKeyPattern, Set<Listener>> e : listeners.entrySet()) {
+            if (e.getKey().match(keyPattern)) {
+                for (Listener listener : e.getValue()) {
+                    try {
+                        listener.onInvalidate(key);
+                    } catch (Throwable ex) {
+                        log.warn("onKeyEventError", ex);
+                    }
+                }
+            }
+        }
+    }
+
+    protected void onInvalidateAll() {
+        for (Set<Listener> set : listeners.values()) {
+            for (Listener listener : set) {
+                try {
+                    listener.onInvalidateAll();
+                } catch (Throwable ex) {
+                    log.warn("onInvalidateAllError", ex);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onRedisConnected(RedisChannelHandler<?, ?> connection, SocketAddress socketAddress) {
+        if (closed) {
+            return;
+        }
+        if (connection == redisPubSubConnection || connection == redisTrackingConnection) {
+            // 断线重连后服务端跟踪状态及客户端ID均已失效，两个连接一并重建
+            log.debug("RedisConnected, reconnect tracking: {}", redisURI);
+            reconnect();
+        }
+    }
+
+    @Override
+    public void onRedisDisconnected(RedisChannelHandler<?, ?> connection) {
+    }
+
+    @Override
+    public void onRedisExceptionCaught(RedisChannelHandler<?, ?> connection, Throwable cause) {
+    }
+
+    private static void close(StatefulConnection<?, ?> connection) {
+        if (connection != null) {
+            connection.closeAsync();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws Exception {
+        closed = true;
+        redisClient.removeListener(this);
+        if (redisPubSubConnection != null) {
+            redisPubSubConnection.close();
+            redisPubSubConnection = null;
+        }
+        if (redisTrackingConnection != null) {
+            redisTrackingConnection.close();
+            redisTrackingConnection = null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ClientTrackingRedisTracking{" +
+                "uri=" + redisURI +
+                ", prefixes=" + prefixes +
+                '}';
+    }
+
+    /**
+     * 失效消息为键数组，PubSubOutput逐个解码并只保留最后一个，在此收集全部键
+     */
+    private static class InvalidateCodec implements RedisCodec<ByteSequence, ByteSequence> {
+        private final List<ByteSequence> keys = new ArrayList<>();
+
+        @Override
+        public ByteSequence decodeKey(ByteBuffer bytes) {
+            return ByteSequenceRedisCodec.get().decodeKey(bytes);
+        }
+
+        @Override
+        public ByteSequence decodeValue(ByteBuffer bytes) {
+            ByteSequence key = ByteSequenceRedisCodec.get().decodeValue(bytes);
+            keys.add(key);
+            return key;
+        }
+
+        @Override
+        public ByteBuffer encodeKey(ByteSequence key) {
+            return ByteSequenceRedisCodec.get().encodeKey(key);
+        }
+
+        @Override
+        public ByteBuffer encodeValue(ByteSequence value) {
+            return ByteSequenceRedisCodec.get().encodeValue(value);
+        }
+
+        List<ByteSequence> drain() {
+            List<ByteSequence> drained = new ArrayList<>(keys);
+            keys.clear();
+            return drained;
+        }
+    }
+
+    private class InvalidateListener extends RedisPubSubAdapter<ByteSequence, ByteSequence> {
+        private final InvalidateCodec codec;
+
+        InvalidateListener(InvalidateCodec codec) {
+            this.codec = codec;
+        }
+
+        @Override
+        public void message(ByteSequence channel, ByteSequence message) {
+            List<ByteSequence> keys = codec.drain();
+            log.trace("invalidate {}", keys);
+            if (keys.isEmpty()) {
+                // FLUSHDB/FLUSHALL
+                onInvalidateAll();
+            } else {
+                for (ByteSequence key : keys) {
+                    onKeyEvent(key);
+                }
+            }
+        }
+    }
+}
@@ -30,7 +30,7 @@ public class RedisAtomicLong extends Number {
     }
 
     public RedisAtomicLong(Redis redis, ByteSequence key, long initialValue) {
-        this.redis = redis;
+        this.redis = redis.master();
         this.key = key;
 
         if (initialValue != 0) {
@@ -35,7 +35,7 @@ public class RedisAtomicReference<V> {
     }
 
     public RedisAtomicReference(Redis redis, Codec<V> codec, ByteSequence key) {
-        this.redis = redis;
+        this.redis = redis.master();
         this.codec = codec;
         this.key = key;
     }
@@ -266,7 +266,7 @@ public class RedisDelayQueue<E>
 
     @Override
     public Queue<RedisDelayed<E>> copy() {
-        return zrangeWithScores(0, -1)
+        return bulk().zrangeWithScores(0, -1)
                 .stream()
                 .map(this::toDelayed)
                 .collect(Collectors.toCollection(LinkedList::new));
@@ -9,6 +9,7 @@ import io.lettuce.core.protocol.CommandType;
 
 import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public class RedisHashScanIterator<K, V> extends RedisScanIterator<Map.Entry<K, V>> {
@@ -56,4 +57,9 @@ public class RedisHashScanIterator<K, V> extends RedisScanIterator<Map.Entry<K,
     protected RedisScanIteration<Map.Entry<K, V>> scan(ByteSequence cursor, ByteSequence pattern, int count) {
         return redis.send(new ScanHashOutput<>(keyDecoder, valueDecoder), CommandType.HSCAN, hashKey, cursor, RESP.b(CommandKeyword.MATCH), pattern, RESP.b(CommandKeyword.COUNT), RESP.b(count));
     }
+
+    @Override
+    public CompletableFuture<RedisScanIteration<Map.Entry<K, V>>> scanAsync(String cursor, int count) {
+        return redis.sendAsync(new ScanHashOutput<>(keyDecoder, valueDecoder), CommandType.HSCAN, scanArgs(hashKey, cursor, count));
+    }
 }
@@ -8,6 +8,7 @@ import io.lettuce.core.protocol.CommandKeyword;
 import io.lettuce.core.protocol.CommandType;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public class RedisKeyScanIterator<T> extends RedisScanIterator<T> {
@@ -46,4 +47,9 @@ public class RedisKeyScanIterator<T> extends RedisScanIterator<T> {
     protected RedisScanIteration<T> scan(ByteSequence cursor, ByteSequence pattern, int count) {
         return redis.send(new ScanOutput<>(decoder), CommandType.SCAN, cursor, RESP.b(CommandKeyword.MATCH), pattern, RESP.b(CommandKeyword.COUNT), RESP.b(count));
     }
+
+    @Override
+    public CompletableFuture<RedisScanIteration<T>> scanAsync(String cursor, int count) {
+        return redis.sendAsync(new ScanOutput<>(decoder), CommandType.SCAN, scanArgs(null, cursor, count));
+    }
 }
@@ -14,8 +14,10 @@ import org.apache.logging.log4j.Logger;
 import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Redis键空间事件处理
@@ -24,18 +26,98 @@ public class RedisKeyspaceNotification implements
         RedisTracking,
         RedisPubSubListener<ByteSequence, ByteSequence> {
     protected static final Logger log = LogManager.getLogger();
+    protected static final long RETRY_DELAY = 1000;
     protected final Map<RedisKeyPattern, Set<Listener>> listeners = new ConcurrentHashMap<>();
     protected final RedisClient redisClient;
+    protected final RedisURI redisURI;
     protected final ByteSequence keyspace;
     protected volatile StatefulRedisPubSubConnection<ByteSequence, ByteSequence> redisPubSubConnection;
-
+    /**
+     * 订阅就绪，就绪前的键空间事件不会收到
+     */
+    protected final CompletableFuture<Void> ready = new CompletableFuture<>();
+    protected volatile boolean closed = false;
+
+    /**
+     * 连接并订阅，阻塞至订阅完成
+     */
     public RedisKeyspaceNotification(RedisClient redisClient, RedisURI redisURI) {
-        String keyspace = "__keyspace@" + redisURI.getDatabase() + "__:";
+        this(redisClient, redisURI, false);
+    }
+
+    protected RedisKeyspaceNotification(RedisClient redisClient, RedisURI redisURI, boolean async) {
         this.redisClient = redisClient;
-        this.keyspace = ByteSequence.ascii(keyspace);
-        this.redisPubSubConnection = redisClient.connectPubSub(ByteSequenceRedisCodec.get(), redisURI);
-        this.redisPubSubConnection.addListener(this);
-        this.redisPubSubConnection.sync().psubscribe(ByteSequence.ascii(keyspace + "*"));
+        this.redisURI = redisURI;
+        this.keyspace = ByteSequence.ascii("__keyspace@" + redisURI.getDatabase() + "__:");
+        if (async) {
+            subscribe();
+        } else {
+            this.redisPubSubConnection = redisClient.connectPubSub(ByteSequenceRedisCodec.get(), redisURI);
+            this.redisPubSubConnection.addListener(this);
+            this.redisPubSubConnection.sync().psubscribe(pattern());
+            this.ready.complete(null);
+        }
+    }
+
+    /**
+     * 异步连接并订阅，不阻塞，失败后定时重试直至成功或关闭，通过 {@link #ready()} 等待订阅就绪
+     */
+    public static RedisKeyspaceNotification connectAsync(RedisClient redisClient, RedisURI redisURI) {
+        return new RedisKeyspaceNotification(redisClient, redisURI, true);
+    }
+
+    protected ByteSequence pattern() {
+        return ByteSequence.ascii(keyspace.toString() + "*");
+    }
+
+    /**
+     * 异步连接并订阅，失败后定时重试
+     */
+    protected void subscribe() {
+        if (closed) {
+            return;
+        }
+        redisClient.connectPubSubAsync(ByteSequenceRedisCodec.get(), redisURI)
+                .toCompletableFuture()
+                .thenCompose(connection -> {
+                    synchronized (this) {
+                        if (closed) {
+                            connection.closeAsync();
+                            throw new IllegalStateException("closed");
+                        }
+                        this.redisPubSubConnection = connection;
+                    }
+                    connection.addListener(this);
+                    return connection.async().psubscribe(pattern());
+                })
+                .whenComplete((r, e) -> {
+                    if (e == null) {
+                        ready.complete(null);
+                        return;
+                    }
+                    StatefulRedisPubSubConnection<ByteSequence, ByteSequence> connection;
+                    synchronized (this) {
+                        if (closed) {
+                            ready.completeExceptionally(e);
+                            return;
+                        }
+                        connection = redisPubSubConnection;
+                        redisPubSubConnection = null;
+                    }
+                    log.warn("psubscribe error: {}", keyspace, e);
+                    if (connection != null) {
+                        connection.closeAsync();
+                    }
+                    redisClient.getResources().eventExecutorGroup()
+                            .schedule(this::subscribe, RETRY_DELAY, TimeUnit.MILLISECONDS);
+                });
+    }
+
+    /**
+     * 订阅就绪
+     */
+    public CompletableFuture<Void> ready() {
+        return ready;
     }
 
     @Override
@@ -109,10 +191,16 @@ public class RedisKeyspaceNotification implements
 
     @Override
     public void close() throws Exception {
-        if (redisPubSubConnection != null) {
-            redisPubSubConnection.close();
+        StatefulRedisPubSubConnection<ByteSequence, ByteSequence> connection;
+        synchronized (this) {
+            closed = true;
+            connection = redisPubSubConnection;
             redisPubSubConnection = null;
         }
+        ready.completeExceptionally(new IllegalStateException("closed"));
+        if (connection != null) {
+            connection.close();
+        }
     }
 
     @Override
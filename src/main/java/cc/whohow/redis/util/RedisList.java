@@ -393,6 +393,6 @@ public class RedisList<E>
     }
 
     public List<E> copy(int fromIndex, int toIndex) {
-        return lrange(fromIndex, toIndex);
+        return bulk().lrange(fromIndex, toIndex);
     }
 }
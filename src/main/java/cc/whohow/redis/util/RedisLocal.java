@@ -1,6 +1,9 @@
 package cc.whohow.redis.util;
 
+import cc.whohow.redis.CommandPriority;
 import cc.whohow.redis.Redis;
+import cc.whohow.redis.RedisBatch;
+import cc.whohow.redis.TrafficClass;
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.codec.PrimitiveCodec;
 import cc.whohow.redis.codec.StringCodec;
@@ -75,13 +78,13 @@ public class RedisLocal implements Runnable {
     private volatile RedisMap<String, String> localMap;
 
     public RedisLocal(Redis redis, ScheduledExecutorService executor, String key) {
-        this.redis = redis;
+        this.redis = redis.withPriority(CommandPriority.CRITICAL); // 注册/续期，过载时最后被拒绝，避免ID过期
         this.executor = executor;
         this.key = key;
         this.expiresIn = Duration.ofMinutes(3); // ID有效期，3分钟，需及时续期
         this.maxId = 65535L; // 最大ID，4字节
-        this.clock = new RedisClock(redis); // 时钟
-        this.idSet = new RedisSortedSet<>(redis, PrimitiveCodec.LONG, key);
+        this.clock = new RedisClock(this.redis); // 时钟
+        this.idSet = new RedisSortedSet<>(this.redis, PrimitiveCodec.LONG, key);
         this.id = new CompletableFuture<>();
 
         // 启动注册/续期任务
@@ -174,13 +177,14 @@ public class RedisLocal implements Runnable {
                     this.id.complete(newId); // 注册ID成功
                     log.debug("newId ok: {} @{}", newId, time);
                     this.lock = lock; // 更新实例锁
+                    String localMapKey = getLocalMapRedisKey(newId);
                     this.localMap = new RedisMap<>(redis, StringCodec.UTF8.get(), StringCodec.UTF8.get(),
-                            getLocalMapRedisKey(newId)); // 创建实例存储空间
+                            localMapKey); // 创建实例存储空间
                     executor.execute(() -> {
-                        Map<String, String> map = localMap;
-                        if (map != null) {
+                        if (localMap != null) {
                             log.debug("synchronize LocalInfo to LocalMap");
-                            map.putAll(getLocalInfo()); // 异步同步本地信息
+                            new RedisMap<>(redis.withTrafficClass(TrafficClass.BULK), StringCodec.UTF8.get(), StringCodec.UTF8.get(),
+                                    localMapKey).putAll(getLocalInfo()); // 异步同步本地信息，走批量通道
                         } else {
                             log.debug("LocalMap state error");
                         }
@@ -222,6 +226,13 @@ public class RedisLocal implements Runnable {
         return id.join();
     }
 
+    /**
+     * 获取ID，ID注册成功时完成
+     */
+    public CompletableFuture<Long> getIdAsync() {
+        return id.thenApply(Function.identity());
+    }
+
     /**
      * 获取ID，立即返回
      */
@@ -328,12 +339,14 @@ public class RedisLocal implements Runnable {
         }
         log.debug("gc: {}", ids);
 
-        // 回收实例存储空间
-        redis.send(new VoidOutput(), CommandType.DEL, ids.stream()
+        // 回收实例存储空间，与移除ID一起批量发送
+        RedisBatch batch = new RedisBatch(redis);
+        batch.sendAsync(new VoidOutput(), CommandType.DEL, ids.stream()
                 .map(this::getLocalMapRedisKey)
                 .map(ByteSequence::utf8)
                 .collect(Collectors.toList()));
-        idSet.zrem(ids);
+        new AsyncRedisSortedSet<>(batch, PrimitiveCodec.LONG, key).removeAll(ids);
+        batch.execute().join();
     }
 
     public void addListener(Listener listener) {
@@ -1,5 +1,6 @@
 package cc.whohow.redis.util;
 
+import cc.whohow.redis.CommandPriority;
 import cc.whohow.redis.RESP;
 import cc.whohow.redis.Redis;
 import cc.whohow.redis.RedisScript;
@@ -40,6 +41,7 @@ public class RedisLock implements Lock {
      * 最大锁定时间，用于处理死锁，建议根据加锁任务最大耗时设置（大于最大耗时，小于任务间隔）
      */
     protected final long maxLockTimeMillis;
+    protected final ByteSequence maxLockTime;
     /**
      * 锁秘钥，用于处理误解除非自己持有的锁
      */
@@ -61,10 +63,11 @@ public class RedisLock implements Lock {
         if (minLockTime.compareTo(maxLockTime) > 0) {
             throw new IllegalArgumentException(minLockTime + "(minLockTime) > " + maxLockTime + "(maxLockTime)");
         }
-        this.redis = redis;
+        this.redis = redis.master().withPriority(CommandPriority.CRITICAL); // 过载时最后被拒绝，避免锁过期
         this.key = ByteSequence.utf8(key);
         this.minLockTimeMillis = minLockTime.toMillis();
         this.maxLockTimeMillis = maxLockTime.toMillis();
+        this.maxLockTime = RESP.b(maxLockTimeMillis);
         this.token = ByteSequence.utf8(token);
     }
 
@@ -102,7 +105,7 @@ public class RedisLock implements Lock {
     @Override
     public boolean tryLock() {
         return RESP.ok(redis.send(new StatusOutput(),
-                CommandType.SET, key, token, RESP.px(), RESP.b(maxLockTimeMillis), RESP.nx()));
+                CommandType.SET, key, token, RESP.px(), maxLockTime, RESP.nx()));
     }
 
     /**
@@ -8,6 +8,7 @@ import java.util.Collection;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.Set;
+import java.util.Spliterator;
 import java.util.concurrent.ConcurrentMap;
 import java.util.function.BiFunction;
 import java.util.function.Function;
@@ -120,7 +121,12 @@ public class RedisMap<K, V>
         return new ConcurrentMapEntrySet<K, V>(this) {
             @Override
             public Iterator<Entry<K, V>> iterator() {
-                return new RedisIterator<>(new RedisHashScanIterator<>(redis, keyCodec::decode, valueCodec::decode, hashKey));
+                return new RedisIterator<>(new RedisScanPrefetchIterator<>(hscan()));
+            }
+
+            @Override
+            public Spliterator<Entry<K, V>> spliterator() {
+                return new RedisScanSpliterator<>(hscan());
             }
 
             @Override
@@ -209,6 +215,6 @@ public class RedisMap<K, V>
 
     @Override
     public Map<K, V> copy() {
-        return hgetall();
+        return bulk().hgetall();
     }
 }
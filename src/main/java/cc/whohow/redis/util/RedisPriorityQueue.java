@@ -161,7 +161,7 @@ public class RedisPriorityQueue<E>
 
     @Override
     public Queue<RedisPriority<E>> copy() {
-        return zrangeWithScores(0, -1)
+        return bulk().zrangeWithScores(0, -1)
                 .stream()
                 .map(this::toEntry)
                 .collect(Collectors.toCollection(LinkedList::new));
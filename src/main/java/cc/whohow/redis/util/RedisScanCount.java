@@ -0,0 +1,47 @@
+package cc.whohow.redis.util;
+
+/**
+ * 自适应SCAN COUNT：消费方等待（预取未完成）或遇到空页（MATCH过滤稀疏）时加倍，直到上限；
+ * 预取页在需要前已就绪且非空时减半，直到下限
+ */
+public class RedisScanCount {
+    /**
+     * Redis默认COUNT
+     */
+    public static final int DEFAULT = 10;
+    public static final int DEFAULT_MAX = 1000;
+
+    protected final int min;
+    protected final int max;
+    protected volatile int count;
+
+    public RedisScanCount(int count) {
+        this(count > 0 ? count : DEFAULT, count > 0 ? count : DEFAULT, Math.max(count, DEFAULT_MAX));
+    }
+
+    public RedisScanCount(int count, int min, int max) {
+        if (min <= 0 || max < min || count < min || count > max) {
+            throw new IllegalArgumentException();
+        }
+        this.count = count;
+        this.min = min;
+        this.max = max;
+    }
+
+    public int get() {
+        return count;
+    }
+
+    /**
+     * @param page   本页元素数
+     * @param waited 消费方是否在等待本页
+     */
+    public void update(int page, boolean waited) {
+        int n = count;
+        if (waited || page == 0) {
+            count = Math.min(max, n * 2);
+        } else {
+            count = Math.max(min, n / 2);
+        }
+    }
+}
@@ -1,9 +1,16 @@
 package cc.whohow.redis.util;
 
+import cc.whohow.redis.AsyncRedis;
+import cc.whohow.redis.RESP;
 import cc.whohow.redis.Redis;
+import cc.whohow.redis.TrafficClass;
 import cc.whohow.redis.bytes.ByteSequence;
+import io.lettuce.core.protocol.CommandKeyword;
 
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class RedisScanIterator<T> implements Iterator<RedisScanIteration<T>> {
     protected final Redis redis;
@@ -17,11 +24,21 @@ public abstract class RedisScanIterator<T> implements Iterator<RedisScanIteratio
     }
 
     public RedisScanIterator(Redis redis, ByteSequence pattern, int count) {
-        this.redis = redis;
+        this.redis = redis.withTrafficClass(TrafficClass.BULK); // 遍历走批量通道
         this.pattern = pattern;
         this.count = count;
     }
 
+    /**
+     * 遍历逐页同步发送，只支持异步发送的实现（如批量命令）不能遍历
+     */
+    static Redis scannable(AsyncRedis redis) {
+        if (redis instanceof Redis) {
+            return (Redis) redis;
+        }
+        throw new UnsupportedOperationException("scan requires Redis: " + redis);
+    }
+
     @Override
     public boolean hasNext() {
         return hasNext;
@@ -35,6 +52,51 @@ public abstract class RedisScanIterator<T> implements Iterator<RedisScanIteratio
         return scanIteration;
     }
 
+    /**
+     * 异步扫描一页，不改变迭代器状态（用于预取及流式扫描）。默认同步执行，内置实现覆盖为异步命令
+     */
+    public CompletableFuture<RedisScanIteration<T>> scanAsync(String cursor, int count) {
+        CompletableFuture<RedisScanIteration<T>> future = new CompletableFuture<>();
+        try {
+            future.complete(scan(cursor, pattern, count));
+        } catch (Throwable e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    public ByteSequence getPattern() {
+        return pattern;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    /**
+     * [key] cursor [MATCH pattern] [COUNT count]
+     */
+    protected List<ByteSequence> scanArgs(ByteSequence key, String cursor, int count) {
+        List<ByteSequence> args = new ArrayList<>(6);
+        if (key != null) {
+            args.add(key);
+        }
+        args.add(ByteSequence.ascii(cursor));
+        if (pattern != null) {
+            args.add(RESP.b(CommandKeyword.MATCH));
+            args.add(pattern);
+        }
+        if (count > 0) {
+            args.add(RESP.b(CommandKeyword.COUNT));
+            args.add(RESP.b(count));
+        }
+        return args;
+    }
+
     protected abstract RedisScanIteration<T> scan(ByteSequence cursor);
 
     protected abstract RedisScanIteration<T> scan(ByteSequence cursor, ByteSequence pattern);
@@ -0,0 +1,51 @@
+package cc.whohow.redis.util;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 预取扫描：返回当前页的同时异步请求下一页，消费当前页与下一页往返并行；COUNT按消费情况自适应
+ */
+public class RedisScanPrefetchIterator<T> implements Iterator<RedisScanIteration<T>> {
+    protected final RedisScanIterator<T> scanIterator;
+    protected final RedisScanCount count;
+    protected String cursor;
+    protected CompletableFuture<RedisScanIteration<T>> prefetch;
+    protected boolean hasNext;
+
+    public RedisScanPrefetchIterator(RedisScanIterator<T> scanIterator) {
+        this(scanIterator, new RedisScanCount(scanIterator.getCount()));
+    }
+
+    public RedisScanPrefetchIterator(RedisScanIterator<T> scanIterator, RedisScanCount count) {
+        this.scanIterator = scanIterator;
+        this.count = count;
+        this.cursor = scanIterator.getCursor();
+        this.hasNext = scanIterator.hasNext();
+    }
+
+    @Override
+    public boolean hasNext() {
+        return hasNext;
+    }
+
+    @Override
+    public RedisScanIteration<T> next() {
+        if (!hasNext) {
+            throw new NoSuchElementException();
+        }
+        RedisScanIteration<T> scanIteration;
+        if (prefetch == null) {
+            scanIteration = scanIterator.scanAsync(cursor, count.get()).join();
+        } else {
+            boolean waited = !prefetch.isDone();
+            scanIteration = prefetch.join();
+            count.update(scanIteration.getArray().size(), waited);
+        }
+        cursor = scanIteration.getCursor();
+        hasNext = !scanIteration.isTerminate();
+        prefetch = hasNext ? scanIterator.scanAsync(cursor, count.get()) : null;
+        return scanIteration;
+    }
+}
@@ -0,0 +1,153 @@
+package cc.whohow.redis.util;
+
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 流式扫描（Reactive Streams），每个订阅从头扫描
+ * <p>
+ * 按下游需求发送元素，消费当前页时预取下一页（最多缓冲一页），COUNT自适应；null元素被忽略
+ */
+public class RedisScanPublisher<T> implements Publisher<T> {
+    protected final RedisScanIterator<T> scanIterator;
+
+    public RedisScanPublisher(RedisScanIterator<T> scanIterator) {
+        this.scanIterator = scanIterator;
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super T> subscriber) {
+        Objects.requireNonNull(subscriber);
+        ScanSubscription subscription = new ScanSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    protected class ScanSubscription implements Subscription {
+        protected final Subscriber<? super T> subscriber;
+        protected final RedisScanCount count = new RedisScanCount(scanIterator.getCount());
+        protected final Queue<List<T>> pages = new ConcurrentLinkedQueue<>();
+        protected final AtomicLong requested = new AtomicLong();
+        protected final AtomicInteger wip = new AtomicInteger();
+        protected Iterator<T> page = Collections.emptyIterator();
+        protected volatile String cursor = "0";
+        protected volatile boolean fetching = false;
+        protected volatile boolean first = true;
+        protected volatile boolean done = false;
+        protected volatile Throwable error;
+        protected volatile boolean cancelled = false;
+
+        protected ScanSubscription(Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("non-positive request: " + n);
+            } else {
+                requested.getAndUpdate(r -> r + n < 0 ? Long.MAX_VALUE : r + n);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            drain();
+        }
+
+        protected void fetch() {
+            fetching = true;
+            scanIterator.scanAsync(cursor, count.get()).whenComplete((scanIteration, e) -> {
+                if (e != null) {
+                    error = e;
+                } else {
+                    if (!first) {
+                        // 本页到达时下游仍有需求且无可发送元素，即在等待
+                        count.update(scanIteration.getArray().size(), requested.get() > 0 && pages.isEmpty());
+                    }
+                    first = false;
+                    cursor = scanIteration.getCursor();
+                    pages.offer(scanIteration.getArray());
+                    if (scanIteration.isTerminate()) {
+                        done = true;
+                    }
+                }
+                fetching = false;
+                drain();
+            });
+        }
+
+        protected void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            while (true) {
+                if (cancelled) {
+                    pages.clear();
+                    return;
+                }
+                Throwable e = error;
+                if (e != null) {
+                    cancelled = true;
+                    pages.clear();
+                    subscriber.onError(e);
+                    return;
+                }
+
+                long r = requested.get();
+                long emitted = 0;
+                while (emitted != r && !cancelled) {
+                    if (!page.hasNext()) {
+                        List<T> next = pages.poll();
+                        if (next == null) {
+                            break;
+                        }
+                        page = next.iterator();
+                        continue;
+                    }
+                    T value = page.next();
+                    if (value != null) {
+                        subscriber.onNext(value);
+                        emitted++;
+                    }
+                }
+                if (emitted != 0 && r != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+
+                if (!cancelled) {
+                    // 先读done：done在最后一页入队后设置
+                    boolean d = done;
+                    boolean buffered = page.hasNext() || !pages.isEmpty();
+                    if (d && !buffered) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                        return;
+                    }
+                    // 最多预取一页：待消费页队列为空时请求下一页
+                    if (!done && !fetching && pages.isEmpty()) {
+                        fetch();
+                    }
+                }
+
+                missed = wip.addAndGet(-missed);
+                if (missed == 0) {
+                    return;
+                }
+            }
+        }
+    }
+}
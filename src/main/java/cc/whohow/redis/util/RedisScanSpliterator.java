@@ -0,0 +1,76 @@
+package cc.whohow.redis.util;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * 按页预取的扫描Spliterator，拆分时交出当前页剩余元素（或下一整页），可用于并行流
+ * <p>
+ * SCAN可能返回重复元素，不报告 DISTINCT/SIZED
+ */
+public class RedisScanSpliterator<T> implements Spliterator<T> {
+    protected final Iterator<RedisScanIteration<T>> scanIterator;
+    protected List<T> page = Collections.emptyList();
+    protected int index = 0;
+
+    public RedisScanSpliterator(RedisScanIterator<T> scanIterator) {
+        this(new RedisScanPrefetchIterator<>(scanIterator));
+    }
+
+    public RedisScanSpliterator(Iterator<RedisScanIteration<T>> scanIterator) {
+        this.scanIterator = scanIterator;
+    }
+
+    protected boolean nextPage() {
+        while (index >= page.size()) {
+            if (!scanIterator.hasNext()) {
+                return false;
+            }
+            page = scanIterator.next().getArray();
+            index = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super T> action) {
+        if (!nextPage()) {
+            return false;
+        }
+        action.accept(page.get(index++));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super T> action) {
+        while (nextPage()) {
+            while (index < page.size()) {
+                action.accept(page.get(index++));
+            }
+        }
+    }
+
+    @Override
+    public Spliterator<T> trySplit() {
+        if (!nextPage()) {
+            return null;
+        }
+        Spliterator<T> split = page.subList(index, page.size()).spliterator();
+        page = Collections.emptyList();
+        index = 0;
+        return split;
+    }
+
+    @Override
+    public long estimateSize() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public int characteristics() {
+        return 0;
+    }
+}
@@ -38,7 +38,12 @@ public class RedisSet<E>
 
     @Override
     public Iterator<E> iterator() {
-        return new RedisIterator<>(new RedisSetScanIterator<>(redis, codec::decode, setKey));
+        return new RedisIterator<>(new RedisScanPrefetchIterator<>(new RedisSetScanIterator<>(redis, codec::decode, setKey)));
+    }
+
+    @Override
+    public Spliterator<E> spliterator() {
+        return new RedisScanSpliterator<>(new RedisSetScanIterator<>(redis, codec::decode, setKey));
     }
 
     @Override
@@ -129,6 +134,6 @@ public class RedisSet<E>
 
     @Override
     public Set<E> copy() {
-        return smembers();
+        return bulk().smembers();
     }
 }
@@ -200,6 +200,6 @@ public class RedisSortedSet<E>
 
     @Override
     public Map<E, Number> copy() {
-        return zrangeWithScoresAsMap(0, -1);
+        return bulk().zrangeWithScoresAsMap(0, -1);
     }
 }
@@ -9,6 +9,7 @@ import io.lettuce.core.protocol.CommandKeyword;
 import io.lettuce.core.protocol.CommandType;
 
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Function;
 
 public class RedisSortedSetScanIterator<T> extends RedisScanIterator<ScoredValue<T>> {
@@ -50,4 +51,9 @@ public class RedisSortedSetScanIterator<T> extends RedisScanIterator<ScoredValue
     protected RedisScanIteration<ScoredValue<T>> scan(ByteSequence cursor, ByteSequence pattern, int count) {
         return redis.send(new ScanSortedSetOutput<>(decoder), CommandType.ZSCAN, sortedSetKey, cursor, RESP.b(CommandKeyword.MATCH), pattern, RESP.b(CommandKeyword.COUNT), RESP.b(count));
     }
+
+    @Override
+    public CompletableFuture<RedisScanIteration<ScoredValue<T>>> scanAsync(String cursor, int count) {
+        return redis.sendAsync(new ScanSortedSetOutput<>(decoder), CommandType.ZSCAN, scanArgs(sortedSetKey, cursor, count));
+    }
 }
@@ -99,6 +99,7 @@ public class RedisWindowCounter<W>
             }
             if (removeKeys.size() == batchSize) {
                 hdel(removeKeys);
+                removeKeys.clear();
             }
         }
         if (!removeKeys.isEmpty()) {
@@ -112,7 +113,12 @@ public class RedisWindowCounter<W>
 
     @Override
     public Iterator<Map.Entry<W, Long>> iterator() {
-        return new RedisIterator<>(new RedisHashScanIterator<>(redis, keyCodec::decode, valueCodec::decode, hashKey));
+        return new RedisIterator<>(new RedisScanPrefetchIterator<>(hscan()));
+    }
+
+    @Override
+    public Spliterator<Map.Entry<W, Long>> spliterator() {
+        return new RedisScanSpliterator<>(hscan());
     }
 
     /**
@@ -120,6 +126,6 @@ public class RedisWindowCounter<W>
      */
     @Override
     public Map<W, Long> copy() {
-        return hgetall();
+        return bulk().hgetall();
     }
 }
@@ -0,0 +1,49 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.server.RespServer;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Properties;
+
+/**
+ * 测试环境：优先使用 redis.properties 配置的Redis，不存在时（或 -Dredis.embedded=true）启动进程内RESP服务
+ */
+public class RedisTestEnvironment {
+    private static final Path PROPERTIES = Paths.get("redis.properties");
+    private static volatile RespServer server;
+
+    public static Properties properties() {
+        Properties properties = new Properties();
+        if (Files.exists(PROPERTIES) && !Boolean.getBoolean("redis.embedded")) {
+            try (InputStream stream = new FileInputStream(PROPERTIES.toFile())) {
+                properties.load(stream);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else {
+            properties.setProperty("uri", server().getURI().toURI().toString());
+        }
+        return properties;
+    }
+
+    /**
+     * 共享进程内服务，随JVM退出
+     */
+    public static RespServer server() {
+        if (server == null) {
+            synchronized (RedisTestEnvironment.class) {
+                if (server == null) {
+                    // 同常见部署配置，开启键空间通知
+                    server = new RespServer().start().config("notify-keyspace-events", "KEA");
+                }
+            }
+        }
+        return server;
+    }
+}
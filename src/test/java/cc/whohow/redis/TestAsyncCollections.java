@@ -0,0 +1,135 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.*;
+import io.lettuce.core.RedisClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class TestAsyncCollections {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static Redis redis;
+    private static RedisFactory redisFactory;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        redis = new StandaloneRedis(redisClient, server.getURI());
+        redisFactory = new RedisFactory(redis);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redisFactory.close();
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Before
+    public void flush() {
+        server.flushAll();
+    }
+
+    @Test
+    public void testMapFanOut() {
+        AsyncRedisMap<String, Integer> map = redisFactory.newAsyncMap("async:map", String.class, Integer.class);
+        Map<String, Integer> data = IntStream.range(0, 20).boxed()
+                .collect(Collectors.toMap(i -> "k" + i, i -> i));
+        map.putAll(data).join();
+
+        // 并发发出20个请求，再组合结果
+        List<CompletableFuture<Integer>> futures = data.keySet().stream()
+                .map(map::get)
+                .collect(Collectors.toList());
+        int sum = CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(v -> futures.stream().mapToInt(CompletableFuture::join).sum())
+                .join();
+        Assert.assertEquals(190, sum);
+
+        Map<String, Integer> some = map.getAll(Arrays.asList("k1", "k2", "none")).join();
+        Assert.assertEquals(2, some.size());
+        Assert.assertEquals(2, some.get("k2").intValue());
+        Assert.assertEquals(data, map.copy().join());
+        Assert.assertEquals(20, map.size().join().intValue());
+        Assert.assertFalse(map.putIfAbsent("k1", 100).join());
+        Assert.assertTrue(map.remove("k1").join());
+        Assert.assertNull(map.get("k1").join());
+        Assert.assertEquals(-1, map.getOrDefault("k1", -1).join().intValue());
+        map.clear().join();
+        Assert.assertTrue(map.isEmpty().join());
+    }
+
+    @Test
+    public void testListAndSet() {
+        AsyncRedisList<String> list = redisFactory.newAsyncList("async:list", String.class);
+        list.addLast("b").thenCompose(n -> list.addFirst("a")).thenCompose(n -> list.addLast("c")).join();
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), list.copy().join());
+        Assert.assertEquals("c", list.peekLast().join());
+        Assert.assertEquals("a", list.pollFirst().join());
+        Assert.assertEquals(2, list.size().join().intValue());
+
+        AsyncRedisSet<String> set = redisFactory.newAsyncSet("async:set", String.class);
+        Assert.assertEquals(3L, set.addAll(Arrays.asList("a", "b", "c")).join().longValue());
+        Assert.assertTrue(set.contains("b").join());
+        Assert.assertTrue(set.remove("b").join());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("a", "c")), set.copy().join());
+    }
+
+    @Test
+    public void testSortedSetAndPriorityQueue() {
+        AsyncRedisSortedSet<String> sortedSet = redisFactory.newAsyncSortedSet("async:zset", String.class);
+        Map<String, Number> scores = new HashMap<>();
+        scores.put("a", 1);
+        scores.put("b", 2);
+        scores.put("c", 3);
+        sortedSet.putAll(scores).join();
+        Assert.assertEquals(2L, sortedSet.count(2, 3).join().longValue());
+        Assert.assertEquals(Arrays.asList("a", "b"), sortedSet.range(0, 1).join());
+        Assert.assertEquals(2, sortedSet.get("b").join().intValue());
+
+        AsyncRedisPriorityQueue<String> queue = redisFactory.newAsyncPriorityQueue("async:pq", String.class);
+        CompletableFuture.allOf(queue.offer("x", 3), queue.offer("y", 1), queue.offer("z", 2)).join();
+        Assert.assertEquals("y", queue.peek().join().getKey());
+        Assert.assertEquals("y", queue.poll().join().getKey());
+        Assert.assertEquals("z", queue.poll().join().getKey());
+        Assert.assertEquals(1, queue.size().join().intValue());
+    }
+
+    @Test
+    public void testAtomic() {
+        AsyncRedisAtomicLong counter = redisFactory.newAsyncAtomicLong("async:counter");
+        List<CompletableFuture<Long>> futures = IntStream.range(0, 20)
+                .mapToObj(i -> counter.incrementAndGet())
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+        Assert.assertEquals(20L, counter.get().join().longValue());
+        Assert.assertEquals(20L, counter.getAndAdd(5).join().longValue());
+        Assert.assertEquals(25L, counter.getAndSet(0).join().longValue());
+
+        AsyncRedisAtomicReference<String> reference = redisFactory.newAsyncAtomicReference("async:ref", String.class);
+        Assert.assertTrue(reference.setIfAbsent("a").join());
+        Assert.assertFalse(reference.setIfAbsent("b").join());
+        Assert.assertTrue(reference.compareAndSet("a", "b").join());
+        Assert.assertFalse(reference.compareAndSet("a", "c").join());
+        Assert.assertEquals("bc", reference.accumulateAndGet("c", String::concat).join());
+        Assert.assertTrue(reference.compareAndReset("bc").join());
+        Assert.assertFalse(reference.exists().join());
+
+        AsyncRedisAtomicReference<String> expire = redisFactory.newAsyncAtomicReference("async:expire", String.class, Duration.ofSeconds(10));
+        expire.set("a").join();
+        expire.getAndSet("b").join();
+        Assert.assertEquals("b", expire.get().join());
+    }
+}
@@ -0,0 +1,138 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.ListOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import cc.whohow.redis.server.RespServer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandKeyword;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class TestBlockingPoolRedis {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static RedisConnectionPool pool;
+    private static BlockingPoolRedis redis;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        pool = new RedisConnectionPool(redisClient, server.getURI(), 1, 16);
+        redis = new BlockingPoolRedis(new StandaloneRedis(redisClient, server.getURI()), pool);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    private static Command<ByteSequence, ByteSequence, Void> command(CommandType type, CommandArgs<ByteSequence, ByteSequence> args) {
+        return new Command<>(type, new VoidOutput(), args);
+    }
+
+    private static CommandArgs<ByteSequence, ByteSequence> args() {
+        return new CommandArgs<>(ByteSequenceRedisCodec.get());
+    }
+
+    @Test
+    public void testIsBlocking() {
+        Assert.assertTrue(BlockingPoolRedis.isBlocking(command(CommandType.BLPOP, args().addKey(ByteSequence.ascii("a")).add(0))));
+        Assert.assertFalse(BlockingPoolRedis.isBlocking(command(CommandType.LPOP, args().addKey(ByteSequence.ascii("a")))));
+        Assert.assertTrue(BlockingPoolRedis.isBlocking(command(CommandType.XREAD, args()
+                .add(CommandKeyword.COUNT).add(10).add("block").add(0)
+                .add("STREAMS").addKey(ByteSequence.ascii("s")).add("$"))));
+        Assert.assertTrue(BlockingPoolRedis.isBlocking(command(CommandType.XREADGROUP, args()
+                .add("GROUP").add("g").add("c").add("BLOCK").add(100)
+                .add("STREAMS").addKey(ByteSequence.ascii("s")).add(">"))));
+        // 键名、组名包含或等于BLOCK
+        Assert.assertFalse(BlockingPoolRedis.isBlocking(command(CommandType.XREAD, args()
+                .add("STREAMS").addKey(ByteSequence.ascii("BLOCK")).add("0"))));
+        Assert.assertFalse(BlockingPoolRedis.isBlocking(command(CommandType.XREAD, args()
+                .add("COUNT").add(1).add("STREAMS").addKey(ByteSequence.ascii("UNBLOCKED")).add("0"))));
+        Assert.assertFalse(BlockingPoolRedis.isBlocking(command(CommandType.XREADGROUP, args()
+                .add("GROUP").add("BLOCK").add("BLOCK").add("STREAMS").addKey(ByteSequence.ascii("s")).add(">"))));
+    }
+
+    @Test
+    public void testBlockingPop() throws Exception {
+        CompletableFuture<List<String>> pop = redis.sendAsync(
+                new ListOutput<>(b -> b == null ? null : StandardCharsets.UTF_8.decode(b).toString()),
+                CommandType.BLPOP, ByteSequence.ascii("blocking:list"), RESP.b(0));
+        Thread.sleep(100);
+        Assert.assertFalse(pop.isDone());
+        Assert.assertEquals(1, pool.getActive());
+        // 共享连接不被阻塞
+        Assert.assertEquals(1L, redis.send(new IntegerOutput(), CommandType.RPUSH,
+                ByteSequence.ascii("blocking:list"), ByteSequence.ascii("a")).longValue());
+        Assert.assertEquals(Arrays.asList("blocking:list", "a"), pop.get(1, TimeUnit.SECONDS));
+        Assert.assertEquals(0, pool.getActive());
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        // BLPOP 0 永久阻塞，取消后连接关闭，连接池名额归还
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<List<ByteSequence>> pop = redis.sendAsync(new ListOutput<>(ByteSequence::copy),
+                    CommandType.BLPOP, ByteSequence.ascii("blocking:empty"), RESP.b(0));
+            Thread.sleep(50);
+            Assert.assertTrue(pop.cancel(false));
+            long deadline = System.currentTimeMillis() + 1000;
+            while (pool.getSize() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(0, pool.getSize());
+        }
+        try {
+            redis.send(new ListOutput<>(ByteSequence::copy), CommandType.BLPOP, Duration.ofMillis(100),
+                    ByteSequence.ascii("blocking:empty"), RESP.b(0));
+            Assert.fail();
+        } catch (io.lettuce.core.RedisCommandTimeoutException ignore) {
+        }
+        CompletableFuture<List<ByteSequence>> pop = redis.sendAsync(new ListOutput<>(ByteSequence::copy),
+                CommandType.BLPOP, ByteSequence.ascii("blocking:list2"), RESP.b(1));
+        redis.send(new IntegerOutput(), CommandType.RPUSH, ByteSequence.ascii("blocking:list2"), ByteSequence.ascii("b"));
+        Assert.assertEquals(2, pop.get(2, TimeUnit.SECONDS).size());
+    }
+
+    @Test
+    public void testCancelAcquire() throws Exception {
+        // 新建连接期间取消，连接到达后归还，不占用连接池名额
+        RedisConnectionPool connectionPool = new RedisConnectionPool(redisClient, server.getURI(), 1, 16);
+        BlockingPoolRedis blockingRedis = new BlockingPoolRedis(redis, connectionPool);
+        for (int i = 0; i < 3; i++) {
+            CompletableFuture<List<ByteSequence>> pop = blockingRedis.sendAsync(new ListOutput<>(ByteSequence::copy),
+                    CommandType.BLPOP, ByteSequence.ascii("blocking:acquire"), RESP.b(0));
+            Assert.assertTrue(pop.cancel(false));
+            long deadline = System.currentTimeMillis() + 1000;
+            while (connectionPool.getActive() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertEquals(0, connectionPool.getActive());
+        }
+        CompletableFuture<List<ByteSequence>> pop = blockingRedis.sendAsync(new ListOutput<>(ByteSequence::copy),
+                CommandType.BLPOP, ByteSequence.ascii("blocking:acquire"), RESP.b(1));
+        redis.send(new IntegerOutput(), CommandType.RPUSH, ByteSequence.ascii("blocking:acquire"), ByteSequence.ascii("c"));
+        Assert.assertEquals(2, pop.get(2, TimeUnit.SECONDS).size());
+        connectionPool.close();
+        Assert.assertEquals(0, connectionPool.getSize());
+        Assert.assertEquals(0, connectionPool.getActive());
+    }
+}
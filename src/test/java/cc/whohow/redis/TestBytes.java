@@ -1,11 +1,17 @@
 package cc.whohow.redis;
 
+import cc.whohow.redis.bytes.ByteBufWritable;
 import cc.whohow.redis.bytes.ByteSequence;
 import cc.whohow.redis.bytes.ByteSummaryStatistics;
 import cc.whohow.redis.bytes.ConcatByteSequence;
+import cc.whohow.redis.bytes.LongByteSequence;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.nio.charset.StandardCharsets;
+
 public class TestBytes {
     @Test
     public void testCeilingNextPowerOfTwo() {
@@ -41,4 +47,47 @@ public class TestBytes {
         Assert.assertFalse(ByteSequence.utf8("abc").contentEquals(ByteSequence.ascii("abd")));
         Assert.assertTrue(new ConcatByteSequence(ByteSequence.utf8("abc"), ByteSequence.ascii("de")).contentEquals(ByteSequence.ascii("abcde")));
     }
+
+    @Test
+    public void testLongByteSequence() {
+        long[] values = {0, 7, -7, 10, 129, -1000, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long value : values) {
+            ByteSequence expected = ByteSequence.ascii(Long.toString(value));
+            LongByteSequence actual = new LongByteSequence(value);
+            Assert.assertEquals(expected.length(), actual.length());
+            Assert.assertTrue(expected.contentEquals(actual));
+            Assert.assertEquals(expected.hashCode(), actual.hashCode());
+
+            ByteBuf heap = Unpooled.buffer(1);
+            ByteBuf direct = Unpooled.directBuffer(1);
+            try {
+                heap.writeByte('$');
+                direct.writeByte('$');
+                actual.writeTo(heap);
+                actual.writeTo(direct);
+                Assert.assertEquals("$" + value, heap.toString(StandardCharsets.US_ASCII));
+                Assert.assertEquals("$" + value, direct.toString(StandardCharsets.US_ASCII));
+            } finally {
+                heap.release();
+                direct.release();
+            }
+        }
+    }
+
+    @Test
+    public void testNumberEncoding() {
+        Assert.assertEquals("42", RESP.b(42.0).toString());
+        Assert.assertEquals("-3", RESP.b(-3.0).toString());
+        Assert.assertEquals("1.5", RESP.b(1.5).toString());
+        Assert.assertEquals("1000", RESP.b((Number) 1000).toString());
+        Assert.assertEquals("0.25", RESP.b((Number) 0.25f).toString());
+
+        ByteBuf buffer = Unpooled.buffer();
+        try {
+            ByteBufWritable.write(new ConcatByteSequence(ByteSequence.ascii("k:"), RESP.b(1024L)), buffer);
+            Assert.assertEquals("k:1024", buffer.toString(StandardCharsets.US_ASCII));
+        } finally {
+            buffer.release();
+        }
+    }
 }
@@ -1,8 +1,12 @@
 package cc.whohow.redis;
 
 import cc.whohow.redis.jcache.Cache;
+import cc.whohow.redis.jcache.CacheLoader;
 import cc.whohow.redis.jcache.ImmutableGeneratedCacheKey;
+import cc.whohow.redis.jcache.InProcessCache;
+import cc.whohow.redis.jcache.RedisCache;
 import cc.whohow.redis.jcache.RedisCacheManager;
+import cc.whohow.redis.jcache.RedisTierCache;
 import cc.whohow.redis.jcache.configuration.MutableRedisCacheConfiguration;
 import cc.whohow.redis.jcache.configuration.RedisCacheConfiguration;
 import cc.whohow.redis.util.RedisKeyspaceNotification;
@@ -14,12 +18,16 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import javax.cache.annotation.GeneratedCacheKey;
-import java.io.FileInputStream;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
 
 public class TestCache {
@@ -35,27 +43,25 @@ public class TestCache {
     @BeforeClass
     @SuppressWarnings({"rawtypes", "unchecked"})
     public static void setUp() throws Exception {
-        try (InputStream stream = new FileInputStream("redis.properties")) {
-            properties = new Properties();
-            properties.load(stream);
-            redisURI = RedisURI.create(properties.getProperty("uri"));
-            redis = new LoggingRedis(new StandaloneRedis(redisClient, redisURI));
-
-            redisTracking = new RedisKeyspaceNotification(redisClient, redisURI);
-
-            MutableRedisCacheConfiguration configuration = new MutableRedisCacheConfiguration<>();
-            configuration.setName("c.w.Test");
-            configuration.setKeyTypeCanonicalName(new String[]{String.class.getCanonicalName()});
-            configuration.setValueTypeCanonicalName(Data.class.getCanonicalName());
+        properties = RedisTestEnvironment.properties();
+        redisURI = RedisURI.create(properties.getProperty("uri"));
+        redis = new LoggingRedis(new StandaloneRedis(redisClient, redisURI));
+
+        RedisKeyspaceNotification redisKeyspaceNotification = new RedisKeyspaceNotification(redisClient, redisURI);
+        redisTracking = redisKeyspaceNotification;
+
+        MutableRedisCacheConfiguration configuration = new MutableRedisCacheConfiguration<>();
+        configuration.setName("c.w.Test");
+        configuration.setKeyTypeCanonicalName(new String[]{String.class.getCanonicalName()});
+        configuration.setValueTypeCanonicalName(Data.class.getCanonicalName());
 //            configuration.setInProcessCacheEnabled(false);
 
-            Map<String, RedisCacheConfiguration> cacheConfigurationMap = new HashMap<>();
-            cacheConfigurationMap.put(configuration.getName(), configuration);
+        Map<String, RedisCacheConfiguration> cacheConfigurationMap = new HashMap<>();
+        cacheConfigurationMap.put(configuration.getName(), configuration);
 
-            cacheManager = new RedisCacheManager(redis, redisTracking, cacheConfigurationMap::get);
+        cacheManager = new RedisCacheManager(redis, redisTracking, cacheConfigurationMap::get);
 
-            cache = cacheManager.createCache(configuration.getName(), configuration);
-        }
+        cache = cacheManager.createCache(configuration.getName(), configuration);
     }
 
     @AfterClass
@@ -116,4 +122,55 @@ public class TestCache {
         Assert.assertNull(cache.get(ImmutableGeneratedCacheKey.of("b")));
         Assert.assertNull(cache.get(ImmutableGeneratedCacheKey.of("c")));
     }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetAll() throws Exception {
+        if (!(cache instanceof RedisTierCache)) {
+            return;
+        }
+        RedisTierCache<GeneratedCacheKey, Data> tierCache = (RedisTierCache<GeneratedCacheKey, Data>) cache;
+        InProcessCache<GeneratedCacheKey, Data> inProcessCache = cache.unwrap(InProcessCache.class);
+        GeneratedCacheKey a = ImmutableGeneratedCacheKey.of("getAll:a");
+        GeneratedCacheKey b = ImmutableGeneratedCacheKey.of("getAll:b");
+        GeneratedCacheKey c = ImmutableGeneratedCacheKey.of("getAll:c");
+        GeneratedCacheKey d = ImmutableGeneratedCacheKey.of("getAll:d");
+        cache.remove(d);
+        cache.put(a, random());
+        cache.put(b, random());
+        cache.put(c, random());
+        // 等待写入触发的失效通知
+        Thread.sleep(200);
+        Assert.assertNotNull(cache.get(a));
+
+        long redisHits = tierCache.getRedisCacheStatistics().getCacheHits();
+        long redisMisses = tierCache.getRedisCacheStatistics().getCacheMisses();
+        Map<GeneratedCacheKey, Data> values = cache.getAll(new LinkedHashSet<>(Arrays.asList(a, b, c, d)));
+        Assert.assertEquals(Arrays.asList(a, b, c), new ArrayList<>(values.keySet()));
+        // 只读取内存缓存未命中的键，并回填内存缓存
+        Assert.assertEquals(redisHits + 2, tierCache.getRedisCacheStatistics().getCacheHits());
+        Assert.assertEquals(redisMisses + 1, tierCache.getRedisCacheStatistics().getCacheMisses());
+        Assert.assertEquals(values.get(b), inProcessCache.get(b));
+        Assert.assertEquals(values.get(c), inProcessCache.get(c));
+
+        Data dataD = random();
+        List<Set<? extends GeneratedCacheKey>> loads = new ArrayList<>();
+        Map<GeneratedCacheKey, Data> loaded = tierCache.getAll(new LinkedHashSet<>(Arrays.asList(a, d)), new CacheLoader<GeneratedCacheKey, Data>() {
+            @Override
+            public Data load(GeneratedCacheKey key) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public Map<GeneratedCacheKey, Data> loadAll(Iterable<? extends GeneratedCacheKey> keys) {
+                Set<GeneratedCacheKey> set = new LinkedHashSet<>();
+                keys.forEach(set::add);
+                loads.add(set);
+                return Collections.singletonMap(d, dataD);
+            }
+        });
+        Assert.assertEquals(Collections.singletonList(Collections.singleton(d)), loads);
+        Assert.assertEquals(dataD, loaded.get(d));
+        Assert.assertEquals(dataD, tierCache.unwrap(RedisCache.class).get(d));
+    }
 }
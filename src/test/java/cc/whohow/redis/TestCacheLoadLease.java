@@ -0,0 +1,129 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.bytes.ConcatByteSequence;
+import cc.whohow.redis.jcache.Cache;
+import cc.whohow.redis.jcache.ImmutableGeneratedCacheKey;
+import cc.whohow.redis.jcache.RedisCache;
+import cc.whohow.redis.jcache.RedisCacheManager;
+import cc.whohow.redis.jcache.configuration.MutableRedisCacheConfiguration;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.RedisKeyspaceNotification;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.cache.annotation.GeneratedCacheKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 多节点同时未命中时只加载一次
+ */
+public class TestCacheLoadLease {
+    private static final RedisClient redisClient = RedisClient.create();
+    private static final int NODES = 4;
+
+    private static RespServer server;
+    private static Redis redis;
+    private static RedisTracking redisTracking;
+    private static RedisCacheManager cacheManager;
+    private static List<Cache<GeneratedCacheKey, String>> caches = new ArrayList<>();
+    private static ExecutorService executor;
+
+    @BeforeClass
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static void setUp() {
+        server = new RespServer().start();
+        executor = Executors.newFixedThreadPool(NODES * 4);
+
+        MutableRedisCacheConfiguration configuration = new MutableRedisCacheConfiguration<>();
+        configuration.setName("c.w.TestLoadLease");
+        configuration.setKeyTypeCanonicalName(new String[]{String.class.getCanonicalName()});
+        configuration.setValueTypeCanonicalName(String.class.getCanonicalName());
+        configuration.setInProcessCacheEnabled(false);
+        configuration.setExpiryForUpdate(60);
+        configuration.setLoadLeaseTime(2);
+        configuration.setLoadLeaseTimeUnit(TimeUnit.SECONDS);
+
+        redis = new StandaloneRedis(redisClient, server.getURI());
+        RedisKeyspaceNotification redisKeyspaceNotification = new RedisKeyspaceNotification(redisClient, server.getURI());
+        redisTracking = redisKeyspaceNotification;
+        cacheManager = new RedisCacheManager(redis, redisTracking, name -> configuration);
+        // 每个缓存实例模拟一个节点
+        for (int i = 0; i < NODES; i++) {
+            caches.add(cacheManager.newRedisCache(configuration));
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        for (Cache<GeneratedCacheKey, String> cache : caches) {
+            cache.close();
+        }
+        cacheManager.close();
+        redisTracking.close();
+        redis.close();
+        executor.shutdownNow();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testSingleLoad() throws Exception {
+        GeneratedCacheKey key = ImmutableGeneratedCacheKey.of("hot");
+        caches.get(0).remove(key);
+
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < NODES * 4; i++) {
+            Cache<GeneratedCacheKey, String> cache = caches.get(i % NODES);
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    start.await();
+                    return cache.get(key, k -> {
+                        loads.incrementAndGet();
+                        try {
+                            Thread.sleep(300);
+                        } catch (InterruptedException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return "value";
+                    });
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }, executor));
+        }
+        start.countDown();
+        for (CompletableFuture<String> future : futures) {
+            Assert.assertEquals("value", future.get(10, TimeUnit.SECONDS));
+        }
+        Assert.assertEquals(1, loads.get());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testLeaseExpired() throws Exception {
+        GeneratedCacheKey key = ImmutableGeneratedCacheKey.of("crash");
+        caches.get(0).remove(key);
+        // 模拟加载节点崩溃：租约存在但值不会写入
+        RedisCache<GeneratedCacheKey, String> redisCache = caches.get(0).unwrap(RedisCache.class);
+        ByteSequence leaseKey = new ConcatByteSequence(ByteSequence.ascii("_lease:"), redisCache.getKeyCodec().encode(key));
+        redis.send(new StatusOutput(), CommandType.SET, leaseKey, ByteSequence.ascii("dead"), RESP.px(), RESP.b(500));
+        long time = System.currentTimeMillis();
+        Assert.assertEquals("recovered", caches.get(1).get(key, k -> "recovered"));
+        Assert.assertTrue(System.currentTimeMillis() - time >= 400);
+    }
+}
@@ -0,0 +1,84 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.jcache.Cache;
+import cc.whohow.redis.jcache.ImmutableGeneratedCacheKey;
+import cc.whohow.redis.jcache.RedisCacheManager;
+import cc.whohow.redis.jcache.RedisExpireCache;
+import cc.whohow.redis.jcache.configuration.MutableRedisCacheConfiguration;
+import cc.whohow.redis.server.RespServer;
+import io.lettuce.core.RedisClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.cache.annotation.GeneratedCacheKey;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestCacheRefreshAhead {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static Redis redis;
+    private static RedisCacheManager cacheManager;
+    private static Cache<GeneratedCacheKey, String> cache;
+
+    @BeforeClass
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static void setUp() {
+        server = new RespServer().start();
+        redis = new StandaloneRedis(redisClient, server.getURI());
+
+        MutableRedisCacheConfiguration configuration = new MutableRedisCacheConfiguration<>();
+        configuration.setName("c.w.TestRefreshAhead");
+        configuration.setKeyTypeCanonicalName(new String[]{String.class.getCanonicalName()});
+        configuration.setValueTypeCanonicalName(String.class.getCanonicalName());
+        configuration.setInProcessCacheEnabled(false);
+        configuration.setExpiryForUpdate(1);
+        configuration.setExpiryForUpdateTimeUnit(TimeUnit.SECONDS);
+        configuration.setRefreshAheadBeta(100);
+
+        cacheManager = new RedisCacheManager(redis, null, name -> configuration);
+        cache = cacheManager.createCache(configuration.getName(), configuration);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        cacheManager.close();
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testRefreshAhead() throws Exception {
+        Assert.assertTrue(cache instanceof RedisExpireCache);
+        GeneratedCacheKey key = ImmutableGeneratedCacheKey.of("a");
+        AtomicInteger version = new AtomicInteger();
+        cache.remove(key);
+        Assert.assertEquals("v1", cache.get(key, k -> load(version)));
+        Assert.assertTrue(((RedisExpireCache<?, ?>) cache).getLoadTime() >= 20);
+
+        // 加载耗时 * beta 远大于过期时间，读取返回当前值并触发后台刷新
+        long deadline = System.currentTimeMillis() + 3000;
+        String value = "v1";
+        while ("v1".equals(value) && System.currentTimeMillis() < deadline) {
+            value = cache.get(key, k -> load(version));
+            Assert.assertNotNull(value);
+            Thread.sleep(10);
+        }
+        Assert.assertEquals("v2", value);
+        // 刷新在过期前完成，读取从未未命中
+        Assert.assertEquals(1, cache.getCacheStatistics().getCacheMisses());
+    }
+
+    private static String load(AtomicInteger version) {
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return "v" + version.incrementAndGet();
+    }
+}
@@ -0,0 +1,205 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.jcache.Cache;
+import cc.whohow.redis.jcache.CacheValue;
+import cc.whohow.redis.jcache.ImmutableGeneratedCacheKey;
+import cc.whohow.redis.jcache.InProcessCache;
+import cc.whohow.redis.jcache.RedisCacheManager;
+import cc.whohow.redis.jcache.RedisTierCache;
+import cc.whohow.redis.jcache.configuration.MutableRedisCacheConfiguration;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.ClientTrackingRedisTracking;
+import cc.whohow.redis.util.RedisKeyspaceNotification;
+import io.lettuce.core.RedisClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.cache.annotation.GeneratedCacheKey;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Redis断开期间提供过时值，重连后重新验证
+ */
+public class TestCacheStale {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static Redis redis;
+    private static RedisTracking redisTracking;
+    private static RedisCacheManager cacheManager;
+    private static MutableRedisCacheConfiguration<GeneratedCacheKey, String> configuration;
+    private static RedisTierCache<GeneratedCacheKey, String> cache;
+
+    @BeforeClass
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static void setUp() {
+        server = new RespServer().start();
+        redis = new StandaloneRedis(redisClient, server.getURI());
+        RedisKeyspaceNotification redisKeyspaceNotification = new RedisKeyspaceNotification(redisClient, server.getURI());
+        redisTracking = redisKeyspaceNotification;
+
+        configuration = new MutableRedisCacheConfiguration<>();
+        configuration.setName("c.w.TestStale");
+        configuration.setKeyTypeCanonicalName(new String[]{String.class.getCanonicalName()});
+        configuration.setValueTypeCanonicalName(String.class.getCanonicalName());
+        configuration.setExpiryForUpdate(60);
+        configuration.setMaxStaleness(500);
+        configuration.setMaxStalenessTimeUnit(TimeUnit.MILLISECONDS);
+
+        cacheManager = new RedisCacheManager(redis, redisTracking, name -> (MutableRedisCacheConfiguration) configuration);
+        cache = cacheManager.newRedisTierCache(configuration);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        cache.close();
+        cacheManager.close();
+        redisTracking.close();
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Before
+    public void reset() {
+        cache.onRedisConnected(null, null);
+        cache.removeAll();
+    }
+
+    @Test
+    public void testServeStale() throws Exception {
+        GeneratedCacheKey key = ImmutableGeneratedCacheKey.of("a");
+        cache.put(key, "v1");
+        Assert.assertEquals("v1", cache.get(key));
+        Assert.assertFalse(cache.getValue(key).isStale());
+
+        cache.onRedisDisconnected(null);
+        CacheValue<String> value = cache.getValue(key);
+        Assert.assertEquals("v1", value.get());
+        Assert.assertTrue(value.isStale());
+
+        // 超过最大过时时间后清空
+        Thread.sleep(600);
+        Assert.assertNull(cache.getValue(ImmutableGeneratedCacheKey.of("b")));
+        @SuppressWarnings("unchecked")
+        Cache<GeneratedCacheKey, String> local = cache.unwrap(InProcessCache.class);
+        Assert.assertNull(local.get(key));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRevalidate() throws Exception {
+        Cache<GeneratedCacheKey, String> local = cache.unwrap(InProcessCache.class);
+        for (int i = 0; i < 250; i++) {
+            GeneratedCacheKey key = ImmutableGeneratedCacheKey.of(String.valueOf(i));
+            cache.put(key, "v1");
+            Assert.assertEquals("v1", cache.get(key));
+        }
+
+        // 断开期间错过的更新
+        cache.onRedisDisconnected(null);
+        redisTracking.removeListener(configuration.getRedisKeyPattern(), cache);
+        RedisTierCache<GeneratedCacheKey, String> writer = cacheManager.newRedisTierCache(configuration);
+        try {
+            writer.put(ImmutableGeneratedCacheKey.of("0"), "v2");
+            writer.remove(ImmutableGeneratedCacheKey.of("1"));
+            writer.put(ImmutableGeneratedCacheKey.of("249"), "v2");
+            // 等待通知送达（被忽略）
+            Thread.sleep(200);
+        } finally {
+            redisTracking.addListener(configuration.getRedisKeyPattern(), cache);
+            writer.close();
+        }
+        Assert.assertEquals("v1", cache.get(ImmutableGeneratedCacheKey.of("0")));
+
+        // 重连后重新验证，而非清空
+        cache.onRedisConnected(null, null);
+        long deadline = System.currentTimeMillis() + 3000;
+        while (cache.getValue(ImmutableGeneratedCacheKey.of("2")).isStale() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertFalse(cache.getValue(ImmutableGeneratedCacheKey.of("2")).isStale());
+        Assert.assertEquals("v2", local.get(ImmutableGeneratedCacheKey.of("0")));
+        Assert.assertNull(local.get(ImmutableGeneratedCacheKey.of("1")));
+        Assert.assertEquals("v2", local.get(ImmutableGeneratedCacheKey.of("249")));
+        Assert.assertEquals("v1", local.get(ImmutableGeneratedCacheKey.of("2")));
+    }
+
+    @Test
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void testClientTrackingReconnect() throws Exception {
+        MutableRedisCacheConfiguration<GeneratedCacheKey, String> trackingConfiguration = new MutableRedisCacheConfiguration<>(configuration);
+        trackingConfiguration.setName("c.w.TestStaleTracking");
+        trackingConfiguration.setMaxStaleness(5);
+        trackingConfiguration.setMaxStalenessTimeUnit(TimeUnit.SECONDS);
+        // 每个Redis地址只能有一个缓存管理器
+        RespServer trackingServer = new RespServer().start();
+        RedisClient trackingClient = RedisClient.create();
+        Redis trackingRedis = new StandaloneRedis(redisClient, trackingServer.getURI());
+        ClientTrackingRedisTracking clientTracking = new ClientTrackingRedisTracking(trackingClient, trackingServer.getURI());
+        RedisCacheManager trackingManager = new RedisCacheManager(trackingRedis, clientTracking, name -> (MutableRedisCacheConfiguration) trackingConfiguration);
+        RedisTierCache<GeneratedCacheKey, String> trackingCache = trackingManager.newRedisTierCache(trackingConfiguration);
+        try {
+            Cache<GeneratedCacheKey, String> local = trackingCache.unwrap(InProcessCache.class);
+            for (int i = 0; i < 250; i++) {
+                trackingCache.put(ImmutableGeneratedCacheKey.of(String.valueOf(i)), "v1");
+            }
+            // 写入产生的失效消息送达后再读入内存缓存
+            Thread.sleep(200);
+            for (int i = 0; i < 250; i++) {
+                Assert.assertEquals("v1", trackingCache.get(ImmutableGeneratedCacheKey.of(String.valueOf(i))));
+            }
+            Assert.assertEquals("v1", local.get(ImmutableGeneratedCacheKey.of("2")));
+            // 错过的更新
+            clientTracking.removeListener(trackingConfiguration.getRedisKeyPattern(), trackingCache);
+            RedisTierCache<GeneratedCacheKey, String> writer = trackingManager.newRedisTierCache(trackingConfiguration);
+            try {
+                writer.put(ImmutableGeneratedCacheKey.of("0"), "v2");
+                Thread.sleep(200);
+            } finally {
+                clientTracking.addListener(trackingConfiguration.getRedisKeyPattern(), trackingCache);
+                writer.close();
+            }
+
+            // 跟踪连接重建后全部失效，重新验证而非清空
+            AtomicInteger invalidateAll = new AtomicInteger();
+            clientTracking.addListener(trackingConfiguration.getRedisKeyPattern(), new RedisTracking.Listener() {
+                @Override
+                public void onInvalidate(ByteSequence key) {
+                }
+
+                @Override
+                public void onInvalidateAll() {
+                    invalidateAll.incrementAndGet();
+                }
+            });
+            trackingServer.killClients();
+            long deadline = System.currentTimeMillis() + 5000;
+            while (invalidateAll.get() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertTrue(invalidateAll.get() > 0);
+            GeneratedCacheKey probe = ImmutableGeneratedCacheKey.of("249");
+            while (trackingCache.getValue(probe).isStale() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assert.assertFalse(trackingCache.getValue(probe).isStale());
+            Assert.assertEquals("v1", local.get(ImmutableGeneratedCacheKey.of("2")));
+            // 错过的更新被重新验证（更新或移除），不再提供旧值
+            Assert.assertNotEquals("v1", local.get(ImmutableGeneratedCacheKey.of("0")));
+            Assert.assertEquals("v2", trackingCache.get(ImmutableGeneratedCacheKey.of("0")));
+        } finally {
+            trackingCache.close();
+            trackingManager.close();
+            clientTracking.close();
+            trackingRedis.close();
+            trackingClient.shutdown();
+            trackingServer.close();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.ClientTrackingRedisTracking;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestClientTracking {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static Redis redis;
+    private static ClientTrackingRedisTracking redisTracking;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        redis = new StandaloneRedis(redisClient, server.getURI());
+        redisTracking = new ClientTrackingRedisTracking(redisClient, server.getURI());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redisTracking.close();
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    private static void set(String key) {
+        Assert.assertEquals("OK", redis.send(new StatusOutput(), CommandType.SET,
+                ByteSequence.ascii(key), ByteSequence.ascii("v")));
+    }
+
+    /**
+     * 重复写入直到收到失效消息
+     */
+    private static void awaitInvalidate(BlockingQueue<String> keys, String key) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                set(key);
+            } catch (Exception e) {
+                Thread.sleep(50);
+                continue;
+            }
+            String invalidated = keys.poll(100, TimeUnit.MILLISECONDS);
+            while (invalidated != null) {
+                if (invalidated.equals(key)) {
+                    return;
+                }
+                invalidated = keys.poll();
+            }
+        }
+        Assert.fail("no invalidation for " + key);
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        BlockingQueue<String> keys = new LinkedBlockingQueue<>();
+        AtomicInteger invalidateAll = new AtomicInteger();
+        redisTracking.addListener("tracking:*", new RedisTracking.Listener() {
+            @Override
+            public void onInvalidate(ByteSequence key) {
+                keys.add(key.toString(StandardCharsets.US_ASCII));
+            }
+
+            @Override
+            public void onInvalidateAll() {
+                invalidateAll.incrementAndGet();
+            }
+        });
+        set("tracking:a");
+        Assert.assertEquals("tracking:a", keys.poll(1, TimeUnit.SECONDS));
+
+        // 订阅连接与跟踪连接同时断开、连续断开，重建后失效消息不丢失
+        for (int i = 0; i < 3; i++) {
+            Assert.assertTrue(server.killClients() >= 2);
+            awaitInvalidate(keys, "tracking:" + i);
+        }
+        Assert.assertTrue(invalidateAll.get() > 0);
+
+        // 重建期间注册新前缀，重建完成后一并开启
+        server.killClients();
+        redisTracking.addListener("other:*", key -> keys.add(key.toString(StandardCharsets.US_ASCII)));
+        awaitInvalidate(keys, "other:a");
+        awaitInvalidate(keys, "tracking:b");
+    }
+}
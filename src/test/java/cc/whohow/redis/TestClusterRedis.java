@@ -0,0 +1,208 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.StringCodec;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.ListOutput;
+import cc.whohow.redis.lettuce.ScanOutput;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.lettuce.StringOutput;
+import cc.whohow.redis.server.RespCommands;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.RedisIterator;
+import cc.whohow.redis.util.RedisKeyScanIterator;
+import cc.whohow.redis.util.RedisScanIteration;
+import io.lettuce.core.cluster.RedisClusterClient;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 两个进程内节点各负责一半槽位
+ */
+public class TestClusterRedis {
+    private static final String[] NODE_IDS = {
+            "1111111111111111111111111111111111111111",
+            "2222222222222222222222222222222222222222"};
+    private static final String[] SLOTS = {"0-8191", "8192-16383"};
+
+    private static RespServer[] servers;
+    private static RedisClusterClient redisClient;
+    private static ClusterRedis redis;
+
+    @BeforeClass
+    public static void setUp() {
+        servers = new RespServer[]{new RespServer().start(), new RespServer().start()};
+        for (int i = 0; i < servers.length; i++) {
+            StringBuilder nodes = new StringBuilder();
+            for (int j = 0; j < servers.length; j++) {
+                nodes.append(NODE_IDS[j]).append(" 127.0.0.1:").append(servers[j].getPort())
+                        .append("@").append(servers[j].getPort() + 10000)
+                        .append(i == j ? " myself,master" : " master")
+                        .append(" - 0 0 ").append(j + 1).append(" connected ").append(SLOTS[j]).append("\n");
+            }
+            servers[i].config("cluster-nodes", nodes.toString());
+        }
+        redisClient = RedisClusterClient.create(servers[0].getURI());
+        redis = new ClusterRedis(redisClient, servers[0].getURI());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redis.close();
+        redisClient.shutdown();
+        for (RespServer server : servers) {
+            server.close();
+        }
+    }
+
+    @Before
+    public void flush() {
+        for (RespServer server : servers) {
+            server.flushAll();
+        }
+    }
+
+    private static ByteSequence key(int i) {
+        return ByteSequence.ascii("cluster:" + i);
+    }
+
+    private static int size(RespServer server) {
+        return server.call(() -> server.getCommands().getDatabase().size());
+    }
+
+    private static List<ByteSequence> mset(int n) {
+        List<ByteSequence> keyValues = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            keyValues.add(key(i));
+            keyValues.add(ByteSequence.ascii(String.valueOf(i)));
+        }
+        Assert.assertEquals("OK", redis.send(new StatusOutput(), CommandType.MSET, keyValues));
+        return keyValues;
+    }
+
+    @Test
+    public void testSplit() {
+        mset(50);
+        // 按槽拆分后落在各自节点
+        Assert.assertTrue(size(servers[0]) > 0);
+        Assert.assertTrue(size(servers[1]) > 0);
+        Assert.assertEquals(50, size(servers[0]) + size(servers[1]));
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(String.valueOf(i), redis.send(new StringOutput(), CommandType.GET, key(i)));
+        }
+
+        List<ByteSequence> keys = new ArrayList<>();
+        for (int i = 49; i >= 0; i--) {
+            keys.add(key(i));
+            if (i % 10 == 0) {
+                keys.add(ByteSequence.ascii("cluster:missing:" + i));
+            }
+        }
+        List<String> values = redis.send(new ListOutput<>(StringCodec.UTF8.get()::decode), CommandType.MGET, keys);
+        Assert.assertEquals(keys.size(), values.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String key = keys.get(i).toString(StandardCharsets.US_ASCII);
+            if (key.startsWith("cluster:missing:")) {
+                Assert.assertNull(values.get(i));
+            } else {
+                Assert.assertEquals(key.substring("cluster:".length()), values.get(i));
+            }
+        }
+
+        Assert.assertEquals(50L, redis.send(new IntegerOutput(), CommandType.EXISTS, keys).longValue());
+        Assert.assertEquals(50L, redis.send(new IntegerOutput(), CommandType.DEL, keys).longValue());
+        Assert.assertEquals(0, size(servers[0]) + size(servers[1]));
+    }
+
+    @Test
+    public void testSplitMarkedKeys() {
+        mset(20);
+        // 调用方以addKey构造的多键命令同样按槽拆分
+        CommandArgs<ByteSequence, ByteSequence> args = new CommandArgs<>(ByteSequenceRedisCodec.get());
+        for (int i = 0; i < 20; i++) {
+            args.addKey(key(i));
+        }
+        List<String> values = redis.send(new Command<>(CommandType.MGET,
+                new ListOutput<>(StringCodec.UTF8.get()::decode), args));
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(String.valueOf(i), values.get(i));
+        }
+
+        CommandArgs<ByteSequence, ByteSequence> del = new CommandArgs<>(ByteSequenceRedisCodec.get());
+        for (int i = 0; i < 20; i++) {
+            del.addKey(key(i));
+        }
+        Assert.assertEquals(20L, redis.send(new Command<>(CommandType.DEL, new IntegerOutput(), del)).longValue());
+    }
+
+    @Test
+    public void testScan() {
+        mset(100);
+        // 游标格式：节点首个槽:节点游标
+        RedisScanIteration<ByteSequence> first = redis.send(new ScanOutput<>(ByteSequence::copy),
+                CommandType.SCAN, ByteSequence.ascii("0"), ByteSequence.ascii("COUNT"), ByteSequence.ascii("1000"));
+        Assert.assertEquals("8192:0", first.getCursor());
+        RedisScanIteration<ByteSequence> second = redis.send(new ScanOutput<>(ByteSequence::copy),
+                CommandType.SCAN, ByteSequence.ascii(first.getCursor()), ByteSequence.ascii("COUNT"), ByteSequence.ascii("1000"));
+        Assert.assertEquals("0", second.getCursor());
+        Assert.assertEquals(100, first.getArray().size() + second.getArray().size());
+
+        RedisScanIteration<ByteSequence> page = redis.send(new ScanOutput<>(ByteSequence::copy),
+                CommandType.SCAN, ByteSequence.ascii("0"), ByteSequence.ascii("COUNT"), ByteSequence.ascii("5"));
+        Assert.assertTrue(page.getCursor().startsWith("0:"));
+
+        Set<String> keys = new HashSet<>();
+        new RedisIterator<>(new RedisKeyScanIterator<>(redis, StringCodec.UTF8.get()::decode, "cluster:*", 7))
+                .forEachRemaining(keys::add);
+        Assert.assertEquals(100, keys.size());
+    }
+
+    @Test
+    public void testScriptLoad() throws Exception {
+        AtomicInteger[] loads = new AtomicInteger[servers.length];
+        for (int i = 0; i < servers.length; i++) {
+            AtomicInteger counter = loads[i] = new AtomicInteger();
+            RespServer server = servers[i];
+            server.call(() -> server.getCommands().register("SCRIPT", -2, (session, args) -> {
+                counter.incrementAndGet();
+                return RespCommands.sha1Hex(args.get(2));
+            }));
+        }
+        RedisScript script = RedisScript.get("get");
+        try (RedisScriptRegistry registry = new RedisScriptRegistry(redis, Collections.singletonList(script))) {
+            registry.load().join();
+            Thread.sleep(200);
+            // SCRIPT LOAD广播到所有主节点
+            int loaded = loads[0].get();
+            Assert.assertTrue(loaded >= 1);
+            Assert.assertEquals(loaded, loads[1].get());
+            Assert.assertTrue(registry.isLoaded(script));
+
+            // 多个连接同时重连合并为一次加载（进行中时至多补加载一次），且不影响已加载状态
+            for (int i = 0; i < 10; i++) {
+                registry.onRedisConnected(null, new InetSocketAddress("127.0.0.1", servers[i % 2].getPort()));
+            }
+            Assert.assertTrue(registry.isLoaded(script));
+            Thread.sleep(200);
+            Assert.assertTrue(loads[0].get() > loaded);
+            Assert.assertTrue(loads[0].get() <= loaded + 2);
+            Assert.assertEquals(loads[0].get(), loads[1].get());
+        }
+    }
+}
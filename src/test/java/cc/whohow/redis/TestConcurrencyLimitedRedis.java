@@ -0,0 +1,160 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.RedisLock;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TestConcurrencyLimitedRedis {
+    private static final RedisClient redisClient = RedisClient.create();
+    private static final ByteSequence COUNTER = ByteSequence.utf8("limit:counter");
+
+    private static RespServer server;
+    private static ScheduledExecutorService executor;
+    private static TestHedgingRedis.SlowRedis slow;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        executor = Executors.newScheduledThreadPool(2);
+        slow = new TestHedgingRedis.SlowRedis(new StandaloneRedis(redisClient, server.getURI()), executor);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        slow.close();
+        redisClient.shutdown();
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Before
+    public void flush() {
+        server.flushAll();
+        slow.delay = 0;
+    }
+
+    private static ConcurrencyLimitedRedis limited(int limit, int maxQueueSize, Duration maxQueueTime) {
+        return new ConcurrencyLimitedRedis(slow, executor, limit, limit, limit, maxQueueSize, maxQueueTime);
+    }
+
+    private static CompletableFuture<Long> incr(Redis redis) {
+        return redis.sendAsync(new IntegerOutput(), CommandType.INCR, COUNTER);
+    }
+
+    private static boolean isOverload(CompletableFuture<?> future) {
+        return future.handle((r, e) -> e instanceof RedisOverloadException ||
+                e instanceof CompletionException && e.getCause() instanceof RedisOverloadException).join();
+    }
+
+    @Test
+    public void testShedding() {
+        ConcurrencyLimitedRedis redis = limited(2, 2, Duration.ofMillis(50));
+        slow.delay = 200;
+        List<CompletableFuture<Long>> running = Arrays.asList(incr(redis), incr(redis));
+        List<CompletableFuture<Long>> queued = Arrays.asList(incr(redis), incr(redis));
+        Assert.assertEquals(2, redis.getInFlight());
+        Assert.assertEquals(2, redis.getQueueLength());
+
+        // 队列满，立即失败
+        CompletableFuture<Long> rejected = incr(redis);
+        Assert.assertTrue(rejected.isCompletedExceptionally());
+        Assert.assertTrue(isOverload(rejected));
+
+        // 排队超时失败
+        for (CompletableFuture<Long> future : queued) {
+            Assert.assertTrue(isOverload(future));
+        }
+        Assert.assertEquals(0, redis.getQueueLength());
+        for (CompletableFuture<Long> future : running) {
+            Assert.assertTrue(future.join() > 0);
+        }
+        Assert.assertEquals(0, redis.getInFlight());
+        Assert.assertEquals(3, redis.getRejectionCount());
+        Assert.assertEquals(3L, redis.getRejectionCounts().get("NORMAL").longValue());
+        // 被拒绝的命令未发送
+        Assert.assertEquals(3L, slow.send(new IntegerOutput(), CommandType.INCR, COUNTER).longValue());
+    }
+
+    @Test
+    public void testPriorityOrder() {
+        ConcurrencyLimitedRedis redis = limited(1, 10, Duration.ofSeconds(1));
+        slow.delay = 50;
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CompletableFuture<Long> running = incr(redis);
+        CompletableFuture<Long> low = incr(redis.withPriority(CommandPriority.LOW));
+        low.thenRun(() -> order.add("LOW"));
+        CompletableFuture<Long> normal = incr(redis);
+        normal.thenRun(() -> order.add("NORMAL"));
+        CompletableFuture<Long> critical = incr(redis.withPriority(CommandPriority.CRITICAL));
+        critical.thenRun(() -> order.add("CRITICAL"));
+        CompletableFuture.allOf(running, low, normal, critical).join();
+        Assert.assertEquals(Arrays.asList("CRITICAL", "NORMAL", "LOW"), order);
+        Assert.assertEquals(0, redis.getRejectionCount());
+    }
+
+    @Test
+    public void testCriticalNotShed() throws Exception {
+        ConcurrencyLimitedRedis redis = limited(1, 1, Duration.ofSeconds(1));
+        slow.delay = 100;
+        CompletableFuture<Long> running = incr(redis);
+        CompletableFuture<Long> queued = incr(redis);
+
+        // 队列满时淘汰普通命令，锁命令排队执行
+        RedisLock lock = new RedisLock(redis, "limit:lock", Duration.ofSeconds(10));
+        Assert.assertTrue(lock.tryLock());
+        Assert.assertTrue(isOverload(queued));
+        Assert.assertEquals(1L, redis.getRejectionCounts().get("NORMAL").longValue());
+        Assert.assertEquals(0L, redis.getRejectionCounts().get("CRITICAL").longValue());
+        Assert.assertTrue(running.join() > 0);
+        lock.unlock();
+    }
+
+    @Test
+    public void testAdaptiveLimit() {
+        ConcurrencyLimitedRedis.Limiter limiter = new ConcurrencyLimitedRedis.Limiter(20, 4, 100, 100, TimeUnit.MILLISECONDS.toNanos(10));
+        limiter.inFlight = 20;
+        for (int i = 0; i < 100; i++) {
+            limiter.sample(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        double grown = limiter.limit;
+        Assert.assertTrue(grown > 20);
+
+        // 延迟升高，收缩
+        limiter.inFlight = (int) grown;
+        for (int i = 0; i < 50; i++) {
+            limiter.sample(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        Assert.assertTrue(limiter.limit < grown);
+
+        // 并发远低于上限，不调整
+        double limit = limiter.limit;
+        limiter.inFlight = 1;
+        limiter.sample(TimeUnit.MILLISECONDS.toNanos(1));
+        Assert.assertEquals(limit, limiter.limit, 0);
+
+        // 超时，乘性减小，不低于下限
+        for (int i = 0; i < 100; i++) {
+            limiter.backoff();
+        }
+        Assert.assertEquals(4, limiter.limit, 0);
+    }
+}
@@ -0,0 +1,196 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteBufSequence;
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.DeferredOutput;
+import cc.whohow.redis.lettuce.ForwardingOutput;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.ListOutput;
+import cc.whohow.redis.lettuce.MapOutput;
+import cc.whohow.redis.server.RespServer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.output.CommandOutput;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.RedisCommand;
+import io.netty.util.ResourceLeakDetector;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+public class TestDeferredOutput {
+    @BeforeClass
+    public static void setUp() {
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+    }
+
+    private static ByteBuffer bytes(String s) {
+        return ByteBuffer.wrap(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(ByteBuffer bytes) {
+        return bytes == null ? null : StandardCharsets.UTF_8.decode(bytes).toString();
+    }
+
+    @Test
+    public void testSmallValues() {
+        ListOutput<String> list = new ListOutput<>(TestDeferredOutput::decode);
+        DeferredOutput<List<String>> output = new DeferredOutput<>(list, 8);
+        output.multi(2);
+        output.set(bytes("a"));
+        output.set(null);
+        Assert.assertFalse(output.isDeferred());
+        Assert.assertEquals(Arrays.asList("a", null), output.decode());
+    }
+
+    @Test
+    public void testLargeValues() {
+        ListOutput<String> list = new ListOutput<>(TestDeferredOutput::decode);
+        DeferredOutput<List<String>> output = new DeferredOutput<>(list, 8);
+        output.multi(3);
+        output.set(bytes("a"));
+        ByteBuffer large = bytes("0123456789");
+        output.set(large);
+        // IO线程复用缓冲区
+        large.clear();
+        large.put(bytes("xxxxxxxxxx"));
+        output.set(bytes("b"));
+        Assert.assertTrue(output.isDeferred());
+        Assert.assertEquals(Arrays.asList("a"), list.get());
+        Assert.assertEquals(Arrays.asList("a", "0123456789", "b"), output.decode());
+        Assert.assertFalse(output.isDeferred());
+    }
+
+    @Test
+    public void testMap() {
+        MapOutput<String, String> map = new MapOutput<>(TestDeferredOutput::decode, TestDeferredOutput::decode);
+        DeferredOutput<Map<String, String>> output = new DeferredOutput<>(map, 0);
+        output.set(bytes("k1"));
+        output.set(bytes("v1"));
+        output.set(bytes("k2"));
+        output.set(bytes("v2"));
+        Assert.assertTrue(map.get().isEmpty());
+        Map<String, String> result = output.decode();
+        Assert.assertEquals("v1", result.get("k1"));
+        Assert.assertEquals("v2", result.get("k2"));
+    }
+
+    @Test
+    public void testReleaseAfterDecode() {
+        List<ByteBufSequence> buffers = new ArrayList<>();
+        ListOutput<String> list = new ListOutput<>(TestDeferredOutput::decode);
+        DeferredOutput<List<String>> output = new TrackingOutput<>(list, 4, buffers);
+        output.multi(2);
+        output.set(bytes("0123456789"));
+        output.set(bytes("b"));
+        Assert.assertEquals(2, buffers.size());
+        for (ByteBufSequence buffer : buffers) {
+            Assert.assertEquals(1, buffer.refCnt());
+        }
+        Assert.assertEquals(Arrays.asList("0123456789", "b"), output.decode());
+        for (ByteBufSequence buffer : buffers) {
+            Assert.assertEquals(0, buffer.refCnt());
+        }
+    }
+
+    @Test
+    public void testReleaseOnError() {
+        List<ByteBufSequence> buffers = new ArrayList<>();
+        ListOutput<String> list = new ListOutput<>(TestDeferredOutput::decode);
+        DeferredOutput<List<String>> output = new TrackingOutput<>(list, 4, buffers);
+        output.set(bytes("0123456789"));
+        output.release();
+        Assert.assertFalse(output.isDeferred());
+        Assert.assertEquals(0, buffers.get(0).refCnt());
+        Assert.assertTrue(output.decode().isEmpty());
+    }
+
+    private static CompletableFuture<List<String>> lrange(Redis redis, CommandOutput<ByteSequence, ByteSequence, List<String>> output) {
+        return redis.sendAsync(new Command<>(CommandType.LRANGE, output, new CommandArgs<>(ByteSequenceRedisCodec.get())
+                .addKey(ByteSequence.ascii("deferred:list")).add(0).add(-1)));
+    }
+
+    @Test
+    public void testStandalone() throws Exception {
+        RedisClient redisClient = RedisClient.create();
+        BlockingQueue<Runnable> decodeTasks = new LinkedBlockingQueue<>();
+        try (RespServer server = new RespServer().start();
+             RecordingRedis redis = new RecordingRedis(redisClient, server.getURI(), decodeTasks)) {
+            redis.send(new IntegerOutput(), CommandType.RPUSH, ByteSequence.ascii("deferred:list"),
+                    ByteSequence.ascii("0123456789"), ByteSequence.ascii("b"));
+
+            // 包装输出（统计、对冲等）同样延迟解码
+            CompletableFuture<List<String>> future = lrange(redis,
+                    new ForwardingOutput<>(new ListOutput<>(TestDeferredOutput::decode)));
+            decodeTasks.poll(1, TimeUnit.SECONDS).run();
+            Assert.assertEquals(Arrays.asList("0123456789", "b"), future.get(1, TimeUnit.SECONDS));
+            Assert.assertEquals(1, redis.deferred.size());
+
+            // 解码前取消，缓冲区释放且不再解码
+            List<String> decoded = new ArrayList<>();
+            CompletableFuture<List<String>> cancelled = lrange(redis, new ListOutput<>(b -> {
+                String value = decode(b);
+                decoded.add(value);
+                return value;
+            }));
+            Runnable decodeTask = decodeTasks.poll(1, TimeUnit.SECONDS);
+            Assert.assertTrue(redis.deferred.get(1).isDeferred());
+            Assert.assertTrue(cancelled.cancel(false));
+            decodeTask.run();
+            Assert.assertFalse(redis.deferred.get(1).isDeferred());
+            Assert.assertTrue(decoded.isEmpty());
+        } finally {
+            redisClient.shutdown();
+        }
+    }
+
+    private static class RecordingRedis extends StandaloneRedis {
+        private final List<DeferredOutput<?>> deferred = new ArrayList<>();
+
+        RecordingRedis(RedisClient client, RedisURI uri, BlockingQueue<Runnable> decodeTasks) {
+            super(client, uri, 4, decodeTasks::add);
+        }
+
+        @Override
+        protected <T> DeferredOutput<T> defer(RedisCommand<ByteSequence, ByteSequence, T> command) {
+            DeferredOutput<T> output = super.defer(command);
+            if (output != null) {
+                deferred.add(output);
+            }
+            return output;
+        }
+    }
+
+    private static class TrackingOutput<T> extends DeferredOutput<T> {
+        private final List<ByteBufSequence> tracked;
+
+        TrackingOutput(CommandOutput<ByteSequence, ByteSequence, T> delegate,
+                       int threshold, List<ByteBufSequence> tracked) {
+            super(delegate, threshold);
+            this.tracked = tracked;
+        }
+
+        @Override
+        protected ByteBufSequence copy(ByteBuffer bytes) {
+            ByteBufSequence copy = super.copy(bytes);
+            if (copy != null) {
+                tracked.add(copy);
+            }
+            return copy;
+        }
+    }
+}
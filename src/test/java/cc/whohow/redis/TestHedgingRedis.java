@@ -0,0 +1,207 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.StringCodec;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.StringOutput;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.AsyncRedisList;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisCommandTimeoutException;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.RedisCommand;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class TestHedgingRedis {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static ScheduledExecutorService executor;
+    private static SlowRedis primary;
+    private static Redis alternate;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        executor = Executors.newScheduledThreadPool(2);
+        primary = new SlowRedis(new StandaloneRedis(redisClient, server.getURI()), executor);
+        alternate = new StandaloneRedis(redisClient, server.getURI());
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        primary.close();
+        alternate.close();
+        redisClient.shutdown();
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Before
+    public void flush() {
+        server.flushAll();
+        primary.delay = 0;
+    }
+
+    private HedgingRedis hedging(double budget, Duration deadline) {
+        return new HedgingRedis(primary, Collections.singletonList(alternate), executor,
+                95, budget, Duration.ofMillis(1), deadline, Collections.emptyMap());
+    }
+
+    private static void warmUp(HedgingRedis redis, AsyncRedisList<String> list) {
+        for (int i = 0; i < 64; i++) {
+            list.range(0, -1).join();
+        }
+        redis.refresh();
+        Assert.assertTrue(redis.getHedgeDelays().get("LRANGE") >= 0);
+    }
+
+    @Test
+    public void testHedge() throws Exception {
+        HedgingRedis redis = hedging(0.5, null);
+        AsyncRedisList<String> list = new AsyncRedisList<>(redis, StringCodec.UTF8.get(), "hedge:list");
+        new AsyncRedisList<>(primary, StringCodec.UTF8.get(), "hedge:list").addAll(Arrays.asList("a", "b", "c")).join();
+        warmUp(redis, list);
+
+        primary.delay = 200;
+        long start = System.nanoTime();
+        List<String> result = list.range(0, -1).get(1, TimeUnit.SECONDS);
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 150);
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), result);
+        Assert.assertEquals(1, redis.getHedgeCount());
+        Assert.assertEquals(1, redis.getHedgeWinCount());
+
+        // 慢请求的回复不会写入已返回的结果
+        Thread.sleep(300);
+        Assert.assertEquals(Arrays.asList("a", "b", "c"), result);
+        // 共享连接，只停止刷新任务
+        redis.refreshTask.cancel(false);
+    }
+
+    @Test
+    public void testWritesNotHedged() {
+        HedgingRedis redis = hedging(0.5, null);
+        primary.delay = 50;
+        Assert.assertEquals(1L, redis.send(new IntegerOutput(), CommandType.INCR, ByteSequence.utf8("hedge:counter")).longValue());
+        Assert.assertEquals(0, redis.getRequestCount());
+        Assert.assertEquals(0, redis.getHedgeCount());
+        // 共享连接，只停止刷新任务
+        redis.refreshTask.cancel(false);
+    }
+
+    @Test
+    public void testBudget() throws Exception {
+        HedgingRedis redis = hedging(0, null);
+        AsyncRedisList<String> list = new AsyncRedisList<>(redis, StringCodec.UTF8.get(), "hedge:list");
+        warmUp(redis, list);
+        redis.tokens.set(0);
+
+        primary.delay = 100;
+        list.range(0, -1).get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(0, redis.getHedgeCount());
+        Assert.assertEquals(1, redis.getThrottledCount());
+        // 共享连接，只停止刷新任务
+        redis.refreshTask.cancel(false);
+    }
+
+    @Test
+    public void testDeadline() throws Exception {
+        HedgingRedis redis = hedging(0, Duration.ofMillis(50));
+        primary.delay = 200;
+        try {
+            redis.send(new IntegerOutput(), CommandType.INCR, ByteSequence.utf8("hedge:counter"));
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertTrue(e.getCause() instanceof RedisCommandTimeoutException);
+        }
+        // 先完成再计数
+        for (int i = 0; i < 100 && redis.getTimeoutCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, redis.getTimeoutCount());
+        Assert.assertEquals(50L, redis.getDeadlines().get("*").longValue());
+        // 超时命令被取消，不再发送
+        Thread.sleep(300);
+        Assert.assertNull(alternate.send(new StringOutput(), CommandType.GET, ByteSequence.utf8("hedge:counter")));
+        // 共享连接，只停止刷新任务
+        redis.refreshTask.cancel(false);
+    }
+
+    @Test
+    public void testSendTimeout() {
+        primary.delay = 200;
+        try {
+            primary.send(new IntegerOutput(), CommandType.INCR, Duration.ofMillis(50), ByteSequence.utf8("hedge:counter"));
+            Assert.fail();
+        } catch (RedisCommandTimeoutException ignore) {
+        }
+        primary.delay = 0;
+        Assert.assertTrue(0 < primary.send(new IntegerOutput(), CommandType.INCR, Duration.ofSeconds(1), ByteSequence.utf8("hedge:counter")));
+    }
+
+    /**
+     * 延迟发送，模拟慢节点
+     */
+    static class SlowRedis implements Redis {
+        final Redis redis;
+        final ScheduledExecutorService executor;
+        volatile long delay;
+
+        SlowRedis(Redis redis, ScheduledExecutorService executor) {
+            this.redis = redis;
+            this.executor = executor;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+            if (delay <= 0) {
+                return redis.sendAsync(command);
+            }
+            CompletableFuture<T> future = new CompletableFuture<>();
+            executor.schedule(() -> redis.sendAsync(command).whenComplete((r, e) -> {
+                if (e != null) {
+                    future.completeExceptionally(e);
+                } else {
+                    future.complete(r);
+                }
+            }), delay, TimeUnit.MILLISECONDS);
+            return future;
+        }
+
+        @Override
+        public void addListener(RedisConnectionStateListener listener) {
+            redis.addListener(listener);
+        }
+
+        @Override
+        public void removeListener(RedisConnectionStateListener listener) {
+            redis.removeListener(listener);
+        }
+
+        @Override
+        public URI getURI() {
+            return redis.getURI();
+        }
+
+        @Override
+        public void close() throws Exception {
+            redis.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.metrics.LatencyHistogram;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestLatencyHistogram {
+    @Test
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assert.assertEquals(0, histogram.getCount());
+        Assert.assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testPercentile() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10000; i++) {
+            histogram.record(i * 1000);
+        }
+        Assert.assertEquals(10000, histogram.getCount());
+        Assert.assertEquals(10_000_000, histogram.getMax());
+        assertWithin(5_000_000, histogram.getValueAtPercentile(50));
+        assertWithin(9_900_000, histogram.getValueAtPercentile(99));
+        assertWithin(9_990_000, histogram.getValueAtPercentile(99.9));
+        Assert.assertEquals(10_000_000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testSmallValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 16; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(7, histogram.getValueAtPercentile(50));
+        Assert.assertEquals(15, histogram.getValueAtPercentile(100));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assert.assertTrue(expected + " ~ " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+}
@@ -7,8 +7,6 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.time.Duration;
 import java.util.Properties;
 import java.util.concurrent.ExecutorService;
@@ -26,14 +24,11 @@ public class TestLock {
 
     @BeforeClass
     public static void setUp() throws Exception {
-        try (InputStream stream = new FileInputStream("redis.properties")) {
-            properties = new Properties();
-            properties.load(stream);
-            redisURI = RedisURI.create(properties.getProperty("uri"));
-            redis = new LoggingRedis(new StandaloneRedis(redisClient, redisURI));
+        properties = RedisTestEnvironment.properties();
+        redisURI = RedisURI.create(properties.getProperty("uri"));
+        redis = new LoggingRedis(new StandaloneRedis(redisClient, redisURI));
 
-            executor = Executors.newFixedThreadPool(20);
-        }
+        executor = Executors.newFixedThreadPool(20);
     }
 
     @AfterClass
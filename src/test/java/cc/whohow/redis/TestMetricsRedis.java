@@ -0,0 +1,70 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.ByteSequenceRedisCodec;
+import cc.whohow.redis.lettuce.ListOutput;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.lettuce.StringOutput;
+import cc.whohow.redis.metrics.RedisMetrics;
+import cc.whohow.redis.server.RespServer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.protocol.Command;
+import io.lettuce.core.protocol.CommandArgs;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+public class TestMetricsRedis {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static MetricsRedis redis;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        redis = new MetricsRedis(new StandaloneRedis(redisClient, server.getURI()));
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Test
+    public void testCommand() {
+        redis.send(new StatusOutput(), CommandType.SET, ByteSequence.ascii("metrics:a"), ByteSequence.ascii("12345"));
+        RedisMetrics get = redis.getMetrics(CommandType.GET);
+        long responseBytes = get.getResponseBytes();
+        // 调用方构造的命令（RedisBatch、HedgingRedis等使用）同样统计响应字节数
+        String value = redis.send(new Command<>(CommandType.GET, new StringOutput(),
+                new CommandArgs<>(ByteSequenceRedisCodec.get()).addKey(ByteSequence.ascii("metrics:a"))));
+        Assert.assertEquals("12345", value);
+        Assert.assertEquals(responseBytes + 5, get.getResponseBytes());
+        Assert.assertEquals(0, get.getInFlight());
+    }
+
+    @Test
+    public void testEval() {
+        RedisScript script = RedisScript.get("get");
+        ByteSequence key = ByteSequence.ascii("metrics:eval");
+        redis.send(new StatusOutput(), CommandType.SET, key, ByteSequence.ascii("v"));
+        RedisMetrics namespace = redis.getNamespaceMetrics("metrics");
+        long requestBytes = namespace.getRequestBytes();
+        long count = namespace.getLatency().getCount();
+        List<ByteSequence> result = redis.eval(new ListOutput<>(ByteSequence::copy), script,
+                Collections.singletonList(key), Collections.emptyList());
+        Assert.assertEquals(4, result.size());
+        // 脚本按首个键统计键空间及请求字节数
+        Assert.assertTrue(namespace.getLatency().getCount() > count);
+        Assert.assertTrue(namespace.getRequestBytes() >= requestBytes + key.length() + 40);
+        Assert.assertTrue(redis.getMetrics(CommandType.EVALSHA).getLatency().getCount() > 0);
+    }
+}
@@ -0,0 +1,142 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.lettuce.StringOutput;
+import cc.whohow.redis.server.RespServer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class TestPipelinedRedis {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Before
+    public void flush() {
+        server.flushAll();
+    }
+
+    private static ByteSequence key(int i) {
+        return ByteSequence.ascii("pipeline:" + i);
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try (PipelinedRedis redis = new PipelinedRedis(redisClient, server.getURI())) {
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(CompletableFuture.supplyAsync(() -> {
+                    List<CompletableFuture<Long>> incr = new ArrayList<>();
+                    for (int j = 0; j < 500; j++) {
+                        incr.add(redis.sendAsync(new IntegerOutput(), CommandType.INCR, ByteSequence.ascii("pipeline:counter")));
+                    }
+                    return CompletableFuture.allOf(incr.toArray(new CompletableFuture<?>[0]))
+                            .thenApply(v -> incr.get(incr.size() - 1).join());
+                }, executor).thenCompose(f -> f));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(10, TimeUnit.SECONDS);
+
+            Assert.assertEquals(4000L, redis.send(new IntegerOutput(), CommandType.INCRBY,
+                    ByteSequence.ascii("pipeline:counter"), RESP.b(0)).longValue());
+            Assert.assertEquals(0, redis.getQueueDepth());
+            Assert.assertEquals(4001, redis.getFlushedCommandCount());
+            // 多线程命令合并刷新
+            Assert.assertTrue(redis.getFlushCount() < redis.getFlushedCommandCount());
+            Assert.assertTrue(redis.getMaxFlushBatchSize() > 1);
+            Assert.assertTrue(redis.getMaxFlushBatchSize() <= 128);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testFlushOnBatchSize() throws Exception {
+        // 定时刷新远大于测试时间，只能由批量大小触发
+        try (PipelinedRedis redis = new PipelinedRedis(redisClient, server.getURI(), 4, TimeUnit.SECONDS.toMicros(60))) {
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 3; i++) {
+                futures.add(redis.sendAsync(new StatusOutput(), CommandType.SET, key(i), ByteSequence.ascii("v")));
+            }
+            Thread.sleep(100);
+            Assert.assertEquals(3, redis.getQueueDepth());
+            Assert.assertFalse(futures.get(0).isDone());
+
+            futures.add(redis.sendAsync(new StatusOutput(), CommandType.SET, key(3), ByteSequence.ascii("v")));
+            for (CompletableFuture<String> future : futures) {
+                Assert.assertEquals("OK", future.get(1, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals(1, redis.getFlushCount());
+            Assert.assertEquals(4, redis.getMaxFlushBatchSize());
+            Assert.assertEquals(0, redis.getQueueDepth());
+        }
+    }
+
+    @Test
+    public void testFlushOnTimer() throws Exception {
+        try (PipelinedRedis redis = new PipelinedRedis(redisClient, server.getURI(), 128, TimeUnit.MILLISECONDS.toMicros(200))) {
+            long time = System.nanoTime();
+            CompletableFuture<String> set = redis.sendAsync(new StatusOutput(), CommandType.SET, key(0), ByteSequence.ascii("v"));
+            CompletableFuture<String> get = redis.sendAsync(new StringOutput(), CommandType.GET, key(0));
+            Assert.assertEquals("OK", set.get(1, TimeUnit.SECONDS));
+            Assert.assertEquals("v", get.get(1, TimeUnit.SECONDS));
+            Assert.assertTrue(System.nanoTime() - time >= TimeUnit.MILLISECONDS.toNanos(150));
+            Assert.assertEquals(1, redis.getFlushCount());
+            Assert.assertEquals(2, redis.getMaxFlushBatchSize());
+        }
+    }
+
+    @Test
+    public void testReconnect() throws Exception {
+        try (PipelinedRedis redis = new PipelinedRedis(redisClient, server.getURI())) {
+            Assert.assertEquals("OK", redis.send(new StatusOutput(), CommandType.SET, key(0), ByteSequence.ascii("a")));
+            Assert.assertTrue(server.killClients() > 0);
+
+            // 断开期间及重连后的命令仍然合并刷新并完成
+            long deadline = System.currentTimeMillis() + 5000;
+            String value = null;
+            while (value == null && System.currentTimeMillis() < deadline) {
+                try {
+                    value = redis.sendAsync(new StringOutput(), CommandType.GET, key(0)).get(1, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    Thread.sleep(50);
+                }
+            }
+            Assert.assertEquals("a", value);
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                futures.add(redis.sendAsync(new StatusOutput(), CommandType.SET, key(i), ByteSequence.ascii("b")));
+            }
+            for (CompletableFuture<String> future : futures) {
+                Assert.assertEquals("OK", future.get(1, TimeUnit.SECONDS));
+            }
+            Assert.assertEquals("b", redis.send(new StringOutput(), CommandType.GET, key(9)));
+            Assert.assertEquals(0, redis.getQueueDepth());
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.codec.PrimitiveCodec;
+import cc.whohow.redis.codec.StringCodec;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.*;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class TestRedisBatch {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static Redis redis;
+    private static RedisConnectionPool pool;
+    private static RedisFactory redisFactory;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        redis = new StandaloneRedis(redisClient, server.getURI());
+        pool = new RedisConnectionPool(redisClient, server.getURI(), 2, 16);
+        redisFactory = new RedisFactory(redis);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redisFactory.close();
+        pool.close();
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Before
+    public void flush() {
+        server.flushAll();
+    }
+
+    @Test
+    public void testPipeline() {
+        RedisBatch batch = redisFactory.newBatch();
+        AsyncRedisMap<String, Long> map = new AsyncRedisMap<>(batch, StringCodec.UTF8.get(), PrimitiveCodec.LONG, "batch:map");
+        AsyncRedisSortedSet<String> rank = new AsyncRedisSortedSet<>(batch, StringCodec.UTF8.get(), "batch:rank");
+        AsyncRedisAtomicLong counter = new AsyncRedisAtomicLong(batch, "batch:counter");
+
+        CompletableFuture<Boolean> put = map.put("a", 1L);
+        CompletableFuture<Boolean> add = rank.put("a", 1);
+        CompletableFuture<Long> incr = counter.incrementAndGet();
+        CompletableFuture<Long> get = map.get("a");
+        Assert.assertEquals(4, batch.size());
+        Assert.assertFalse(put.isDone());
+
+        batch.execute().join();
+        Assert.assertTrue(put.join());
+        Assert.assertTrue(add.join());
+        Assert.assertEquals(1L, incr.join().longValue());
+        Assert.assertEquals(1L, get.join().longValue());
+
+        try {
+            counter.incrementAndGet();
+            Assert.fail();
+        } catch (IllegalStateException ignore) {
+        }
+    }
+
+    @Test
+    public void testPipelineError() {
+        RedisBatch batch = redisFactory.newBatch();
+        AsyncRedisList<String> list = new AsyncRedisList<>(batch, StringCodec.UTF8.get(), "batch:wrong");
+        AsyncRedisAtomicLong counter = new AsyncRedisAtomicLong(batch, "batch:wrong");
+        CompletableFuture<Long> push = list.addLast("a");
+        CompletableFuture<Long> incr = counter.incrementAndGet();
+        Assert.assertTrue(batch.execute().handle((r, e) -> e != null).join());
+        Assert.assertEquals(1L, push.join().longValue());
+        Assert.assertTrue(incr.isCompletedExceptionally());
+    }
+
+    @Test
+    public void testSingleWrite() throws Exception {
+        try (PipelinedRedis pipelined = new PipelinedRedis(redisClient, server.getURI(), 128, 1000)) {
+            RedisBatch batch = new RedisBatch(pipelined);
+            AsyncRedisSortedSet<String> rank = new AsyncRedisSortedSet<>(batch, StringCodec.UTF8.get(), "batch:rank");
+            AsyncRedisAtomicLong counter = new AsyncRedisAtomicLong(batch, "batch:counter");
+            for (String member : new String[]{"a", "b", "c"}) {
+                rank.put(member, 1);
+                counter.incrementAndGet();
+            }
+            CompletableFuture<Long> remove = rank.removeAll(Arrays.asList("a", "b", "x"));
+            batch.execute().join();
+
+            // 全部命令一次写入连接，一次刷新
+            Assert.assertEquals(1, pipelined.getFlushCount());
+            Assert.assertEquals(7, pipelined.getFlushedCommandCount());
+            Assert.assertEquals(2L, remove.join().longValue());
+        }
+    }
+
+    @Test
+    public void testTransaction() {
+        RedisBatch batch = redisFactory.newBatch(pool);
+        AsyncRedisMap<String, Long> map = new AsyncRedisMap<>(batch, StringCodec.UTF8.get(), PrimitiveCodec.LONG, "batch:map");
+        AsyncRedisAtomicLong counter = new AsyncRedisAtomicLong(batch, "batch:counter");
+        CompletableFuture<Boolean> put = map.put("a", 1L);
+        CompletableFuture<Long> incr = counter.addAndGet(2);
+        CompletableFuture<Long> get = counter.get();
+
+        Assert.assertTrue(batch.exec().join());
+        Assert.assertTrue(put.join());
+        Assert.assertEquals(2L, incr.join().longValue());
+        Assert.assertEquals(2L, get.join().longValue());
+        Assert.assertEquals(0, pool.getActive());
+    }
+
+    @Test
+    public void testWatch() {
+        RedisAtomicLong counter = new RedisAtomicLong(redis, "batch:counter");
+        counter.set(1);
+
+        // 未被修改：提交
+        RedisBatch batch = redisFactory.newBatch(pool);
+        batch.watch("batch:counter").join();
+        long value = counter.get();
+        CompletableFuture<Void> set = new AsyncRedisAtomicLong(batch, "batch:counter").set(value * 10);
+        Assert.assertTrue(batch.exec().join());
+        Assert.assertTrue(set.isDone());
+        Assert.assertEquals(10L, counter.get());
+
+        // 被其他连接修改：放弃
+        batch = redisFactory.newBatch(pool);
+        batch.watch("batch:counter").join();
+        value = counter.get();
+        counter.incrementAndGet();
+        set = new AsyncRedisAtomicLong(batch, "batch:counter").set(value * 10);
+        Assert.assertFalse(batch.exec().join());
+        Assert.assertTrue(set.isCancelled());
+        Assert.assertEquals(11L, counter.get());
+        Assert.assertEquals(0, pool.getActive());
+    }
+
+    @Test
+    public void testDiscard() {
+        RedisBatch batch = redisFactory.newBatch(pool);
+        batch.watch("batch:counter").join();
+        CompletableFuture<Long> incr = new AsyncRedisAtomicLong(batch, "batch:counter").incrementAndGet();
+        batch.discard();
+        Assert.assertTrue(incr.isCancelled());
+        Assert.assertEquals(0L, new RedisAtomicLong(redis, "batch:counter").get());
+    }
+
+    @Test
+    public void testExecError() throws Exception {
+        // 租借连接失败时，所有命令Future以该异常完成
+        RedisConnectionPool closed = new RedisConnectionPool(redisClient, server.getURI(), 1, 16);
+        closed.close();
+        RedisBatch batch = redisFactory.newBatch(closed);
+        CompletableFuture<Long> incr = new AsyncRedisAtomicLong(batch, "batch:counter").incrementAndGet();
+        Assert.assertTrue(batch.exec().handle((r, e) -> e != null).get(1, TimeUnit.SECONDS));
+        Assert.assertTrue(incr.handle((r, e) -> e instanceof RedisException).get(1, TimeUnit.SECONDS));
+
+        // 重复执行时不租借连接
+        batch = redisFactory.newBatch(pool);
+        new AsyncRedisAtomicLong(batch, "batch:counter").incrementAndGet();
+        Assert.assertTrue(batch.exec().join());
+        long leaseCount = pool.getLeaseCount();
+        try {
+            batch.exec();
+            Assert.fail();
+        } catch (IllegalStateException ignore) {
+        }
+        Assert.assertEquals(leaseCount, pool.getLeaseCount());
+        Assert.assertEquals(0, pool.getActive());
+    }
+}
@@ -8,8 +8,6 @@ import org.junit.Assert;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.*;
@@ -25,13 +23,10 @@ public class TestRedisFactory {
 
     @BeforeClass
     public static void setUp() throws Exception {
-        try (InputStream stream = new FileInputStream("redis.properties")) {
-            properties = new Properties();
-            properties.load(stream);
-            redisURI = RedisURI.create(properties.getProperty("uri"));
-            redis = new LoggingRedis(new StandaloneRedis(redisClient, redisURI));
-            redisFactory = new RedisFactory(redis);
-        }
+        properties = RedisTestEnvironment.properties();
+        redisURI = RedisURI.create(properties.getProperty("uri"));
+        redis = new LoggingRedis(new StandaloneRedis(redisClient, redisURI));
+        redisFactory = new RedisFactory(redis);
     }
 
     @AfterClass
@@ -8,8 +8,6 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
-import java.io.FileInputStream;
-import java.io.InputStream;
 import java.util.Properties;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -24,12 +22,9 @@ public class TestRedisLocal {
 
     @BeforeClass
     public static void setUp() throws Exception {
-        try (InputStream stream = new FileInputStream("redis.properties")) {
-            properties = new Properties();
-            properties.load(stream);
-            redisURI = RedisURI.create(properties.getProperty("uri"));
-            redis = new LoggingRedis(new StandaloneRedis(redisClient, redisURI));
-        }
+        properties = RedisTestEnvironment.properties();
+        redisURI = RedisURI.create(properties.getProperty("uri"));
+        redis = new LoggingRedis(new StandaloneRedis(redisClient, redisURI));
         executor = Executors.newScheduledThreadPool(1);
     }
 
@@ -0,0 +1,184 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.codec.PrimitiveCodec;
+import cc.whohow.redis.codec.StringCodec;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.*;
+import io.lettuce.core.RedisClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+public class TestRedisScan {
+    private static final RedisClient redisClient = RedisClient.create();
+    private static final int N = 1000;
+
+    private static RespServer server;
+    private static Redis redis;
+    private static RedisMap<String, Long> map;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        redis = new StandaloneRedis(redisClient, server.getURI());
+        map = new RedisMap<>(redis, StringCodec.UTF8.get(), PrimitiveCodec.LONG, "scan:map");
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redis.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Before
+    public void fill() {
+        server.flushAll();
+        Map<String, Long> data = new HashMap<>();
+        for (long i = 0; i < N; i++) {
+            data.put("k" + i, i);
+        }
+        map.putAll(data);
+    }
+
+    private RedisHashScanIterator<String, Long> hscan(int count) {
+        return map.hscan(null, count);
+    }
+
+    @Test
+    public void testPrefetchIterator() {
+        Set<String> keys = new HashSet<>();
+        RedisIterator<Map.Entry<String, Long>> iterator = new RedisIterator<>(new RedisScanPrefetchIterator<>(hscan(7)));
+        while (iterator.hasNext()) {
+            keys.add(iterator.next().getKey());
+        }
+        Assert.assertEquals(N, keys.size());
+        Assert.assertEquals(N, map.entrySet().stream().count());
+    }
+
+    @Test
+    public void testParallelStream() {
+        long sum = StreamSupport.stream(new RedisScanSpliterator<>(hscan(16)), true)
+                .mapToLong(Map.Entry::getValue)
+                .sum();
+        Assert.assertEquals((long) N * (N - 1) / 2, sum);
+
+        Spliterator<Map.Entry<String, Long>> spliterator = new RedisScanSpliterator<>(hscan(16));
+        Spliterator<Map.Entry<String, Long>> split = spliterator.trySplit();
+        Assert.assertNotNull(split);
+        Set<String> keys = new HashSet<>();
+        split.forEachRemaining(e -> keys.add(e.getKey()));
+        spliterator.forEachRemaining(e -> keys.add(e.getKey()));
+        Assert.assertEquals(N, keys.size());
+    }
+
+    @Test
+    public void testPublisher() throws Exception {
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch complete = new CountDownLatch(1);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        new RedisScanPublisher<>(hscan(10)).subscribe(new Subscriber<Map.Entry<String, Long>>() {
+            Subscription subscription;
+            int pending;
+
+            @Override
+            public void onSubscribe(Subscription s) {
+                subscription = s;
+                pending = 3;
+                s.request(3);
+            }
+
+            @Override
+            public void onNext(Map.Entry<String, Long> entry) {
+                received.add(entry.getKey());
+                if (--pending == 0) {
+                    pending = 3;
+                    subscription.request(3);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                error.set(t);
+                complete.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                complete.countDown();
+            }
+        });
+        Assert.assertTrue(complete.await(10, TimeUnit.SECONDS));
+        Assert.assertNull(error.get());
+        Assert.assertEquals(N, new HashSet<>(received).size());
+    }
+
+    @Test
+    public void testPublisherDemand() throws Exception {
+        List<String> received = Collections.synchronizedList(new ArrayList<>());
+        AtomicReference<Subscription> subscription = new AtomicReference<>();
+        new RedisScanPublisher<>(new RedisKeyScanIterator<String>(redis, StringCodec.UTF8.get()::decode, "*", 0))
+                .subscribe(new Subscriber<String>() {
+                    @Override
+                    public void onSubscribe(Subscription s) {
+                        subscription.set(s);
+                    }
+
+                    @Override
+                    public void onNext(String s) {
+                        received.add(s);
+                    }
+
+                    @Override
+                    public void onError(Throwable t) {
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        received.add("complete");
+                    }
+                });
+        Thread.sleep(100);
+        Assert.assertTrue(received.isEmpty());
+        subscription.get().request(1);
+        Thread.sleep(100);
+        // 唯一元素发送后即完成，完成信号不需要需求
+        Assert.assertEquals(Arrays.asList("scan:map", "complete"), received);
+    }
+
+    @Test
+    public void testScanCount() {
+        RedisScanCount count = new RedisScanCount(0);
+        Assert.assertEquals(RedisScanCount.DEFAULT, count.get());
+        count.update(10, true);
+        Assert.assertEquals(20, count.get());
+        count.update(0, false);
+        Assert.assertEquals(40, count.get());
+        count.update(40, false);
+        Assert.assertEquals(20, count.get());
+        for (int i = 0; i < 20; i++) {
+            count.update(0, true);
+        }
+        Assert.assertEquals(RedisScanCount.DEFAULT_MAX, count.get());
+    }
+
+    @Test
+    public void testWindowCounterRemoveIf() {
+        RedisWindowCounter<String> counter = new RedisWindowCounter<>(redis, StringCodec.UTF8.get(), "scan:map");
+        counter.removeIf(window -> Integer.parseInt(window.substring(1)) % 2 == 0);
+        Set<String> keys = map.entrySet().stream().map(Map.Entry::getKey).collect(Collectors.toSet());
+        Assert.assertEquals(N / 2, keys.size());
+        Assert.assertTrue(keys.stream().allMatch(k -> Integer.parseInt(k.substring(1)) % 2 == 1));
+    }
+}
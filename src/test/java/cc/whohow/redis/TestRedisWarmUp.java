@@ -0,0 +1,137 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.codec.StringCodec;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.AsyncRedisList;
+import cc.whohow.redis.util.RedisKeyspaceNotification;
+import cc.whohow.redis.util.RedisMap;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisURI;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class TestRedisWarmUp {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redisClient.shutdown();
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Before
+    public void flush() {
+        server.flushAll();
+    }
+
+    @Test
+    public void testConnectAsync() throws Exception {
+        try (StandaloneRedis redis = StandaloneRedis.connectAsync(redisClient, server.getURI())) {
+            // 连接建立前发送的命令等待连接
+            Assert.assertEquals("PONG", redis.send(new StatusOutput(), CommandType.PING));
+            redis.ready().get(1, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testOrderBeforeReady() throws Exception {
+        try (StandaloneRedis redis = StandaloneRedis.connectAsync(redisClient, server.getURI())) {
+            // 连接建立前及建立期间连续发送的命令，按发送顺序写入
+            AsyncRedisList<String> list = new AsyncRedisList<>(redis, StringCodec.UTF8.get(), "warmup:list");
+            List<String> expected = new ArrayList<>();
+            List<CompletableFuture<Long>> futures = new ArrayList<>();
+            for (int i = 0; i < 100 || !redis.ready().isDone(); i++) {
+                expected.add(String.valueOf(i));
+                futures.add(list.addLast(String.valueOf(i)));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            Assert.assertEquals(expected, list.range(0, -1).get(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testUnreachable() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        RedisURI unreachable = RedisURI.create("127.0.0.1", port);
+        unreachable.setTimeout(Duration.ofMillis(200));
+        try (StandaloneRedis redis = StandaloneRedis.connectAsync(redisClient, unreachable);
+             RedisKeyspaceNotification notification = RedisKeyspaceNotification.connectAsync(redisClient, unreachable)) {
+            // 构造不阻塞，连接失败不抛出异常，订阅失败后持续重试，预热失败不中断启动
+            Assert.assertFalse(notification.ready().isDone());
+            Assert.assertFalse(new RedisWarmUp()
+                    .connect("unreachable", redis)
+                    .start(Duration.ofSeconds(5)));
+            Assert.assertTrue(redis.ready().handle((r, e) -> e != null).get(5, TimeUnit.SECONDS));
+
+            // 连接失败后，下次使用时重新连接
+            RespServer restarted = new RespServer(port).start();
+            try {
+                Assert.assertEquals("PONG", redis.sendAsync(new StatusOutput(), CommandType.PING).get(5, TimeUnit.SECONDS));
+                Assert.assertTrue(redis.ready().isDone());
+                // 订阅失败后定时重试，服务恢复后订阅就绪
+                notification.ready().get(5, TimeUnit.SECONDS);
+            } finally {
+                restarted.close();
+            }
+        }
+    }
+
+    @Test
+    public void testWarmUp() throws Exception {
+        try (StandaloneRedis redis = StandaloneRedis.connectAsync(redisClient, server.getURI());
+             RedisFactory redisFactory = new RedisFactory(redis)) {
+            new RedisMap<>(redis, StringCodec.UTF8.get(), StringCodec.UTF8.get(), "warmup:map").put("a", "1");
+            RedisKeyspaceNotification notification = RedisKeyspaceNotification.connectAsync(redisClient, server.getURI());
+
+            AtomicReference<String> prefetched = new AtomicReference<>();
+            RedisWarmUp warmUp = redisFactory.newWarmUp()
+                    .task("keyspace", notification::ready)
+                    .prefetch("map", () -> prefetched.set(new RedisMap<>(redis, StringCodec.UTF8.get(), StringCodec.UTF8.get(), "warmup:map").get("a")), executor);
+            Assert.assertTrue(warmUp.start(Duration.ofSeconds(5)));
+            Assert.assertTrue(warmUp.getPending().isEmpty());
+            Assert.assertEquals("1", prefetched.get());
+            Assert.assertTrue(redisFactory.getScriptRegistry().isLoaded(RedisScript.get("cas")));
+            notification.close();
+        }
+    }
+
+    @Test
+    public void testBudget() {
+        RedisWarmUp warmUp = new RedisWarmUp()
+                .task("never", CompletableFuture::new)
+                .task("done", () -> CompletableFuture.completedFuture("ok"));
+        long start = System.nanoTime();
+        Assert.assertFalse(warmUp.start(Duration.ofMillis(100)));
+        Assert.assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000);
+        Assert.assertEquals(1, warmUp.getPending().size());
+        Assert.assertTrue(warmUp.getPending().containsKey("never"));
+    }
+}
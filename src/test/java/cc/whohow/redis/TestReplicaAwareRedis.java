@@ -0,0 +1,234 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.lettuce.StringOutput;
+import cc.whohow.redis.lettuce.VoidOutput;
+import cc.whohow.redis.server.RespServer;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.protocol.CommandType;
+import io.lettuce.core.protocol.RedisCommand;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.BooleanSupplier;
+
+public class TestReplicaAwareRedis {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private ScheduledExecutorService executor;
+    private RespServer masterServer;
+    private RespServer replicaServer;
+    private HangingRedis master;
+    private ReplicaAwareRedis redis;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newSingleThreadScheduledExecutor();
+        masterServer = new RespServer().start()
+                .config("replication", "role:master,connected_slaves:1,master_repl_offset:1000");
+        replicaServer = new RespServer().start()
+                .config("replication", "role:slave,master_link_status:up,slave_repl_offset:1000");
+        master = new HangingRedis(new StandaloneRedis(redisClient, masterServer.getURI()));
+        redis = new ReplicaAwareRedis(master,
+                Collections.singletonList(new StandaloneRedis(redisClient, replicaServer.getURI())),
+                ReplicaAwareRedis.Strategy.ROUND_ROBIN, 100, Duration.ofMillis(100), executor);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        redis.close();
+        executor.shutdownNow();
+        masterServer.close();
+        replicaServer.close();
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        redisClient.shutdown();
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(condition.getAsBoolean());
+    }
+
+    private ReplicaAwareRedis.Replica replica() {
+        return redis.getReplicas().get(0);
+    }
+
+    @Test
+    public void testRoute() throws Exception {
+        await(() -> replica().isAvailable());
+        Assert.assertEquals(0, replica().getLag());
+        // 写主读从，主从数据不同步可区分路由
+        Assert.assertEquals("OK", redis.send(new StatusOutput(), CommandType.SET,
+                ByteSequence.ascii("a"), ByteSequence.ascii("master")));
+        Assert.assertNull(redis.send(new StringOutput(), CommandType.GET, ByteSequence.ascii("a")));
+        Assert.assertEquals("master", redis.master().send(new StringOutput(), CommandType.GET, ByteSequence.ascii("a")));
+    }
+
+    @Test
+    public void testLag() throws Exception {
+        await(() -> replica().isAvailable());
+        replicaServer.config("replication", "role:slave,master_link_status:up,slave_repl_offset:800");
+        await(() -> !replica().isAvailable());
+        Assert.assertEquals(200, replica().getLag());
+        redis.send(new StatusOutput(), CommandType.SET, ByteSequence.ascii("a"), ByteSequence.ascii("master"));
+        Assert.assertEquals("master", redis.send(new StringOutput(), CommandType.GET, ByteSequence.ascii("a")));
+
+        replicaServer.config("replication", "role:slave,master_link_status:down,slave_repl_offset:1000");
+        await(() -> replica().getLag() == 0);
+        Assert.assertFalse(replica().isAvailable());
+    }
+
+    @Test
+    public void testMasterTimeout() throws Exception {
+        await(() -> replica().isAvailable());
+        // 主节点INFO无响应，刷新超时后从节点标记为不可用，刷新任务不被挂起
+        master.hang = true;
+        await(() -> !replica().isAvailable() && replica().getLag() == -1);
+        master.hang = false;
+        await(() -> replica().isAvailable());
+    }
+
+    @Test
+    public void testView() throws Exception {
+        List<String> sent = new CopyOnWriteArrayList<>();
+        ReplicaAwareRedis tagged = new ReplicaAwareRedis(
+                new TaggedRedis(new StandaloneRedis(redisClient, masterServer.getURI()), "master", null, sent),
+                Collections.singletonList(new TaggedRedis(new StandaloneRedis(redisClient, replicaServer.getURI()), "replica", null, sent)),
+                ReplicaAwareRedis.Strategy.ROUND_ROBIN, 100, Duration.ofMillis(100), executor);
+        try {
+            await(() -> tagged.getReplicas().get(0).isAvailable());
+            // 视图同时作用于主节点及从节点
+            Redis critical = tagged.withPriority(CommandPriority.CRITICAL);
+            critical.send(new StatusOutput(), CommandType.SET, ByteSequence.ascii("a"), ByteSequence.ascii("master"));
+            critical.send(new StringOutput(), CommandType.GET, ByteSequence.ascii("a"));
+            critical.master().send(new StringOutput(), CommandType.GET, ByteSequence.ascii("a"));
+            Assert.assertEquals(Arrays.asList("master:CRITICAL", "replica:CRITICAL", "master:CRITICAL"), sent);
+
+            sent.clear();
+            Redis bulk = tagged.withTrafficClass(TrafficClass.BULK);
+            bulk.send(new StringOutput(), CommandType.GET, ByteSequence.ascii("a"));
+            bulk.master().send(new StringOutput(), CommandType.GET, ByteSequence.ascii("a"));
+            Assert.assertEquals(Arrays.asList("replica:BULK", "master:BULK"), sent);
+
+            // 游标只在发出的节点有效，SCAN系列命令路由到主节点
+            sent.clear();
+            bulk.send(new VoidOutput(), CommandType.SCAN, ByteSequence.ascii("0"));
+            bulk.send(new VoidOutput(), CommandType.HSCAN, ByteSequence.ascii("h"), ByteSequence.ascii("0"));
+            Assert.assertEquals(Arrays.asList("master:BULK", "master:BULK"), sent);
+        } finally {
+            tagged.close();
+        }
+    }
+
+    /**
+     * 记录命令经过的节点及视图
+     */
+    private static class TaggedRedis implements Redis {
+        private final Redis redis;
+        private final String name;
+        private final String tag;
+        private final List<String> sent;
+
+        TaggedRedis(Redis redis, String name, String tag, List<String> sent) {
+            this.redis = redis;
+            this.name = name;
+            this.tag = tag;
+            this.sent = sent;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+            if (command.getType() != CommandType.INFO) {
+                sent.add(name + ":" + tag);
+            }
+            return redis.sendAsync(command);
+        }
+
+        @Override
+        public Redis withPriority(CommandPriority priority) {
+            return new TaggedRedis(redis, name, priority.name(), sent);
+        }
+
+        @Override
+        public Redis withTrafficClass(TrafficClass trafficClass) {
+            return new TaggedRedis(redis, name, trafficClass.name(), sent);
+        }
+
+        @Override
+        public void addListener(RedisConnectionStateListener listener) {
+            redis.addListener(listener);
+        }
+
+        @Override
+        public void removeListener(RedisConnectionStateListener listener) {
+            redis.removeListener(listener);
+        }
+
+        @Override
+        public URI getURI() {
+            return redis.getURI();
+        }
+
+        @Override
+        public void close() throws Exception {
+            redis.close();
+        }
+    }
+
+    private static class HangingRedis implements Redis {
+        private final Redis redis;
+        private volatile boolean hang;
+
+        HangingRedis(Redis redis) {
+            this.redis = redis;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+            if (hang && command.getType() == CommandType.INFO) {
+                return new CompletableFuture<>();
+            }
+            return redis.sendAsync(command);
+        }
+
+        @Override
+        public void addListener(RedisConnectionStateListener listener) {
+            redis.addListener(listener);
+        }
+
+        @Override
+        public void removeListener(RedisConnectionStateListener listener) {
+            redis.removeListener(listener);
+        }
+
+        @Override
+        public URI getURI() {
+            return redis.getURI();
+        }
+
+        @Override
+        public void close() throws Exception {
+            redis.close();
+        }
+    }
+}
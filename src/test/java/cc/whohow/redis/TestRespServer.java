@@ -0,0 +1,160 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.server.RespServer;
+import io.lettuce.core.KeyScanCursor;
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.Range;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.ScanArgs;
+import io.lettuce.core.ScanCursor;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.pubsub.RedisPubSubAdapter;
+import io.lettuce.core.pubsub.StatefulRedisPubSubConnection;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+public class TestRespServer {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static StatefulRedisConnection<String, String> connection;
+    private static RedisCommands<String, String> redis;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        connection = redisClient.connect(server.getURI());
+        redis = connection.sync();
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        connection.close();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    @Before
+    public void flush() {
+        server.flushAll();
+    }
+
+    @Test
+    public void testString() {
+        Assert.assertEquals("OK", redis.set("a", "1", SetArgs.Builder.nx().px(10000)));
+        Assert.assertNull(redis.set("a", "2", SetArgs.Builder.nx()));
+        Assert.assertEquals("1", redis.get("a"));
+        Assert.assertTrue(redis.pttl("a") > 0);
+        Assert.assertEquals(3L, redis.incrby("a", 2).longValue());
+        Assert.assertEquals("string", redis.type("a"));
+        Assert.assertEquals(1L, redis.del("a").longValue());
+        Assert.assertEquals(-2L, redis.pttl("a").longValue());
+    }
+
+    @Test
+    public void testExpire() throws Exception {
+        redis.psetex("a", 50, "1");
+        Thread.sleep(100);
+        Assert.assertNull(redis.get("a"));
+        Assert.assertEquals(0L, redis.dbsize().longValue());
+    }
+
+    @Test
+    public void testWrongType() {
+        redis.lpush("list", "a");
+        try {
+            redis.get("list");
+            Assert.fail();
+        } catch (Exception e) {
+            Assert.assertTrue(e.getMessage().startsWith("WRONGTYPE"));
+        }
+    }
+
+    @Test
+    public void testSortedSet() {
+        redis.zadd("z", 1, "a");
+        redis.zadd("z", 2, "b");
+        redis.zadd("z", 3, "c");
+        Assert.assertEquals(2L, redis.zcount("z", Range.create(2, 3)).longValue());
+        Assert.assertEquals("c", redis.zrevrange("z", 0, 0).get(0));
+        Assert.assertEquals(1L, redis.zrank("z", "b").longValue());
+    }
+
+    @Test
+    public void testScan() {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 100; i++) {
+            redis.set("key:" + i, "");
+            expected.add("key:" + i);
+        }
+        Set<String> keys = new HashSet<>();
+        ScanCursor cursor = ScanCursor.INITIAL;
+        do {
+            KeyScanCursor<String> page = redis.scan(cursor, ScanArgs.Builder.limit(7).match("key:*"));
+            keys.addAll(page.getKeys());
+            cursor = page;
+        } while (!cursor.isFinished());
+        Assert.assertEquals(expected, keys);
+    }
+
+    @Test
+    public void testScript() {
+        RedisScript cas = RedisScript.get("cas");
+        redis.set("a", "1");
+        String result = redis.evalsha(cas.getSha1(), ScriptOutputType.STATUS, new String[]{"a"}, "1", "2");
+        Assert.assertEquals("OK", result);
+        Assert.assertEquals("2", redis.get("a"));
+        Assert.assertNull(redis.evalsha(cas.getSha1(), ScriptOutputType.STATUS, new String[]{"a"}, "1", "3"));
+    }
+
+    @Test
+    public void testBlockingPop() throws Exception {
+        try (StatefulRedisConnection<String, String> blocking = redisClient.connect(server.getURI())) {
+            CompletableFuture<KeyValue<String, String>> future = blocking.async().blpop(5, "q").toCompletableFuture();
+            Thread.sleep(50);
+            Assert.assertFalse(future.isDone());
+            redis.rpush("q", "x");
+            KeyValue<String, String> kv = future.get(1, TimeUnit.SECONDS);
+            Assert.assertEquals("q", kv.getKey());
+            Assert.assertEquals("x", kv.getValue());
+        }
+    }
+
+    @Test
+    public void testPubSub() throws Exception {
+        BlockingQueue<String> messages = new ArrayBlockingQueue<>(16);
+        try (StatefulRedisPubSubConnection<String, String> pubsub = redisClient.connectPubSub(server.getURI())) {
+            pubsub.addListener(new RedisPubSubAdapter<String, String>() {
+                @Override
+                public void message(String pattern, String channel, String message) {
+                    messages.add(channel + "=" + message);
+                }
+            });
+            pubsub.sync().psubscribe("ch:*");
+            Assert.assertEquals(1L, redis.publish("ch:1", "hello").longValue());
+            Assert.assertEquals("ch:1=hello", messages.poll(1, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void testTransaction() {
+        Assert.assertEquals("OK", redis.multi());
+        redis.set("a", "1");
+        redis.incr("a");
+        Assert.assertEquals(2, redis.exec().size());
+        Assert.assertEquals("2", redis.get("a"));
+    }
+}
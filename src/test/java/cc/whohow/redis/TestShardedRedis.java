@@ -0,0 +1,172 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.StringCodec;
+import cc.whohow.redis.lettuce.IntegerOutput;
+import cc.whohow.redis.lettuce.ListOutput;
+import cc.whohow.redis.lettuce.StatusOutput;
+import cc.whohow.redis.lettuce.StringOutput;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.RedisIterator;
+import cc.whohow.redis.util.RedisKeyScanIterator;
+import cc.whohow.redis.util.RedisMap;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.protocol.CommandType;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TestShardedRedis {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer[] servers;
+    private static List<Redis> shards;
+    private static ShardedRedis redis;
+
+    @BeforeClass
+    public static void setUp() {
+        servers = new RespServer[4];
+        shards = new ArrayList<>();
+        for (int i = 0; i < servers.length; i++) {
+            servers[i] = new RespServer().start();
+            shards.add(new StandaloneRedis(redisClient, servers[i].getURI()));
+        }
+        redis = new ShardedRedis(shards.subList(0, 3));
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redis.close();
+        shards.get(3).close();
+        redisClient.shutdown();
+        for (RespServer server : servers) {
+            server.close();
+        }
+    }
+
+    @Before
+    public void flush() {
+        for (RespServer server : servers) {
+            server.flushAll();
+        }
+    }
+
+    private static ByteSequence key(int i) {
+        return ByteSequence.utf8("shard:" + i);
+    }
+
+    private static int size(Redis shard) {
+        return shard.send(new IntegerOutput(), CommandType.DBSIZE).intValue();
+    }
+
+    @Test
+    public void testRoute() {
+        for (int i = 0; i < 300; i++) {
+            redis.send(new StatusOutput(), CommandType.SET, key(i), ByteSequence.ascii(String.valueOf(i)));
+        }
+        for (int i = 0; i < 300; i++) {
+            Assert.assertEquals(String.valueOf(i), redis.send(new StringOutput(), CommandType.GET, key(i)));
+            Assert.assertEquals(String.valueOf(i), redis.getShard(key(i)).send(new StringOutput(), CommandType.GET, key(i)));
+        }
+        for (Redis shard : redis.getShards()) {
+            Assert.assertTrue(size(shard) > 50);
+        }
+        Assert.assertEquals(300L, redis.send(new IntegerOutput(), CommandType.DBSIZE).longValue());
+    }
+
+    @Test
+    public void testHashTag() {
+        Redis shard = redis.getShard(ByteSequence.ascii("{user:1}"));
+        for (int i = 0; i < 100; i++) {
+            Assert.assertSame(shard, redis.getShard(ByteSequence.ascii("{user:1}:" + i)));
+            Assert.assertSame(shard, redis.getShard(ByteSequence.ascii("prefix:" + i + ":{user:1}")));
+        }
+        // 空hashtag按整个键计算
+        Assert.assertNotEquals(ShardedRedis.hash(ByteSequence.ascii("{}a")),
+                ShardedRedis.hash(ByteSequence.ascii("{}b")));
+    }
+
+    @Test
+    public void testMultiKey() {
+        List<ByteSequence> keyValues = new ArrayList<>();
+        List<ByteSequence> keys = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            keys.add(key(i));
+            keyValues.add(key(i));
+            keyValues.add(ByteSequence.ascii(String.valueOf(i)));
+        }
+        keys.add(ByteSequence.ascii("missing"));
+        Assert.assertEquals("OK", redis.send(new StatusOutput(), CommandType.MSET, keyValues));
+
+        List<String> values = redis.send(new ListOutput<>(StringCodec.UTF8.get()::decode), CommandType.MGET, keys);
+        Assert.assertEquals(51, values.size());
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(String.valueOf(i), values.get(i));
+        }
+        Assert.assertNull(values.get(50));
+
+        Assert.assertEquals(50L, redis.send(new IntegerOutput(), CommandType.EXISTS, keys).longValue());
+        Assert.assertEquals(50L, redis.send(new IntegerOutput(), CommandType.DEL, keys).longValue());
+        Assert.assertEquals(0L, redis.send(new IntegerOutput(), CommandType.DBSIZE).longValue());
+    }
+
+    @Test
+    public void testScan() {
+        Set<String> expected = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            redis.send(new StatusOutput(), CommandType.SET, key(i), ByteSequence.ascii("v"));
+            expected.add(key(i).toString(StandardCharsets.UTF_8));
+        }
+        Set<String> actual = new HashSet<>();
+        new RedisIterator<>(new RedisKeyScanIterator<>(redis, StringCodec.UTF8.get()::decode, "shard:*", 16))
+                .forEachRemaining(actual::add);
+        Assert.assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testDataStructure() {
+        RedisMap<String, String> map = new RedisMap<>(redis, StringCodec.UTF8.get(), StringCodec.UTF8.get(), "sharded:map");
+        map.put("a", "1");
+        map.put("b", "2");
+        Assert.assertEquals("1", map.get("a"));
+        Assert.assertEquals(2, map.size());
+        Assert.assertEquals(1, size(redis.getShard(ByteSequence.ascii("sharded:map"))));
+    }
+
+    @Test
+    public void testAddShard() {
+        Redis[] before = new Redis[2000];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = redis.getShard(key(i));
+        }
+        ShardedRedis grown = new ShardedRedis(shards.subList(0, 3));
+        grown.addShard(shards.get(3));
+        int moved = 0;
+        for (int i = 0; i < before.length; i++) {
+            Redis after = grown.getShard(key(i));
+            if (after != before[i]) {
+                // 只迁移到新分片
+                Assert.assertSame(shards.get(3), after);
+                moved++;
+            }
+        }
+        Assert.assertTrue(moved > before.length / 8);
+        Assert.assertTrue(moved < before.length * 2 / 5);
+
+        try {
+            grown.addShard(shards.get(0));
+            Assert.fail();
+        } catch (IllegalArgumentException ignore) {
+        }
+        Assert.assertEquals(Arrays.asList(shards.get(0), shards.get(1), shards.get(2), shards.get(3)), grown.getShards());
+    }
+}
@@ -0,0 +1,160 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.jcache.Cache;
+import cc.whohow.redis.jcache.CacheLoader;
+import cc.whohow.redis.jcache.ImmutableGeneratedCacheKey;
+import cc.whohow.redis.jcache.InProcessCache;
+import cc.whohow.redis.jcache.RedisCache;
+import cc.whohow.redis.jcache.RedisCacheManager;
+import cc.whohow.redis.jcache.RedisTierCache;
+import cc.whohow.redis.jcache.configuration.MutableRedisCacheConfiguration;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.RedisKeyspaceNotification;
+import io.lettuce.core.RedisClient;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.cache.annotation.GeneratedCacheKey;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 并发读写下内存缓存不留存过时值（内存缓存过期时间远大于测试时间）
+ */
+public class TestTierCacheConsistency {
+    private static final RedisClient redisClient = RedisClient.create();
+    private static final int KEYS = 4;
+    private static final int READERS = 6;
+    private static final int ROUNDS = 200;
+
+    private static RespServer server;
+    private static Redis redis;
+    private static RedisTracking redisTracking;
+    private static RedisCacheManager cacheManager;
+    private static RedisTierCache<GeneratedCacheKey, String> reader;
+    private static RedisCache<GeneratedCacheKey, String> writer;
+    private static ExecutorService executor;
+
+    @BeforeClass
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static void setUp() {
+        server = new RespServer().start().config("notify-keyspace-events", "KEA");
+        redis = new StandaloneRedis(redisClient, server.getURI());
+        RedisKeyspaceNotification redisKeyspaceNotification = new RedisKeyspaceNotification(redisClient, server.getURI());
+        redisTracking = redisKeyspaceNotification;
+        executor = Executors.newFixedThreadPool(READERS);
+
+        MutableRedisCacheConfiguration configuration = new MutableRedisCacheConfiguration<>();
+        configuration.setName("c.w.TestConsistency");
+        configuration.setKeyTypeCanonicalName(new String[]{String.class.getCanonicalName()});
+        configuration.setValueTypeCanonicalName(String.class.getCanonicalName());
+        configuration.setExpiryForUpdate(1);
+        configuration.setExpiryForUpdateTimeUnit(TimeUnit.HOURS);
+
+        cacheManager = new RedisCacheManager(redis, redisTracking, name -> configuration);
+        // 放大读取Redis与回填内存缓存之间的时间窗口
+        reader = new RedisTierCache<GeneratedCacheKey, String>(cacheManager, configuration) {
+            @Override
+            protected String load(GeneratedCacheKey key, CacheLoader<GeneratedCacheKey, ? extends String> cacheLoader) {
+                return super.load(key, k -> {
+                    String value = cacheLoader.load(k);
+                    pause();
+                    return value;
+                });
+            }
+
+            @Override
+            protected void publish(Map<GeneratedCacheKey, String> values, Map<GeneratedCacheKey, Long> epochs) {
+                pause();
+                super.publish(values, epochs);
+            }
+        };
+        writer = cacheManager.newRedisCache(configuration);
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        reader.close();
+        writer.close();
+        cacheManager.close();
+        redisTracking.close();
+        redis.close();
+        executor.shutdownNow();
+        redisClient.shutdown();
+        server.close();
+    }
+
+    private static void pause() {
+        LockSupport.parkNanos(ThreadLocalRandom.current().nextLong(TimeUnit.MILLISECONDS.toNanos(2)));
+    }
+
+    private static GeneratedCacheKey key(int i) {
+        return ImmutableGeneratedCacheKey.of(String.valueOf(i));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testConcurrentInvalidate() throws Exception {
+        Cache<GeneratedCacheKey, String> local = reader.unwrap(InProcessCache.class);
+        for (int i = 0; i < KEYS; i++) {
+            writer.put(key(i), "0");
+        }
+        AtomicBoolean running = new AtomicBoolean(true);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < READERS; i++) {
+            boolean batch = i % 2 == 0;
+            futures.add(executor.submit(() -> {
+                while (running.get()) {
+                    if (batch) {
+                        // 批量读取（MGET后回填）
+                        Set<GeneratedCacheKey> keys = new HashSet<>();
+                        keys.add(key(ThreadLocalRandom.current().nextInt(KEYS)));
+                        keys.add(key(ThreadLocalRandom.current().nextInt(KEYS)));
+                        Assert.assertEquals(keys.size(), reader.getAll(keys).size());
+                    } else {
+                        Assert.assertNotNull(reader.get(key(ThreadLocalRandom.current().nextInt(KEYS))));
+                    }
+                }
+            }));
+        }
+        try {
+            for (int round = 1; round <= ROUNDS; round++) {
+                GeneratedCacheKey key = key(round % KEYS);
+                // 连续写入，读取者可能在两次写入之间读到旧值
+                writer.put(key, round + "a");
+                Thread.sleep(1);
+                pause();
+                writer.put(key, round + "b");
+                // 失效通知送达、进行中的回填完成后，内存缓存不应留存旧值
+                String expected = round + "b";
+                String value = local.get(key);
+                long deadline = System.currentTimeMillis() + 1000;
+                while (value != null && !value.equals(expected) && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(5);
+                    value = local.get(key);
+                }
+                Assert.assertTrue("round " + round + ": " + value, value == null || value.equals(expected));
+            }
+        } finally {
+            running.set(false);
+        }
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        for (int i = 0; i < KEYS; i++) {
+            Assert.assertEquals(writer.get(key(i)), reader.get(key(i)));
+        }
+    }
+}
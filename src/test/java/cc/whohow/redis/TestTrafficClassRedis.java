@@ -0,0 +1,171 @@
+package cc.whohow.redis;
+
+import cc.whohow.redis.bytes.ByteSequence;
+import cc.whohow.redis.codec.StringCodec;
+import cc.whohow.redis.server.RespServer;
+import cc.whohow.redis.util.AsyncRedisSet;
+import cc.whohow.redis.util.RedisKeyScanIterator;
+import cc.whohow.redis.util.RedisList;
+import cc.whohow.redis.util.RedisMap;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisConnectionStateListener;
+import io.lettuce.core.protocol.RedisCommand;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestTrafficClassRedis {
+    private static final RedisClient redisClient = RedisClient.create();
+
+    private static RespServer server;
+    private static ScheduledExecutorService executor;
+    private static Map<TrafficClass, CountingRedis> routes;
+    private static TrafficClassRedis redis;
+
+    @BeforeClass
+    public static void setUp() {
+        server = new RespServer().start();
+        executor = Executors.newScheduledThreadPool(1);
+        routes = new EnumMap<>(TrafficClass.class);
+        routes.put(TrafficClass.INTERACTIVE, new CountingRedis(new StandaloneRedis(redisClient, server.getURI())));
+        routes.put(TrafficClass.BULK, new CountingRedis(new StandaloneRedis(redisClient, server.getURI())));
+        redis = new TrafficClassRedis(new EnumMap<>(routes));
+    }
+
+    @AfterClass
+    public static void tearDown() throws Exception {
+        redis.close();
+        redisClient.shutdown();
+        executor.shutdownNow();
+        server.close();
+    }
+
+    @Before
+    public void flush() {
+        server.flushAll();
+        for (CountingRedis route : routes.values()) {
+            route.count.set(0);
+        }
+    }
+
+    private static int count(TrafficClass trafficClass) {
+        return routes.get(trafficClass).count.get();
+    }
+
+    @Test
+    public void testRoute() {
+        Assert.assertSame(routes.get(TrafficClass.INTERACTIVE), redis.getRedis(TrafficClass.BACKGROUND));
+        Assert.assertSame(redis, redis.withTrafficClass(TrafficClass.INTERACTIVE));
+        Assert.assertSame(redis, redis.master());
+
+        RedisMap<String, String> map = new RedisMap<>(redis, StringCodec.UTF8.get(), StringCodec.UTF8.get(), "traffic:map");
+        map.put("a", "1");
+        Assert.assertEquals("1", map.get("a"));
+        Assert.assertEquals(2, count(TrafficClass.INTERACTIVE));
+        Assert.assertEquals(0, count(TrafficClass.BULK));
+
+        // 整体复制走批量通道
+        Assert.assertEquals("1", map.copy().get("a"));
+        Assert.assertEquals(2, count(TrafficClass.INTERACTIVE));
+        Assert.assertEquals(1, count(TrafficClass.BULK));
+    }
+
+    @Test
+    public void testBulkPaths() {
+        RedisList<String> list = new RedisList<>(redis, StringCodec.UTF8.get(), "traffic:list");
+        list.addAll(Arrays.asList("a", "b"));
+        Assert.assertEquals(Arrays.asList("a", "b"), list.copy());
+        AsyncRedisSet<String> set = new AsyncRedisSet<>(redis, StringCodec.UTF8.get(), "traffic:set");
+        set.add("a").join();
+        Assert.assertTrue(set.copy().join().contains("a"));
+        int interactive = count(TrafficClass.INTERACTIVE);
+        Assert.assertEquals(2, count(TrafficClass.BULK));
+
+        // 遍历走批量通道
+        RedisKeyScanIterator<String> iterator = new RedisKeyScanIterator<>(redis, StringCodec.UTF8.get()::decode, "traffic:*", 10);
+        int keys = 0;
+        while (iterator.hasNext()) {
+            keys += iterator.next().getArray().size();
+        }
+        Assert.assertEquals(2, keys);
+        Assert.assertEquals(interactive, count(TrafficClass.INTERACTIVE));
+        Assert.assertTrue(count(TrafficClass.BULK) > 2);
+    }
+
+    @Test
+    public void testDecoratedView() {
+        Redis decorated = new LoggingRedis(redis);
+        Redis bulk = decorated.withTrafficClass(TrafficClass.BULK);
+        Assert.assertNotSame(decorated, bulk);
+        Assert.assertSame(decorated, decorated.withTrafficClass(TrafficClass.INTERACTIVE));
+
+        new RedisMap<>(bulk, StringCodec.UTF8.get(), StringCodec.UTF8.get(), "traffic:map").put("a", "1");
+        Assert.assertEquals(0, count(TrafficClass.INTERACTIVE));
+        Assert.assertEquals(1, count(TrafficClass.BULK));
+
+        // 优先级视图保留流量类别
+        new RedisMap<>(bulk.withPriority(CommandPriority.CRITICAL).master(), StringCodec.UTF8.get(), StringCodec.UTF8.get(), "traffic:map").get("a");
+        Assert.assertEquals(0, count(TrafficClass.INTERACTIVE));
+        Assert.assertEquals(2, count(TrafficClass.BULK));
+    }
+
+    @Test
+    public void testCreate() throws Exception {
+        try (TrafficClassRedis created = TrafficClassRedis.create(redisClient, server.getURI(), executor)) {
+            Assert.assertTrue(created.getRedis(TrafficClass.BULK) instanceof ConcurrencyLimitedRedis);
+            Assert.assertNotSame(created.getRedis(TrafficClass.INTERACTIVE), created.getRedis(TrafficClass.BULK));
+            RedisMap<String, String> map = new RedisMap<>(created, StringCodec.UTF8.get(), StringCodec.UTF8.get(), "traffic:map");
+            map.put("a", "1");
+            Assert.assertEquals("1", map.copy().get("a"));
+        }
+    }
+
+    /**
+     * 统计命令数
+     */
+    static class CountingRedis implements Redis {
+        final Redis redis;
+        final AtomicInteger count = new AtomicInteger();
+
+        CountingRedis(Redis redis) {
+            this.redis = redis;
+        }
+
+        @Override
+        public <T> CompletableFuture<T> sendAsync(RedisCommand<ByteSequence, ByteSequence, T> command) {
+            count.incrementAndGet();
+            return redis.sendAsync(command);
+        }
+
+        @Override
+        public void addListener(RedisConnectionStateListener listener) {
+            redis.addListener(listener);
+        }
+
+        @Override
+        public void removeListener(RedisConnectionStateListener listener) {
+            redis.removeListener(listener);
+        }
+
+        @Override
+        public URI getURI() {
+            return redis.getURI();
+        }
+
+        @Override
+        public void close() throws Exception {
+            redis.close();
+        }
+    }
+}
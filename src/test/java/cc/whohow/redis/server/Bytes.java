@@ -0,0 +1,83 @@
+package cc.whohow.redis.server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 不可变字节串，用作键及集合成员
+ */
+public final class Bytes implements Comparable<Bytes> {
+    private final byte[] bytes;
+    private int hash;
+
+    public Bytes(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static Bytes of(String string) {
+        return new Bytes(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] get() {
+        return bytes;
+    }
+
+    public int length() {
+        return bytes.length;
+    }
+
+    public boolean startsWith(byte[] prefix) {
+        if (prefix.length > bytes.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static int compare(byte[] a, byte[] b) {
+        int n = Integer.min(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int c = Integer.compare(a[i] & 0xff, b[i] & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    @Override
+    public int compareTo(Bytes that) {
+        return compare(bytes, that.bytes);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof Bytes) {
+            Bytes that = (Bytes) o;
+            return Arrays.equals(bytes, that.bytes);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hash;
+        if (h == 0) {
+            h = Arrays.hashCode(bytes);
+            hash = h;
+        }
+        return h;
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,302 @@
+package cc.whohow.redis.server;
+
+import io.netty.buffer.ByteBuf;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 回复值及编码
+ * <p>
+ * byte[]/Bytes：批量字符串；null：空批量字符串；Long/Integer：整数；Double：浮点数（RESP2编码为批量字符串）；
+ * Status：状态；List：数组；Map：RESP3映射（RESP2编码为数组）；Push：发布订阅消息（RESP3推送）
+ */
+public final class Resp {
+    public static final Status OK = new Status("OK");
+    public static final Status QUEUED = new Status("QUEUED");
+    public static final Status PONG = new Status("PONG");
+    /**
+     * 空数组（*-1）
+     */
+    public static final Object NULL_ARRAY = new Object();
+    /**
+     * 已直接回复或阻塞等待，无需再回复
+     */
+    public static final Object NO_REPLY = new Object();
+
+    private static final byte[] CRLF = {'\r', '\n'};
+
+    private Resp() {
+    }
+
+    public static final class Status {
+        private final String status;
+
+        public Status(String status) {
+            this.status = status;
+        }
+
+        @Override
+        public String toString() {
+            return status;
+        }
+    }
+
+    public static final class Map {
+        private final List<Object> entries;
+
+        public Map(List<Object> entries) {
+            this.entries = entries;
+        }
+
+        public List<Object> getEntries() {
+            return entries;
+        }
+    }
+
+    public static final class Push {
+        private final List<Object> elements;
+
+        public Push(List<Object> elements) {
+            this.elements = elements;
+        }
+
+        public List<Object> getElements() {
+            return elements;
+        }
+    }
+
+    public static void encode(Object value, ByteBuf out, int protocol) {
+        if (value == null) {
+            if (protocol >= 3) {
+                out.writeByte('_').writeBytes(CRLF);
+            } else {
+                out.writeByte('$').writeByte('-').writeByte('1').writeBytes(CRLF);
+            }
+        } else if (value == NULL_ARRAY) {
+            if (protocol >= 3) {
+                out.writeByte('_').writeBytes(CRLF);
+            } else {
+                out.writeByte('*').writeByte('-').writeByte('1').writeBytes(CRLF);
+            }
+        } else if (value instanceof byte[]) {
+            bulk((byte[]) value, out);
+        } else if (value instanceof Bytes) {
+            bulk(((Bytes) value).get(), out);
+        } else if (value instanceof String) {
+            bulk(((String) value).getBytes(StandardCharsets.UTF_8), out);
+        } else if (value instanceof Long || value instanceof Integer) {
+            out.writeByte(':');
+            ascii(value.toString(), out);
+            out.writeBytes(CRLF);
+        } else if (value instanceof Double) {
+            String text = formatDouble((Double) value);
+            if (protocol >= 3) {
+                out.writeByte(',');
+                ascii(text, out);
+                out.writeBytes(CRLF);
+            } else {
+                bulk(text.getBytes(StandardCharsets.US_ASCII), out);
+            }
+        } else if (value instanceof Status) {
+            out.writeByte('+');
+            ascii(value.toString(), out);
+            out.writeBytes(CRLF);
+        } else if (value instanceof RespException) {
+            out.writeByte('-');
+            out.writeBytes(((RespException) value).getMessage().getBytes(StandardCharsets.UTF_8));
+            out.writeBytes(CRLF);
+        } else if (value instanceof Map) {
+            List<Object> entries = ((Map) value).getEntries();
+            if (protocol >= 3) {
+                header('%', entries.size() / 2, out);
+            } else {
+                header('*', entries.size(), out);
+            }
+            for (Object e : entries) {
+                encode(e, out, protocol);
+            }
+        } else if (value instanceof Push) {
+            List<Object> elements = ((Push) value).getElements();
+            header(protocol >= 3 ? '>' : '*', elements.size(), out);
+            for (Object e : elements) {
+                encode(e, out, protocol);
+            }
+        } else if (value instanceof Collection) {
+            Collection<?> elements = (Collection<?>) value;
+            header('*', elements.size(), out);
+            for (Object e : elements) {
+                encode(e, out, protocol);
+            }
+        } else {
+            throw new IllegalArgumentException(value.getClass().getName());
+        }
+    }
+
+    private static void header(char type, int size, ByteBuf out) {
+        out.writeByte(type);
+        ascii(Integer.toString(size), out);
+        out.writeBytes(CRLF);
+    }
+
+    private static void bulk(byte[] bytes, ByteBuf out) {
+        header('$', bytes.length, out);
+        out.writeBytes(bytes);
+        out.writeBytes(CRLF);
+    }
+
+    private static void ascii(String text, ByteBuf out) {
+        out.writeCharSequence(text, StandardCharsets.US_ASCII);
+    }
+
+    public static String formatDouble(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e17) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    public static String string(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static byte[] bytes(long value) {
+        return Long.toString(value).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    public static long parseLong(byte[] bytes) {
+        try {
+            return Long.parseLong(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            throw new RespException(RespException.NOT_INTEGER);
+        }
+    }
+
+    public static double parseDouble(byte[] bytes) {
+        String text = new String(bytes, StandardCharsets.US_ASCII);
+        switch (text.toLowerCase()) {
+            case "inf":
+            case "+inf":
+                return Double.POSITIVE_INFINITY;
+            case "-inf":
+                return Double.NEGATIVE_INFINITY;
+            default:
+                try {
+                    double value = Double.parseDouble(text);
+                    if (Double.isNaN(value)) {
+                        throw new RespException(RespException.NOT_FLOAT);
+                    }
+                    return value;
+                } catch (NumberFormatException e) {
+                    throw new RespException(RespException.NOT_FLOAT);
+                }
+        }
+    }
+
+    public static boolean is(byte[] arg, String keyword) {
+        if (arg.length != keyword.length()) {
+            return false;
+        }
+        for (int i = 0; i < arg.length; i++) {
+            if (Character.toUpperCase((char) arg[i]) != keyword.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 通配符匹配（*、?、[...]、\转义），同Redis stringmatch
+     */
+    public static boolean match(byte[] pattern, byte[] string) {
+        return match(pattern, 0, string, 0);
+    }
+
+    @SuppressWarnings("fallthrough")
+    private static boolean match(byte[] p, int pi, byte[] s, int si) {
+        while (pi < p.length) {
+            switch (p[pi]) {
+                case '*': {
+                    while (pi + 1 < p.length && p[pi + 1] == '*') {
+                        pi++;
+                    }
+                    if (pi + 1 == p.length) {
+                        return true;
+                    }
+                    for (int i = si; i <= s.length; i++) {
+                        if (match(p, pi + 1, s, i)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                case '?': {
+                    if (si >= s.length) {
+                        return false;
+                    }
+                    si++;
+                    break;
+                }
+                case '[': {
+                    if (si >= s.length) {
+                        return false;
+                    }
+                    pi++;
+                    boolean not = pi < p.length && p[pi] == '^';
+                    if (not) {
+                        pi++;
+                    }
+                    boolean matched = false;
+                    while (pi < p.length && p[pi] != ']') {
+                        if (p[pi] == '\\' && pi + 1 < p.length) {
+                            pi++;
+                            matched |= p[pi] == s[si];
+                        } else if (pi + 2 < p.length && p[pi + 1] == '-') {
+                            int lo = p[pi] & 0xff;
+                            int hi = p[pi + 2] & 0xff;
+                            int c = s[si] & 0xff;
+                            matched |= lo <= hi ? lo <= c && c <= hi : hi <= c && c <= lo;
+                            pi += 2;
+                        } else {
+                            matched |= p[pi] == s[si];
+                        }
+                        pi++;
+                    }
+                    if (matched == not) {
+                        return false;
+                    }
+                    si++;
+                    break;
+                }
+                case '\\': {
+                    if (pi + 1 < p.length) {
+                        pi++;
+                    }
+                    // fall through
+                }
+                default: {
+                    if (si >= s.length || p[pi] != s[si]) {
+                        return false;
+                    }
+                    si++;
+                    break;
+                }
+            }
+            pi++;
+        }
+        return si == s.length;
+    }
+
+    public static List<Object> list(Object... elements) {
+        return Arrays.asList(elements);
+    }
+}
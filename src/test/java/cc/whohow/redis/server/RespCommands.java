@@ -0,0 +1,1936 @@
+package cc.whohow.redis.server;
+
+import cc.whohow.redis.RedisScript;
+import io.netty.channel.Channel;
+import io.netty.util.concurrent.ScheduledFuture;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 命令实现，单线程执行
+ */
+public class RespCommands {
+    private static final Bytes INVALIDATE = Bytes.of("__redis__:invalidate");
+
+    protected final Map<String, Command> commands = new HashMap<>();
+    protected final RespDatabase database = new RespDatabase(this::onExpired);
+    protected final Map<Long, RespSession> sessions = new LinkedHashMap<>();
+    protected final Map<Bytes, Set<RespSession>> channels = new HashMap<>();
+    protected final Map<Bytes, Set<RespSession>> patterns = new HashMap<>();
+    protected final Map<Bytes, Set<RespSession>> watchers = new HashMap<>();
+    protected final Set<RespSession> tracking = new LinkedHashSet<>();
+    protected final Map<Bytes, Deque<Waiter>> waiters = new HashMap<>();
+    protected final Deque<Bytes> readyKeys = new ArrayDeque<>();
+    protected final Map<String, RespScripts.Script> scripts = new HashMap<>();
+    protected final Map<String, String> config = new HashMap<>();
+    protected final long startTime = System.currentTimeMillis();
+    /**
+     * 事务、脚本中，阻塞命令立即返回
+     */
+    protected boolean nonBlocking;
+    protected long nextClientId = 1;
+
+    public RespCommands() {
+        config.put("notify-keyspace-events", "");
+        config.put("databases", "16");
+        config.put("maxmemory", "0");
+        registerAll();
+        RespScripts.registerBuiltin(this);
+    }
+
+    public RespSession open(Channel channel) {
+        RespSession session = new RespSession(nextClientId++, channel);
+        sessions.put(session.id, session);
+        return session;
+    }
+
+    public void close(RespSession session) {
+        sessions.remove(session.id);
+        unblock(session);
+        session.pending.clear();
+        unsubscribeAll(session, channels, session.channels);
+        unsubscribeAll(session, patterns, session.patterns);
+        unwatch(session);
+        tracking.remove(session);
+        session.release();
+    }
+
+    /**
+     * 注册脚本实现（按SHA1匹配EVAL/EVALSHA）
+     */
+    public void registerScript(String sha1, RespScripts.Script script) {
+        scripts.put(sha1.toLowerCase(), script);
+    }
+
+    public void registerScript(RedisScript script, RespScripts.Script implementation) {
+        registerScript(script.getSha1(), implementation);
+    }
+
+    /**
+     * 执行客户端命令并回复
+     */
+    public void execute(RespSession session, List<byte[]> args) {
+        if (session.blocked != null) {
+            session.pending.add(args);
+            return;
+        }
+        Object reply = dispatch(session, args);
+        if (reply != Resp.NO_REPLY) {
+            session.reply(reply);
+        }
+        serveBlocked();
+    }
+
+    /**
+     * 定时任务：主动过期
+     */
+    public void cron() {
+        database.expire(1000);
+        serveBlocked();
+    }
+
+    public void flushAll() {
+        database.clear();
+    }
+
+    public RespDatabase getDatabase() {
+        return database;
+    }
+
+    protected Object dispatch(RespSession session, List<byte[]> args) {
+        String name = new String(args.get(0), StandardCharsets.US_ASCII).toUpperCase();
+        Command command = commands.get(name);
+        if (command == null) {
+            if (session.multi != null) {
+                session.multiError = true;
+            }
+            return new RespException("ERR unknown command `" + Resp.string(args.get(0)) + "`");
+        }
+        if (command.arity > 0 ? args.size() != command.arity : args.size() < -command.arity) {
+            if (session.multi != null) {
+                session.multiError = true;
+            }
+            return RespException.wrongArity(name);
+        }
+        if (session.multi != null && !command.transaction) {
+            session.multi.add(args);
+            return Resp.QUEUED;
+        }
+        if (session.isSubscribed() && session.protocol < 3 && !command.pubsub) {
+            return new RespException("ERR Can't execute '" + name.toLowerCase() +
+                    "': only (P)SUBSCRIBE / (P)UNSUBSCRIBE / PING / QUIT are allowed in this context");
+        }
+        try {
+            return command.handler.execute(session, args);
+        } catch (RespException e) {
+            return e;
+        }
+    }
+
+    /**
+     * 脚本内调用命令
+     */
+    public Object call(RespSession session, Object... args) {
+        List<byte[]> command = new ArrayList<>(args.length);
+        for (Object arg : args) {
+            command.add(arg instanceof byte[] ? (byte[]) arg :
+                    arg instanceof Bytes ? ((Bytes) arg).get() :
+                            Resp.bytes(String.valueOf(arg)));
+        }
+        boolean previous = nonBlocking;
+        nonBlocking = true;
+        try {
+            Object reply = dispatch(session, command);
+            if (reply instanceof RespException) {
+                throw (RespException) reply;
+            }
+            return reply;
+        } finally {
+            nonBlocking = previous;
+        }
+    }
+
+    // ---------------------------------------------------------------- hooks
+
+    /**
+     * 键修改：WATCH失效、客户端缓存失效、键空间通知
+     */
+    protected void modified(Bytes key, char type, String event) {
+        Set<RespSession> watching = watchers.get(key);
+        if (watching != null) {
+            for (RespSession session : watching) {
+                session.dirty = true;
+            }
+        }
+        invalidate(key);
+        notifyKeyspaceEvent(type, event, key);
+    }
+
+    protected void onExpired(Bytes key) {
+        modified(key, 'x', "expired");
+    }
+
+    protected void invalidate(Bytes key) {
+        if (tracking.isEmpty()) {
+            return;
+        }
+        Set<RespSession> targets = new LinkedHashSet<>();
+        for (RespSession session : tracking) {
+            if (matchesPrefix(session, key)) {
+                RespSession target = session.trackingRedirect == 0 ? session : sessions.get(session.trackingRedirect);
+                if (target != null) {
+                    targets.add(target);
+                }
+            }
+        }
+        for (RespSession target : targets) {
+            sendInvalidate(target, Collections.singletonList(key));
+        }
+    }
+
+    protected void invalidateAll() {
+        Set<RespSession> targets = new LinkedHashSet<>();
+        for (RespSession session : tracking) {
+            RespSession target = session.trackingRedirect == 0 ? session : sessions.get(session.trackingRedirect);
+            if (target != null) {
+                targets.add(target);
+            }
+        }
+        for (RespSession target : targets) {
+            sendInvalidate(target, null);
+        }
+    }
+
+    private static boolean matchesPrefix(RespSession session, Bytes key) {
+        if (session.trackingPrefixes.isEmpty()) {
+            return true;
+        }
+        for (byte[] prefix : session.trackingPrefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void sendInvalidate(RespSession target, List<Bytes> keys) {
+        Object payload = keys == null ? Resp.NULL_ARRAY : keys;
+        if (target.protocol >= 3 && target.trackingRedirect == 0) {
+            target.reply(new Resp.Push(Resp.list("invalidate", payload)));
+            target.flush();
+        } else if (target.channels.contains(INVALIDATE)) {
+            target.reply(new Resp.Push(Resp.list("message", INVALIDATE, payload)));
+            target.flush();
+        }
+    }
+
+    protected void notifyKeyspaceEvent(char type, String event, Bytes key) {
+        String flags = config.get("notify-keyspace-events");
+        if (flags.isEmpty()) {
+            return;
+        }
+        boolean enabled = flags.indexOf(type) >= 0 ||
+                (flags.indexOf('A') >= 0 && "g$lshzxet".indexOf(type) >= 0);
+        if (!enabled) {
+            return;
+        }
+        if (flags.indexOf('K') >= 0) {
+            publish(Bytes.of("__keyspace@0__:" + key), Resp.bytes(event));
+        }
+        if (flags.indexOf('E') >= 0) {
+            publish(Bytes.of("__keyevent@0__:" + event), key.get());
+        }
+    }
+
+    protected long publish(Bytes channel, byte[] message) {
+        long receivers = 0;
+        Set<RespSession> subscribers = channels.get(channel);
+        if (subscribers != null) {
+            for (RespSession session : subscribers) {
+                session.reply(new Resp.Push(Resp.list("message", channel, message)));
+                session.flush();
+                receivers++;
+            }
+        }
+        for (Map.Entry<Bytes, Set<RespSession>> e : patterns.entrySet()) {
+            if (Resp.match(e.getKey().get(), channel.get())) {
+                for (RespSession session : e.getValue()) {
+                    session.reply(new Resp.Push(Resp.list("pmessage", e.getKey(), channel, message)));
+                    session.flush();
+                    receivers++;
+                }
+            }
+        }
+        return receivers;
+    }
+
+    // ---------------------------------------------------------------- blocking
+
+    public static class Waiter {
+        protected final RespSession session;
+        protected final List<Bytes> keys;
+        protected final boolean left;
+        protected ScheduledFuture<?> timeout;
+
+        public Waiter(RespSession session, List<Bytes> keys, boolean left) {
+            this.session = session;
+            this.keys = keys;
+            this.left = left;
+        }
+    }
+
+    protected void signal(Bytes key) {
+        if (waiters.containsKey(key)) {
+            readyKeys.add(key);
+        }
+    }
+
+    protected void serveBlocked() {
+        while (!readyKeys.isEmpty()) {
+            Bytes key = readyKeys.poll();
+            Deque<Waiter> queue = waiters.get(key);
+            while (queue != null && !queue.isEmpty()) {
+                @SuppressWarnings("unchecked")
+                List<byte[]> list = database.get(key, List.class);
+                if (list == null || list.isEmpty()) {
+                    break;
+                }
+                Waiter waiter = queue.peek();
+                byte[] value = pop(key, list, waiter.left);
+                unblock(waiter.session);
+                waiter.session.reply(Resp.list(key, value));
+                drain(waiter.session);
+                queue = waiters.get(key);
+            }
+        }
+    }
+
+    protected void unblock(RespSession session) {
+        Waiter waiter = session.blocked;
+        if (waiter == null) {
+            return;
+        }
+        session.blocked = null;
+        if (waiter.timeout != null) {
+            waiter.timeout.cancel(false);
+        }
+        for (Bytes key : waiter.keys) {
+            Deque<Waiter> queue = waiters.get(key);
+            if (queue != null) {
+                queue.remove(waiter);
+                if (queue.isEmpty()) {
+                    waiters.remove(key);
+                }
+            }
+        }
+    }
+
+    /**
+     * 解除阻塞后执行排队命令
+     */
+    protected void drain(RespSession session) {
+        while (session.blocked == null && !session.pending.isEmpty()) {
+            Object reply = dispatch(session, session.pending.poll());
+            if (reply != Resp.NO_REPLY) {
+                session.reply(reply);
+            }
+        }
+        session.flush();
+    }
+
+    private Object blockingPop(RespSession session, List<byte[]> args, boolean left) {
+        double timeout = Resp.parseDouble(args.get(args.size() - 1));
+        if (timeout < 0) {
+            throw new RespException("ERR timeout is negative");
+        }
+        List<Bytes> keys = new ArrayList<>();
+        for (int i = 1; i < args.size() - 1; i++) {
+            Bytes key = new Bytes(args.get(i));
+            @SuppressWarnings("unchecked")
+            List<byte[]> list = database.get(key, List.class);
+            if (list != null && !list.isEmpty()) {
+                return Resp.list(key, pop(key, list, left));
+            }
+            keys.add(key);
+        }
+        if (nonBlocking) {
+            return Resp.NULL_ARRAY;
+        }
+        Waiter waiter = new Waiter(session, keys, left);
+        for (Bytes key : keys) {
+            waiters.computeIfAbsent(key, k -> new ArrayDeque<>()).add(waiter);
+        }
+        session.blocked = waiter;
+        if (timeout > 0) {
+            waiter.timeout = session.channel.eventLoop().schedule(() -> {
+                if (session.blocked == waiter) {
+                    unblock(session);
+                    session.reply(Resp.NULL_ARRAY);
+                    drain(session);
+                    serveBlocked();
+                }
+            }, (long) (timeout * 1000), TimeUnit.MILLISECONDS);
+        }
+        return Resp.NO_REPLY;
+    }
+
+    private byte[] pop(Bytes key, List<byte[]> list, boolean left) {
+        byte[] value = left ? list.remove(0) : list.remove(list.size() - 1);
+        if (list.isEmpty()) {
+            database.remove(key);
+        }
+        modified(key, 'l', left ? "lpop" : "rpop");
+        return value;
+    }
+
+    // ---------------------------------------------------------------- registry
+
+    @FunctionalInterface
+    public interface Handler {
+        Object execute(RespSession session, List<byte[]> args);
+    }
+
+    public static class Command {
+        protected final String name;
+        /**
+         * 参数个数（含命令名），负数表示最少个数
+         */
+        protected final int arity;
+        protected final Handler handler;
+        protected boolean transaction;
+        protected boolean pubsub;
+
+        public Command(String name, int arity, Handler handler) {
+            this.name = name;
+            this.arity = arity;
+            this.handler = handler;
+        }
+    }
+
+    public Command register(String name, int arity, Handler handler) {
+        Command command = new Command(name, arity, handler);
+        commands.put(name, command);
+        return command;
+    }
+
+    protected void registerAll() {
+        // connection & server
+        register("PING", -1, this::ping).pubsub = true;
+        register("ECHO", 2, (s, a) -> a.get(1));
+        register("QUIT", -1, this::quit).pubsub = true;
+        register("AUTH", -2, (s, a) -> Resp.OK);
+        register("SELECT", 2, this::select);
+        register("HELLO", -1, this::hello);
+        register("CLIENT", -2, this::client);
+        register("INFO", -1, this::info);
+        register("ROLE", 1, (s, a) -> Resp.list("master", 0L, Collections.emptyList()));
+        register("TIME", 1, this::time);
+        register("DBSIZE", 1, (s, a) -> (long) database.size());
+        register("FLUSHDB", -1, this::flush);
+        register("FLUSHALL", -1, this::flush);
+        register("COMMAND", -1, (s, a) -> Collections.emptyList());
+        register("CONFIG", -2, this::config);
+        register("CLUSTER", -2, this::cluster);
+        register("READONLY", 1, (s, a) -> Resp.OK);
+        register("READWRITE", 1, (s, a) -> Resp.OK);
+        register("LASTSAVE", 1, (s, a) -> startTime / 1000);
+        // keys
+        register("DEL", -2, this::del);
+        register("UNLINK", -2, this::del);
+        register("EXISTS", -2, this::exists);
+        register("TOUCH", -2, this::exists);
+        register("TYPE", 2, this::type);
+        register("TTL", 2, (s, a) -> ttl(a, 1000));
+        register("PTTL", 2, (s, a) -> ttl(a, 1));
+        register("EXPIRE", 3, (s, a) -> expire(a, 1000));
+        register("PEXPIRE", 3, (s, a) -> expire(a, 1));
+        register("PERSIST", 2, this::persist);
+        register("KEYS", 2, this::keys);
+        register("SCAN", -2, this::scan);
+        register("RANDOMKEY", 1, this::randomkey);
+        register("RENAME", 3, this::rename);
+        // strings
+        register("GET", 2, (s, a) -> database.get(new Bytes(a.get(1)), byte[].class));
+        register("SET", -3, this::set);
+        register("SETNX", 3, (s, a) -> set(s, Arrays.asList(a.get(0), a.get(1), a.get(2), Resp.bytes("NX"))) == null ? 0L : 1L);
+        register("SETEX", 4, (s, a) -> set(s, Arrays.asList(a.get(0), a.get(1), a.get(3), Resp.bytes("EX"), a.get(2))));
+        register("PSETEX", 4, (s, a) -> set(s, Arrays.asList(a.get(0), a.get(1), a.get(3), Resp.bytes("PX"), a.get(2))));
+        register("GETSET", 3, this::getset);
+        register("MGET", -2, this::mget);
+        register("MSET", -3, this::mset);
+        register("INCR", 2, (s, a) -> incrby(a.get(1), 1));
+        register("DECR", 2, (s, a) -> incrby(a.get(1), -1));
+        register("INCRBY", 3, (s, a) -> incrby(a.get(1), Resp.parseLong(a.get(2))));
+        register("DECRBY", 3, (s, a) -> incrby(a.get(1), -Resp.parseLong(a.get(2))));
+        register("INCRBYFLOAT", 3, this::incrbyfloat);
+        register("STRLEN", 2, this::strlen);
+        register("APPEND", 3, this::append);
+        register("GETRANGE", 4, this::getrange);
+        // hashes
+        register("HGET", 3, this::hget);
+        register("HSET", -4, this::hset);
+        register("HMSET", -4, (s, a) -> {
+            hset(s, a);
+            return Resp.OK;
+        });
+        register("HSETNX", 4, this::hsetnx);
+        register("HMGET", -3, this::hmget);
+        register("HGETALL", 2, this::hgetall);
+        register("HDEL", -3, this::hdel);
+        register("HLEN", 2, (s, a) -> (long) hash(a.get(1)).size());
+        register("HEXISTS", 3, (s, a) -> hash(a.get(1)).containsKey(new Bytes(a.get(2))) ? 1L : 0L);
+        register("HKEYS", 2, (s, a) -> new ArrayList<>(hash(a.get(1)).keySet()));
+        register("HVALS", 2, (s, a) -> new ArrayList<>(hash(a.get(1)).values()));
+        register("HSTRLEN", 3, this::hstrlen);
+        register("HINCRBY", 4, this::hincrby);
+        register("HSCAN", -3, this::hscan);
+        // lists
+        register("LPUSH", -3, (s, a) -> push(a, true));
+        register("RPUSH", -3, (s, a) -> push(a, false));
+        register("LPOP", 2, (s, a) -> pop(a, true));
+        register("RPOP", 2, (s, a) -> pop(a, false));
+        register("BLPOP", -3, (s, a) -> blockingPop(s, a, true));
+        register("BRPOP", -3, (s, a) -> blockingPop(s, a, false));
+        register("LLEN", 2, (s, a) -> (long) list(a.get(1)).size());
+        register("LRANGE", 4, this::lrange);
+        register("LINDEX", 3, this::lindex);
+        register("LSET", 4, this::lset);
+        register("LREM", 4, this::lrem);
+        register("LTRIM", 4, this::ltrim);
+        // sets
+        register("SADD", -3, this::sadd);
+        register("SREM", -3, this::srem);
+        register("SMEMBERS", 2, (s, a) -> new ArrayList<>(set(a.get(1))));
+        register("SISMEMBER", 3, (s, a) -> set(a.get(1)).contains(new Bytes(a.get(2))) ? 1L : 0L);
+        register("SCARD", 2, (s, a) -> (long) set(a.get(1)).size());
+        register("SPOP", -2, this::spop);
+        register("SRANDMEMBER", -2, this::srandmember);
+        register("SINTER", -2, (s, a) -> combine(a, 0));
+        register("SUNION", -2, (s, a) -> combine(a, 1));
+        register("SDIFF", -2, (s, a) -> combine(a, 2));
+        register("SSCAN", -3, this::sscan);
+        // sorted sets
+        register("ZADD", -4, this::zadd);
+        register("ZINCRBY", 4, this::zincrby);
+        register("ZREM", -3, this::zrem);
+        register("ZSCORE", 3, (s, a) -> zset(a.get(1)).score(new Bytes(a.get(2))));
+        register("ZCARD", 2, (s, a) -> (long) zset(a.get(1)).size());
+        register("ZCOUNT", 4, this::zcount);
+        register("ZLEXCOUNT", 4, this::zlexcount);
+        register("ZRANK", 3, (s, a) -> zrank(a, false));
+        register("ZREVRANK", 3, (s, a) -> zrank(a, true));
+        register("ZRANGE", -4, (s, a) -> zrange(a, false));
+        register("ZREVRANGE", -4, (s, a) -> zrange(a, true));
+        register("ZRANGEBYSCORE", -4, (s, a) -> zrangebyscore(a, false));
+        register("ZREVRANGEBYSCORE", -4, (s, a) -> zrangebyscore(a, true));
+        register("ZRANGEBYLEX", -4, (s, a) -> zrangebylex(a, false));
+        register("ZREVRANGEBYLEX", -4, (s, a) -> zrangebylex(a, true));
+        register("ZREMRANGEBYSCORE", 4, this::zremrangebyscore);
+        register("ZSCAN", -3, this::zscan);
+        // scripting
+        register("EVAL", -3, this::eval);
+        register("EVALSHA", -3, this::eval);
+        register("SCRIPT", -2, this::script);
+        // pub/sub
+        register("SUBSCRIBE", -2, (s, a) -> subscribe(s, a, channels, s.channels, "subscribe")).pubsub = true;
+        register("PSUBSCRIBE", -2, (s, a) -> subscribe(s, a, patterns, s.patterns, "psubscribe")).pubsub = true;
+        register("UNSUBSCRIBE", -1, (s, a) -> unsubscribe(s, a, channels, s.channels, "unsubscribe")).pubsub = true;
+        register("PUNSUBSCRIBE", -1, (s, a) -> unsubscribe(s, a, patterns, s.patterns, "punsubscribe")).pubsub = true;
+        register("PUBLISH", 3, (s, a) -> publish(new Bytes(a.get(1)), a.get(2)));
+        register("PUBSUB", -2, this::pubsub);
+        // transactions
+        register("MULTI", 1, this::multi).transaction = true;
+        register("EXEC", 1, this::exec).transaction = true;
+        register("DISCARD", 1, this::discard).transaction = true;
+        register("WATCH", -2, this::watch).transaction = true;
+        register("UNWATCH", 1, (s, a) -> {
+            unwatch(s);
+            return Resp.OK;
+        }).transaction = true;
+    }
+
+    // ---------------------------------------------------------------- connection & server
+
+    private Object ping(RespSession session, List<byte[]> args) {
+        if (session.isSubscribed() && session.protocol < 3) {
+            return Resp.list("pong", args.size() > 1 ? args.get(1) : new byte[0]);
+        }
+        return args.size() > 1 ? args.get(1) : Resp.PONG;
+    }
+
+    private Object quit(RespSession session, List<byte[]> args) {
+        session.reply(Resp.OK);
+        session.flush();
+        session.channel.close();
+        return Resp.NO_REPLY;
+    }
+
+    private Object select(RespSession session, List<byte[]> args) {
+        if (Resp.parseLong(args.get(1)) != 0) {
+            throw new RespException("ERR in-process server only supports database 0");
+        }
+        return Resp.OK;
+    }
+
+    private Object hello(RespSession session, List<byte[]> args) {
+        int protocol = session.protocol;
+        int i = 1;
+        if (args.size() > 1) {
+            long version = Resp.parseLong(args.get(1));
+            if (version < 2 || version > 3) {
+                throw new RespException("NOPROTO unsupported protocol version");
+            }
+            protocol = (int) version;
+            i = 2;
+        }
+        for (; i < args.size(); i++) {
+            if (Resp.is(args.get(i), "AUTH") && i + 2 < args.size()) {
+                i += 2;
+            } else if (Resp.is(args.get(i), "SETNAME") && i + 1 < args.size()) {
+                session.name = Resp.string(args.get(++i));
+            } else {
+                throw RespException.syntax();
+            }
+        }
+        session.protocol = protocol;
+        return new Resp.Map(Resp.list(
+                "server", "redis",
+                "version", "6.0.0",
+                "proto", (long) protocol,
+                "id", session.id,
+                "mode", "standalone",
+                "role", "master",
+                "modules", Collections.emptyList()));
+    }
+
+    private Object client(RespSession session, List<byte[]> args) {
+        byte[] sub = args.get(1);
+        if (Resp.is(sub, "ID")) {
+            return session.id;
+        }
+        if (Resp.is(sub, "SETNAME") && args.size() == 3) {
+            session.name = Resp.string(args.get(2));
+            return Resp.OK;
+        }
+        if (Resp.is(sub, "GETNAME")) {
+            return session.name == null ? null : Resp.bytes(session.name);
+        }
+        if (Resp.is(sub, "LIST")) {
+            StringBuilder buffer = new StringBuilder();
+            for (RespSession s : sessions.values()) {
+                buffer.append("id=").append(s.id)
+                        .append(" addr=").append(s.channel.remoteAddress())
+                        .append(" name=").append(s.name == null ? "" : s.name)
+                        .append(" db=0\n");
+            }
+            return buffer.toString();
+        }
+        if (Resp.is(sub, "TRACKING") && args.size() >= 3) {
+            return tracking(session, args);
+        }
+        throw new RespException("ERR unknown subcommand '" + Resp.string(sub) + "'");
+    }
+
+    private Object tracking(RespSession session, List<byte[]> args) {
+        if (Resp.is(args.get(2), "OFF")) {
+            session.trackingRedirect = -1;
+            session.trackingPrefixes = new ArrayList<>();
+            tracking.remove(session);
+            return Resp.OK;
+        }
+        if (!Resp.is(args.get(2), "ON")) {
+            throw RespException.syntax();
+        }
+        long redirect = 0;
+        boolean bcast = false;
+        List<byte[]> prefixes = new ArrayList<>();
+        for (int i = 3; i < args.size(); i++) {
+            byte[] option = args.get(i);
+            if (Resp.is(option, "REDIRECT") && i + 1 < args.size()) {
+                redirect = Resp.parseLong(args.get(++i));
+                if (!sessions.containsKey(redirect)) {
+                    throw new RespException("ERR The client ID you want redirect to does not exist");
+                }
+            } else if (Resp.is(option, "BCAST")) {
+                bcast = true;
+            } else if (Resp.is(option, "PREFIX") && i + 1 < args.size()) {
+                prefixes.add(args.get(++i));
+            } else if (Resp.is(option, "NOLOOP") || Resp.is(option, "OPTIN") || Resp.is(option, "OPTOUT")) {
+                throw new RespException("ERR in-process server does not support " + Resp.string(option));
+            } else {
+                throw RespException.syntax();
+            }
+        }
+        if (!bcast) {
+            throw new RespException("ERR in-process server only supports CLIENT TRACKING BCAST");
+        }
+        if (redirect == 0 && session.protocol < 3) {
+            throw new RespException("ERR RESP2 clients must use REDIRECT");
+        }
+        for (byte[] prefix : prefixes) {
+            for (byte[] existing : session.trackingPrefixes) {
+                if (new Bytes(prefix).startsWith(existing) || new Bytes(existing).startsWith(prefix)) {
+                    if (!Arrays.equals(prefix, existing)) {
+                        throw new RespException("ERR Prefix '" + Resp.string(prefix) + "' overlaps with an existing prefix '" +
+                                Resp.string(existing) + "'. Prefixes for a single client must not overlap.");
+                    }
+                }
+            }
+        }
+        session.trackingRedirect = redirect;
+        session.trackingPrefixes.addAll(prefixes);
+        tracking.add(session);
+        return Resp.OK;
+    }
+
+    private Object info(RespSession session, List<byte[]> args) {
+        StringBuilder info = new StringBuilder();
+        info.append("# Server\r\n")
+                .append("redis_version:6.0.0\r\n")
+                .append("redis_mode:standalone\r\n")
+                .append("uptime_in_seconds:").append((System.currentTimeMillis() - startTime) / 1000).append("\r\n")
+                .append("\r\n# Clients\r\n")
+                .append("connected_clients:").append(sessions.size()).append("\r\n")
+                .append("blocked_clients:").append(waiters.values().stream().mapToInt(Deque::size).sum()).append("\r\n")
+                .append("\r\n# Replication\r\n");
+        // 模拟主从复制状态，逗号分隔的replication字段
+        String replication = config.get("replication");
+        if (replication == null) {
+            info.append("role:master\r\n")
+                    .append("connected_slaves:0\r\n")
+                    .append("master_repl_offset:0\r\n");
+        } else {
+            for (String field : replication.split(",")) {
+                info.append(field).append("\r\n");
+            }
+        }
+        info.append("\r\n# Keyspace\r\n");
+        if (database.size() > 0) {
+            info.append("db0:keys=").append(database.size()).append(",expires=0,avg_ttl=0\r\n");
+        }
+        return info.toString();
+    }
+
+    private Object time(RespSession session, List<byte[]> args) {
+        long micros = TimeUnit.MILLISECONDS.toMicros(System.currentTimeMillis());
+        return Resp.list(Resp.bytes(micros / 1_000_000), Resp.bytes(micros % 1_000_000));
+    }
+
+    private Object flush(RespSession session, List<byte[]> args) {
+        for (Bytes key : database.keys()) {
+            Set<RespSession> watching = watchers.get(key);
+            if (watching != null) {
+                watching.forEach(s -> s.dirty = true);
+            }
+        }
+        database.clear();
+        invalidateAll();
+        return Resp.OK;
+    }
+
+    /**
+     * 集群拓扑由测试配置（cluster-nodes，CLUSTER NODES格式），不校验键所属槽
+     */
+    private Object cluster(RespSession session, List<byte[]> args) {
+        String nodes = config.get("cluster-nodes");
+        if (nodes == null) {
+            throw new RespException("ERR This instance has cluster support disabled");
+        }
+        byte[] sub = args.get(1);
+        if (Resp.is(sub, "NODES")) {
+            return nodes;
+        }
+        if (Resp.is(sub, "MYID")) {
+            for (String node : nodes.split("\n")) {
+                if (node.contains("myself")) {
+                    return node.substring(0, node.indexOf(' '));
+                }
+            }
+        }
+        throw new RespException("ERR unknown subcommand '" + Resp.string(sub) + "'");
+    }
+
+    private Object config(RespSession session, List<byte[]> args) {
+        byte[] sub = args.get(1);
+        if (Resp.is(sub, "GET") && args.size() == 3) {
+            List<Object> result = new ArrayList<>();
+            for (Map.Entry<String, String> e : config.entrySet()) {
+                if (Resp.match(args.get(2), Resp.bytes(e.getKey()))) {
+                    result.add(e.getKey());
+                    result.add(e.getValue());
+                }
+            }
+            return new Resp.Map(result);
+        }
+        if (Resp.is(sub, "SET") && args.size() == 4) {
+            config.put(Resp.string(args.get(2)).toLowerCase(), Resp.string(args.get(3)));
+            return Resp.OK;
+        }
+        if (Resp.is(sub, "RESETSTAT")) {
+            return Resp.OK;
+        }
+        throw new RespException("ERR unknown subcommand '" + Resp.string(sub) + "'");
+    }
+
+    // ---------------------------------------------------------------- keys
+
+    private Object del(RespSession session, List<byte[]> args) {
+        long n = 0;
+        for (int i = 1; i < args.size(); i++) {
+            Bytes key = new Bytes(args.get(i));
+            if (database.remove(key)) {
+                modified(key, 'g', "del");
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private Object exists(RespSession session, List<byte[]> args) {
+        long n = 0;
+        for (int i = 1; i < args.size(); i++) {
+            if (database.getEntry(new Bytes(args.get(i))) != null) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private Object type(RespSession session, List<byte[]> args) {
+        Object value = database.get(new Bytes(args.get(1)));
+        return new Resp.Status(typeOf(value));
+    }
+
+    private static String typeOf(Object value) {
+        if (value == null) {
+            return "none";
+        }
+        if (value instanceof byte[]) {
+            return "string";
+        }
+        if (value instanceof Map) {
+            return "hash";
+        }
+        if (value instanceof List) {
+            return "list";
+        }
+        if (value instanceof Set) {
+            return "set";
+        }
+        return "zset";
+    }
+
+    private Object ttl(List<byte[]> args, long unit) {
+        RespDatabase.Entry entry = database.getEntry(new Bytes(args.get(1)));
+        if (entry == null) {
+            return -2L;
+        }
+        if (entry.expireAt == 0) {
+            return -1L;
+        }
+        long millis = Long.max(0, entry.expireAt - RespDatabase.now());
+        return unit == 1 ? millis : (millis + 500) / 1000;
+    }
+
+    private Object expire(List<byte[]> args, long unit) {
+        Bytes key = new Bytes(args.get(1));
+        long ttl = Resp.parseLong(args.get(2));
+        RespDatabase.Entry entry = database.getEntry(key);
+        if (entry == null) {
+            return 0L;
+        }
+        if (ttl <= 0) {
+            database.remove(key);
+            modified(key, 'g', "del");
+        } else {
+            database.setExpireAt(entry, RespDatabase.now() + ttl * unit);
+            modified(key, 'g', "expire");
+        }
+        return 1L;
+    }
+
+    private Object persist(RespSession session, List<byte[]> args) {
+        RespDatabase.Entry entry = database.getEntry(new Bytes(args.get(1)));
+        if (entry == null || entry.expireAt == 0) {
+            return 0L;
+        }
+        database.setExpireAt(entry, 0);
+        return 1L;
+    }
+
+    private Object keys(RespSession session, List<byte[]> args) {
+        List<Object> result = new ArrayList<>();
+        for (Bytes key : database.keys()) {
+            if (Resp.match(args.get(1), key.get()) && database.getEntry(key) != null) {
+                result.add(key);
+            }
+        }
+        return result;
+    }
+
+    private Object scan(RespSession session, List<byte[]> args) {
+        long cursor = Resp.parseLong(args.get(1));
+        ScanOptions options = new ScanOptions(args, 2);
+        List<Object> keys = new ArrayList<>();
+        long next = database.scan(cursor, options.count, key -> {
+            if (options.matches(key) && (options.type == null || options.type.equals(typeOf(database.get(key))))) {
+                keys.add(key);
+            }
+        });
+        return Resp.list(Resp.bytes(next), keys);
+    }
+
+    private Object randomkey(RespSession session, List<byte[]> args) {
+        List<Bytes> keys = new ArrayList<>();
+        database.keys().forEach(keys::add);
+        while (!keys.isEmpty()) {
+            Bytes key = keys.remove(ThreadLocalRandom.current().nextInt(keys.size()));
+            if (database.getEntry(key) != null) {
+                return key;
+            }
+        }
+        return null;
+    }
+
+    private Object rename(RespSession session, List<byte[]> args) {
+        Bytes source = new Bytes(args.get(1));
+        Bytes target = new Bytes(args.get(2));
+        RespDatabase.Entry entry = database.getEntry(source);
+        if (entry == null) {
+            throw new RespException("ERR no such key");
+        }
+        long expireAt = entry.expireAt;
+        Object value = entry.value;
+        database.remove(source);
+        database.put(target, value, expireAt);
+        modified(source, 'g', "rename_from");
+        modified(target, 'g', "rename_to");
+        return Resp.OK;
+    }
+
+    private static class ScanOptions {
+        protected byte[] match;
+        protected int count = 10;
+        protected String type;
+
+        ScanOptions(List<byte[]> args, int offset) {
+            for (int i = offset; i < args.size(); i++) {
+                if (Resp.is(args.get(i), "MATCH") && i + 1 < args.size()) {
+                    match = args.get(++i);
+                } else if (Resp.is(args.get(i), "COUNT") && i + 1 < args.size()) {
+                    count = (int) Resp.parseLong(args.get(++i));
+                    if (count < 1) {
+                        throw RespException.syntax();
+                    }
+                } else if (Resp.is(args.get(i), "TYPE") && i + 1 < args.size()) {
+                    type = Resp.string(args.get(++i)).toLowerCase();
+                } else {
+                    throw RespException.syntax();
+                }
+            }
+        }
+
+        boolean matches(Bytes element) {
+            return match == null || Resp.match(match, element.get());
+        }
+    }
+
+    /**
+     * 集合类型扫描，按成员哈希顺序遍历，游标为下一哈希值+1（同Redis：扫描期间一直存在的元素必定返回，
+     * 哈希相同的元素在同一页返回）
+     */
+    private static <E> Object scanCollection(List<byte[]> args, Iterable<E> elements,
+                                             BiConsumer<E, List<Object>> emit, Function<E, Bytes> member) {
+        long cursor = Resp.parseLong(args.get(2));
+        ScanOptions options = new ScanOptions(args, 3);
+        long from = cursor == 0 ? 0 : cursor - 1;
+        List<Map.Entry<Long, E>> candidates = new ArrayList<>();
+        for (E element : elements) {
+            long hash = scanHash(member.apply(element));
+            if (hash >= from) {
+                candidates.add(new AbstractMap.SimpleImmutableEntry<>(hash, element));
+            }
+        }
+        candidates.sort(Map.Entry.comparingByKey());
+        List<Object> result = new ArrayList<>();
+        long next = 0;
+        for (int i = 0; i < candidates.size(); i++) {
+            Map.Entry<Long, E> candidate = candidates.get(i);
+            if (i >= options.count && !candidate.getKey().equals(candidates.get(i - 1).getKey())) {
+                next = candidate.getKey() + 1;
+                break;
+            }
+            if (options.matches(member.apply(candidate.getValue()))) {
+                emit.accept(candidate.getValue(), result);
+            }
+        }
+        return Resp.list(Resp.bytes(next), result);
+    }
+
+    private static long scanHash(Bytes member) {
+        int h = member.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return Integer.toUnsignedLong(h);
+    }
+
+    // ---------------------------------------------------------------- strings
+
+    private Object set(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        byte[] value = args.get(2);
+        long expireAt = 0;
+        boolean nx = false;
+        boolean xx = false;
+        boolean keepTtl = false;
+        boolean get = false;
+        for (int i = 3; i < args.size(); i++) {
+            byte[] option = args.get(i);
+            if (Resp.is(option, "NX")) {
+                nx = true;
+            } else if (Resp.is(option, "XX")) {
+                xx = true;
+            } else if (Resp.is(option, "KEEPTTL")) {
+                keepTtl = true;
+            } else if (Resp.is(option, "GET")) {
+                get = true;
+            } else if ((Resp.is(option, "EX") || Resp.is(option, "PX")) && i + 1 < args.size()) {
+                long ttl = Resp.parseLong(args.get(++i));
+                if (ttl <= 0) {
+                    throw new RespException("ERR invalid expire time in set");
+                }
+                expireAt = RespDatabase.now() + (Resp.is(option, "EX") ? ttl * 1000 : ttl);
+            } else {
+                throw RespException.syntax();
+            }
+        }
+        if (nx && xx) {
+            throw RespException.syntax();
+        }
+        RespDatabase.Entry entry = database.getEntry(key);
+        Object old = entry == null ? null : entry.value;
+        if (get && old != null && !(old instanceof byte[])) {
+            throw RespException.wrongType();
+        }
+        if ((nx && entry != null) || (xx && entry == null)) {
+            return get ? old : null;
+        }
+        if (keepTtl && entry != null && expireAt == 0) {
+            expireAt = entry.expireAt;
+        }
+        database.put(key, value, expireAt);
+        modified(key, '$', "set");
+        return get ? old : Resp.OK;
+    }
+
+    private Object getset(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        byte[] old = database.get(key, byte[].class);
+        database.put(key, args.get(2));
+        modified(key, '$', "set");
+        return old;
+    }
+
+    private Object mget(RespSession session, List<byte[]> args) {
+        List<Object> result = new ArrayList<>(args.size() - 1);
+        for (int i = 1; i < args.size(); i++) {
+            Object value = database.get(new Bytes(args.get(i)));
+            result.add(value instanceof byte[] ? value : null);
+        }
+        return result;
+    }
+
+    private Object mset(RespSession session, List<byte[]> args) {
+        if (args.size() % 2 != 1) {
+            throw RespException.wrongArity("MSET");
+        }
+        for (int i = 1; i < args.size(); i += 2) {
+            Bytes key = new Bytes(args.get(i));
+            database.put(key, args.get(i + 1));
+            modified(key, '$', "set");
+        }
+        return Resp.OK;
+    }
+
+    private Object incrby(byte[] k, long delta) {
+        Bytes key = new Bytes(k);
+        RespDatabase.Entry entry = database.getEntry(key);
+        long value = 0;
+        if (entry != null) {
+            if (!(entry.value instanceof byte[])) {
+                throw RespException.wrongType();
+            }
+            value = Resp.parseLong((byte[]) entry.value);
+        }
+        try {
+            value = Math.addExact(value, delta);
+        } catch (ArithmeticException e) {
+            throw new RespException("ERR increment or decrement would overflow");
+        }
+        if (entry == null) {
+            database.put(key, Resp.bytes(value));
+        } else {
+            entry.value = Resp.bytes(value);
+        }
+        modified(key, '$', delta >= 0 ? "incrby" : "decrby");
+        return value;
+    }
+
+    private Object incrbyfloat(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        RespDatabase.Entry entry = database.getEntry(key);
+        double value = 0;
+        if (entry != null) {
+            if (!(entry.value instanceof byte[])) {
+                throw RespException.wrongType();
+            }
+            value = Resp.parseDouble((byte[]) entry.value);
+        }
+        value += Resp.parseDouble(args.get(2));
+        byte[] bytes = Resp.bytes(Resp.formatDouble(value));
+        if (entry == null) {
+            database.put(key, bytes);
+        } else {
+            entry.value = bytes;
+        }
+        modified(key, '$', "incrbyfloat");
+        return bytes;
+    }
+
+    private Object strlen(RespSession session, List<byte[]> args) {
+        byte[] value = database.get(new Bytes(args.get(1)), byte[].class);
+        return value == null ? 0L : (long) value.length;
+    }
+
+    private Object append(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        RespDatabase.Entry entry = database.getEntry(key);
+        byte[] suffix = args.get(2);
+        if (entry == null) {
+            database.put(key, suffix);
+            modified(key, '$', "append");
+            return (long) suffix.length;
+        }
+        if (!(entry.value instanceof byte[])) {
+            throw RespException.wrongType();
+        }
+        byte[] old = (byte[]) entry.value;
+        byte[] value = Arrays.copyOf(old, old.length + suffix.length);
+        System.arraycopy(suffix, 0, value, old.length, suffix.length);
+        entry.value = value;
+        modified(key, '$', "append");
+        return (long) value.length;
+    }
+
+    private Object getrange(RespSession session, List<byte[]> args) {
+        byte[] value = database.get(new Bytes(args.get(1)), byte[].class);
+        if (value == null) {
+            return new byte[0];
+        }
+        long start = Resp.parseLong(args.get(2));
+        long end = Resp.parseLong(args.get(3));
+        if (start < 0) {
+            start = Long.max(0, value.length + start);
+        }
+        if (end < 0) {
+            end = value.length + end;
+        }
+        end = Long.min(end, value.length - 1);
+        if (start > end) {
+            return new byte[0];
+        }
+        return Arrays.copyOfRange(value, (int) start, (int) end + 1);
+    }
+
+    // ---------------------------------------------------------------- hashes
+
+    @SuppressWarnings("unchecked")
+    private Map<Bytes, byte[]> hash(byte[] key) {
+        Map<Bytes, byte[]> hash = database.get(new Bytes(key), Map.class);
+        return hash == null ? Collections.emptyMap() : hash;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Bytes, byte[]> createHash(Bytes key) {
+        return database.getOrCreate(key, Map.class, LinkedHashMap::new);
+    }
+
+    private Object hget(RespSession session, List<byte[]> args) {
+        return hash(args.get(1)).get(new Bytes(args.get(2)));
+    }
+
+    private Object hset(RespSession session, List<byte[]> args) {
+        if (args.size() % 2 != 0) {
+            throw RespException.wrongArity(Resp.string(args.get(0)));
+        }
+        Bytes key = new Bytes(args.get(1));
+        Map<Bytes, byte[]> hash = createHash(key);
+        long n = 0;
+        for (int i = 2; i < args.size(); i += 2) {
+            if (hash.put(new Bytes(args.get(i)), args.get(i + 1)) == null) {
+                n++;
+            }
+        }
+        modified(key, 'h', "hset");
+        return n;
+    }
+
+    private Object hsetnx(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        Map<Bytes, byte[]> hash = createHash(key);
+        if (hash.putIfAbsent(new Bytes(args.get(2)), args.get(3)) != null) {
+            return 0L;
+        }
+        modified(key, 'h', "hset");
+        return 1L;
+    }
+
+    private Object hmget(RespSession session, List<byte[]> args) {
+        Map<Bytes, byte[]> hash = hash(args.get(1));
+        List<Object> result = new ArrayList<>(args.size() - 2);
+        for (int i = 2; i < args.size(); i++) {
+            result.add(hash.get(new Bytes(args.get(i))));
+        }
+        return result;
+    }
+
+    private Object hgetall(RespSession session, List<byte[]> args) {
+        List<Object> result = new ArrayList<>();
+        for (Map.Entry<Bytes, byte[]> e : hash(args.get(1)).entrySet()) {
+            result.add(e.getKey());
+            result.add(e.getValue());
+        }
+        return new Resp.Map(result);
+    }
+
+    private Object hdel(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        Map<Bytes, byte[]> hash = hash(args.get(1));
+        long n = 0;
+        for (int i = 2; i < args.size(); i++) {
+            if (hash.remove(new Bytes(args.get(i))) != null) {
+                n++;
+            }
+        }
+        if (n > 0) {
+            if (hash.isEmpty()) {
+                database.remove(key);
+            }
+            modified(key, 'h', "hdel");
+        }
+        return n;
+    }
+
+    private Object hstrlen(RespSession session, List<byte[]> args) {
+        byte[] value = hash(args.get(1)).get(new Bytes(args.get(2)));
+        return value == null ? 0L : (long) value.length;
+    }
+
+    private Object hincrby(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        long delta = Resp.parseLong(args.get(3));
+        Map<Bytes, byte[]> hash = createHash(key);
+        Bytes field = new Bytes(args.get(2));
+        byte[] old = hash.get(field);
+        long value;
+        try {
+            value = Math.addExact(old == null ? 0 : Resp.parseLong(old), delta);
+        } catch (RespException e) {
+            throw new RespException("ERR hash value is not an integer");
+        } catch (ArithmeticException e) {
+            throw new RespException("ERR increment or decrement would overflow");
+        }
+        hash.put(field, Resp.bytes(value));
+        modified(key, 'h', "hincrby");
+        return value;
+    }
+
+    private Object hscan(RespSession session, List<byte[]> args) {
+        return scanCollection(args, hash(args.get(1)).entrySet(), (e, result) -> {
+            result.add(e.getKey());
+            result.add(e.getValue());
+        }, Map.Entry::getKey);
+    }
+
+    // ---------------------------------------------------------------- lists
+
+    @SuppressWarnings("unchecked")
+    private List<byte[]> list(byte[] key) {
+        List<byte[]> list = database.get(new Bytes(key), List.class);
+        return list == null ? Collections.emptyList() : list;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object push(List<byte[]> args, boolean left) {
+        Bytes key = new Bytes(args.get(1));
+        List<byte[]> list = database.getOrCreate(key, List.class, ArrayList::new);
+        for (int i = 2; i < args.size(); i++) {
+            if (left) {
+                list.add(0, args.get(i));
+            } else {
+                list.add(args.get(i));
+            }
+        }
+        long size = list.size();
+        modified(key, 'l', left ? "lpush" : "rpush");
+        signal(key);
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object pop(List<byte[]> args, boolean left) {
+        Bytes key = new Bytes(args.get(1));
+        List<byte[]> list = database.get(key, List.class);
+        if (list == null || list.isEmpty()) {
+            return null;
+        }
+        return pop(key, list, left);
+    }
+
+    private Object lrange(RespSession session, List<byte[]> args) {
+        List<byte[]> list = list(args.get(1));
+        int size = list.size();
+        long start = Resp.parseLong(args.get(2));
+        long stop = Resp.parseLong(args.get(3));
+        if (start < 0) {
+            start = Long.max(0, size + start);
+        }
+        if (stop < 0) {
+            stop = size + stop;
+        }
+        stop = Long.min(stop, size - 1);
+        if (start > stop) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<Object>(list.subList((int) start, (int) stop + 1));
+    }
+
+    private Object lindex(RespSession session, List<byte[]> args) {
+        List<byte[]> list = list(args.get(1));
+        long index = Resp.parseLong(args.get(2));
+        if (index < 0) {
+            index += list.size();
+        }
+        return index < 0 || index >= list.size() ? null : list.get((int) index);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object lset(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        List<byte[]> list = database.get(key, List.class);
+        if (list == null) {
+            throw new RespException("ERR no such key");
+        }
+        long index = Resp.parseLong(args.get(2));
+        if (index < 0) {
+            index += list.size();
+        }
+        if (index < 0 || index >= list.size()) {
+            throw new RespException("ERR index out of range");
+        }
+        list.set((int) index, args.get(3));
+        modified(key, 'l', "lset");
+        return Resp.OK;
+    }
+
+    private Object lrem(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        List<byte[]> list = list(args.get(1));
+        long count = Resp.parseLong(args.get(2));
+        byte[] element = args.get(3);
+        long removed = 0;
+        if (count >= 0) {
+            for (Iterator<byte[]> iterator = list.iterator(); iterator.hasNext() && (count == 0 || removed < count); ) {
+                if (Arrays.equals(iterator.next(), element)) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+        } else {
+            for (int i = list.size() - 1; i >= 0 && removed < -count; i--) {
+                if (Arrays.equals(list.get(i), element)) {
+                    list.remove(i);
+                    removed++;
+                }
+            }
+        }
+        if (removed > 0) {
+            if (list.isEmpty()) {
+                database.remove(key);
+            }
+            modified(key, 'l', "lrem");
+        }
+        return removed;
+    }
+
+    private Object ltrim(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        List<byte[]> list = list(args.get(1));
+        int size = list.size();
+        long start = Resp.parseLong(args.get(2));
+        long stop = Resp.parseLong(args.get(3));
+        if (start < 0) {
+            start = Long.max(0, size + start);
+        }
+        if (stop < 0) {
+            stop = size + stop;
+        }
+        stop = Long.min(stop, size - 1);
+        if (start > stop) {
+            database.remove(key);
+        } else {
+            list.subList((int) stop + 1, size).clear();
+            list.subList(0, (int) start).clear();
+        }
+        modified(key, 'l', "ltrim");
+        return Resp.OK;
+    }
+
+    // ---------------------------------------------------------------- sets
+
+    @SuppressWarnings("unchecked")
+    private Set<Bytes> set(byte[] key) {
+        Set<Bytes> set = database.get(new Bytes(key), Set.class);
+        return set == null ? Collections.emptySet() : set;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object sadd(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        Set<Bytes> set = database.getOrCreate(key, Set.class, LinkedHashSet::new);
+        long n = 0;
+        for (int i = 2; i < args.size(); i++) {
+            if (set.add(new Bytes(args.get(i)))) {
+                n++;
+            }
+        }
+        if (n > 0) {
+            modified(key, 's', "sadd");
+        }
+        return n;
+    }
+
+    private Object srem(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        Set<Bytes> set = set(args.get(1));
+        long n = 0;
+        for (int i = 2; i < args.size(); i++) {
+            if (set.remove(new Bytes(args.get(i)))) {
+                n++;
+            }
+        }
+        if (n > 0) {
+            if (set.isEmpty()) {
+                database.remove(key);
+            }
+            modified(key, 's', "srem");
+        }
+        return n;
+    }
+
+    private Object spop(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        Set<Bytes> set = set(args.get(1));
+        long count = args.size() > 2 ? Resp.parseLong(args.get(2)) : 1;
+        List<Object> result = new ArrayList<>();
+        List<Bytes> members = new ArrayList<>(set);
+        Collections.shuffle(members);
+        for (int i = 0; i < count && i < members.size(); i++) {
+            set.remove(members.get(i));
+            result.add(members.get(i));
+        }
+        if (!result.isEmpty()) {
+            if (set.isEmpty()) {
+                database.remove(key);
+            }
+            modified(key, 's', "spop");
+        }
+        if (args.size() > 2) {
+            return result;
+        }
+        return result.isEmpty() ? null : result.get(0);
+    }
+
+    private Object srandmember(RespSession session, List<byte[]> args) {
+        List<Bytes> members = new ArrayList<>(set(args.get(1)));
+        if (args.size() == 2) {
+            return members.isEmpty() ? null : members.get(ThreadLocalRandom.current().nextInt(members.size()));
+        }
+        long count = Resp.parseLong(args.get(2));
+        List<Object> result = new ArrayList<>();
+        if (members.isEmpty()) {
+            return result;
+        }
+        if (count < 0) {
+            for (long i = 0; i < -count; i++) {
+                result.add(members.get(ThreadLocalRandom.current().nextInt(members.size())));
+            }
+        } else {
+            Collections.shuffle(members);
+            result.addAll(members.subList(0, (int) Long.min(count, members.size())));
+        }
+        return result;
+    }
+
+    /**
+     * 0: 交集，1: 并集，2: 差集
+     */
+    private Object combine(List<byte[]> args, int operation) {
+        Set<Bytes> result = new LinkedHashSet<>(set(args.get(1)));
+        for (int i = 2; i < args.size(); i++) {
+            Set<Bytes> other = set(args.get(i));
+            if (operation == 0) {
+                result.retainAll(other);
+            } else if (operation == 1) {
+                result.addAll(other);
+            } else {
+                result.removeAll(other);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    private Object sscan(RespSession session, List<byte[]> args) {
+        return scanCollection(args, set(args.get(1)), (e, result) -> result.add(e), e -> e);
+    }
+
+    // ---------------------------------------------------------------- sorted sets
+
+    private RespSortedSet zset(byte[] key) {
+        RespSortedSet zset = database.get(new Bytes(key), RespSortedSet.class);
+        return zset == null ? new RespSortedSet() : zset;
+    }
+
+    private Object zadd(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        boolean nx = false;
+        boolean xx = false;
+        boolean ch = false;
+        boolean incr = false;
+        int i = 2;
+        for (; i < args.size(); i++) {
+            byte[] option = args.get(i);
+            if (Resp.is(option, "NX")) {
+                nx = true;
+            } else if (Resp.is(option, "XX")) {
+                xx = true;
+            } else if (Resp.is(option, "CH")) {
+                ch = true;
+            } else if (Resp.is(option, "INCR")) {
+                incr = true;
+            } else {
+                break;
+            }
+        }
+        int n = args.size() - i;
+        if (n == 0 || n % 2 != 0 || (nx && xx) || (incr && n != 2)) {
+            throw RespException.syntax();
+        }
+        double[] scores = new double[n / 2];
+        for (int j = 0; j < scores.length; j++) {
+            scores[j] = Resp.parseDouble(args.get(i + j * 2));
+        }
+        RespSortedSet zset = database.get(key, RespSortedSet.class);
+        if (zset == null) {
+            if (xx) {
+                return incr ? null : 0L;
+            }
+            zset = new RespSortedSet();
+            database.put(key, zset);
+        }
+        long added = 0;
+        long changed = 0;
+        Double result = null;
+        for (int j = 0; j < scores.length; j++) {
+            Bytes member = new Bytes(args.get(i + j * 2 + 1));
+            Double old = zset.score(member);
+            if ((nx && old != null) || (xx && old == null)) {
+                continue;
+            }
+            double score = incr && old != null ? old + scores[j] : scores[j];
+            result = score;
+            if (old == null) {
+                added++;
+                zset.add(member, score);
+            } else if (old != score) {
+                changed++;
+                zset.add(member, score);
+            }
+        }
+        if (zset.isEmpty()) {
+            database.remove(key);
+        }
+        if (added + changed > 0) {
+            modified(key, 'z', incr ? "zincr" : "zadd");
+        }
+        if (incr) {
+            return result;
+        }
+        return ch ? added + changed : added;
+    }
+
+    private Object zincrby(RespSession session, List<byte[]> args) {
+        return zadd(session, Arrays.asList(Resp.bytes("ZADD"), args.get(1), Resp.bytes("INCR"), args.get(2), args.get(3)));
+    }
+
+    private Object zrem(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        RespSortedSet zset = zset(args.get(1));
+        long n = 0;
+        for (int i = 2; i < args.size(); i++) {
+            if (zset.remove(new Bytes(args.get(i)))) {
+                n++;
+            }
+        }
+        if (n > 0) {
+            if (zset.isEmpty()) {
+                database.remove(key);
+            }
+            modified(key, 'z', "zrem");
+        }
+        return n;
+    }
+
+    private Object zcount(RespSession session, List<byte[]> args) {
+        RespSortedSet.ScoreRange range = new RespSortedSet.ScoreRange(args.get(2), args.get(3));
+        return (long) zset(args.get(1)).rangeByScore(range, false, 0, -1).size();
+    }
+
+    private Object zlexcount(RespSession session, List<byte[]> args) {
+        RespSortedSet.LexRange range = new RespSortedSet.LexRange(args.get(2), args.get(3));
+        return (long) zset(args.get(1)).rangeByLex(range, false, 0, -1).size();
+    }
+
+    private Object zrank(List<byte[]> args, boolean reverse) {
+        long rank = zset(args.get(1)).rank(new Bytes(args.get(2)), reverse);
+        return rank < 0 ? null : rank;
+    }
+
+    private Object zrange(List<byte[]> args, boolean reverse) {
+        boolean withScores = false;
+        for (int i = 4; i < args.size(); i++) {
+            if (Resp.is(args.get(i), "WITHSCORES")) {
+                withScores = true;
+            } else {
+                throw RespException.syntax();
+            }
+        }
+        List<RespSortedSet.Member> members = zset(args.get(1))
+                .range(Resp.parseLong(args.get(2)), Resp.parseLong(args.get(3)), reverse);
+        return members(members, withScores);
+    }
+
+    private Object zrangebyscore(List<byte[]> args, boolean reverse) {
+        RespSortedSet.ScoreRange range = reverse ?
+                new RespSortedSet.ScoreRange(args.get(3), args.get(2)) :
+                new RespSortedSet.ScoreRange(args.get(2), args.get(3));
+        RangeOptions options = new RangeOptions(args, 4, true);
+        return members(zset(args.get(1)).rangeByScore(range, reverse, options.offset, options.count), options.withScores);
+    }
+
+    private Object zrangebylex(List<byte[]> args, boolean reverse) {
+        RespSortedSet.LexRange range = reverse ?
+                new RespSortedSet.LexRange(args.get(3), args.get(2)) :
+                new RespSortedSet.LexRange(args.get(2), args.get(3));
+        RangeOptions options = new RangeOptions(args, 4, false);
+        return members(zset(args.get(1)).rangeByLex(range, reverse, options.offset, options.count), false);
+    }
+
+    private Object zremrangebyscore(RespSession session, List<byte[]> args) {
+        Bytes key = new Bytes(args.get(1));
+        RespSortedSet zset = zset(args.get(1));
+        RespSortedSet.ScoreRange range = new RespSortedSet.ScoreRange(args.get(2), args.get(3));
+        List<RespSortedSet.Member> members = zset.rangeByScore(range, false, 0, -1);
+        for (RespSortedSet.Member member : members) {
+            zset.remove(member.member);
+        }
+        if (!members.isEmpty()) {
+            if (zset.isEmpty()) {
+                database.remove(key);
+            }
+            modified(key, 'z', "zremrangebyscore");
+        }
+        return (long) members.size();
+    }
+
+    private Object zscan(RespSession session, List<byte[]> args) {
+        return scanCollection(args, zset(args.get(1)).ascending(), (e, result) -> {
+            result.add(e.member);
+            result.add(e.score);
+        }, e -> e.member);
+    }
+
+    private static List<Object> members(List<RespSortedSet.Member> members, boolean withScores) {
+        List<Object> result = new ArrayList<>(withScores ? members.size() * 2 : members.size());
+        for (RespSortedSet.Member member : members) {
+            result.add(member.member);
+            if (withScores) {
+                result.add(member.score);
+            }
+        }
+        return result;
+    }
+
+    private static class RangeOptions {
+        protected boolean withScores;
+        protected long offset = 0;
+        protected long count = -1;
+
+        RangeOptions(List<byte[]> args, int offset, boolean scores) {
+            for (int i = offset; i < args.size(); i++) {
+                if (scores && Resp.is(args.get(i), "WITHSCORES")) {
+                    withScores = true;
+                } else if (Resp.is(args.get(i), "LIMIT") && i + 2 < args.size()) {
+                    this.offset = Resp.parseLong(args.get(++i));
+                    this.count = Resp.parseLong(args.get(++i));
+                } else {
+                    throw RespException.syntax();
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------- scripting
+
+    private Object eval(RespSession session, List<byte[]> args) {
+        String sha1 = Resp.is(args.get(0), "EVAL") ?
+                sha1Hex(args.get(1)) :
+                Resp.string(args.get(1)).toLowerCase();
+        RespScripts.Script script = scripts.get(sha1);
+        if (script == null) {
+            if (Resp.is(args.get(0), "EVAL")) {
+                throw new RespException("ERR in-process server cannot run arbitrary Lua, register a script implementation for " + sha1);
+            }
+            throw new RespException("NOSCRIPT No matching script. Please use EVAL.");
+        }
+        long numKeys = Resp.parseLong(args.get(2));
+        if (numKeys < 0 || numKeys > args.size() - 3) {
+            throw new RespException("ERR Number of keys can't be greater than number of args");
+        }
+        List<byte[]> keys = args.subList(3, 3 + (int) numKeys);
+        List<byte[]> argv = args.subList(3 + (int) numKeys, args.size());
+        boolean previous = nonBlocking;
+        nonBlocking = true;
+        try {
+            return script.eval(this, session, keys, argv);
+        } finally {
+            nonBlocking = previous;
+        }
+    }
+
+    private Object script(RespSession session, List<byte[]> args) {
+        byte[] sub = args.get(1);
+        if (Resp.is(sub, "LOAD") && args.size() == 3) {
+            String sha1 = sha1Hex(args.get(2));
+            if (!scripts.containsKey(sha1)) {
+                throw new RespException("ERR in-process server cannot run arbitrary Lua, register a script implementation for " + sha1);
+            }
+            return sha1;
+        }
+        if (Resp.is(sub, "EXISTS")) {
+            List<Object> result = new ArrayList<>();
+            for (int i = 2; i < args.size(); i++) {
+                result.add(scripts.containsKey(Resp.string(args.get(i)).toLowerCase()) ? 1L : 0L);
+            }
+            return result;
+        }
+        if (Resp.is(sub, "FLUSH")) {
+            // 脚本为内置实现，无需清理
+            return Resp.OK;
+        }
+        throw new RespException("ERR unknown subcommand '" + Resp.string(sub) + "'");
+    }
+
+    public static String sha1Hex(byte[] script) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(script);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+                hex.append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // ---------------------------------------------------------------- pub/sub
+
+    private Object subscribe(RespSession session, List<byte[]> args,
+                             Map<Bytes, Set<RespSession>> registry, Set<Bytes> subscribed, String kind) {
+        for (int i = 1; i < args.size(); i++) {
+            Bytes channel = new Bytes(args.get(i));
+            if (subscribed.add(channel)) {
+                registry.computeIfAbsent(channel, k -> new LinkedHashSet<>()).add(session);
+            }
+            session.reply(new Resp.Push(Resp.list(kind, channel, (long) (session.channels.size() + session.patterns.size()))));
+        }
+        return Resp.NO_REPLY;
+    }
+
+    private Object unsubscribe(RespSession session, List<byte[]> args,
+                               Map<Bytes, Set<RespSession>> registry, Set<Bytes> subscribed, String kind) {
+        List<Bytes> targets = new ArrayList<>();
+        if (args.size() == 1) {
+            targets.addAll(subscribed);
+        } else {
+            for (int i = 1; i < args.size(); i++) {
+                targets.add(new Bytes(args.get(i)));
+            }
+        }
+        if (targets.isEmpty()) {
+            session.reply(new Resp.Push(Resp.list(kind, null, (long) (session.channels.size() + session.patterns.size()))));
+        }
+        for (Bytes channel : targets) {
+            if (subscribed.remove(channel)) {
+                Set<RespSession> sessions = registry.get(channel);
+                sessions.remove(session);
+                if (sessions.isEmpty()) {
+                    registry.remove(channel);
+                }
+            }
+            session.reply(new Resp.Push(Resp.list(kind, channel, (long) (session.channels.size() + session.patterns.size()))));
+        }
+        return Resp.NO_REPLY;
+    }
+
+    private void unsubscribeAll(RespSession session, Map<Bytes, Set<RespSession>> registry, Set<Bytes> subscribed) {
+        for (Bytes channel : subscribed) {
+            Set<RespSession> sessions = registry.get(channel);
+            if (sessions != null) {
+                sessions.remove(session);
+                if (sessions.isEmpty()) {
+                    registry.remove(channel);
+                }
+            }
+        }
+        subscribed.clear();
+    }
+
+    private Object pubsub(RespSession session, List<byte[]> args) {
+        byte[] sub = args.get(1);
+        if (Resp.is(sub, "CHANNELS")) {
+            List<Object> result = new ArrayList<>();
+            for (Bytes channel : channels.keySet()) {
+                if (args.size() < 3 || Resp.match(args.get(2), channel.get())) {
+                    result.add(channel);
+                }
+            }
+            return result;
+        }
+        if (Resp.is(sub, "NUMSUB")) {
+            List<Object> result = new ArrayList<>();
+            for (int i = 2; i < args.size(); i++) {
+                Set<RespSession> subscribers = channels.get(new Bytes(args.get(i)));
+                result.add(args.get(i));
+                result.add(subscribers == null ? 0L : (long) subscribers.size());
+            }
+            return result;
+        }
+        if (Resp.is(sub, "NUMPAT")) {
+            return (long) patterns.size();
+        }
+        throw new RespException("ERR unknown subcommand '" + Resp.string(sub) + "'");
+    }
+
+    // ---------------------------------------------------------------- transactions
+
+    private Object multi(RespSession session, List<byte[]> args) {
+        if (session.multi != null) {
+            throw new RespException("ERR MULTI calls can not be nested");
+        }
+        session.multi = new ArrayList<>();
+        session.multiError = false;
+        return Resp.OK;
+    }
+
+    private Object exec(RespSession session, List<byte[]> args) {
+        if (session.multi == null) {
+            throw new RespException("ERR EXEC without MULTI");
+        }
+        List<List<byte[]>> queued = session.multi;
+        boolean error = session.multiError;
+        boolean dirty = session.dirty;
+        session.multi = null;
+        session.multiError = false;
+        unwatch(session);
+        if (error) {
+            throw new RespException("EXECABORT Transaction discarded because of previous errors.");
+        }
+        if (dirty) {
+            return Resp.NULL_ARRAY;
+        }
+        List<Object> results = new ArrayList<>(queued.size());
+        boolean previous = nonBlocking;
+        nonBlocking = true;
+        try {
+            for (List<byte[]> command : queued) {
+                results.add(dispatch(session, command));
+            }
+        } finally {
+            nonBlocking = previous;
+        }
+        return results;
+    }
+
+    private Object discard(RespSession session, List<byte[]> args) {
+        if (session.multi == null) {
+            throw new RespException("ERR DISCARD without MULTI");
+        }
+        session.multi = null;
+        session.multiError = false;
+        unwatch(session);
+        return Resp.OK;
+    }
+
+    private Object watch(RespSession session, List<byte[]> args) {
+        if (session.multi != null) {
+            throw new RespException("ERR WATCH inside MULTI is not allowed");
+        }
+        for (int i = 1; i < args.size(); i++) {
+            Bytes key = new Bytes(args.get(i));
+            if (session.watched.add(key)) {
+                watchers.computeIfAbsent(key, k -> new HashSet<>()).add(session);
+            }
+        }
+        return Resp.OK;
+    }
+
+    private void unwatch(RespSession session) {
+        for (Bytes key : session.watched) {
+            Set<RespSession> watching = watchers.get(key);
+            if (watching != null) {
+                watching.remove(session);
+                if (watching.isEmpty()) {
+                    watchers.remove(key);
+                }
+            }
+        }
+        session.watched.clear();
+        session.dirty = false;
+    }
+}
@@ -0,0 +1,203 @@
+package cc.whohow.redis.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * 键空间，仅在服务线程访问
+ * <p>
+ * 值类型：byte[]（字符串）、LinkedHashMap（哈希）、ArrayList（列表）、LinkedHashSet（集合）、RespSortedSet（有序集合）
+ */
+public class RespDatabase {
+    protected final Map<Bytes, Entry> entries = new HashMap<>();
+    /**
+     * SCAN游标索引，键创建序号 -&gt; 键，重建的键获得新序号
+     */
+    protected final NavigableMap<Long, Bytes> scanIndex = new TreeMap<>();
+    protected final PriorityQueue<Expiry> expires = new PriorityQueue<>();
+    protected final Consumer<Bytes> onExpired;
+    protected long sequence = 0;
+
+    public RespDatabase(Consumer<Bytes> onExpired) {
+        this.onExpired = onExpired;
+    }
+
+    public static long now() {
+        return System.currentTimeMillis();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public Entry getEntry(Bytes key) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isExpired(now())) {
+            expire(entry);
+            return null;
+        }
+        return entry;
+    }
+
+    public Object get(Bytes key) {
+        Entry entry = getEntry(key);
+        return entry == null ? null : entry.value;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T get(Bytes key, Class<T> type) {
+        Object value = get(key);
+        if (value == null) {
+            return null;
+        }
+        if (!type.isInstance(value)) {
+            throw RespException.wrongType();
+        }
+        return (T) value;
+    }
+
+    public <T> T getOrCreate(Bytes key, Class<T> type, Supplier<T> factory) {
+        T value = get(key, type);
+        if (value == null) {
+            value = factory.get();
+            put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * 设置值，清除过期时间
+     */
+    public void put(Bytes key, Object value) {
+        put(key, value, 0);
+    }
+
+    public void put(Bytes key, Object value, long expireAt) {
+        Entry entry = getEntry(key);
+        if (entry == null) {
+            entry = new Entry(key, ++sequence);
+            entries.put(key, entry);
+            scanIndex.put(entry.sequence, key);
+        }
+        entry.value = value;
+        setExpireAt(entry, expireAt);
+    }
+
+    public boolean remove(Bytes key) {
+        Entry entry = getEntry(key);
+        if (entry == null) {
+            return false;
+        }
+        entries.remove(key);
+        scanIndex.remove(entry.sequence);
+        entry.expireAt = 0;
+        return true;
+    }
+
+    public void setExpireAt(Entry entry, long expireAt) {
+        entry.expireAt = expireAt;
+        if (expireAt > 0) {
+            expires.add(new Expiry(expireAt, entry));
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        scanIndex.clear();
+        expires.clear();
+    }
+
+    /**
+     * 主动过期，返回过期键数量
+     */
+    public int expire(int limit) {
+        long now = now();
+        int n = 0;
+        while (n < limit && !expires.isEmpty() && expires.peek().expireAt <= now) {
+            Expiry expiry = expires.poll();
+            Entry entry = expiry.entry;
+            if (entries.get(entry.key) == entry && entry.expireAt == expiry.expireAt) {
+                expire(entry);
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private void expire(Entry entry) {
+        entries.remove(entry.key);
+        scanIndex.remove(entry.sequence);
+        onExpired.accept(entry.key);
+    }
+
+    /**
+     * 扫描，返回下一游标，0表示结束
+     */
+    public long scan(long cursor, int count, Consumer<Bytes> consumer) {
+        long now = now();
+        Iterator<Map.Entry<Long, Bytes>> iterator = scanIndex.tailMap(cursor, true).entrySet().iterator();
+        List<Entry> expired = new ArrayList<>();
+        for (int i = 0; i < count && iterator.hasNext(); i++) {
+            Entry entry = entries.get(iterator.next().getValue());
+            if (entry.isExpired(now)) {
+                expired.add(entry);
+            } else {
+                consumer.accept(entry.key);
+            }
+        }
+        long next = iterator.hasNext() ? iterator.next().getKey() : 0;
+        expired.forEach(this::expire);
+        return next;
+    }
+
+    public Iterable<Bytes> keys() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    private static class Expiry implements Comparable<Expiry> {
+        private final long expireAt;
+        private final Entry entry;
+
+        private Expiry(long expireAt, Entry entry) {
+            this.expireAt = expireAt;
+            this.entry = entry;
+        }
+
+        @Override
+        public int compareTo(Expiry that) {
+            return Long.compare(expireAt, that.expireAt);
+        }
+    }
+
+    public static class Entry {
+        protected final Bytes key;
+        protected final long sequence;
+        protected Object value;
+        protected long expireAt;
+
+        public Entry(Bytes key, long sequence) {
+            this.key = key;
+            this.sequence = sequence;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public long getExpireAt() {
+            return expireAt;
+        }
+
+        public boolean isExpired(long now) {
+            return expireAt > 0 && expireAt <= now;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package cc.whohow.redis.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.DecoderException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 请求解码，支持多条批量字符串数组及内联命令，输出 List&lt;byte[]&gt;
+ */
+public class RespDecoder extends ByteToMessageDecoder {
+    private static final int MAX_INLINE = 64 * 1024;
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        while (in.isReadable()) {
+            int start = in.readerIndex();
+            List<byte[]> command = in.getByte(start) == '*' ? decodeArray(in) : decodeInline(in);
+            if (command == null) {
+                in.readerIndex(start);
+                return;
+            }
+            if (!command.isEmpty()) {
+                out.add(command);
+            }
+        }
+    }
+
+    private List<byte[]> decodeArray(ByteBuf in) {
+        in.skipBytes(1);
+        long n = readLong(in);
+        if (n < 0) {
+            return null;
+        }
+        List<byte[]> command = new ArrayList<>((int) n);
+        for (int i = 0; i < n; i++) {
+            if (!in.isReadable()) {
+                return null;
+            }
+            if (in.readByte() != '$') {
+                throw new DecoderException("Protocol error: expected '$'");
+            }
+            long length = readLong(in);
+            if (length < 0 || in.readableBytes() < length + 2) {
+                return null;
+            }
+            byte[] bytes = new byte[(int) length];
+            in.readBytes(bytes);
+            in.skipBytes(2);
+            command.add(bytes);
+        }
+        return command;
+    }
+
+    private List<byte[]> decodeInline(ByteBuf in) {
+        int eol = in.indexOf(in.readerIndex(), in.writerIndex(), (byte) '\n');
+        if (eol < 0) {
+            if (in.readableBytes() > MAX_INLINE) {
+                throw new DecoderException("Protocol error: too big inline request");
+            }
+            return null;
+        }
+        String line = in.readCharSequence(eol - in.readerIndex(), StandardCharsets.UTF_8).toString().trim();
+        in.skipBytes(1);
+        List<byte[]> command = new ArrayList<>();
+        for (String arg : line.split("\\s+")) {
+            if (!arg.isEmpty()) {
+                command.add(arg.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return command;
+    }
+
+    /**
+     * 读取整数及行尾，数据不完整返回-1
+     */
+    private long readLong(ByteBuf in) {
+        int eol = in.indexOf(in.readerIndex(), in.writerIndex(), (byte) '\r');
+        if (eol < 0 || eol + 1 >= in.writerIndex()) {
+            return -1;
+        }
+        long value = 0;
+        boolean negative = false;
+        while (in.readerIndex() < eol) {
+            byte b = in.readByte();
+            if (b == '-') {
+                negative = true;
+            } else if ('0' <= b && b <= '9') {
+                value = value * 10 + (b - '0');
+            } else {
+                throw new DecoderException("Protocol error: invalid length");
+            }
+        }
+        in.skipBytes(2);
+        return negative ? -value : value;
+    }
+}
@@ -0,0 +1,27 @@
+package cc.whohow.redis.server;
+
+/**
+ * 错误回复，消息以错误码开头（ERR、WRONGTYPE、NOSCRIPT...）
+ */
+public class RespException extends RuntimeException {
+    public static final String WRONGTYPE = "WRONGTYPE Operation against a key holding the wrong kind of value";
+    public static final String SYNTAX = "ERR syntax error";
+    public static final String NOT_INTEGER = "ERR value is not an integer or out of range";
+    public static final String NOT_FLOAT = "ERR value is not a valid float";
+
+    public RespException(String message) {
+        super(message, null, false, false);
+    }
+
+    public static RespException wrongType() {
+        return new RespException(WRONGTYPE);
+    }
+
+    public static RespException syntax() {
+        return new RespException(SYNTAX);
+    }
+
+    public static RespException wrongArity(String command) {
+        return new RespException("ERR wrong number of arguments for '" + command.toLowerCase() + "' command");
+    }
+}
@@ -0,0 +1,192 @@
+package cc.whohow.redis.server;
+
+import cc.whohow.redis.RedisScript;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 内置Lua脚本的Java实现（无Lua解释器），按脚本SHA1注册
+ */
+public class RespScripts {
+    /**
+     * 脚本实现，返回值同命令回复（Lua false/nil 对应 null）
+     */
+    @FunctionalInterface
+    public interface Script {
+        Object eval(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args);
+    }
+
+    public static void registerBuiltin(RespCommands commands) {
+        commands.registerScript(RedisScript.get("acc"), RespScripts::acc);
+        commands.registerScript(RedisScript.get("cad"), RespScripts::cad);
+        commands.registerScript(RedisScript.get("cas"), RespScripts::cas);
+        commands.registerScript(RedisScript.get("exists"), RespScripts::exists);
+        commands.registerScript(RedisScript.get("get"), RespScripts::get);
+        commands.registerScript(RedisScript.get("getdel"), RespScripts::getdel);
+        commands.registerScript(RedisScript.get("getset"), RespScripts::getset);
+        commands.registerScript(RedisScript.get("zremrangebyscore"), RespScripts::zremrangebyscore);
+    }
+
+    /**
+     * redis.call('set', KEYS[1], value, ARGV[from]...)
+     */
+    private static Object set(RespCommands commands, RespSession session, byte[] key, byte[] value, List<byte[]> args, int from) {
+        List<Object> command = new ArrayList<>();
+        command.add("SET");
+        command.add(key);
+        command.add(value);
+        command.addAll(args.subList(from, args.size()));
+        return commands.call(session, command.toArray());
+    }
+
+    static Object acc(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args) {
+        Object value = commands.call(session, "GET", keys.get(0));
+        double newValue = toNumber(value);
+        double operand = args.size() > 1 ? toNumber(args.get(1)) : 0;
+        switch (Resp.string(args.get(0))) {
+            case "+":
+                newValue = newValue + operand;
+                break;
+            case "-":
+                newValue = newValue - operand;
+                break;
+            case "*":
+                newValue = newValue * operand;
+                break;
+            case "/":
+                newValue = newValue / operand;
+                break;
+            case "//": {
+                double quotient = newValue / operand;
+                newValue = quotient < 0 ? Math.ceil(quotient) : Math.floor(quotient);
+                break;
+            }
+            case "%":
+                newValue = newValue - Math.floor(newValue / operand) * operand;
+                break;
+            case "^":
+                newValue = Math.pow(newValue, operand);
+                break;
+            default:
+                break;
+        }
+        if (args.size() >= 2 && args.size() <= 5) {
+            set(commands, session, keys.get(0), Resp.bytes(luaNumber(newValue)), args, 2);
+        }
+        return value;
+    }
+
+    static Object cad(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args) {
+        Object value = commands.call(session, "GET", keys.get(0));
+        if (value instanceof byte[] && Arrays.equals((byte[]) value, args.get(0))) {
+            return commands.call(session, "DEL", keys.get(0));
+        }
+        return 0L;
+    }
+
+    static Object cas(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args) {
+        Object value = commands.call(session, "GET", keys.get(0));
+        if (value == null || Arrays.equals((byte[]) value, args.get(0))) {
+            if (args.size() >= 2 && args.size() <= 5) {
+                return set(commands, session, keys.get(0), args.get(1), args, 2);
+            }
+        }
+        return null;
+    }
+
+    static Object exists(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args) {
+        StringBuilder result = new StringBuilder(keys.size());
+        for (byte[] key : keys) {
+            result.append(commands.call(session, "EXISTS", key));
+        }
+        return result.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object get(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args) {
+        Object value = commands.call(session, "GET", keys.get(0));
+        Object ttl = commands.call(session, "PTTL", keys.get(0));
+        List<Object> time = (List<Object>) commands.call(session, "TIME");
+        return Arrays.asList(value, String.valueOf(ttl), time.get(0), time.get(1));
+    }
+
+    static Object getdel(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args) {
+        Object value = commands.call(session, "GET", keys.get(0));
+        commands.call(session, "DEL", keys.get(0));
+        return value;
+    }
+
+    static Object getset(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args) {
+        Object value = commands.call(session, "GET", keys.get(0));
+        if (args.size() >= 1 && args.size() <= 4) {
+            return set(commands, session, keys.get(0), args.get(0), args, 1);
+        }
+        return value;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Object zremrangebyscore(RespCommands commands, RespSession session, List<byte[]> keys, List<byte[]> args) {
+        int step;
+        switch (args.size()) {
+            case 2:
+            case 5:
+                step = 1;
+                break;
+            case 3:
+            case 6:
+                step = 2;
+                break;
+            default:
+                return new ArrayList<>();
+        }
+        List<Object> command = new ArrayList<>();
+        command.add("ZRANGEBYSCORE");
+        command.add(keys.get(0));
+        command.addAll(args);
+        List<Object> range = (List<Object>) commands.call(session, command.toArray());
+        for (int i = 0; i < range.size(); i += step) {
+            commands.call(session, "ZREM", keys.get(0), range.get(i));
+        }
+        return range;
+    }
+
+    /**
+     * Lua tonumber，无法转换时为0
+     */
+    private static double toNumber(Object value) {
+        if (!(value instanceof byte[])) {
+            return 0;
+        }
+        try {
+            return Double.parseDouble(Resp.string((byte[]) value).trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Lua 5.1 数字转字符串（%.14g）
+     */
+    static String luaNumber(double value) {
+        if (Double.isNaN(value)) {
+            return "nan";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "inf" : "-inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        String text = String.format(Locale.ROOT, "%.14g", value);
+        int e = text.indexOf('e');
+        String mantissa = e < 0 ? text : text.substring(0, e);
+        String exponent = e < 0 ? "" : text.substring(e);
+        if (mantissa.indexOf('.') >= 0) {
+            mantissa = mantissa.replaceAll("0+$", "").replaceAll("\\.$", "");
+        }
+        return mantissa + exponent;
+    }
+}
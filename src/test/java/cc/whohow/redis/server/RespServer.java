@@ -0,0 +1,186 @@
+package cc.whohow.redis.server;
+
+import io.lettuce.core.RedisURI;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 进程内RESP服务，监听回环地址，实现本库使用的命令子集，用于测试及基准测试
+ * <p>
+ * 与Redis一致，所有命令在单个线程上顺序执行
+ */
+public class RespServer implements AutoCloseable {
+    private static final Logger log = LogManager.getLogger();
+    private static final AttributeKey<RespSession> SESSION = AttributeKey.valueOf(RespSession.class.getName());
+
+    protected final int port;
+    protected final RespCommands commands = new RespCommands();
+    protected EventLoopGroup bossGroup;
+    /**
+     * 单线程，命令串行执行
+     */
+    protected EventLoopGroup workerGroup;
+    protected Channel serverChannel;
+
+    public RespServer() {
+        this(0);
+    }
+
+    public RespServer(int port) {
+        this.port = port;
+    }
+
+    public RespServer start() {
+        bossGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("resp-server-boss", true));
+        workerGroup = new NioEventLoopGroup(1, new DefaultThreadFactory("resp-server", true));
+        serverChannel = new ServerBootstrap()
+                .group(bossGroup, workerGroup)
+                .channel(NioServerSocketChannel.class)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline().addLast(new RespDecoder(), new Handler());
+                    }
+                })
+                .bind("127.0.0.1", port)
+                .syncUninterruptibly()
+                .channel();
+        workerGroup.scheduleAtFixedRate(commands::cron, 100, 100, TimeUnit.MILLISECONDS);
+        log.debug("RespServer started on {}", serverChannel.localAddress());
+        return this;
+    }
+
+    public int getPort() {
+        return ((InetSocketAddress) serverChannel.localAddress()).getPort();
+    }
+
+    public RedisURI getURI() {
+        return RedisURI.create("127.0.0.1", getPort());
+    }
+
+    /**
+     * 在服务线程上访问内部状态（注册脚本、检查数据等）
+     */
+    public <T> T call(Callable<T> task) {
+        try {
+            return workerGroup.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public RespCommands getCommands() {
+        return commands;
+    }
+
+    public void registerScript(String sha1, RespScripts.Script script) {
+        call(() -> {
+            commands.registerScript(sha1, script);
+            return null;
+        });
+    }
+
+    /**
+     * 修改配置，如 notify-keyspace-events
+     */
+    public RespServer config(String name, String value) {
+        call(() -> commands.config.put(name, value));
+        return this;
+    }
+
+    public void flushAll() {
+        call(() -> {
+            commands.flushAll();
+            return null;
+        });
+    }
+
+    /**
+     * 断开所有客户端连接，模拟网络故障，返回断开连接数
+     */
+    public int killClients() {
+        return call(() -> {
+            List<RespSession> sessions = new ArrayList<>(commands.sessions.values());
+            for (RespSession session : sessions) {
+                session.channel.close();
+            }
+            return sessions.size();
+        });
+    }
+
+    @Override
+    public void close() {
+        if (serverChannel != null) {
+            serverChannel.close().syncUninterruptibly();
+        }
+        if (bossGroup != null) {
+            bossGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+        if (workerGroup != null) {
+            workerGroup.shutdownGracefully(0, 1, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
+    private class Handler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.channel().attr(SESSION).set(commands.open(ctx.channel()));
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) {
+            RespSession session = ctx.channel().attr(SESSION).getAndSet(null);
+            if (session != null) {
+                commands.close(session);
+            }
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            RespSession session = ctx.channel().attr(SESSION).get();
+            if (session != null) {
+                commands.execute(session, (List<byte[]>) msg);
+            }
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            RespSession session = ctx.channel().attr(SESSION).get();
+            if (session != null) {
+                session.flush();
+            }
+        }
+
+        @Override
+        public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+            log.debug("RespServer connection error", cause);
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package cc.whohow.redis.server;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 客户端连接状态
+ */
+public class RespSession {
+    protected final long id;
+    protected final Channel channel;
+    protected int protocol = 2;
+    protected String name;
+    protected ByteBuf out;
+    /**
+     * 订阅
+     */
+    protected final Set<Bytes> channels = new HashSet<>();
+    protected final Set<Bytes> patterns = new HashSet<>();
+    /**
+     * 事务
+     */
+    protected List<List<byte[]>> multi;
+    protected boolean multiError;
+    protected final Set<Bytes> watched = new HashSet<>();
+    protected boolean dirty;
+    /**
+     * 阻塞命令等待中，期间收到的命令排队
+     */
+    protected RespCommands.Waiter blocked;
+    protected final Deque<List<byte[]>> pending = new ArrayDeque<>();
+    /**
+     * 客户端缓存（仅支持BCAST模式）
+     */
+    protected long trackingRedirect = -1;
+    protected List<byte[]> trackingPrefixes = new ArrayList<>();
+
+    public RespSession(long id, Channel channel) {
+        this.id = id;
+        this.channel = channel;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean isSubscribed() {
+        return !channels.isEmpty() || !patterns.isEmpty();
+    }
+
+    public boolean isTracking() {
+        return trackingRedirect >= 0;
+    }
+
+    public void reply(Object value) {
+        if (out == null) {
+            out = channel.alloc().buffer();
+        }
+        Resp.encode(value, out, protocol);
+    }
+
+    public void flush() {
+        if (out != null) {
+            ByteBuf buffer = out;
+            out = null;
+            channel.writeAndFlush(buffer);
+        }
+    }
+
+    public void release() {
+        if (out != null) {
+            out.release();
+            out = null;
+        }
+    }
+}
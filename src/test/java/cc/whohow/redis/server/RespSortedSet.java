@@ -0,0 +1,237 @@
+package cc.whohow.redis.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * 有序集合，按分值、成员排序
+ */
+public class RespSortedSet {
+    protected final Map<Bytes, Double> scores = new HashMap<>();
+    protected final NavigableSet<Member> members = new TreeSet<>();
+
+    public int size() {
+        return scores.size();
+    }
+
+    public boolean isEmpty() {
+        return scores.isEmpty();
+    }
+
+    public Double score(Bytes member) {
+        return scores.get(member);
+    }
+
+    /**
+     * 添加或更新，返回是否新增
+     */
+    public boolean add(Bytes member, double score) {
+        Double old = scores.put(member, score);
+        if (old != null) {
+            members.remove(new Member(old, member));
+        }
+        members.add(new Member(score, member));
+        return old == null;
+    }
+
+    public boolean remove(Bytes member) {
+        Double old = scores.remove(member);
+        if (old == null) {
+            return false;
+        }
+        members.remove(new Member(old, member));
+        return true;
+    }
+
+    public Iterable<Member> ascending() {
+        return members;
+    }
+
+    public Iterable<Member> descending() {
+        return members.descendingSet();
+    }
+
+    /**
+     * 排名，从0开始，不存在返回-1
+     */
+    public long rank(Bytes member, boolean reverse) {
+        Double score = scores.get(member);
+        if (score == null) {
+            return -1;
+        }
+        int rank = members.headSet(new Member(score, member), false).size();
+        return reverse ? size() - 1 - rank : rank;
+    }
+
+    public List<Member> range(long start, long stop, boolean reverse) {
+        int size = size();
+        if (start < 0) {
+            start = Long.max(0, size + start);
+        }
+        if (stop < 0) {
+            stop = size + stop;
+        }
+        stop = Long.min(stop, size - 1);
+        List<Member> result = new ArrayList<>();
+        if (start > stop) {
+            return result;
+        }
+        Iterator<Member> iterator = (reverse ? members.descendingSet() : members).iterator();
+        for (long i = 0; i <= stop && iterator.hasNext(); i++) {
+            Member member = iterator.next();
+            if (i >= start) {
+                result.add(member);
+            }
+        }
+        return result;
+    }
+
+    public List<Member> rangeByScore(ScoreRange range, boolean reverse, long offset, long count) {
+        List<Member> result = new ArrayList<>();
+        for (Member member : reverse ? members.descendingSet() : members) {
+            if (!range.contains(member.score)) {
+                if (reverse ? member.score < range.min : member.score > range.max) {
+                    break;
+                }
+                continue;
+            }
+            if (offset > 0) {
+                offset--;
+                continue;
+            }
+            if (count == 0) {
+                break;
+            }
+            result.add(member);
+            count--;
+        }
+        return result;
+    }
+
+    public List<Member> rangeByLex(LexRange range, boolean reverse, long offset, long count) {
+        List<Member> result = new ArrayList<>();
+        for (Member member : reverse ? members.descendingSet() : members) {
+            if (!range.contains(member.member)) {
+                continue;
+            }
+            if (offset > 0) {
+                offset--;
+                continue;
+            }
+            if (count == 0) {
+                break;
+            }
+            result.add(member);
+            count--;
+        }
+        return result;
+    }
+
+    public static class Member implements Comparable<Member> {
+        protected final double score;
+        protected final Bytes member;
+
+        public Member(double score, Bytes member) {
+            this.score = score;
+            this.member = member;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public Bytes getMember() {
+            return member;
+        }
+
+        @Override
+        public int compareTo(Member that) {
+            int c = Double.compare(score, that.score);
+            return c != 0 ? c : member.compareTo(that.member);
+        }
+    }
+
+    /**
+     * 分值区间：-inf +inf (1.5 1.5
+     */
+    public static class ScoreRange {
+        protected final double min;
+        protected final boolean minExclusive;
+        protected final double max;
+        protected final boolean maxExclusive;
+
+        public ScoreRange(byte[] min, byte[] max) {
+            this.minExclusive = min.length > 0 && min[0] == '(';
+            this.min = Resp.parseDouble(minExclusive ? tail(min) : min);
+            this.maxExclusive = max.length > 0 && max[0] == '(';
+            this.max = Resp.parseDouble(maxExclusive ? tail(max) : max);
+        }
+
+        public boolean contains(double score) {
+            return (minExclusive ? score > min : score >= min) && (maxExclusive ? score < max : score <= max);
+        }
+    }
+
+    /**
+     * 字典区间：- + [a (a
+     */
+    public static class LexRange {
+        /**
+         * null 表示 - 或 +
+         */
+        protected final byte[] min;
+        protected final boolean minExclusive;
+        protected final boolean minPositiveInfinity;
+        protected final byte[] max;
+        protected final boolean maxExclusive;
+        protected final boolean maxNegativeInfinity;
+
+        public LexRange(byte[] min, byte[] max) {
+            this.min = bound(min);
+            this.minExclusive = min[0] == '(';
+            this.minPositiveInfinity = this.min == null && min[0] == '+';
+            this.max = bound(max);
+            this.maxExclusive = max[0] == '(';
+            this.maxNegativeInfinity = this.max == null && max[0] == '-';
+        }
+
+        private static byte[] bound(byte[] bound) {
+            if (bound.length == 1 && (bound[0] == '-' || bound[0] == '+')) {
+                return null;
+            }
+            if (bound.length == 0 || (bound[0] != '[' && bound[0] != '(')) {
+                throw new RespException("ERR min or max not valid string range item");
+            }
+            return tail(bound);
+        }
+
+        public boolean contains(Bytes member) {
+            if (minPositiveInfinity || maxNegativeInfinity) {
+                return false;
+            }
+            byte[] m = member.get();
+            if (min != null) {
+                int c = Bytes.compare(m, min);
+                if (minExclusive ? c <= 0 : c < 0) {
+                    return false;
+                }
+            }
+            if (max != null) {
+                int c = Bytes.compare(m, max);
+                return maxExclusive ? c < 0 : c <= 0;
+            }
+            return true;
+        }
+    }
+
+    private static byte[] tail(byte[] bytes) {
+        byte[] tail = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 1, tail, 0, tail.length);
+        return tail;
+    }
+}